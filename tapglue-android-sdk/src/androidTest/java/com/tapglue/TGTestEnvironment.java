@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import com.tapglue.networking.TGRequestPipeline;
+import com.tapglue.networking.fake.TGFakeTransport;
+import com.tapglue.networking.requests.TGCall;
+import com.tapglue.networking.requests.TGRequestCallback;
+import com.tapglue.networking.requests.TGRequestErrorType;
+
+import junit.framework.Assert;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Library initialized once per test process with fake transport - tests share the instance and
+ * toggle network availability of the transport
+ */
+public final class TGTestEnvironment {
+    /**
+     * Amount of social connection IDs sent in one request
+     */
+    public static final int SOCIAL_UPLOAD_CHUNK_SIZE = 2;
+    /**
+     * Transport of shared instance
+     */
+    private static TGFakeTransport sTransport;
+
+    private TGTestEnvironment() {
+    }
+
+    /**
+     * Initialize library on first call, network is available after every call
+     *
+     * @param context test context
+     *
+     * @return Fake transport of library
+     */
+    @NonNull
+    public static synchronized TGFakeTransport initialize(@NonNull Context context) throws Exception {
+        if (sTransport == null) {
+            sTransport = new TGFakeTransport();
+            Tapglue.initialize(context, new Tapglue.TGConfiguration()
+                .setToken("test")
+                .setTransport(sTransport)
+                .setCallbackDelivery(TGRequestPipeline.Delivery.BACKGROUND)
+                .setSocialUploadChunkSize(SOCIAL_UPLOAD_CHUNK_SIZE));
+            Tapglue.ready().get();
+        }
+        sTransport.setNetworkAvailable(true);
+        return sTransport;
+    }
+
+    /**
+     * Login user through user manager and wait for it
+     *
+     * @param userName name of user
+     */
+    public static void login(@NonNull String userName) throws Exception {
+        Assert.assertEquals(Boolean.TRUE, await(Tapglue.user().login(userName, "password")));
+    }
+
+    /**
+     * Logout current user and wait for it
+     */
+    public static void logout() throws Exception {
+        await(Tapglue.user().logout());
+    }
+
+    /**
+     * Wait for result of call
+     *
+     * @param call call to wait for
+     *
+     * @return Result of call
+     */
+    public static <T> T await(@NonNull TGCall<T> call) throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        final Object[] result = new Object[1];
+        call.enqueue(new TGRequestCallback<T>() {
+            @Override
+            public boolean callbackIsEnabled() {
+                return true;
+            }
+
+            @Override
+            public void onRequestError(TGRequestErrorType cause) {
+                result[0] = cause;
+                done.countDown();
+            }
+
+            @Override
+            public void onRequestFinished(T output, boolean changeDoneOnline) {
+                result[0] = output;
+                done.countDown();
+            }
+        });
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        if (result[0] instanceof TGRequestErrorType) {
+            Assert.fail("Request failed: " + ((TGRequestErrorType) result[0]).getType());
+        }
+        @SuppressWarnings("unchecked")
+        T output = (T) result[0];
+        return output;
+    }
+}
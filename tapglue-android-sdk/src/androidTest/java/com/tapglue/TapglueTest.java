@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.tapglue.managers.TGUserManager;
+import com.tapglue.networking.TGRequestPipeline;
+import com.tapglue.networking.fake.TGFakeTransport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TapglueTest extends AndroidTestCase {
+
+    private Tapglue create() {
+        return Tapglue.create(getContext(), new Tapglue.TGConfiguration()
+            .setToken("test")
+            .setTransport(new TGFakeTransport())
+            .setCallbackDelivery(TGRequestPipeline.Delivery.BACKGROUND)
+            .setAsyncInitialization(true));
+    }
+
+    @SmallTest
+    public void testCurrentUserWaitsForDeferredInitialization() throws Exception {
+        Tapglue instance = create();
+        final TGUserManager users = instance.getUserManager();
+        final CountDownLatch read = new CountDownLatch(1);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                users.getCurrentUser();
+                read.countDown();
+            }
+        }).start();
+        assertFalse(read.await(200, TimeUnit.MILLISECONDS));
+
+        instance.start();
+        assertTrue(read.await(5, TimeUnit.SECONDS));
+        assertTrue(instance.getInitializationTimings().containsKey("user_cache"));
+    }
+
+    @SmallTest
+    public void testNetworkManagerIsCreatedInDeferredPhase() throws Exception {
+        Tapglue instance = create();
+        assertEquals(Arrays.asList("core", "managers"), new ArrayList<>(instance.getInitializationTimings().keySet()));
+
+        instance.start();
+        instance.awaitInitialization();
+        assertEquals(Arrays.asList("core", "managers", "network_manager", "user_cache", "network_stack"),
+            new ArrayList<>(instance.getInitializationTimings().keySet()));
+        for (Long duration : instance.getInitializationTimings().values()) {
+            assertTrue(duration >= 0);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.google.gson.Gson;
+import com.tapglue.model.TGConnectionUsersList;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+public class TGConnectionIndexTest extends TestCase {
+
+    private final Gson mGson = new Gson();
+
+    private TGConnectionUsersList list(String users) {
+        return mGson.fromJson("{\"users\":[" + users + "]}", TGConnectionUsersList.class);
+    }
+
+    @SmallTest
+    public void testMutualConnectionsNeedCompleteLists() {
+        TGSocialGraph graph = new TGSocialGraph();
+        TGConnectionIndex index = new TGConnectionIndex(graph);
+        graph.set(TGSocialGraph.Relation.FRIEND, 1, true);
+        index.put(10, TGSocialGraph.Relation.FRIEND, list("{\"id\":1}").getUsers());
+        assertNull(index.intersect(TGSocialGraph.Relation.FRIEND, null, 10L));
+
+        graph.replace(TGSocialGraph.Relation.FRIEND, list("{\"id\":1},{\"id\":2}").getUsers());
+        assertTrue(Arrays.equals(new long[]{1}, index.intersect(TGSocialGraph.Relation.FRIEND, null, 10L)));
+        assertTrue(Arrays.equals(new long[]{2}, index.difference(TGSocialGraph.Relation.FRIEND, null, 10L)));
+        assertNull(index.intersect(TGSocialGraph.Relation.FRIEND, null, 11L));
+    }
+
+    @SmallTest
+    public void testResultIsRefreshedWithEitherList() {
+        TGSocialGraph graph = new TGSocialGraph();
+        TGConnectionIndex index = new TGConnectionIndex(graph);
+        index.put(10, TGSocialGraph.Relation.FOLLOWS, list("{\"id\":1},{\"id\":2}").getUsers());
+        index.put(20, TGSocialGraph.Relation.FOLLOWS, list("{\"id\":2},{\"id\":3}").getUsers());
+        assertTrue(Arrays.equals(new long[]{2}, index.intersect(TGSocialGraph.Relation.FOLLOWS, 20L, 10L)));
+
+        index.put(10, TGSocialGraph.Relation.FOLLOWS, list("{\"id\":2},{\"id\":3}").getUsers());
+        assertTrue(Arrays.equals(new long[]{2, 3}, index.intersect(TGSocialGraph.Relation.FOLLOWS, 10L, 20L)));
+
+        graph.replace(TGSocialGraph.Relation.FOLLOWS, list("{\"id\":3}").getUsers());
+        assertTrue(Arrays.equals(new long[]{3}, index.intersect(TGSocialGraph.Relation.FOLLOWS, null, 20L)));
+        graph.set(TGSocialGraph.Relation.FOLLOWS, 2, true);
+        assertTrue(Arrays.equals(new long[]{2, 3}, index.intersect(TGSocialGraph.Relation.FOLLOWS, 20L, null)));
+    }
+
+    @SmallTest
+    public void testClear() {
+        TGConnectionIndex index = new TGConnectionIndex(new TGSocialGraph());
+        index.put(10, TGSocialGraph.Relation.FRIEND, list("{\"id\":1}").getUsers());
+        index.clear();
+        assertNull(index.get(10L, TGSocialGraph.Relation.FRIEND));
+    }
+}
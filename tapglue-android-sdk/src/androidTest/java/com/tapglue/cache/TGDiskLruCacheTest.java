@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class TGDiskLruCacheTest extends TestCase {
+
+    private File mDirectory;
+
+    @Override
+    protected void setUp() throws IOException {
+        mDirectory = File.createTempFile("tgdisklru", "");
+        mDirectory.delete();
+        mDirectory.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() {
+        new TGDiskLruCache(mDirectory, Long.MAX_VALUE).clear();
+        mDirectory.delete();
+    }
+
+    @SmallTest
+    public void testPutAndGet() {
+        TGDiskLruCache cache = new TGDiskLruCache(mDirectory, 100);
+        cache.put("http://a", new byte[]{1, 2, 3});
+        assertTrue(Arrays.equals(new byte[]{1, 2, 3}, cache.get("http://a")));
+        assertNull(cache.get("http://b"));
+        assertEquals(3, cache.getSize());
+    }
+
+    @SmallTest
+    public void testLeastRecentlyUsedIsEvicted() {
+        TGDiskLruCache cache = new TGDiskLruCache(mDirectory, 20);
+        cache.put("a", new byte[10]);
+        cache.put("b", new byte[10]);
+        assertNotNull(cache.get("a"));
+        cache.put("c", new byte[10]);
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(20, cache.getSize());
+    }
+
+    @SmallTest
+    public void testTooBigDataIsNotStored() {
+        TGDiskLruCache cache = new TGDiskLruCache(mDirectory, 5);
+        cache.put("a", new byte[6]);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getSize());
+    }
+
+    @SmallTest
+    public void testEntriesSurviveReopening() {
+        new TGDiskLruCache(mDirectory, 100).put("a", new byte[]{7});
+        TGDiskLruCache cache = new TGDiskLruCache(mDirectory, 100);
+        assertTrue(Arrays.equals(new byte[]{7}, cache.get("a")));
+        assertEquals(1, cache.getSize());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.google.gson.Gson;
+import com.tapglue.model.TGConnectionUser;
+import com.tapglue.model.TGConnectionUsersList;
+import com.tapglue.model.TGEvent;
+import com.tapglue.model.TGUser;
+
+import junit.framework.TestCase;
+
+public class TGEntityStoreTest extends TestCase {
+
+    private final Gson mGson = new Gson();
+
+    @SmallTest
+    public void testMergeKeepsCanonicalObject() {
+        TGEntityStore store = new TGEntityStore();
+        TGUser first = store.merge(mGson.fromJson("{\"id\":1,\"first_name\":\"Old\",\"session_token\":\"token\"}", TGUser.class));
+        TGUser second = store.merge(mGson.fromJson("{\"id\":1,\"first_name\":\"New\"}", TGUser.class));
+        assertSame(first, second);
+        assertEquals("New", first.getFirstName());
+        assertEquals("token", first.getSessionToken());
+        assertSame(first, store.get(TGUser.class, 1));
+    }
+
+    @SmallTest
+    public void testMergeSharesFieldsBetweenClasses() {
+        TGEntityStore store = new TGEntityStore();
+        TGUser user = store.merge(mGson.fromJson("{\"id\":1,\"first_name\":\"Old\"}", TGUser.class));
+        TGConnectionUsersList list = mGson.fromJson("{\"users\":[{\"id\":1,\"first_name\":\"New\"},{\"id\":2}]}", TGConnectionUsersList.class);
+        store.mergeResponse(list);
+        assertEquals("New", user.getFirstName());
+        TGConnectionUsersList other = mGson.fromJson("{\"users\":[{\"id\":2,\"user_name\":\"two\"}]}", TGConnectionUsersList.class);
+        store.mergeResponse(other);
+        assertSame(list.getUsers().get(1), other.getUsers().get(0));
+        assertEquals("two", list.getUsers().get(1).getUserName());
+        assertSame(list.getUsers().get(0), store.get(TGConnectionUser.class, 1));
+    }
+
+    @SmallTest
+    public void testOlderObjectIsIgnored() {
+        TGEntityStore store = new TGEntityStore();
+        TGEvent event = store.merge(mGson.fromJson("{\"id\":1,\"type\":\"new\",\"updated_at\":\"2015-02-01T00:00:00Z\"}", TGEvent.class));
+        store.merge(mGson.fromJson("{\"id\":1,\"type\":\"old\",\"updated_at\":\"2015-01-01T00:00:00Z\"}", TGEvent.class));
+        assertEquals("new", event.getType());
+    }
+
+    @SmallTest
+    public void testRemoveAndClear() {
+        TGEntityStore store = new TGEntityStore();
+        TGEvent event = store.merge(mGson.fromJson("{\"id\":1}", TGEvent.class));
+        TGUser user = store.merge(mGson.fromJson("{\"id\":1}", TGUser.class));
+        assertEquals(2, store.size());
+        store.remove(event);
+        assertNull(store.get(TGEvent.class, 1));
+        assertSame(user, store.get(TGUser.class, 1));
+        store.clear();
+        assertNull(store.get(TGUser.class, 1));
+    }
+
+    @SmallTest
+    public void testResolveLocal() {
+        TGEntityStore store = new TGEntityStore();
+        TGEvent local = store.merge(new TGEvent().setType("like").setLocalID(-1));
+        assertTrue(local.isLocal());
+        assertSame(local, store.get(TGEvent.class, -1));
+        TGEvent created = store.resolveLocal(-1, mGson.fromJson("{\"id\":10,\"type\":\"like\"}", TGEvent.class));
+        assertSame(local, created);
+        assertFalse(local.isLocal());
+        assertEquals(Long.valueOf(10), local.getID());
+        assertNull(store.get(TGEvent.class, -1));
+        assertSame(local, store.get(TGEvent.class, 10));
+    }
+}
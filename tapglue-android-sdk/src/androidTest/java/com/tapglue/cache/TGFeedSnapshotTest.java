@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.google.gson.Gson;
+import com.tapglue.model.TGEvent;
+import com.tapglue.model.TGFeed;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+public class TGFeedSnapshotTest extends TestCase {
+
+    private File mFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        mFile = File.createTempFile("feed", ".snapshot");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mFile.delete();
+    }
+
+    @SmallTest
+    public void testWriteAndRead() {
+        TGFeed feed = new Gson().fromJson("{\"events\":[{\"id\":1,\"type\":\"like\"},{\"id\":2,\"type\":\"\\u0105\\u0119\"},{\"id\":3}],\"unread_events_count\":2}", TGFeed.class);
+        assertTrue(TGFeedSnapshot.write(mFile, feed));
+        TGFeedSnapshot snapshot = TGFeedSnapshot.open(mFile);
+        assertNotNull(snapshot);
+        assertEquals(3, snapshot.size());
+        assertEquals(Long.valueOf(2), snapshot.getUnreadCount());
+        assertEquals("\u0105\u0119", snapshot.decode(1).getType());
+
+        List<TGEvent> events = snapshot.getEvents(1, 10, null);
+        assertEquals(2, events.size());
+        assertEquals(Long.valueOf(2), events.get(0).getID());
+        assertSame(events.get(0), events.get(0));
+        assertEquals(Long.valueOf(3), events.get(1).getID());
+    }
+
+    @SmallTest
+    public void testEntityStore() {
+        TGEntityStore store = new TGEntityStore();
+        TGEvent event = store.merge(new Gson().fromJson("{\"id\":1,\"type\":\"like\"}", TGEvent.class));
+        TGFeed feed = new Gson().fromJson("{\"events\":[{\"id\":1,\"type\":\"like\"}]}", TGFeed.class);
+        assertTrue(TGFeedSnapshot.write(mFile, feed));
+        TGFeedSnapshot snapshot = TGFeedSnapshot.open(mFile);
+        assertNotNull(snapshot);
+        assertNull(snapshot.getUnreadCount());
+        assertSame(event, snapshot.getFeed(0, 1, store).getEvents().get(0));
+    }
+
+    @SmallTest
+    public void testInvalidFile() throws Exception {
+        FileOutputStream out = new FileOutputStream(mFile);
+        out.write(new byte[32]);
+        out.close();
+        assertNull(TGFeedSnapshot.open(mFile));
+        assertTrue(TGFeedSnapshot.write(mFile, null));
+        assertNull(TGFeedSnapshot.open(mFile));
+    }
+
+    @SmallTest
+    public void testCorruptedIndex() throws Exception {
+        TGFeed feed = new Gson().fromJson("{\"events\":[{\"id\":1},{\"id\":2}]}", TGFeed.class);
+        assertTrue(TGFeedSnapshot.write(mFile, feed));
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        file.seek(20 + 8 + 4);
+        file.writeInt(Integer.MAX_VALUE);
+        file.close();
+        assertNull(TGFeedSnapshot.open(mFile));
+
+        assertTrue(TGFeedSnapshot.write(mFile, feed));
+        file = new RandomAccessFile(mFile, "rw");
+        file.seek(20);
+        file.writeInt(-1);
+        file.close();
+        assertNull(TGFeedSnapshot.open(mFile));
+    }
+}
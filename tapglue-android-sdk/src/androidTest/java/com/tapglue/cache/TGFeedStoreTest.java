@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.google.gson.Gson;
+import com.tapglue.model.TGEvent;
+import com.tapglue.model.TGFeed;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class TGFeedStoreTest extends AndroidTestCase {
+
+    private TGFeedStore mStore;
+
+    private static TGFeed feed(String events, long unread) {
+        return new Gson().fromJson("{\"events\":[" + events + "],\"unread_events_count\":" + unread + "}", TGFeed.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mStore = new TGFeedStore(getContext());
+        mStore.clear();
+    }
+
+    @SmallTest
+    public void testSavedFeedIsUpserted() {
+        mStore.saveFeed(feed("{\"id\":1,\"type\":\"like\",\"object\":{\"id\":\"o1\",\"url\":\"old\"}},"
+            + "{\"id\":2,\"type\":\"like\"}", 1));
+        mStore.saveFeed(feed("{\"id\":3,\"type\":\"share\"},"
+            + "{\"id\":1,\"type\":\"comment\",\"object\":{\"id\":\"o1\",\"url\":\"new\"}}", 2));
+
+        TGFeed stored = mStore.readFeed(0, 10);
+        assertNotNull(stored);
+        assertEquals(Long.valueOf(2), stored.getUnreadCount());
+        assertEquals(Long.valueOf(3), stored.getEvents().get(0).getID());
+        TGEvent updated = stored.getEvents().get(1);
+        assertEquals(Long.valueOf(1), updated.getID());
+        assertEquals("comment", updated.getType());
+        assertEquals("new", updated.getObject().getUrl());
+    }
+
+    @SmallTest
+    public void testEventsOfOlderSyncsArePruned() {
+        mStore.saveFeed(feed("{\"id\":1},{\"id\":2},{\"id\":3}", 0));
+        mStore.markAsRead(Arrays.asList(1L, 2L));
+        mStore.saveFeed(feed("{\"id\":2},{\"id\":4}", 0));
+
+        assertEquals(2, mStore.getEventsCount());
+        assertNull(mStore.readEvent(1));
+        assertNull(mStore.readEvent(3));
+        assertNotNull(mStore.readEvent(4));
+        // read markers of removed events are pruned too
+        assertEquals(1, mStore.readReadMarkers().size());
+        assertTrue(mStore.readReadMarkers().contains(2L));
+    }
+
+    @SmallTest
+    public void testWindowsAreReadInFeedOrder() {
+        mStore.saveFeed(feed("{\"id\":5,\"type\":\"like\",\"user_id\":1},"
+            + "{\"id\":4,\"type\":\"share\",\"user_id\":2},"
+            + "{\"id\":3,\"type\":\"like\",\"user_id\":2},"
+            + "{\"id\":2,\"type\":\"like\",\"user_id\":1},"
+            + "{\"id\":1,\"type\":\"share\",\"user_id\":1}", 2));
+
+        List<TGEvent> window = mStore.readFeed(1, 2).getEvents();
+        assertEquals(2, window.size());
+        assertEquals(Long.valueOf(4), window.get(0).getID());
+        assertEquals(Long.valueOf(3), window.get(1).getID());
+        assertTrue(mStore.readFeed(5, 10).getEvents().isEmpty());
+
+        List<TGEvent> likes = mStore.readEventsOfType("like", 1, 10);
+        assertEquals(2, likes.size());
+        assertEquals(Long.valueOf(3), likes.get(0).getID());
+        assertEquals(Long.valueOf(2), likes.get(1).getID());
+
+        List<TGEvent> ofUser = mStore.readEventsOfUser(1, 0, 2);
+        assertEquals(2, ofUser.size());
+        assertEquals(Long.valueOf(5), ofUser.get(0).getID());
+        assertEquals(Long.valueOf(2), ofUser.get(1).getID());
+
+        assertEquals(2, mStore.readUnreadEventIds().size());
+        assertEquals(Long.valueOf(5), mStore.readUnreadEventIds().get(0));
+    }
+
+    @SmallTest
+    public void testNothingIsReadBeforeFirstSave() {
+        assertFalse(mStore.hasFeed());
+        assertNull(mStore.readFeed(0, 10));
+        assertEquals(0, mStore.getEventsCount());
+    }
+}
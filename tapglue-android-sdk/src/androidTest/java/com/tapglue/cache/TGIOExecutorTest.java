@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.tapglue.utils.TGLog;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+public class TGIOExecutorTest extends TestCase {
+
+    private final Executor mDirect = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @SmallTest
+    public void testRepeatedWritesAreCoalesced() {
+        TGIOExecutor io = new TGIOExecutor(new TGLog(false), mDirect, 1000);
+        final List<Integer> written = Collections.synchronizedList(new ArrayList<Integer>());
+        for (int i = 0; i < 100; i++) {
+            final int value = i;
+            io.write("key", new Runnable() {
+                @Override
+                public void run() {
+                    written.add(value);
+                }
+            });
+        }
+        assertEquals(1, io.getPendingWriteCount());
+        io.flush();
+        assertEquals(1, written.size());
+        assertEquals(Integer.valueOf(99), written.get(0));
+        assertEquals(0, io.getPendingWriteCount());
+    }
+
+    @SmallTest
+    public void testTaskSeesEarlierWrites() {
+        TGIOExecutor io = new TGIOExecutor(new TGLog(false), mDirect, 1000);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        io.write("first", new Runnable() {
+            @Override
+            public void run() {
+                order.add("write");
+            }
+        });
+        io.execute(new Runnable() {
+            @Override
+            public void run() {
+                order.add("read");
+            }
+        });
+        io.flush();
+        assertEquals(2, order.size());
+        assertEquals("write", order.get(0));
+        assertEquals("read", order.get(1));
+    }
+
+    @SmallTest
+    public void testFailingTaskDoesNotStopExecutor() {
+        TGIOExecutor io = new TGIOExecutor(new TGLog(false), mDirect, 0);
+        final List<String> done = Collections.synchronizedList(new ArrayList<String>());
+        io.execute(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("failure");
+            }
+        });
+        io.execute(new Runnable() {
+            @Override
+            public void run() {
+                done.add("done");
+            }
+        });
+        io.flush();
+        assertEquals(1, done.size());
+    }
+
+    @SmallTest
+    public void testNamedExecutorDoesNotWaitForOtherExecutor() throws InterruptedException {
+        TGIOExecutor io = new TGIOExecutor(new TGLog(false), mDirect, 0);
+        TGIOExecutor images = new TGIOExecutor(new TGLog(false), mDirect, 0, "images");
+        final CountDownLatch release = new CountDownLatch(1);
+        io.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+        images.execute(new Runnable() {
+            @Override
+            public void run() {
+                threads.add(Thread.currentThread().getName());
+            }
+        });
+        images.flush();
+        assertEquals(Collections.singletonList("images"), threads);
+        release.countDown();
+        io.flush();
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+public class TGLongArraysTest extends TestCase {
+
+    @SmallTest
+    public void testIntersect() {
+        assertTrue(Arrays.equals(new long[]{2, 5}, TGLongArrays.intersect(new long[]{1, 2, 5, 9}, new long[]{2, 3, 5})));
+        assertEquals(0, TGLongArrays.intersect(new long[0], new long[]{1}).length);
+    }
+
+    @SmallTest
+    public void testIntersectWithMuchBiggerArray() {
+        long[] big = new long[1000];
+        for (int i = 0; i < big.length; i++) {
+            big[i] = i * 2;
+        }
+        assertTrue(Arrays.equals(new long[]{4, 1998}, TGLongArrays.intersect(new long[]{3, 4, 1998}, big)));
+        assertTrue(Arrays.equals(new long[]{4, 1998}, TGLongArrays.intersect(big, new long[]{3, 4, 1998})));
+    }
+
+    @SmallTest
+    public void testDifference() {
+        assertTrue(Arrays.equals(new long[]{1, 9}, TGLongArrays.difference(new long[]{1, 2, 5, 9}, new long[]{2, 3, 5})));
+        assertTrue(Arrays.equals(new long[]{3}, TGLongArrays.difference(new long[]{2, 3, 5}, new long[]{1, 2, 5, 9})));
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class TGLongSetTest extends TestCase {
+
+    @SmallTest
+    public void testAddContainsRemove() {
+        TGLongSet set = new TGLongSet();
+        assertTrue(set.add(5));
+        assertFalse(set.add(5));
+        assertTrue(set.contains(5));
+        assertFalse(set.contains(6));
+        assertTrue(set.remove(5));
+        assertFalse(set.remove(5));
+        assertTrue(set.isEmpty());
+    }
+
+    @SmallTest
+    public void testSpecialValues() {
+        TGLongSet set = TGLongSet.of(Long.MIN_VALUE, 0, -1, Long.MAX_VALUE);
+        assertEquals(4, set.size());
+        assertTrue(set.contains(Long.MIN_VALUE));
+        assertTrue(Arrays.equals(new long[]{Long.MIN_VALUE, -1, 0, Long.MAX_VALUE}, set.toSortedArray()));
+        assertTrue(set.remove(Long.MIN_VALUE));
+        assertFalse(set.contains(Long.MIN_VALUE));
+        assertEquals(3, set.size());
+    }
+
+    @SmallTest
+    public void testMatchesHashSet() {
+        Random random = new Random(42);
+        TGLongSet set = new TGLongSet();
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 20000; i++) {
+            long value = random.nextInt(2000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(value), set.add(value));
+            }
+            else {
+                assertEquals(expected.remove(value), set.remove(value));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        for (long value = 0; value < 2000; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+}
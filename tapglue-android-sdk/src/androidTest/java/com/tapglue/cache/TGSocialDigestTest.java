@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class TGSocialDigestTest extends TestCase {
+
+    private File mFile;
+
+    @Override
+    protected void setUp() throws IOException {
+        mFile = File.createTempFile("tgsocial", ".digest");
+        mFile.delete();
+    }
+
+    @Override
+    protected void tearDown() {
+        mFile.delete();
+    }
+
+    @SmallTest
+    public void testOnlyNewIdsAreReturned() {
+        TGSocialDigest digest = TGSocialDigest.open(mFile);
+        assertEquals(Arrays.asList("a", "b", "c"), digest.filterNew(Arrays.asList("a", "b", "a", "c")));
+        digest.markUploaded(Arrays.asList("a", "b"));
+        assertEquals(Arrays.asList("c", "d"), digest.filterNew(Arrays.asList("a", "c", "b", "d")));
+    }
+
+    @SmallTest
+    public void testDigestIsPersisted() {
+        TGSocialDigest.open(mFile).markUploaded(Arrays.asList("1", "2", "3"));
+        TGSocialDigest digest = TGSocialDigest.open(mFile);
+        assertEquals(3, digest.size());
+        assertEquals(Arrays.asList("4"), digest.filterNew(Arrays.asList("1", "2", "3", "4")));
+        digest.clear();
+        assertEquals(0, TGSocialDigest.open(mFile).size());
+    }
+
+    @SmallTest
+    public void testFilesDifferPerPlatform() {
+        File directory = mFile.getParentFile();
+        assertFalse(TGSocialDigest.fileFor(directory, 1, "facebook", "x").equals(TGSocialDigest.fileFor(directory, 1, "twitter", "x")));
+        assertFalse(TGSocialDigest.fileFor(directory, 1, "facebook", "x").equals(TGSocialDigest.fileFor(directory, 2, "facebook", "x")));
+        assertEquals(TGSocialDigest.fileFor(directory, 1, "facebook", "x"), TGSocialDigest.fileFor(directory, 1, "facebook", "x"));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.google.gson.Gson;
+import com.tapglue.model.TGConnectionUsersList;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+public class TGSocialGraphTest extends TestCase {
+
+    private final Gson mGson = new Gson();
+
+    private TGConnectionUsersList list(String users) {
+        return mGson.fromJson("{\"users\":[" + users + "]}", TGConnectionUsersList.class);
+    }
+
+    @SmallTest
+    public void testMergeUsesRelationFlags() {
+        TGSocialGraph graph = new TGSocialGraph();
+        graph.merge(list("{\"id\":1,\"is_followed\":true},{\"id\":2,\"is_follower\":true,\"is_friend\":true}").getUsers());
+        assertTrue(graph.contains(TGSocialGraph.Relation.FOLLOWS, 1));
+        assertFalse(graph.contains(TGSocialGraph.Relation.FOLLOWER, 1));
+        assertTrue(graph.contains(TGSocialGraph.Relation.FOLLOWER, 2));
+        assertTrue(graph.contains(TGSocialGraph.Relation.FRIEND, 2));
+
+        graph.merge(list("{\"id\":1,\"is_followed\":false}").getUsers());
+        assertFalse(graph.contains(TGSocialGraph.Relation.FOLLOWS, 1));
+    }
+
+    @SmallTest
+    public void testReplaceKeepsOnlyListedUsers() {
+        TGSocialGraph graph = new TGSocialGraph();
+        graph.set(TGSocialGraph.Relation.FOLLOWS, 7, true);
+        graph.replace(TGSocialGraph.Relation.FOLLOWS, list("{\"id\":3},{\"id\":1}").getUsers());
+        assertFalse(graph.contains(TGSocialGraph.Relation.FOLLOWS, 7));
+        assertTrue(Arrays.equals(new long[]{1, 3}, graph.get(TGSocialGraph.Relation.FOLLOWS)));
+    }
+
+    @SmallTest
+    public void testFriendshipClearsPendingRequest() {
+        TGSocialGraph graph = new TGSocialGraph();
+        graph.set(TGSocialGraph.Relation.PENDING_FRIEND, 4, true);
+        long version = graph.getVersion();
+        graph.set(TGSocialGraph.Relation.FRIEND, 4, true);
+        assertFalse(graph.contains(TGSocialGraph.Relation.PENDING_FRIEND, 4));
+        assertTrue(graph.getVersion() > version);
+    }
+}
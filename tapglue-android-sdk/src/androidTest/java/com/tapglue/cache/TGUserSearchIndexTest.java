@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.google.gson.Gson;
+import com.tapglue.model.TGConnectionUser;
+import com.tapglue.model.TGConnectionUsersList;
+import com.tapglue.model.TGUser;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.List;
+
+public class TGUserSearchIndexTest extends TestCase {
+
+    private final Gson mGson = new Gson();
+
+    private TGConnectionUsersList list(String users) {
+        return mGson.fromJson("{\"users\":[" + users + "]}", TGConnectionUsersList.class);
+    }
+
+    @SmallTest
+    public void testSearchMatchesPrefixesOfAllWords() {
+        TGUserSearchIndex index = new TGUserSearchIndex();
+        index.addAll(list("{\"id\":1,\"first_name\":\"John\",\"last_name\":\"Doe\"},{\"id\":2,\"first_name\":\"Johanna\",\"last_name\":\"Smith\"},"
+            + "{\"id\":3,\"user_name\":\"jo.doe\"}").getUsers());
+        assertEquals(3, index.search("jo", 10).size());
+        List<TGConnectionUser> found = index.search("JOH do", 10);
+        assertEquals(1, found.size());
+        assertEquals(Long.valueOf(1), found.get(0).getID());
+        assertEquals(Long.valueOf(3), index.search("jo.d", 10).get(0).getID());
+        assertTrue(index.search("x", 10).isEmpty());
+    }
+
+    @SmallTest
+    public void testExactTokensGoFirst() {
+        TGUserSearchIndex index = new TGUserSearchIndex();
+        index.addAll(list("{\"id\":1,\"first_name\":\"Annabel\"},{\"id\":2,\"first_name\":\"Ann\"}").getUsers());
+        assertEquals(Long.valueOf(2), index.search("ann", 10).get(0).getID());
+        assertEquals(1, index.search("ann", 1).size());
+    }
+
+    @SmallTest
+    public void testEmailIsKeptWhenUserIsUpdated() {
+        TGUserSearchIndex index = new TGUserSearchIndex();
+        index.add(mGson.fromJson("{\"id\":5,\"user_name\":\"max\",\"email\":\"maximilian@example.com\"}", TGUser.class));
+        assertEquals(1, index.search("maximilian", 10).size());
+        index.addAll(list("{\"id\":5,\"user_name\":\"maxi\"}").getUsers());
+        assertEquals(1, index.search("maximilian@ex", 10).size());
+        assertEquals("maxi", index.search("max", 10).get(0).getUserName());
+        assertEquals(1, index.size());
+    }
+
+    @SmallTest
+    public void testMergePutsLocalHitsFirst() {
+        TGConnectionUsersList remote = list("{\"id\":7,\"user_name\":\"b\"},{\"id\":8,\"user_name\":\"a\",\"is_friend\":true}");
+        List<TGConnectionUser> local = list("{\"id\":8,\"user_name\":\"a\"}").getUsers();
+        List<TGConnectionUser> merged = TGUserSearchIndex.merge(local, remote).getUsers();
+        assertEquals(2, merged.size());
+        assertEquals(Long.valueOf(8), merged.get(0).getID());
+        assertTrue(merged.get(0).isFriend());
+        assertEquals(Long.valueOf(7), merged.get(1).getID());
+    }
+
+    @SmallTest
+    public void testStoredUsersAreReadWithEmails() throws Exception {
+        File file = File.createTempFile("tgusers", ".index");
+        try {
+            TGUserSearchIndex index = new TGUserSearchIndex();
+            index.addAll(list("{\"id\":1,\"first_name\":\"John\"},{\"id\":2,\"user_name\":\"anna\"}").getUsers());
+            index.add(mGson.fromJson("{\"id\":3,\"user_name\":\"max\",\"email\":\"maximilian@example.com\"}", TGUser.class));
+            index.writeTo(file);
+
+            TGUserSearchIndex restored = new TGUserSearchIndex();
+            restored.addAll(list("{\"id\":2,\"user_name\":\"annabel\"}").getUsers());
+            restored.readFrom(file, restored.getGeneration());
+            assertEquals(3, restored.size());
+            assertEquals(Long.valueOf(1), restored.search("john", 10).get(0).getID());
+            assertEquals(1, restored.search("maximilian", 10).size());
+            assertEquals("annabel", restored.search("anna", 10).get(0).getUserName());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @SmallTest
+    public void testReadIsIgnoredAfterClear() throws Exception {
+        File file = File.createTempFile("tgusers", ".index");
+        try {
+            TGUserSearchIndex index = new TGUserSearchIndex();
+            index.addAll(list("{\"id\":1,\"first_name\":\"John\"}").getUsers());
+            index.writeTo(file);
+            int generation = index.getGeneration();
+            index.clear();
+            index.readFrom(file, generation);
+            assertEquals(0, index.size());
+            index.readFrom(new File(file.getPath() + ".missing"), index.getGeneration());
+            assertEquals(0, index.size());
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.images;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.google.gson.Gson;
+import com.tapglue.model.TGImage;
+
+import junit.framework.TestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class TGImageFetcherTest extends TestCase {
+
+    private final Gson mGson = new Gson();
+
+    private TGImage image(String url, int width, int height) {
+        return mGson.fromJson("{\"url\":\"" + url + "\",\"width\":" + width + ",\"height\":" + height + "}", TGImage.class);
+    }
+
+    private Map<String, TGImage> variants() {
+        Map<String, TGImage> images = new HashMap<>();
+        images.put("thumbnail", image("small", 50, 50));
+        images.put("profile", image("medium", 200, 200));
+        images.put("original", image("large", 1000, 800));
+        return images;
+    }
+
+    @SmallTest
+    public void testSmallestFittingVariantIsSelected() {
+        assertEquals("small", TGImageFetcher.selectVariant(variants(), 48, 48).getURL());
+        assertEquals("medium", TGImageFetcher.selectVariant(variants(), 51, 40).getURL());
+        assertEquals("large", TGImageFetcher.selectVariant(variants(), 300, 300).getURL());
+    }
+
+    @SmallTest
+    public void testBiggestVariantIsSelectedWhenNothingFits() {
+        assertEquals("large", TGImageFetcher.selectVariant(variants(), 2000, 2000).getURL());
+    }
+
+    @SmallTest
+    public void testVariantsWithoutUrlAreIgnored() {
+        Map<String, TGImage> images = new HashMap<>();
+        images.put("broken", image("x", 100, 100).setURL(null));
+        assertNull(TGImageFetcher.selectVariant(images, 10, 10));
+        assertNull(TGImageFetcher.selectVariant(null, 10, 10));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.managers;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.tapglue.TGTestEnvironment;
+import com.tapglue.Tapglue;
+import com.tapglue.model.TGFeed;
+import com.tapglue.networking.requests.TGRequestCallback;
+import com.tapglue.networking.requests.TGRequestErrorType;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TGFeedManagerTest extends AndroidTestCase {
+
+    private Object readCachedFeed() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        final Object[] result = new Object[1];
+        Tapglue.feed().getCachedFeedIfAvailable(0, 10, new TGRequestCallback<TGFeed>() {
+            @Override
+            public boolean callbackIsEnabled() {
+                return true;
+            }
+
+            @Override
+            public void onRequestError(TGRequestErrorType cause) {
+                result[0] = cause.getType();
+                done.countDown();
+            }
+
+            @Override
+            public void onRequestFinished(TGFeed output, boolean changeDoneOnline) {
+                result[0] = output;
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        return result[0];
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TGTestEnvironment.initialize(getContext());
+    }
+
+    @SmallTest
+    public void testUserSwitchClearsCachedFeedAndReadMarkers() throws Exception {
+        TGTestEnvironment.login("first");
+        assertNotNull(TGTestEnvironment.await(Tapglue.feed().retrieveFeedForCurrentUser()));
+        Tapglue.feed().markEventsAsRead(Collections.singletonList(42L));
+        Tapglue.ready().get().getIOExecutor().flush();
+        assertTrue(readCachedFeed() instanceof TGFeed);
+        assertTrue(Tapglue.feed().isEventRead(42L));
+
+        TGTestEnvironment.logout();
+        TGTestEnvironment.login("second");
+        Tapglue.ready().get().getIOExecutor().flush();
+        assertEquals(TGRequestErrorType.ErrorType.NO_CACHE_OBJECT, readCachedFeed());
+        assertFalse(Tapglue.feed().isEventRead(42L));
+    }
+
+    @SmallTest
+    public void testFeedOfNewUserIsKeptWhenClearRunsAfterIt() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Tapglue.ready().get().getIOExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        // clear of previous user data and write of new feed wait for I/O thread together
+        TGTestEnvironment.login("late");
+        assertNotNull(TGTestEnvironment.await(Tapglue.feed().retrieveFeedForCurrentUser()));
+        release.countDown();
+        Tapglue.ready().get().getIOExecutor().flush();
+        assertTrue(readCachedFeed() instanceof TGFeed);
+    }
+
+    @SmallTest
+    public void testUnreadTrackerIsLoadedAtStart() throws Exception {
+        Tapglue.ready().get().getIOExecutor().flush();
+        assertTrue(((TGFeedManager) Tapglue.feed()).getUnreadTracker().isLoaded());
+    }
+
+    @SmallTest
+    public void testSnapshotIsRebuiltFromStoreWhenFeedIsRead() throws Exception {
+        File snapshot = new File(getContext().getCacheDir(), "tapglue_feed.snapshot");
+        TGTestEnvironment.login("reader");
+        TGFeed feed = TGTestEnvironment.await(Tapglue.feed().retrieveFeedForCurrentUser());
+        Tapglue.ready().get().getIOExecutor().flush();
+        assertFalse(snapshot.exists());
+
+        Object cached = readCachedFeed();
+        assertTrue(cached instanceof TGFeed);
+        assertEquals(Math.min(10, feed.getEvents().size()), ((TGFeed) cached).getEvents().size());
+        Tapglue.ready().get().getIOExecutor().flush();
+        assertTrue(snapshot.exists());
+
+        TGTestEnvironment.await(Tapglue.feed().retrieveFeedForCurrentUser());
+        Tapglue.ready().get().getIOExecutor().flush();
+        assertFalse(snapshot.exists());
+    }
+}
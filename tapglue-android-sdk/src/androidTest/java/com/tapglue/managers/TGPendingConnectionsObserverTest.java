@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.managers;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.google.gson.Gson;
+import com.tapglue.model.TGPendingConnections;
+import com.tapglue.networking.TGNetworkRequests;
+
+import junit.framework.TestCase;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+public class TGPendingConnectionsObserverTest extends TestCase {
+
+    private final Gson mGson = new Gson();
+
+    private final List<TGPendingConnectionsObserver.Change> mChanges = new ArrayList<>();
+
+    private TGPendingConnectionsObserver createObserver() {
+        TGNetworkRequests requests = (TGNetworkRequests) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{TGNetworkRequests.class},
+            new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    return null;
+                }
+            });
+        TGPendingConnectionsObserver observer = new TGPendingConnectionsObserver(requests, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        }, 1000, 8000);
+        return observer;
+    }
+
+    private TGPendingConnections pending(String incoming, String outgoing) {
+        return mGson.fromJson("{\"incoming\":[" + incoming + "],\"outgoing\":[" + outgoing + "]}", TGPendingConnections.class);
+    }
+
+    @SmallTest
+    public void testUpdateReportsOnlyDifferences() {
+        TGPendingConnectionsObserver observer = createObserver();
+        TGPendingConnectionsObserver.Change change = observer.update(pending("{\"user_from_id\":1,\"user_to_id\":9,\"type\":\"friend\"}", ""));
+        assertNotNull(change);
+        assertEquals(1, change.getAddedIncoming().size());
+
+        assertNull(observer.update(pending("{\"user_from_id\":1,\"user_to_id\":9,\"type\":\"friend\"}", "")));
+
+        change = observer.update(pending("{\"user_from_id\":2,\"user_to_id\":9,\"type\":\"friend\"}", "{\"user_from_id\":9,\"user_to_id\":3,\"type\":\"friend\"}"));
+        assertNotNull(change);
+        assertEquals(Long.valueOf(2), change.getAddedIncoming().get(0).getUserFromId());
+        assertEquals(Long.valueOf(1), change.getRemovedIncoming().get(0).getUserFromId());
+        assertEquals(1, change.getAddedOutgoing().size());
+        assertTrue(change.getRemovedOutgoing().isEmpty());
+    }
+
+    @SmallTest
+    public void testFingerprintIgnoresOrder() {
+        TGPendingConnections first = pending("{\"user_from_id\":1,\"user_to_id\":9},{\"user_from_id\":2,\"user_to_id\":9}", "");
+        TGPendingConnections second = pending("{\"user_from_id\":2,\"user_to_id\":9},{\"user_from_id\":1,\"user_to_id\":9}", "");
+        TGPendingConnections outgoing = pending("", "{\"user_from_id\":1,\"user_to_id\":9},{\"user_from_id\":2,\"user_to_id\":9}");
+        assertEquals(TGPendingConnectionsObserver.fingerprint(first.getIncoming(), first.getOutgoing()),
+            TGPendingConnectionsObserver.fingerprint(second.getIncoming(), second.getOutgoing()));
+        assertFalse(TGPendingConnectionsObserver.fingerprint(first.getIncoming(), first.getOutgoing())
+            == TGPendingConnectionsObserver.fingerprint(outgoing.getIncoming(), outgoing.getOutgoing()));
+    }
+
+    @SmallTest
+    public void testIntervalBacksOffWhileNothingChanges() {
+        TGPendingConnectionsObserver observer = createObserver();
+        observer.addListener(new TGPendingConnectionsObserver.Listener() {
+            @Override
+            public void onPendingConnectionsChanged(TGPendingConnectionsObserver.Change change) {
+                mChanges.add(change);
+            }
+        });
+        TGPendingConnections connections = pending("{\"user_from_id\":1,\"user_to_id\":9}", "");
+        observer.onPollFinished(0, connections);
+        assertEquals(1000, observer.getCurrentInterval());
+        observer.onPollFinished(0, connections);
+        observer.onPollFinished(0, null);
+        assertEquals(4000, observer.getCurrentInterval());
+        observer.onPollFinished(0, connections);
+        observer.onPollFinished(0, connections);
+        assertEquals(8000, observer.getCurrentInterval());
+        assertEquals(1, mChanges.size());
+
+        observer.onPollFinished(0, pending("", ""));
+        assertEquals(1000, observer.getCurrentInterval());
+        assertEquals(2, mChanges.size());
+        assertEquals(1, mChanges.get(1).getRemovedIncoming().size());
+    }
+}
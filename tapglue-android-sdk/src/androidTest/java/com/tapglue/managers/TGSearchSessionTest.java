@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.managers;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.google.gson.Gson;
+import com.tapglue.model.TGConnectionUsersList;
+import com.tapglue.networking.TGNetworkRequests;
+import com.tapglue.networking.requests.TGRequestCallback;
+import com.tapglue.networking.requests.TGRequestErrorType;
+
+import junit.framework.TestCase;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class TGSearchSessionTest extends TestCase {
+
+    private final List<TGRequestCallback<TGConnectionUsersList>> mCallbacks = new ArrayList<>();
+
+    private final List<TGRequestErrorType> mErrors = new ArrayList<>();
+
+    private final Gson mGson = new Gson();
+
+    private final List<Runnable> mPosted = new ArrayList<>();
+
+    private final List<String> mQueries = new ArrayList<>();
+
+    private final List<TGConnectionUsersList> mResults = new ArrayList<>();
+
+    private ScheduledExecutorService mScheduler;
+
+    private volatile CountDownLatch mSent = new CountDownLatch(1);
+
+    private TGSearchSession createSession(long debounce) {
+        return createSession(debounce, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+    }
+
+    private TGSearchSession createSession(long debounce, Executor executor) {
+        TGNetworkRequests requests = (TGNetworkRequests) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{TGNetworkRequests.class},
+            new InvocationHandler() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    if (method.getName().equals("search")) {
+                        synchronized (mQueries) {
+                            mQueries.add((String) args[0]);
+                            mCallbacks.add((TGRequestCallback<TGConnectionUsersList>) args[1]);
+                        }
+                        mSent.countDown();
+                    }
+                    return null;
+                }
+            });
+        return new TGSearchSession(requests, mScheduler, executor, debounce, new TGRequestCallback<TGConnectionUsersList>() {
+            @Override
+            public boolean callbackIsEnabled() {
+                return true;
+            }
+
+            @Override
+            public void onRequestError(TGRequestErrorType cause) {
+                mErrors.add(cause);
+            }
+
+            @Override
+            public void onRequestFinished(TGConnectionUsersList output, boolean changeDoneOnline) {
+                mResults.add(output);
+            }
+        });
+    }
+
+    private TGConnectionUsersList users(String users) {
+        return mGson.fromJson("{\"users\":[" + users + "]}", TGConnectionUsersList.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mScheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mScheduler.shutdownNow();
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testDebounceSendsOnlyLastQuery() throws Exception {
+        TGSearchSession session = createSession(100);
+        session.setQuery("j");
+        session.setQuery("Jo");
+        session.setQuery(" jo  h ");
+        assertTrue(mSent.await(1, TimeUnit.SECONDS));
+        Thread.sleep(150);
+        assertEquals(1, mQueries.size());
+        assertEquals("jo h", mQueries.get(0));
+    }
+
+    @SmallTest
+    public void testRefinementIsFilteredFromPrefixResults() throws Exception {
+        TGSearchSession session = createSession(0);
+        session.setQuery("jo");
+        assertTrue(mSent.await(1, TimeUnit.SECONDS));
+        mCallbacks.get(0).onRequestFinished(users("{\"id\":1,\"first_name\":\"John\"},{\"id\":2,\"user_name\":\"jolene\"}"), true);
+        assertEquals(1, mResults.size());
+
+        mSent = new CountDownLatch(1);
+        session.setQuery("joh");
+        assertEquals(2, mResults.size());
+        assertEquals(1, mResults.get(1).getUsers().size());
+        assertEquals(Long.valueOf(1), mResults.get(1).getUsers().get(0).getID());
+        assertTrue(mSent.await(1, TimeUnit.SECONDS));
+        assertEquals("joh", mQueries.get(1));
+    }
+
+    @SmallTest
+    public void testSupersededResultsAreDropped() throws Exception {
+        TGSearchSession session = createSession(0);
+        session.setQuery("jo");
+        assertTrue(mSent.await(1, TimeUnit.SECONDS));
+        session.setQuery("ann");
+        TGRequestCallback<TGConnectionUsersList> stale = mCallbacks.get(0);
+        assertFalse(stale.callbackIsEnabled());
+        stale.onRequestFinished(users("{\"id\":1,\"first_name\":\"John\"}"), true);
+        assertTrue(mResults.isEmpty());
+
+        session.close();
+        session.setQuery("jo");
+        assertTrue(mResults.isEmpty());
+    }
+
+    @SmallTest
+    public void testNetworkResultsAreDeliveredOnCallbackExecutor() throws Exception {
+        TGSearchSession session = createSession(0, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mPosted.add(command);
+            }
+        });
+        session.setQuery("jo");
+        assertTrue(mSent.await(1, TimeUnit.SECONDS));
+        mCallbacks.get(0).onRequestFinished(users("{\"id\":1,\"first_name\":\"John\"}"), true);
+        assertTrue(mResults.isEmpty());
+        assertEquals(1, mPosted.size());
+        mPosted.get(0).run();
+        assertEquals(1, mResults.size());
+
+        mSent = new CountDownLatch(1);
+        session.setQuery("ann");
+        assertTrue(mSent.await(1, TimeUnit.SECONDS));
+        mCallbacks.get(1).onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.NO_NETWORK));
+        assertTrue(mErrors.isEmpty());
+        assertEquals(2, mPosted.size());
+        session.setQuery("bob");
+        mPosted.get(1).run();
+        assertTrue(mErrors.isEmpty());
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.managers;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.tapglue.TGTestEnvironment;
+import com.tapglue.Tapglue;
+import com.tapglue.model.TGConnectionUsersList;
+import com.tapglue.model.TGSocialConnections;
+import com.tapglue.networking.requests.TGProgressCallback;
+import com.tapglue.networking.requests.TGRequestCallback;
+import com.tapglue.networking.requests.TGRequestErrorType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TGSocialConnectionsUploadTest extends AndroidTestCase {
+
+    private final List<TGRequestErrorType> mErrors = Collections.synchronizedList(new ArrayList<TGRequestErrorType>());
+
+    private final List<String> mProgress = Collections.synchronizedList(new ArrayList<String>());
+
+    private final List<TGConnectionUsersList> mResults = Collections.synchronizedList(new ArrayList<TGConnectionUsersList>());
+
+    private CountDownLatch mFinished;
+
+    private void upload(List<String> ids) throws Exception {
+        mFinished = new CountDownLatch(1);
+        TGSocialConnections socialData = new TGSocialConnections()
+            .setPlatform("facebook")
+            .setPlatformId("upload" + System.nanoTime())
+            .setConnectionsIds(ids);
+        Tapglue.user().socialConnections(socialData, new TGProgressCallback() {
+            @Override
+            public void onProgress(int done, int total) {
+                mProgress.add(done + "/" + total);
+            }
+        }, new TGRequestCallback<TGConnectionUsersList>() {
+            @Override
+            public boolean callbackIsEnabled() {
+                return true;
+            }
+
+            @Override
+            public void onRequestError(TGRequestErrorType cause) {
+                mErrors.add(cause);
+                mFinished.countDown();
+            }
+
+            @Override
+            public void onRequestFinished(TGConnectionUsersList output, boolean changeDoneOnline) {
+                mResults.add(output);
+                mFinished.countDown();
+            }
+        });
+        assertTrue(mFinished.await(5, TimeUnit.SECONDS));
+        // give chunk callbacks a chance to report anything after the result
+        Thread.sleep(100);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TGTestEnvironment.initialize(getContext());
+        TGTestEnvironment.login("uploader");
+    }
+
+    @SmallTest
+    public void testSeveralChunksReportProgressAndOneResult() throws Exception {
+        upload(Arrays.asList("1", "2", "3", "4", "5"));
+        assertTrue(mErrors.isEmpty());
+        assertEquals(Arrays.asList("0/5", "2/5", "4/5", "5/5"), mProgress);
+        assertEquals(1, mResults.size());
+        assertNotNull(mResults.get(0).getUsers());
+        assertFalse(mResults.get(0).getUsers().isEmpty());
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.managers;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.tapglue.TGTestEnvironment;
+import com.tapglue.Tapglue;
+import com.tapglue.networking.requests.TGRequestCallback;
+import com.tapglue.networking.requests.TGRequestErrorType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TGUserManagerTest extends AndroidTestCase {
+
+    private final List<TGRequestErrorType.ErrorType> mErrors = new ArrayList<>();
+
+    private void login(String password) {
+        Tapglue.user().login("user", password, new TGRequestCallback<Boolean>() {
+            @Override
+            public boolean callbackIsEnabled() {
+                return true;
+            }
+
+            @Override
+            public void onRequestError(TGRequestErrorType cause) {
+                mErrors.add(cause.getType());
+            }
+
+            @Override
+            public void onRequestFinished(Boolean output, boolean changeDoneOnline) {
+                fail("Login without password should fail");
+            }
+        });
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TGTestEnvironment.initialize(getContext());
+    }
+
+    @SmallTest
+    public void testLoginWithoutPasswordReportsNullInput() {
+        login(null);
+        login("");
+        assertEquals(2, mErrors.size());
+        assertEquals(TGRequestErrorType.ErrorType.NULL_INPUT, mErrors.get(0));
+        assertEquals(TGRequestErrorType.ErrorType.NULL_INPUT, mErrors.get(1));
+    }
+}
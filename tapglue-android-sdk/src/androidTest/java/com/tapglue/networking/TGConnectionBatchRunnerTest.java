@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.tapglue.TGTestEnvironment;
+import com.tapglue.Tapglue;
+import com.tapglue.model.TGBulkResult;
+import com.tapglue.model.TGConnection;
+import com.tapglue.networking.fake.TGFakeTransport;
+import com.tapglue.networking.requests.TGRequestCallback;
+import com.tapglue.networking.requests.TGRequestErrorType;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class TGConnectionBatchRunnerTest extends AndroidTestCase {
+
+    private final LinkedBlockingQueue<Runnable> mResponses = new LinkedBlockingQueue<>();
+
+    private TGFakeTransport mTransport;
+
+    private static List<Long> userIds(int count) {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    /**
+     * Release held responses one by one until batch finishes
+     *
+     * @param callback callback of batch
+     *
+     * @return Maximal amount of responses held at once
+     */
+    private int releaseUntilDone(RecordingCallback callback) throws Exception {
+        int maxHeld = 0;
+        while (callback.mDone.getCount() > 0) {
+            Thread.sleep(50);
+            maxHeld = Math.max(maxHeld, mResponses.size());
+            Runnable response = mResponses.poll(1, TimeUnit.SECONDS);
+            if (response != null) { response.run(); }
+            else { callback.await(); }
+        }
+        return maxHeld;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mTransport = TGTestEnvironment.initialize(getContext());
+        TGTestEnvironment.login("batch");
+        mTransport.setCallbackExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mResponses.add(command);
+            }
+        });
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mTransport.setCallbackExecutor(null);
+        Runnable response;
+        while ((response = mResponses.poll()) != null) {
+            response.run();
+        }
+        mTransport.setNetworkAvailable(true);
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testConcurrencyIsLimitedAndResultsAggregated() throws Exception {
+        long requests = mTransport.getRequestCount();
+        RecordingCallback callback = new RecordingCallback();
+        Tapglue.ready().get().createRequest().createConnections(userIds(10), TGConnection.TGConnectionType.FOLLOW, null, callback);
+        assertEquals(TGConnectionBatchRunner.MAX_CONCURRENT_REQUESTS, releaseUntilDone(callback));
+        assertEquals(10, mTransport.getRequestCount() - requests);
+        assertNull(callback.mError);
+        assertTrue(callback.mOnline);
+        assertEquals(new HashSet<>(userIds(10)), new HashSet<>(callback.mOutput.getSucceeded()));
+        assertTrue(callback.mOutput.isSuccessful());
+    }
+
+    @SmallTest
+    public void testRemainingConnectionsAreQueuedWhenNetworkIsLost() throws Exception {
+        long requests = mTransport.getRequestCount();
+        RecordingCallback callback = new RecordingCallback();
+        Tapglue.ready().get().createRequest().createConnections(userIds(10), TGConnection.TGConnectionType.FOLLOW, null, callback);
+        Thread.sleep(50);
+        mTransport.setNetworkAvailable(false);
+        releaseUntilDone(callback);
+        assertEquals(TGConnectionBatchRunner.MAX_CONCURRENT_REQUESTS, mTransport.getRequestCount() - requests);
+        assertNull(callback.mError);
+        assertFalse(callback.mOnline);
+        assertEquals(10, callback.mOutput.getSucceeded().size());
+
+        // queued batch is sent when network is back
+        mTransport.setNetworkAvailable(true);
+        RecordingCallback flush = new RecordingCallback();
+        Tapglue.ready().get().createRequest().createConnections(userIds(0), TGConnection.TGConnectionType.FOLLOW, null, flush);
+        flush.await();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mTransport.getRequestCount() - requests < 10 && System.currentTimeMillis() < deadline) {
+            Runnable response = mResponses.poll(100, TimeUnit.MILLISECONDS);
+            if (response != null) { response.run(); }
+        }
+        assertEquals(10, mTransport.getRequestCount() - requests);
+    }
+
+    @SmallTest
+    public void testDisabledBatchStopsSending() throws Exception {
+        long requests = mTransport.getRequestCount();
+        RecordingCallback callback = new RecordingCallback();
+        Tapglue.ready().get().createRequest().createConnections(userIds(10), TGConnection.TGConnectionType.FOLLOW, null, callback);
+        Thread.sleep(50);
+        callback.mEnabled = false;
+        Runnable response;
+        while ((response = mResponses.poll(200, TimeUnit.MILLISECONDS)) != null) {
+            response.run();
+        }
+        assertEquals(TGConnectionBatchRunner.MAX_CONCURRENT_REQUESTS, mTransport.getRequestCount() - requests);
+        assertEquals(1, callback.mDone.getCount());
+    }
+
+    private static class RecordingCallback implements TGRequestCallback<TGBulkResult> {
+
+        private final CountDownLatch mDone = new CountDownLatch(1);
+
+        private volatile boolean mEnabled = true;
+
+        private TGRequestErrorType mError;
+
+        private boolean mOnline;
+
+        private TGBulkResult mOutput;
+
+        void await() throws InterruptedException {
+            assertTrue(mDone.await(5, TimeUnit.SECONDS));
+        }
+
+        @Override
+        public boolean callbackIsEnabled() {
+            return mEnabled;
+        }
+
+        @Override
+        public void onRequestError(TGRequestErrorType cause) {
+            mError = cause;
+            mDone.countDown();
+        }
+
+        @Override
+        public void onRequestFinished(TGBulkResult output, boolean changeDoneOnline) {
+            mOutput = output;
+            mOnline = changeDoneOnline;
+            mDone.countDown();
+        }
+    }
+}
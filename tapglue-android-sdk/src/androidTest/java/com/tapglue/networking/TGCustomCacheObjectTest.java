@@ -21,6 +21,7 @@ import android.support.annotation.NonNull;
 import android.test.suitebuilder.annotation.SmallTest;
 
 import com.tapglue.model.TGConnection;
+import com.tapglue.model.TGConnectionBatch;
 import com.tapglue.model.TGConnectionUser;
 import com.tapglue.model.TGConnectionUsersList;
 import com.tapglue.model.TGEvent;
@@ -68,6 +69,19 @@ public class TGCustomCacheObjectTest extends TestCase {
         testRequest(startRequest);
     }
 
+    @SmallTest
+    public void testConnectionBatchIsQueuedAsOneRequest() {
+        TGConnectionBatch batch = new TGConnectionBatch()
+            .add(new TGConnection().setUserToId(1L).setType(TGConnection.TGConnectionType.FOLLOW))
+            .add(new TGConnection().setUserToId(2L).setType(TGConnection.TGConnectionType.FOLLOW));
+        TGRequest startRequest = new TGRequest(batch, TGRequestType.CREATE, false, null);
+        testRequest(startRequest);
+        TGConnectionBatch endBatch = (TGConnectionBatch) TGCustomCacheObject.deserialize(TGCustomCacheObject.serialize(startRequest)).getObject();
+        assertEquals(2, endBatch.getConnections().size());
+        assertEquals(Long.valueOf(2), endBatch.getConnections().get(1).getUserToId());
+        assertEquals(TGConnection.TGConnectionType.FOLLOW, endBatch.getConnections().get(1).getType());
+    }
+
     private void testRequest(@NonNull TGRequest startRequest) {
         String requestString = TGCustomCacheObject.serialize(startRequest);
         TGRequest endRequest = TGCustomCacheObject.deserialize(requestString);
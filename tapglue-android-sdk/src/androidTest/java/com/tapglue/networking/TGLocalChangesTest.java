@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking;
+
+import android.support.annotation.NonNull;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.google.gson.Gson;
+import com.tapglue.cache.TGEntityStore;
+import com.tapglue.model.TGEvent;
+import com.tapglue.networking.requests.TGRequestType;
+
+import java.util.Collections;
+
+public class TGLocalChangesTest extends AndroidTestCase {
+
+    private TGLocalChanges mLocalChanges;
+
+    /**
+     * Create event offline and reconcile it with server response
+     *
+     * @param serverId ID assigned by server
+     *
+     * @return Local ID of event
+     */
+    private long createResolved(long serverId) {
+        TGRequest<TGEvent, TGEvent> create = new TGRequest<>(new TGEvent().setType("local"), TGRequestType.CREATE, false);
+        mLocalChanges.apply(create);
+        long localId = create.getObject().getLocalID();
+        mLocalChanges.reconcile(create, new Gson().fromJson("{\"id\":" + serverId + "}", TGEvent.class));
+        return localId;
+    }
+
+    @NonNull
+    private static TGRequest delete(long id) {
+        return new TGRequest<>(new TGEvent().setReadRequestObjectId(id), TGRequestType.DELETE, false);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mLocalChanges = new TGLocalChanges(getContext(), new TGEntityStore());
+    }
+
+    @SmallTest
+    public void testResolvedIdIsKeptWhileReferenced() {
+        long localId = createResolved(41);
+        mLocalChanges.prune(Collections.singletonList(delete(localId)));
+        assertEquals(Long.valueOf(41), mLocalChanges.getServerId(localId));
+        assertEquals(TGLocalChanges.State.READY, mLocalChanges.getState(delete(localId)));
+    }
+
+    @SmallTest
+    public void testUnreferencedResolvedIdIsPruned() {
+        long pruned = createResolved(42);
+        long kept = createResolved(43);
+        mLocalChanges.prune(Collections.singletonList(delete(kept)));
+        assertEquals(Long.valueOf(pruned), mLocalChanges.getServerId(pruned));
+        assertEquals(Long.valueOf(43), mLocalChanges.getServerId(kept));
+
+        mLocalChanges.prune(Collections.<TGRequest>emptyList());
+        assertEquals(Long.valueOf(kept), mLocalChanges.getServerId(kept));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.tapglue.TGTestEnvironment;
+import com.tapglue.Tapglue;
+import com.tapglue.model.TGEvent;
+import com.tapglue.model.TGFeed;
+import com.tapglue.model.TGUser;
+import com.tapglue.networking.fake.TGFakeTransport;
+import com.tapglue.networking.requests.TGRequestCallback;
+import com.tapglue.networking.requests.TGRequestErrorType;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TGNetworkManagerTest extends AndroidTestCase {
+
+    private static final String DELIVERY_THREAD = "TGRequestPipeline-delivery";
+
+    private TGFakeTransport mTransport;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mTransport = TGTestEnvironment.initialize(getContext());
+        TGTestEnvironment.login("manager");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mTransport.setNetworkAvailable(true);
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testErrorIsCalledOnDeliveryThread() throws Exception {
+        mTransport.setNetworkAvailable(false);
+        RecordingCallback<TGFeed> callback = new RecordingCallback<>();
+        Tapglue.ready().get().createRequest().getFeed(callback);
+        callback.await();
+        assertEquals(TGRequestErrorType.ErrorType.NO_NETWORK, callback.mError.getType());
+        assertEquals(DELIVERY_THREAD, callback.mThread);
+    }
+
+    @SmallTest
+    public void testOfflineResultIsCalledOnDeliveryThread() throws Exception {
+        mTransport.setNetworkAvailable(false);
+        RecordingCallback<TGEvent> callback = new RecordingCallback<>();
+        Tapglue.ready().get().createRequest().createEvent(new TGEvent().setType("offline"), callback);
+        callback.await();
+        assertNull(callback.mError);
+        assertFalse(callback.mOnline);
+        assertNotNull(callback.mOutput.getLocalID());
+        assertEquals(DELIVERY_THREAD, callback.mThread);
+    }
+
+    @SmallTest
+    public void testResponseIsMergedBeforeCallbackOnDeliveryThread() throws Exception {
+        RecordingCallback<TGUser> callback = new RecordingCallback<>();
+        Tapglue.ready().get().createRequest().getUserByID(5L, callback);
+        callback.await();
+        assertNull(callback.mError);
+        assertTrue(callback.mOnline);
+        assertSame(callback.mOutput, Tapglue.entities().get(TGUser.class, 5L));
+        assertEquals(DELIVERY_THREAD, callback.mThread);
+    }
+
+    private static class RecordingCallback<T> implements TGRequestCallback<T> {
+
+        private final CountDownLatch mDone = new CountDownLatch(1);
+
+        private TGRequestErrorType mError;
+
+        private boolean mOnline;
+
+        private T mOutput;
+
+        private String mThread;
+
+        void await() throws InterruptedException {
+            assertTrue(mDone.await(5, TimeUnit.SECONDS));
+        }
+
+        @Override
+        public boolean callbackIsEnabled() {
+            return true;
+        }
+
+        @Override
+        public void onRequestError(TGRequestErrorType cause) {
+            mError = cause;
+            mThread = Thread.currentThread().getName();
+            mDone.countDown();
+        }
+
+        @Override
+        public void onRequestFinished(T output, boolean changeDoneOnline) {
+            mOutput = output;
+            mOnline = changeDoneOnline;
+            mThread = Thread.currentThread().getName();
+            mDone.countDown();
+        }
+    }
+}
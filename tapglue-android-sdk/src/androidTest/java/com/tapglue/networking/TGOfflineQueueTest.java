@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking;
+
+import android.support.annotation.NonNull;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.tapglue.cache.TGIOExecutor;
+import com.tapglue.model.TGUser;
+import com.tapglue.networking.requests.TGRequestType;
+import com.tapglue.utils.TGLog;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+public class TGOfflineQueueTest extends TestCase {
+
+    private static final long FLUSH_INTERVAL = 60 * 1000;
+
+    private final Executor mDirect = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private TGIOExecutor mIO;
+    private MemoryStorage mStorage;
+    private RecordingTarget mTarget;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mIO = new TGIOExecutor(new TGLog(false), mDirect, 0);
+        mStorage = new MemoryStorage();
+        mTarget = new RecordingTarget();
+    }
+
+    @SmallTest
+    public void testConcurrentAddsDoNotWaitForIOThread() throws InterruptedException {
+        final TGOfflineQueue queue = new TGOfflineQueue(mStorage, mTarget, mIO, new TGLog(false), FLUSH_INTERVAL);
+        final int producers = 8;
+        final int perProducer = 1000;
+        final CountDownLatch release = new CountDownLatch(1);
+        // keep the only writer busy - adding must still finish
+        mIO.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perProducer; i++) {
+                        queue.add(request((long) producer * perProducer + i));
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(0, queue.size());
+
+        release.countDown();
+        mIO.flush();
+        mIO.flush();
+        assertEquals(producers * perProducer, queue.size());
+        assertEquals(producers * perProducer, mStorage.mRequests.size());
+        // requests of every producer keep their order
+        long[] last = new long[producers];
+        Arrays.fill(last, -1);
+        for (TGRequest request : mStorage.mRequests) {
+            long id = request.getObject().getReadRequestObjectId();
+            int producer = (int) (id / perProducer);
+            assertTrue(id > last[producer]);
+            last[producer] = id;
+        }
+        // adds were handed over in few batches, not one write per request
+        assertTrue(mStorage.mAppends < producers * perProducer);
+    }
+
+    @SmallTest
+    public void testFlushSendsStoredRequestsInOrder() {
+        TGOfflineQueue queue = new TGOfflineQueue(mStorage, mTarget, mIO, new TGLog(false), FLUSH_INTERVAL);
+        queue.add(request(1L));
+        queue.add(request(2L));
+        queue.add(request(3L));
+        mIO.flush();
+        assertEquals(3, queue.size());
+
+        queue.flush();
+        mIO.flush();
+        assertEquals(0, queue.size());
+        assertEquals(3, mTarget.mSent.size());
+        assertEquals(Long.valueOf(1), mTarget.mSent.get(0).getObject().getReadRequestObjectId());
+        assertEquals(Long.valueOf(3), mTarget.mSent.get(2).getObject().getReadRequestObjectId());
+        assertTrue(mTarget.mFlushed.isEmpty());
+    }
+
+    @SmallTest
+    public void testFlushWhileOfflineKeepsRequests() {
+        mTarget.mCanSend = false;
+        TGOfflineQueue queue = new TGOfflineQueue(mStorage, mTarget, mIO, new TGLog(false), FLUSH_INTERVAL);
+        queue.add(request(1L));
+        queue.flush();
+        mIO.flush();
+        assertEquals(1, queue.size());
+        assertEquals(0, mTarget.mSent.size());
+    }
+
+    @SmallTest
+    public void testRequestsFailingAgainAreQueuedAtEnd() {
+        final List<TGOfflineQueue> holder = new ArrayList<>();
+        mTarget.mRequeue = holder;
+        TGOfflineQueue queue = new TGOfflineQueue(mStorage, mTarget, mIO, new TGLog(false), FLUSH_INTERVAL);
+        holder.add(queue);
+        queue.add(request(1L));
+        queue.add(request(2L));
+        queue.flush();
+        mIO.flush();
+        mIO.flush();
+        // every request was sent once and queued again, without flushing it in the same pass
+        assertEquals(2, mTarget.mSent.size());
+        assertEquals(2, queue.size());
+        // target learns which requests are still waiting in queue
+        assertEquals(mTarget.mSent, mTarget.mFlushed);
+    }
+
+    @SmallTest
+    public void testEmptyQueueDoesNotPostFlush() {
+        TGOfflineQueue queue = new TGOfflineQueue(mStorage, mTarget, mIO, new TGLog(false), FLUSH_INTERVAL);
+        mIO.flush();
+        queue.flush();
+        mIO.flush();
+        assertEquals(0, mStorage.mTakes);
+        assertEquals(0, mTarget.mSent.size());
+    }
+
+    @NonNull
+    private static TGRequest request(long id) {
+        return new TGRequest<>(new TGUser().setReadRequestObjectId(id), TGRequestType.UPDATE, false);
+    }
+
+    private static class MemoryStorage implements TGOfflineQueue.Storage {
+        private final List<TGRequest> mRequests = new ArrayList<>();
+        private int mAppends;
+        private int mTakes;
+
+        @Override
+        public void append(@NonNull List<TGRequest> requests) {
+            mAppends++;
+            mRequests.addAll(requests);
+        }
+
+        @Override
+        public int size() {
+            return mRequests.size();
+        }
+
+        @NonNull
+        @Override
+        public List<TGRequest> takeAll() {
+            mTakes++;
+            List<TGRequest> requests = new ArrayList<>(mRequests);
+            mRequests.clear();
+            return requests;
+        }
+    }
+
+    private static class RecordingTarget implements TGOfflineQueue.Target {
+        private final List<TGRequest> mSent = new ArrayList<>();
+        private volatile boolean mCanSend = true;
+        private List<TGRequest> mFlushed;
+        private List<TGOfflineQueue> mRequeue;
+
+        @Override
+        public boolean canSend() {
+            return mCanSend;
+        }
+
+        @Override
+        public void send(@NonNull TGRequest request) {
+            mSent.add(request);
+            if (mRequeue != null) { mRequeue.get(0).add(request); }
+        }
+
+        @Override
+        public void onFlushed(@NonNull List<TGRequest> queued) {
+            mFlushed = queued;
+        }
+    }
+}
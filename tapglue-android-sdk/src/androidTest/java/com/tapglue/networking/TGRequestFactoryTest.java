@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.tapglue.TGTestEnvironment;
+import com.tapglue.Tapglue;
+import com.tapglue.model.TGConnectionUsersList;
+import com.tapglue.model.TGUser;
+import com.tapglue.networking.fake.TGFakeTransport;
+import com.tapglue.networking.requests.TGCall;
+import com.tapglue.networking.requests.TGRequestCallback;
+import com.tapglue.networking.requests.TGRequestErrorType;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TGRequestFactoryTest extends AndroidTestCase {
+
+    private static final String DELIVERY_THREAD = "TGRequestPipeline-delivery";
+
+    private TGFakeTransport mTransport;
+
+    private TGConnectionUsersList fillCache(long userId) throws Exception {
+        TGCall<TGConnectionUsersList> call = new TGCall<>();
+        Tapglue.ready().get().createRequest().getUserFriends(userId, call.callback());
+        return TGTestEnvironment.await(call);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mTransport = TGTestEnvironment.initialize(getContext());
+        TGTestEnvironment.login("factory");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mTransport.setErrorRate(0);
+        mTransport.setNetworkAvailable(true);
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testCachedResponseIsDeliveredOnDeliveryThread() throws Exception {
+        TGConnectionUsersList friends = fillCache(21L);
+        mTransport.setNetworkAvailable(false);
+
+        RecordingCallback<TGConnectionUsersList> disabled = new RecordingCallback<>();
+        disabled.mEnabled = false;
+        Tapglue.ready().get().createRequest().getUserFriends(21L, disabled);
+        RecordingCallback<TGConnectionUsersList> callback = new RecordingCallback<>();
+        Tapglue.ready().get().createRequest().getUserFriends(21L, callback);
+        callback.await();
+        assertSame(friends, callback.mOutput);
+        assertFalse(callback.mOnline);
+        assertEquals(DELIVERY_THREAD, callback.mThread);
+        assertEquals(1, disabled.mDone.getCount());
+    }
+
+    @SmallTest
+    public void testFailedLoginKeepsDataOfCurrentUser() throws Exception {
+        TGConnectionUsersList friends = fillCache(22L);
+        mTransport.setErrorRate(1);
+        RecordingCallback<Boolean> login = new RecordingCallback<>();
+        Tapglue.user().login("intruder", "wrong", login);
+        login.await();
+        assertNotNull(login.mError);
+        mTransport.setErrorRate(0);
+
+        mTransport.setNetworkAvailable(false);
+        RecordingCallback<TGConnectionUsersList> cached = new RecordingCallback<>();
+        Tapglue.ready().get().createRequest().getUserFriends(22L, cached);
+        cached.await();
+        assertSame(friends, cached.mOutput);
+
+        // successful login of other user clears cached responses
+        mTransport.setNetworkAvailable(true);
+        TGTestEnvironment.login("other");
+        mTransport.setNetworkAvailable(false);
+        RecordingCallback<TGConnectionUsersList> cleared = new RecordingCallback<>();
+        Tapglue.ready().get().createRequest().getUserFriends(22L, cleared);
+        cleared.await();
+        assertEquals(TGRequestErrorType.ErrorType.NO_NETWORK, cleared.mError.getType());
+    }
+
+    @SmallTest
+    public void testOfflineSearchIsDeliveredOnDeliveryThread() throws Exception {
+        TGCall<TGUser> user = new TGCall<>();
+        Tapglue.ready().get().createRequest().getUserByID(23L, user.callback());
+        TGTestEnvironment.await(user);
+        mTransport.setNetworkAvailable(false);
+
+        RecordingCallback<TGConnectionUsersList> disabled = new RecordingCallback<>();
+        disabled.mEnabled = false;
+        Tapglue.ready().get().createRequest().search("user23", disabled);
+        RecordingCallback<TGConnectionUsersList> callback = new RecordingCallback<>();
+        TGRequest<?, ?> request = Tapglue.ready().get().createRequest().search("user23", callback);
+        callback.await();
+        assertTrue(request.isFinished());
+        assertFalse(callback.mOnline);
+        assertEquals(Long.valueOf(23), callback.mOutput.getUsers().get(0).getID());
+        assertEquals(DELIVERY_THREAD, callback.mThread);
+        assertEquals(1, disabled.mDone.getCount());
+    }
+
+    private static class RecordingCallback<T> implements TGRequestCallback<T> {
+
+        private final CountDownLatch mDone = new CountDownLatch(1);
+
+        private volatile boolean mEnabled = true;
+
+        private TGRequestErrorType mError;
+
+        private boolean mOnline;
+
+        private T mOutput;
+
+        private String mThread;
+
+        void await() throws InterruptedException {
+            assertTrue(mDone.await(5, TimeUnit.SECONDS));
+        }
+
+        @Override
+        public boolean callbackIsEnabled() {
+            return mEnabled;
+        }
+
+        @Override
+        public void onRequestError(TGRequestErrorType cause) {
+            mError = cause;
+            mThread = Thread.currentThread().getName();
+            mDone.countDown();
+        }
+
+        @Override
+        public void onRequestFinished(T output, boolean changeDoneOnline) {
+            mOutput = output;
+            mOnline = changeDoneOnline;
+            mThread = Thread.currentThread().getName();
+            mDone.countDown();
+        }
+    }
+}
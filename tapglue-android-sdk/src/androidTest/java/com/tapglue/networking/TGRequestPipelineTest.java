@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking;
+
+import android.support.annotation.NonNull;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TGRequestPipelineTest extends TestCase {
+
+    @SmallTest
+    public void testNetworkStageCountsRequestsInFlight() {
+        TGRequestPipeline pipeline = new TGRequestPipeline(TGRequestPipeline.Delivery.CALLER, null, 1, 1);
+        pipeline.onSent();
+        pipeline.onSent();
+        assertEquals(2, pipeline.getNetworkStage().getQueueDepth());
+        pipeline.onReceived();
+        assertEquals(1, pipeline.getNetworkStage().getQueueDepth());
+        assertEquals(2, pipeline.getNetworkStage().getMaxQueueDepth());
+        assertEquals(1, pipeline.getNetworkStage().getCompletedCount());
+
+        pipeline.getNetworkStage().resetMaxQueueDepth();
+        assertEquals(1, pipeline.getNetworkStage().getMaxQueueDepth());
+    }
+
+    @SmallTest
+    public void testDecodeRunsOffCallingThread() throws InterruptedException {
+        TGRequestPipeline pipeline = new TGRequestPipeline(TGRequestPipeline.Delivery.CALLER, null, 1, 4);
+        final AtomicReference<Thread> decodeThread = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        pipeline.decode(new Runnable() {
+            @Override
+            public void run() {
+                decodeThread.set(Thread.currentThread());
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), decodeThread.get());
+        assertEquals("TGRequestPipeline-decode", decodeThread.get().getName());
+    }
+
+    @SmallTest
+    public void testDecodeQueueDepth() throws InterruptedException {
+        TGRequestPipeline pipeline = new TGRequestPipeline(TGRequestPipeline.Delivery.CALLER, null, 1, 4);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(3);
+        Runnable blocked = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finished.countDown();
+            }
+        };
+        pipeline.decode(blocked);
+        pipeline.decode(blocked);
+        pipeline.decode(blocked);
+        assertEquals(3, pipeline.getDecodeStage().getQueueDepth());
+
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        waitForDepth(pipeline.getDecodeStage(), 0);
+        assertEquals(3, pipeline.getDecodeStage().getMaxQueueDepth());
+        assertEquals(3, pipeline.getDecodeStage().getCompletedCount());
+    }
+
+    @SmallTest
+    public void testFullDecodeQueueRunsOnCallingThread() throws InterruptedException {
+        TGRequestPipeline pipeline = new TGRequestPipeline(TGRequestPipeline.Delivery.CALLER, null, 1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        pipeline.decode(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        pipeline.decode(new Runnable() {
+            @Override
+            public void run() {
+                // waits in queue
+            }
+        });
+        final AtomicReference<Thread> overflowThread = new AtomicReference<>();
+        pipeline.decode(new Runnable() {
+            @Override
+            public void run() {
+                overflowThread.set(Thread.currentThread());
+            }
+        });
+        assertSame(Thread.currentThread(), overflowThread.get());
+        release.countDown();
+    }
+
+    @SmallTest
+    public void testCustomExecutorDelivers() {
+        final List<Runnable> queued = new ArrayList<>();
+        TGRequestPipeline pipeline = new TGRequestPipeline(TGRequestPipeline.Delivery.MAIN, new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                queued.add(command);
+            }
+        }, 1, 1);
+        final List<String> delivered = Collections.synchronizedList(new ArrayList<String>());
+        pipeline.deliver(null, new Runnable() {
+            @Override
+            public void run() {
+                delivered.add("first");
+            }
+        });
+        assertTrue(delivered.isEmpty());
+        assertEquals(1, pipeline.getDeliveryStage().getQueueDepth());
+
+        queued.get(0).run();
+        assertEquals(Collections.singletonList("first"), delivered);
+        assertEquals(0, pipeline.getDeliveryStage().getQueueDepth());
+        assertEquals(1, pipeline.getDeliveryStage().getCompletedCount());
+    }
+
+    @SmallTest
+    public void testCallerDeliveryWithoutLooperRunsImmediately() {
+        TGRequestPipeline pipeline = new TGRequestPipeline(TGRequestPipeline.Delivery.CALLER, null, 1, 1);
+        final AtomicReference<Thread> deliveryThread = new AtomicReference<>();
+        pipeline.deliver(null, new Runnable() {
+            @Override
+            public void run() {
+                deliveryThread.set(Thread.currentThread());
+            }
+        });
+        assertSame(Thread.currentThread(), deliveryThread.get());
+    }
+
+    @SmallTest
+    public void testBackgroundDeliveryKeepsOrder() throws InterruptedException {
+        TGRequestPipeline pipeline = new TGRequestPipeline(TGRequestPipeline.Delivery.BACKGROUND, null, 1, 1);
+        final List<Integer> delivered = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(20);
+        for (int i = 0; i < 20; i++) {
+            final int index = i;
+            pipeline.deliver(null, new Runnable() {
+                @Override
+                public void run() {
+                    delivered.add(index);
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Integer.valueOf(i), delivered.get(i));
+        }
+    }
+
+    /**
+     * Wait until stage reaches queue depth
+     *
+     * @param stage stage to check
+     * @param depth expected depth
+     */
+    private void waitForDepth(@NonNull TGRequestPipeline.Stage stage, int depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (stage.getQueueDepth() != depth && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(depth, stage.getQueueDepth());
+    }
+}
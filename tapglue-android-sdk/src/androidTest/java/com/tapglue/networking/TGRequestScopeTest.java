@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.tapglue.model.TGUser;
+import com.tapglue.networking.requests.TGCall;
+import com.tapglue.networking.requests.TGRequestCallback;
+import com.tapglue.networking.requests.TGRequestErrorType;
+import com.tapglue.networking.requests.TGRequestType;
+
+import junit.framework.TestCase;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TGRequestScopeTest extends TestCase {
+
+    @SmallTest
+    public void testClosedScopeDisablesAndSilencesCallbacks() {
+        TGRequestScope scope = new TGRequestScope(null);
+        RecordingCallback callback = new RecordingCallback();
+        TGRequestCallback<String> wrapped = scope.wrap(callback);
+        assertTrue(wrapped.callbackIsEnabled());
+        wrapped.onRequestFinished("first", true);
+
+        scope.close();
+        assertTrue(scope.isClosed());
+        assertFalse(wrapped.callbackIsEnabled());
+        wrapped.onRequestFinished("second", true);
+        wrapped.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.SERVER_ERROR));
+        assertEquals(1, callback.mResults.size());
+        assertEquals("first", callback.mResults.get(0));
+    }
+
+    @SmallTest
+    public void testCloseCancelsTrackedCallsAndRequests() {
+        TGRequestScope scope = new TGRequestScope(null);
+        TGCall<String> first = new TGCall<>();
+        TGCall<String> second = new TGCall<>();
+        RecordingCallback callback = new RecordingCallback();
+        scope.enqueue(first, callback);
+        scope.track(second);
+        TGRequest<TGUser, TGUser> request = scope.track(new TGRequest<TGUser, TGUser>(new TGUser(), TGRequestType.READ, true));
+
+        scope.close();
+        assertTrue(first.isCancelled());
+        assertTrue(second.isCancelled());
+        assertTrue(request.isCancelled());
+        first.callback().onRequestFinished("late", true);
+        assertTrue(callback.mResults.isEmpty());
+    }
+
+    @SmallTest
+    public void testTrackingAfterCloseCancelsImmediately() {
+        TGRequestScope scope = new TGRequestScope(null);
+        scope.close();
+        TGCall<String> call = scope.track(new TGCall<String>());
+        assertTrue(call.isCancelled());
+        TGRequest<TGUser, TGUser> request = scope.track(new TGRequest<TGUser, TGUser>(new TGUser(), TGRequestType.READ, true));
+        assertTrue(request.isCancelled());
+    }
+
+    @SmallTest
+    public void testDoneCallsAreNotKept() {
+        TGRequestScope scope = new TGRequestScope(null);
+        TGCall<String> done = scope.track(TGCall.success("done"));
+        scope.track(new TGCall<String>());
+        scope.close();
+        // finished call was dropped from scope and is not cancelled
+        assertFalse(done.isCancelled());
+    }
+
+    @SmallTest
+    public void testFinishedRequestsAreNotKept() {
+        TGRequestScope scope = new TGRequestScope(null);
+        TGRequest<TGUser, TGUser> finished = scope.track(new TGRequest<TGUser, TGUser>(new TGUser(), TGRequestType.READ, true));
+        finished.finish();
+        TGRequest<TGUser, TGUser> running = scope.track(new TGRequest<TGUser, TGUser>(new TGUser(), TGRequestType.READ, true));
+        scope.close();
+        // finished request was dropped from scope and is not cancelled
+        assertFalse(finished.isCancelled());
+        assertTrue(running.isCancelled());
+    }
+
+    @SmallTest
+    public void testDeliveredCallbacksAreReleasedBeforeClose() throws InterruptedException {
+        TGRequestScope scope = new TGRequestScope(null);
+        RecordingCallback callback = new RecordingCallback();
+        TGRequestCallback<String> wrapped = scope.wrap(callback);
+        WeakReference<RecordingCallback> reference = new WeakReference<>(callback);
+        callback = null;
+
+        // request holding wrapper delivered and is gone
+        wrapped.onRequestFinished("done", true);
+        wrapped = null;
+        collectGarbage(reference);
+        assertNull(reference.get());
+        assertFalse(scope.isClosed());
+    }
+
+    @SmallTest
+    public void testClosedScopeReleasesCallbacks() throws InterruptedException {
+        TGRequestScope scope = new TGRequestScope(null);
+        RecordingCallback callback = new RecordingCallback();
+        TGRequestCallback<String> wrapped = scope.wrap(callback);
+        WeakReference<RecordingCallback> reference = new WeakReference<>(callback);
+        callback = null;
+
+        // wrapper keeps callback while scope is open
+        collectGarbage(null);
+        assertNotNull(reference.get());
+
+        scope.close();
+        collectGarbage(reference);
+        assertNull(reference.get());
+        assertFalse(wrapped.callbackIsEnabled());
+    }
+
+    /**
+     * Run garbage collection until reference is cleared, or a few times when there is no
+     * reference
+     */
+    private static void collectGarbage(WeakReference<?> reference) throws InterruptedException {
+        for (int i = 0; i < 20 && (reference == null || reference.get() != null); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+    }
+
+    private static class RecordingCallback implements TGRequestCallback<String> {
+        private final List<String> mResults = new ArrayList<>();
+
+        @Override
+        public boolean callbackIsEnabled() {
+            return true;
+        }
+
+        @Override
+        public void onRequestError(TGRequestErrorType cause) {
+            mResults.add("error");
+        }
+
+        @Override
+        public void onRequestFinished(String output, boolean changeDoneOnline) {
+            mResults.add(output);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.tapglue.networking.requests.TGRequestCallback;
+import com.tapglue.networking.requests.TGRequestErrorType;
+
+import junit.framework.TestCase;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+public class TGResponseCacheTest extends TestCase {
+
+    @SmallTest
+    public void testEviction() {
+        TGResponseCache cache = new TGResponseCache(2, new EnumMap<TGResponseCache.Route, Long>(TGResponseCache.Route.class));
+        cache.put(TGResponseCache.Route.USER, "a", "a");
+        cache.put(TGResponseCache.Route.USER, "b", "b");
+        assertNotNull(cache.get("a"));
+        cache.put(TGResponseCache.Route.USER, "c", "c");
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    @SmallTest
+    public void testDisabled() {
+        TGResponseCache cache = new TGResponseCache(0, new EnumMap<TGResponseCache.Route, Long>(TGResponseCache.Route.class));
+        assertFalse(cache.isEnabled());
+        cache.put(TGResponseCache.Route.USER, "a", "a");
+        assertEquals(0, cache.size());
+    }
+
+    @SmallTest
+    public void testFreshness() {
+        Map<TGResponseCache.Route, Long> ttl = new EnumMap<>(TGResponseCache.Route.class);
+        ttl.put(TGResponseCache.Route.EVENT, 0L);
+        TGResponseCache cache = new TGResponseCache(10, ttl);
+        cache.put(TGResponseCache.Route.USER, "user", "user");
+        cache.put(TGResponseCache.Route.EVENT, "event", "event");
+        assertTrue(cache.isFresh(cache.get("user")));
+        assertFalse(cache.isFresh(cache.get("event")));
+    }
+
+    @SmallTest
+    public void testInvalidate() {
+        TGResponseCache cache = new TGResponseCache(10, new EnumMap<TGResponseCache.Route, Long>(TGResponseCache.Route.class));
+        String userKey = TGResponseCache.key(TGResponseCache.Route.USER, 1L);
+        String eventKey = TGResponseCache.key(TGResponseCache.Route.EVENT, 1L, 2L);
+        cache.put(TGResponseCache.Route.USER, userKey, "user");
+        cache.put(TGResponseCache.Route.EVENT, eventKey, "event");
+        cache.invalidate(TGResponseCache.Route.USER);
+        assertNull(cache.get(userKey));
+        assertNotNull(cache.get(eventKey));
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @SmallTest
+    public void testJoinRequest() {
+        TGResponseCache cache = new TGResponseCache(10, new EnumMap<TGResponseCache.Route, Long>(TGResponseCache.Route.class));
+        List<TGRequestCallback<?>> waiting = cache.joinRequest("key", new TestCallback(true));
+        assertNotNull(waiting);
+        assertNull(cache.joinRequest("key", new TestCallback(true)));
+        assertEquals(2, cache.finishRequest("key", waiting).size());
+        List<TGRequestCallback<?>> disabled = cache.joinRequest("key", new TestCallback(false));
+        assertNotNull(disabled);
+        waiting = cache.joinRequest("key", new TestCallback(true));
+        assertNotNull(waiting);
+        assertEquals(1, cache.finishRequest("key", waiting).size());
+        assertEquals(1, cache.finishRequest("key", disabled).size());
+    }
+
+    @SmallTest
+    public void testClearForgetsRunningRequests() {
+        TGResponseCache cache = new TGResponseCache(10, new EnumMap<TGResponseCache.Route, Long>(TGResponseCache.Route.class));
+        List<TGRequestCallback<?>> before = cache.joinRequest("key", new TestCallback(true));
+        int generation = cache.getGeneration();
+        cache.clear();
+
+        // request of new user doesn't join request of previous one
+        List<TGRequestCallback<?>> after = cache.joinRequest("key", new TestCallback(true));
+        assertNotNull(after);
+        assertFalse(cache.put(TGResponseCache.Route.USER, "key", "previous", generation));
+        assertEquals(1, cache.finishRequest("key", before).size());
+        assertNull(cache.get("key"));
+        assertNull(cache.joinRequest("key", new TestCallback(true)));
+        assertTrue(cache.put(TGResponseCache.Route.USER, "key", "current", cache.getGeneration()));
+        assertEquals(2, cache.finishRequest("key", after).size());
+        assertEquals("current", cache.get("key").mValue);
+    }
+
+    private static class TestCallback implements TGRequestCallback<Object> {
+        private final boolean mEnabled;
+
+        TestCallback(boolean enabled) {
+            mEnabled = enabled;
+        }
+
+        @Override
+        public boolean callbackIsEnabled() {
+            return mEnabled;
+        }
+
+        @Override
+        public void onRequestError(TGRequestErrorType cause) {
+        }
+
+        @Override
+        public void onRequestFinished(Object output, boolean changeDoneOnline) {
+        }
+    }
+}
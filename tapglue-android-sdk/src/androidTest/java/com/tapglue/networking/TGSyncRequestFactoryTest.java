@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.tapglue.TGTestEnvironment;
+import com.tapglue.Tapglue;
+import com.tapglue.model.TGConnectionUsersList;
+import com.tapglue.networking.fake.TGFakeTransport;
+import com.tapglue.networking.requests.TGCall;
+import com.tapglue.networking.requests.TGRequestErrorType;
+import com.tapglue.networking.requests.TGRequestException;
+
+public class TGSyncRequestFactoryTest extends AndroidTestCase {
+
+    private TGFakeTransport mTransport;
+
+    private void assertFails(TGRequestErrorType.ErrorType expected) {
+        try {
+            Tapglue.sync().getFeed();
+            fail("Expected " + expected);
+        } catch (TGRequestException e) {
+            assertEquals(expected, e.getError().getType());
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mTransport = TGTestEnvironment.initialize(getContext());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mTransport.setNetworkAvailable(true);
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testExecuteReadHitsServerAndFillsResponseCache() throws Exception {
+        TGTestEnvironment.login("reader");
+        long requests = mTransport.getRequestCount();
+        TGConnectionUsersList friends = Tapglue.sync().getUserFriends(7L);
+        assertNotNull(friends);
+        assertEquals(requests + 1, mTransport.getRequestCount());
+
+        // asynchronous read is answered from response cache filled by blocking one
+        mTransport.setNetworkAvailable(false);
+        TGCall<TGConnectionUsersList> cached = new TGCall<>();
+        Tapglue.ready().get().createRequest().getUserFriends(7L, cached.callback());
+        assertSame(friends, TGTestEnvironment.await(cached));
+        assertEquals(requests + 1, mTransport.getRequestCount());
+    }
+
+    @SmallTest
+    public void testExecuteWithoutNetworkThrowsNoNetwork() throws Exception {
+        TGTestEnvironment.login("reader");
+        mTransport.setNetworkAvailable(false);
+        assertFails(TGRequestErrorType.ErrorType.NO_NETWORK);
+    }
+
+    @SmallTest
+    public void testExecuteWithoutUserThrowsUserNotLoggedIn() throws Exception {
+        TGTestEnvironment.logout();
+        assertFails(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN);
+    }
+}
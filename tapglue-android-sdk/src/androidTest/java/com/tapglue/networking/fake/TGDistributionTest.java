@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking.fake;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+public class TGDistributionTest extends TestCase {
+
+    private static final int SAMPLES = 20000;
+
+    /**
+     * Get mean of distribution samples
+     *
+     * @param distribution sampled distribution
+     *
+     * @return Mean value
+     */
+    private static double mean(TGDistribution distribution) {
+        Random random = new Random(42);
+        double sum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            sum += distribution.sample(random);
+        }
+        return sum / SAMPLES;
+    }
+
+    @SmallTest
+    public void testConstantAlwaysReturnsValue() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(25, TGDistribution.constant(25).sample(random));
+        }
+    }
+
+    @SmallTest
+    public void testUniformCoversWholeRange() {
+        TGDistribution uniform = TGDistribution.uniform(10, 13);
+        Random random = new Random(42);
+        boolean[] seen = new boolean[4];
+        for (int i = 0; i < 1000; i++) {
+            long value = uniform.sample(random);
+            assertTrue(value >= 10 && value <= 13);
+            seen[(int) (value - 10)] = true;
+        }
+        for (boolean value : seen) {
+            assertTrue(value);
+        }
+    }
+
+    @SmallTest
+    public void testMeansMatchParameters() {
+        assertEquals(120, mean(TGDistribution.normal(120, 40)), 2);
+        assertEquals(80, mean(TGDistribution.exponential(80)), 3);
+        assertEquals(100, mean(TGDistribution.uniform(50, 150)), 2);
+    }
+
+    @SmallTest
+    public void testSamplesAreNeverNegative() {
+        TGDistribution normal = TGDistribution.normal(0, 50);
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(normal.sample(random) >= 0);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking.fake;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.tapglue.model.TGFeedCount;
+import com.tapglue.networking.TGApi;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+
+import retrofit.Response;
+
+public class TGFakeTransportTest extends TestCase {
+
+    private TGApi mApi;
+
+    private TGFakeTransport mTransport;
+
+    /**
+     * Read feed of given size
+     *
+     * @param size amount of events
+     *
+     * @return Amount of bytes received for feed
+     */
+    private long receivedBytesOfFeed(int size) throws IOException {
+        mTransport.setPayloadSize(TGDistribution.constant(size));
+        long before = mTransport.getReceivedBytes();
+        mApi.getFeed().execute();
+        return mTransport.getReceivedBytes() - before;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mTransport = new TGFakeTransport().setSeed(42);
+        mApi = mTransport.createApi(null);
+    }
+
+    @SmallTest
+    public void testPayloadSizeControlsListResponses() throws IOException {
+        mTransport.setPayloadSize(TGDistribution.constant(7));
+        assertEquals(7, mApi.getFeed().execute().body().getEvents().size());
+        assertEquals(Long.valueOf(7), mApi.getUnreadFeedCount().execute().body().getUnreadCount());
+
+        mTransport.setPayloadSize(TGDistribution.constant(2));
+        assertEquals(2, mApi.getFeed().execute().body().getEvents().size());
+    }
+
+    @SmallTest
+    public void testReceivedBytesAndRequestsAreCounted() throws IOException {
+        long small = receivedBytesOfFeed(1);
+        long big = receivedBytesOfFeed(50);
+        assertTrue(small > 0);
+        assertTrue(big > small);
+        assertEquals(2, mTransport.getRequestCount());
+        assertEquals(small + big, mTransport.getReceivedBytes());
+    }
+
+    @SmallTest
+    public void testLatencyAndBandwidthDelayRequests() throws IOException {
+        mTransport.setLatency(TGDistribution.constant(100));
+        long start = System.nanoTime();
+        mApi.getUnreadFeedCount().execute();
+        assertTrue(System.nanoTime() - start >= 100 * 1000 * 1000L);
+
+        mTransport.setLatency(TGDistribution.constant(0)).setBandwidth(1000);
+        assertEquals(2000, mTransport.nextRequestTime(2000));
+        mTransport.setBandwidth(0);
+        assertEquals(0, mTransport.nextRequestTime(2000));
+    }
+
+    @SmallTest
+    public void testNetworkCanBeToggled() {
+        assertTrue(mTransport.isNetworkAvailable(null));
+        assertTrue(mTransport.isNetworkUnmetered(null));
+        mTransport.setNetworkUnmetered(false);
+        assertTrue(mTransport.isNetworkAvailable(null));
+        assertFalse(mTransport.isNetworkUnmetered(null));
+        mTransport.setNetworkUnmetered(true).setNetworkAvailable(false);
+        // unavailable network is never unmetered
+        assertFalse(mTransport.isNetworkAvailable(null));
+        assertFalse(mTransport.isNetworkUnmetered(null));
+        mTransport.setNetworkAvailable(true);
+        assertTrue(mTransport.isNetworkUnmetered(null));
+    }
+
+    @SmallTest
+    public void testErrorsAndFailuresAreSimulated() throws IOException {
+        mTransport.setErrorRate(1);
+        Response<TGFeedCount> error = mApi.getUnreadFeedCount().execute();
+        assertFalse(error.isSuccess());
+        assertEquals(500, error.code());
+
+        mTransport.setErrorRate(0).setFailureRate(1);
+        try {
+            mApi.getUnreadFeedCount().execute();
+            fail();
+        }
+        catch (IOException e) {
+            // expected
+        }
+    }
+
+    @SmallTest
+    public void testSeedMakesRunsRepeatable() throws IOException {
+        TGFakeTransport other = new TGFakeTransport().setSeed(42);
+        TGApi otherApi = other.createApi(null);
+        mTransport.setPayloadSize(TGDistribution.uniform(0, 100));
+        other.setPayloadSize(TGDistribution.uniform(0, 100));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(mApi.getFeed().execute().body().getEvents().size(),
+                otherApi.getFeed().execute().body().getEvents().size());
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking.requests;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TGCallTest extends TestCase {
+
+    @SmallTest
+    public void testCallbackAddedAfterFinishIsCalled() {
+        TGCall<String> call = TGCall.success("done");
+        Recorder<String> recorder = new Recorder<>();
+        call.enqueue(recorder);
+        assertEquals("done", recorder.mResult);
+        assertTrue(call.isDone());
+    }
+
+    @SmallTest
+    public void testOnlyFirstResultIsUsed() {
+        TGCall<String> call = new TGCall<>();
+        Recorder<String> recorder = new Recorder<>();
+        call.enqueue(recorder);
+        call.callback().onRequestFinished("cached", false);
+        call.callback().onRequestFinished("fresh", true);
+        assertEquals("cached", recorder.mResult);
+        assertEquals(1, recorder.mCalls);
+        assertFalse(recorder.mOnline);
+    }
+
+    @SmallTest
+    public void testMap() {
+        TGCall<String> call = new TGCall<>();
+        Recorder<Integer> recorder = new Recorder<>();
+        call.map(new TGCall.Function<String, Integer>() {
+            @Override
+            public Integer apply(String input) {
+                return input.length();
+            }
+        }).enqueue(recorder);
+        call.callback().onRequestFinished("four", true);
+        assertEquals(Integer.valueOf(4), recorder.mResult);
+    }
+
+    @SmallTest
+    public void testZipWaitsForBothCalls() {
+        TGCall<String> first = new TGCall<>();
+        TGCall<Integer> second = new TGCall<>();
+        Recorder<String> recorder = new Recorder<>();
+        TGCall.zip(first, second, new TGCall.Combiner<String, Integer, String>() {
+            @Override
+            public String combine(String a, Integer b) {
+                return a + b;
+            }
+        }).enqueue(recorder);
+
+        second.callback().onRequestFinished(2, true);
+        assertEquals(0, recorder.mCalls);
+        first.callback().onRequestFinished("user", true);
+        assertEquals("user2", recorder.mResult);
+        assertTrue(recorder.mOnline);
+    }
+
+    @SmallTest
+    public void testAllKeepsOrderOfCalls() {
+        TGCall<String> first = new TGCall<>();
+        TGCall<String> second = new TGCall<>();
+        Recorder<List<String>> recorder = new Recorder<>();
+        TGCall.all(Arrays.asList(first, second)).enqueue(recorder);
+
+        second.callback().onRequestFinished("b", false);
+        first.callback().onRequestFinished("a", true);
+        assertEquals(Arrays.asList("a", "b"), recorder.mResult);
+        assertFalse(recorder.mOnline);
+    }
+
+    @SmallTest
+    public void testAllOfNoCalls() {
+        Recorder<List<String>> recorder = new Recorder<>();
+        TGCall.all(new ArrayList<TGCall<String>>()).enqueue(recorder);
+        assertTrue(recorder.mResult.isEmpty());
+    }
+
+    @SmallTest
+    public void testErrorFailsJoinAndCancelsOtherCalls() {
+        TGCall<String> first = new TGCall<>();
+        TGCall<String> second = new TGCall<>();
+        Recorder<List<String>> recorder = new Recorder<>();
+        TGCall.all(Arrays.asList(first, second)).enqueue(recorder);
+
+        first.callback().onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.NOT_FOUND));
+        assertEquals(TGRequestErrorType.ErrorType.NOT_FOUND, recorder.mError.getType());
+        assertTrue(second.isCancelled());
+        assertFalse(second.callback().callbackIsEnabled());
+    }
+
+    @SmallTest
+    public void testThenStartsNextRequestWithResult() {
+        TGCall<Long> first = new TGCall<>();
+        final List<Long> started = new ArrayList<>();
+        final TGCall<String> next = new TGCall<>();
+        Recorder<String> recorder = new Recorder<>();
+        first.then(new TGCall.Continuation<Long, String>() {
+            @Override
+            public TGCall<String> then(Long input) {
+                started.add(input);
+                return next;
+            }
+        }).enqueue(recorder);
+
+        assertTrue(started.isEmpty());
+        first.callback().onRequestFinished(7L, true);
+        assertEquals(Arrays.asList(7L), started);
+        next.callback().onRequestFinished("user 7", true);
+        assertEquals("user 7", recorder.mResult);
+    }
+
+    @SmallTest
+    public void testThenSkipsNextRequestOnError() {
+        TGCall<Long> first = new TGCall<>();
+        final List<Long> started = new ArrayList<>();
+        Recorder<String> recorder = new Recorder<>();
+        first.then(new TGCall.Continuation<Long, String>() {
+            @Override
+            public TGCall<String> then(Long input) {
+                started.add(input);
+                return TGCall.success("unused");
+            }
+        }).enqueue(recorder);
+
+        first.callback().onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.NO_NETWORK));
+        assertTrue(started.isEmpty());
+        assertEquals(TGRequestErrorType.ErrorType.NO_NETWORK, recorder.mError.getType());
+    }
+
+    @SmallTest
+    public void testCancelDropsCallbacksAndUpstream() {
+        TGCall<String> first = new TGCall<>();
+        TGCall<String> second = new TGCall<>();
+        Recorder<List<String>> recorder = new Recorder<>();
+        TGCall<List<String>> joined = TGCall.all(Arrays.asList(first, second));
+        joined.enqueue(recorder);
+        joined.cancel();
+
+        assertTrue(first.isCancelled());
+        assertTrue(second.isCancelled());
+        first.callback().onRequestFinished("a", true);
+        second.callback().onRequestFinished("b", true);
+        assertEquals(0, recorder.mCalls);
+    }
+
+    /**
+     * Callback remembering last outcome
+     */
+    private static class Recorder<T> implements TGRequestCallback<T> {
+        int mCalls;
+        TGRequestErrorType mError;
+        boolean mOnline;
+        T mResult;
+
+        @Override
+        public boolean callbackIsEnabled() {
+            return true;
+        }
+
+        @Override
+        public void onRequestError(TGRequestErrorType cause) {
+            mCalls++;
+            mError = cause;
+        }
+
+        @Override
+        public void onRequestFinished(T output, boolean changeDoneOnline) {
+            mCalls++;
+            mResult = output;
+            mOnline = changeDoneOnline;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.prefetch;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.tapglue.TGTestEnvironment;
+import com.tapglue.Tapglue;
+import com.tapglue.networking.fake.TGFakeTransport;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class TGPrefetchSchedulerTest extends AndroidTestCase {
+
+    private TGPrefetchScheduler mScheduler;
+
+    private TGFakeTransport mTransport;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mTransport = TGTestEnvironment.initialize(getContext());
+        // new user starts with empty caches
+        TGTestEnvironment.login("prefetch" + System.nanoTime());
+        mScheduler = new TGPrefetchScheduler(Tapglue.ready().get(), mTransport);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mTransport.setCallbackExecutor(null);
+        mTransport.setNetworkUnmetered(true);
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testByteBudgetStopsPrefetch() throws Exception {
+        long requests = mTransport.getRequestCount();
+        long bytes = mTransport.getReceivedBytes();
+        mScheduler.runNow(new TGWarmUpSet()
+            .add(TGWarmUpSet.Item.FEED, TGWarmUpSet.Item.FRIENDS, TGWarmUpSet.Item.FOLLOWS)
+            .setMaxBytes(1));
+        assertEquals(1, mTransport.getRequestCount() - requests);
+        assertTrue(mTransport.getReceivedBytes() - bytes > 0);
+    }
+
+    @SmallTest
+    public void testFreshItemsAreSkipped() throws Exception {
+        TGWarmUpSet set = new TGWarmUpSet().add(TGWarmUpSet.Item.FRIENDS, TGWarmUpSet.Item.UNREAD_COUNT);
+        long requests = mTransport.getRequestCount();
+        mScheduler.runNow(set);
+        assertEquals(2, mTransport.getRequestCount() - requests);
+
+        // friends are answered by response cache and unread count by tracker
+        mScheduler.runNow(set.add(TGWarmUpSet.Item.FOLLOWS).setMaxRequests(1));
+        assertEquals(3, mTransport.getRequestCount() - requests);
+    }
+
+    @SmallTest
+    public void testItemWaitsForNetworkResponse() throws Exception {
+        final LinkedBlockingQueue<Runnable> responses = new LinkedBlockingQueue<>();
+        mTransport.setCallbackExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                responses.add(command);
+            }
+        });
+        long requests = mTransport.getRequestCount();
+        Thread prefetch = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                mScheduler.runNow(new TGWarmUpSet().add(TGWarmUpSet.Item.FEED, TGWarmUpSet.Item.FRIENDS));
+            }
+        });
+        prefetch.start();
+
+        Runnable response = responses.poll(5, TimeUnit.SECONDS);
+        assertNotNull(response);
+        Thread.sleep(100);
+        assertEquals(1, mTransport.getRequestCount() - requests);
+        response.run();
+        response = responses.poll(5, TimeUnit.SECONDS);
+        assertNotNull(response);
+        response.run();
+        prefetch.join(5000);
+        assertFalse(prefetch.isAlive());
+        assertEquals(2, mTransport.getRequestCount() - requests);
+    }
+
+    @SmallTest
+    public void testMeteredNetworkIsNotUsedForUnmeteredSet() throws Exception {
+        mTransport.setNetworkUnmetered(false);
+        long requests = mTransport.getRequestCount();
+        mScheduler.runNow(new TGWarmUpSet()
+            .add(TGWarmUpSet.Item.FEED, TGWarmUpSet.Item.FRIENDS)
+            .setNetworkPolicy(TGWarmUpSet.NetworkPolicy.UNMETERED));
+        assertEquals(0, mTransport.getRequestCount() - requests);
+
+        mScheduler.runNow(new TGWarmUpSet()
+            .add(TGWarmUpSet.Item.FEED, TGWarmUpSet.Item.FRIENDS)
+            .setNetworkPolicy(TGWarmUpSet.NetworkPolicy.ANY));
+        assertEquals(2, mTransport.getRequestCount() - requests);
+    }
+
+    @SmallTest
+    public void testRequestBudgetStopsPrefetch() throws Exception {
+        long requests = mTransport.getRequestCount();
+        mScheduler.runNow(new TGWarmUpSet()
+            .add(TGWarmUpSet.Item.FEED, TGWarmUpSet.Item.FRIENDS, TGWarmUpSet.Item.FOLLOWS, TGWarmUpSet.Item.FOLLOWERS)
+            .setMaxRequests(2));
+        assertEquals(2, mTransport.getRequestCount() - requests);
+    }
+}
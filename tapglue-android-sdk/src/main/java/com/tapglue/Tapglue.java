@@ -17,11 +17,21 @@
 
 package com.tapglue;
 
+import android.app.Activity;
+import android.app.Application;
 import android.content.Context;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
+import com.squareup.okhttp.ConnectionPool;
+import com.squareup.okhttp.OkHttpClient;
+import com.tapglue.cache.TGConnectionIndex;
+import com.tapglue.cache.TGDiskLruCache;
+import com.tapglue.cache.TGEntityStore;
+import com.tapglue.cache.TGIOExecutor;
+import com.tapglue.cache.TGSocialGraph;
+import com.tapglue.images.TGImageFetcher;
 import com.tapglue.managers.TGConnectionManager;
 import com.tapglue.managers.TGConnectionManagerInterface;
 import com.tapglue.managers.TGEventManager;
@@ -32,8 +42,30 @@ import com.tapglue.managers.TGUserManager;
 import com.tapglue.managers.TGUserManagerInterface;
 import com.tapglue.networking.TGNetworkManager;
 import com.tapglue.networking.TGNetworkRequests;
+import com.tapglue.networking.TGRequestPipeline;
+import com.tapglue.networking.TGRequestScope;
+import com.tapglue.networking.TGResponseCache;
+import com.tapglue.networking.TGRetrofitTransport;
+import com.tapglue.networking.TGSyncNetworkRequests;
+import com.tapglue.networking.TGTransport;
+import com.tapglue.prefetch.TGPrefetchScheduler;
+import com.tapglue.prefetch.TGWarmUpSet;
 import com.tapglue.utils.TGLog;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
 public class Tapglue {
     /**
      * Hidden Singleton pattern
@@ -49,16 +81,29 @@ public class Tapglue {
      * Application context to use
      */
     private final Context mContext;
+    /**
+     * Name of image cache directory in cache directory
+     */
+    private static final String IMAGE_CACHE_DIRECTORY = "tapglue_images";
+    /**
+     * Name of thread doing disk I/O of images
+     */
+    private static final String IMAGE_THREAD_NAME = "TGImageIOExecutor";
+    /**
+     * Thread doing all disk I/O
+     */
+    @NonNull
+    private final TGIOExecutor mIOExecutor;
     /**
      * Default logging tool
      */
     @NonNull
     private final TGLog mLogger;
     /**
-     * Tapglue network manager
+     * Tapglue network manager, created in deferred initialization or on first use
      */
-    @NonNull
-    private final TGNetworkManager mNetManager;
+    @Nullable
+    private volatile TGNetworkManager mNetManager;
     /**
      * Connections manager
      */
@@ -71,6 +116,33 @@ public class Tapglue {
      * Feed manager
      */
     private TGFeedManager mFeedManager;
+    /**
+     * Image fetcher, created on first use
+     */
+    private TGImageFetcher mImageFetcher;
+    /**
+     * Duration of each initialization phase in milliseconds
+     */
+    @NonNull
+    private final Map<String, Long> mInitializationTimings = Collections.synchronizedMap(new LinkedHashMap<String, Long>());
+    /**
+     * Prefetch scheduler
+     */
+    private TGPrefetchScheduler mPrefetchScheduler;
+    /**
+     * Thread running deferred initialization
+     */
+    @Nullable
+    private volatile Thread mInitializationThread;
+    /**
+     * Completed when deferred initialization is done
+     */
+    private FutureTask<Tapglue> mReady;
+    /**
+     * Transport used by network manager
+     */
+    @NonNull
+    private final TGTransport mTransport;
     /**
      * User manager
      */
@@ -103,6 +175,33 @@ public class Tapglue {
         return mInstance.getFeedManager();
     }
 
+    /**
+     * Get identity map of all objects received from API
+     *
+     * @return Entity store
+     */
+    static public TGEntityStore entities() {
+        return mInstance.getEntityStore();
+    }
+
+    /**
+     * Get fetcher of user images
+     *
+     * @return Image fetcher
+     */
+    static public TGImageFetcher images() {
+        return mInstance.getImageFetcher();
+    }
+
+    /**
+     * Get scheduler of background prefetching
+     *
+     * @return Prefetch scheduler
+     */
+    static public TGPrefetchScheduler prefetch() {
+        return mInstance.getPrefetchScheduler();
+    }
+
     /**
      * Initialize library
      *
@@ -137,12 +236,87 @@ public class Tapglue {
     static public void initialize(Context context, @NonNull TGConfiguration configuration) {
         // library should be initialized only once
         if (mInstance != null && mInstance.mContext != null) { return; }
-        mInstance = new Tapglue(context, configuration);
-        mInstance.mUserManager = new TGUserManager(mInstance);
-        mInstance.mConnectionManager = new TGConnectionManager(mInstance);
-        mInstance.mEventManager = new TGEventManager(mInstance);
-        mInstance.mFeedManager = new TGFeedManager(mInstance);
-        mInstance.getUserManager().tryToLoadUserFromCache();
+        Tapglue instance = create(context, configuration);
+        mInstance = instance;
+        instance.start();
+    }
+
+    /**
+     * Create library instance - only phases which can't be deferred are done, the rest is done by
+     * {@link #start()}
+     *
+     * @param context       Application context
+     * @param configuration Tapglue configuration
+     *
+     * @return Library instance
+     */
+    @NonNull
+    static Tapglue create(Context context, @NonNull TGConfiguration configuration) {
+        long start = System.nanoTime();
+        final Tapglue instance = new Tapglue(context, configuration);
+        instance.recordPhase("core", start);
+
+        start = System.nanoTime();
+        instance.mUserManager = new TGUserManager(instance);
+        instance.mConnectionManager = new TGConnectionManager(instance);
+        instance.mEventManager = new TGEventManager(instance);
+        instance.mFeedManager = new TGFeedManager(instance);
+        instance.mPrefetchScheduler = new TGPrefetchScheduler(instance, instance.mTransport);
+        if (context.getApplicationContext() instanceof Application) {
+            instance.mPrefetchScheduler.registerForeground((Application) context.getApplicationContext());
+        }
+        instance.recordPhase("managers", start);
+
+        instance.mReady = new FutureTask<>(new Callable<Tapglue>() {
+            @Override
+            public Tapglue call() throws Exception {
+                instance.mInitializationThread = Thread.currentThread();
+                instance.completeInitialization();
+                return instance;
+            }
+        });
+        return instance;
+    }
+
+    /**
+     * Get future completed when deferred initialization (cached user, network stack) is done
+     *
+     * @return Future returning library instance
+     */
+    @NonNull
+    static public Future<Tapglue> ready() {
+        return mInstance.mReady;
+    }
+
+    /**
+     * Create request scope, closed manually
+     *
+     * @return Request scope
+     */
+    @NonNull
+    static public TGRequestScope scope() {
+        return new TGRequestScope(mInstance.getNetManager());
+    }
+
+    /**
+     * Create request scope closed when activity is destroyed
+     *
+     * @param activity activity to bind scope to
+     *
+     * @return Request scope
+     */
+    @NonNull
+    static public TGRequestScope scope(@NonNull Activity activity) {
+        return scope().bindTo(activity);
+    }
+
+    /**
+     * Get blocking network requests, to be performed on worker thread
+     *
+     * @return Blocking network requests
+     */
+    static public TGSyncNetworkRequests sync() {
+        return mInstance.createSyncRequest();
     }
 
     /**
@@ -164,7 +338,92 @@ public class Tapglue {
         }
 
         mLogger = new TGLog(configuration.mDebugMode);
-        mNetManager = new TGNetworkManager(configuration, this);
+        mIOExecutor = new TGIOExecutor(mLogger);
+        mTransport = configuration.getTransport() != null ? configuration.getTransport() : new TGRetrofitTransport();
+    }
+
+    /**
+     * Wait until deferred initialization is done. Returns immediately when called by initialization
+     * itself
+     */
+    public void awaitInitialization() {
+        FutureTask<Tapglue> ready = mReady;
+        if (ready == null || ready.isDone() || Thread.currentThread() == mInitializationThread) { return; }
+        try {
+            ready.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            mLogger.logE(e);
+        }
+    }
+
+    /**
+     * Remove data of previous user kept by managers, when user changes
+     */
+    public void clearUserData() {
+        mFeedManager.clearUserData();
+    }
+
+    /**
+     * Create network stack on I/O thread, so it's ready when first request is sent
+     */
+    public void prepareNetwork() {
+        mIOExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                getNetManager().prepareApi();
+            }
+        });
+    }
+
+    /**
+     * Do initialization phases which could be deferred - every phase is also done lazily on first
+     * use, so running this is only a warm-up
+     */
+    private void completeInitialization() {
+        long start = System.nanoTime();
+        getNetManager();
+        recordPhase("network_manager", start);
+
+        start = System.nanoTime();
+        mUserManager.tryToLoadUserFromCache();
+        getNetManager().loadUserSearchIndex();
+        mFeedManager.loadUnreadTracker();
+        recordPhase("user_cache", start);
+
+        start = System.nanoTime();
+        getNetManager().prepareApi();
+        recordPhase("network_stack", start);
+    }
+
+    /**
+     * Run deferred initialization phases, on background thread when asynchronous initialization is
+     * enabled
+     */
+    void start() {
+        if (mConfig.isAsyncInitialization()) {
+            Thread thread = new Thread(mReady, "TGInitialization");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        else {
+            mReady.run();
+        }
+    }
+
+    /**
+     * Store and log duration of initialization phase
+     *
+     * @param phase phase name
+     * @param start phase start from System.nanoTime()
+     */
+    private void recordPhase(@NonNull String phase, long start) {
+        long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        mInitializationTimings.put(phase, duration);
+        mLogger.log("Initialization phase " + phase + " took " + duration + "ms");
     }
 
     /**
@@ -174,7 +433,17 @@ public class Tapglue {
      */
     @NonNull
     public TGNetworkRequests createRequest() {
-        return mInstance.mNetManager.createRequest();
+        return getNetManager().createRequest();
+    }
+
+    /**
+     * Create blocking network request, to be performed on worker thread
+     *
+     * @return Blocking network requests manager
+     */
+    @NonNull
+    public TGSyncNetworkRequests createSyncRequest() {
+        return getNetManager().createSyncRequest();
     }
 
     /**
@@ -205,6 +474,16 @@ public class Tapglue {
         return mContext;
     }
 
+    /**
+     * Get identity map of all objects received from API
+     *
+     * @return Entity store
+     */
+    @NonNull
+    public TGEntityStore getEntityStore() {
+        return getNetManager().getEntityStore();
+    }
+
     /**
      * Get event manager
      *
@@ -223,6 +502,65 @@ public class Tapglue {
         return mFeedManager;
     }
 
+    /**
+     * Get network manager, created on first use if deferred initialization didn't create it yet
+     *
+     * @return Network manager
+     */
+    @NonNull
+    private TGNetworkManager getNetManager() {
+        TGNetworkManager netManager = mNetManager;
+        if (netManager == null) {
+            synchronized (this) {
+                if (mNetManager == null) { mNetManager = new TGNetworkManager(mConfig, this); }
+                netManager = mNetManager;
+            }
+        }
+        return netManager;
+    }
+
+    /**
+     * Get durations of finished initialization phases in order of execution
+     *
+     * @return Duration in milliseconds for each phase
+     */
+    @NonNull
+    public Map<String, Long> getInitializationTimings() {
+        synchronized (mInitializationTimings) {
+            return new LinkedHashMap<>(mInitializationTimings);
+        }
+    }
+
+    /**
+     * Get fetcher of user images - it uses connection pool of API requests when default transport
+     * is used, and its own I/O thread so image reads don't wait for other disk I/O
+     *
+     * @return Image fetcher
+     */
+    @NonNull
+    public synchronized TGImageFetcher getImageFetcher() {
+        if (mImageFetcher == null) {
+            OkHttpClient client = new OkHttpClient();
+            client.setConnectionPool(mTransport instanceof TGRetrofitTransport
+                ? ((TGRetrofitTransport) mTransport).getConnectionPool()
+                : ConnectionPool.getDefault());
+            TGDiskLruCache diskCache = new TGDiskLruCache(new File(mContext.getCacheDir(), IMAGE_CACHE_DIRECTORY), mConfig.getImageCacheSize());
+            TGIOExecutor imageExecutor = new TGIOExecutor(mLogger, TGIOExecutor.mainThread(), TGIOExecutor.DEFAULT_COALESCE_DELAY, IMAGE_THREAD_NAME);
+            mImageFetcher = new TGImageFetcher(client, diskCache, imageExecutor);
+        }
+        return mImageFetcher;
+    }
+
+    /**
+     * Get executor doing all disk I/O of library
+     *
+     * @return I/O executor
+     */
+    @NonNull
+    public TGIOExecutor getIOExecutor() {
+        return mIOExecutor;
+    }
+
     /**
      * Get TapGlue logger
      *
@@ -233,6 +571,65 @@ public class Tapglue {
         return mLogger;
     }
 
+    /**
+     * Get scheduler of background prefetching
+     *
+     * @return Prefetch scheduler
+     */
+    public TGPrefetchScheduler getPrefetchScheduler() {
+        return mPrefetchScheduler;
+    }
+
+    /**
+     * Get index of cached connection lists of current and other users
+     *
+     * @return Connection index
+     */
+    @NonNull
+    public TGConnectionIndex getConnectionIndex() {
+        return getNetManager().getConnectionIndex();
+    }
+
+    /**
+     * Get stages through which network responses pass, with their queue depths
+     *
+     * @return Request pipeline
+     */
+    @NonNull
+    public TGRequestPipeline getRequestPipeline() {
+        return getNetManager().getRequestPipeline();
+    }
+
+    /**
+     * Get cache of read responses
+     *
+     * @return Response cache
+     */
+    @NonNull
+    public TGResponseCache getResponseCache() {
+        return getNetManager().getResponseCache();
+    }
+
+    /**
+     * Get local index of current user connections
+     *
+     * @return Social graph
+     */
+    @NonNull
+    public TGSocialGraph getSocialGraph() {
+        return getNetManager().getSocialGraph();
+    }
+
+    /**
+     * Get transport used for API requests
+     *
+     * @return Transport
+     */
+    @NonNull
+    public TGTransport getTransport() {
+        return mTransport;
+    }
+
     /**
      * Get user manager
      *
@@ -259,13 +656,37 @@ public class Tapglue {
         private static final String DEFAULT_API_URL = "https://api.tapglue.com/";
         private static final int DEFAULT_FLUSH_INTERVAL = 15 * 1000; // 15s
         private static final int MAX_FLUSH_INTERVAL = 180 * 1000; // 180s
+        private static final int DEFAULT_PENDING_POLL_INTERVAL = 30 * 1000; // 30s
+        private static final int DEFAULT_PENDING_POLL_MAX_INTERVAL = 600 * 1000; // 10min
+        private static final int DEFAULT_RESPONSE_CACHE_SIZE = 100;
+        private static final int DEFAULT_SEARCH_DEBOUNCE = 300; // 300ms
+        private static final int DEFAULT_SOCIAL_UPLOAD_CHUNK_SIZE = 500;
+        private static final int DEFAULT_UNREAD_RECONCILE_INTERVAL = 300 * 1000; // 5min
         boolean analyticsEnabled = true;
+        boolean mAsyncInitialization = false;
         @NonNull
         String mApiBaseUrl = DEFAULT_API_URL;
+        @NonNull
+        TGRequestPipeline.Delivery mCallbackDelivery = TGRequestPipeline.Delivery.MAIN;
+        @Nullable
+        Executor mCallbackExecutor = null;
         boolean mDebugMode = false;
         int mFlushIntervalInMs = DEFAULT_FLUSH_INTERVAL;
+        long mImageCacheSize = TGImageFetcher.DEFAULT_DISK_CACHE_SIZE;
+        int mPendingPollIntervalInMs = DEFAULT_PENDING_POLL_INTERVAL;
+        int mPendingPollMaxIntervalInMs = DEFAULT_PENDING_POLL_MAX_INTERVAL;
+        int mSearchDebounceInMs = DEFAULT_SEARCH_DEBOUNCE;
+        int mSocialUploadChunkSize = DEFAULT_SOCIAL_UPLOAD_CHUNK_SIZE;
+        int mResponseCacheSize = DEFAULT_RESPONSE_CACHE_SIZE;
+        @NonNull
+        Map<TGResponseCache.Route, Long> mResponseCacheTtl = new EnumMap<>(TGResponseCache.Route.class);
         @Nullable
         String mToken = null;
+        @Nullable
+        TGTransport mTransport = null;
+        int mUnreadReconcileIntervalInMs = DEFAULT_UNREAD_RECONCILE_INTERVAL;
+        @NonNull
+        Map<TGPrefetchScheduler.Trigger, List<TGWarmUpSet>> mWarmUpSets = new EnumMap<>(TGPrefetchScheduler.Trigger.class);
         private boolean cacheEnabled = true;
 
         /**
@@ -279,6 +700,75 @@ public class Tapglue {
                     (mApiBaseUrl + API_VERSION + "/" ) : (mApiBaseUrl + "/" + API_VERSION + "/");
         }
 
+        /**
+         * Should deferred initialization phases run on background thread?
+         *
+         * @return is asynchronous initialization enabled?
+         */
+        public boolean isAsyncInitialization() {
+            return mAsyncInitialization;
+        }
+
+        /**
+         * Set if loading of cached user and creation of network stack should run on background
+         * thread instead of during initialize call - use Tapglue.ready() to wait for them
+         *
+         * @param asyncInitialization should initialization be asynchronous?
+         *
+         * @return Current object
+         */
+        @NonNull
+        public TGConfiguration setAsyncInitialization(boolean asyncInitialization) {
+            mAsyncInitialization = asyncInitialization;
+            return this;
+        }
+
+        /**
+         * Get where callbacks of network requests are called
+         *
+         * @return Delivery mode
+         */
+        @NonNull
+        public TGRequestPipeline.Delivery getCallbackDelivery() {
+            return mCallbackDelivery;
+        }
+
+        /**
+         * Set where callbacks of network requests are called - main thread by default
+         *
+         * @param delivery delivery mode
+         *
+         * @return Current object
+         */
+        @NonNull
+        public TGConfiguration setCallbackDelivery(@NonNull TGRequestPipeline.Delivery delivery) {
+            mCallbackDelivery = delivery;
+            return this;
+        }
+
+        /**
+         * Get custom executor calling callbacks of network requests
+         *
+         * @return Executor or null if delivery mode is used
+         */
+        @Nullable
+        public Executor getCallbackExecutor() {
+            return mCallbackExecutor;
+        }
+
+        /**
+         * Set custom executor calling callbacks of network requests, overrides delivery mode
+         *
+         * @param executor executor or null to use delivery mode
+         *
+         * @return Current object
+         */
+        @NonNull
+        public TGConfiguration setCallbackExecutor(@Nullable Executor executor) {
+            mCallbackExecutor = executor;
+            return this;
+        }
+
         /**
          * Get flush interval for cached events
          *
@@ -305,6 +795,202 @@ public class Tapglue {
             return this;
         }
 
+        /**
+         * Get maximal size of image disk cache
+         *
+         * @return size in bytes
+         */
+        public long getImageCacheSize() {
+            return mImageCacheSize;
+        }
+
+        /**
+         * Set maximal size of image disk cache
+         *
+         * @param bytes size in bytes
+         *
+         * @return Current object
+         */
+        @NonNull
+        public TGConfiguration setImageCacheSize(long bytes) {
+            mImageCacheSize = Math.max(0, bytes);
+            return this;
+        }
+
+        /**
+         * Get interval of pending connections polling used after change
+         *
+         * @return interval in milliseconds
+         */
+        public long getPendingConnectionsPollInterval() {
+            return mPendingPollIntervalInMs;
+        }
+
+        /**
+         * Get maximal interval of pending connections polling reached while nothing changes
+         *
+         * @return interval in milliseconds
+         */
+        public long getPendingConnectionsPollMaxInterval() {
+            return mPendingPollMaxIntervalInMs;
+        }
+
+        /**
+         * Set intervals of pending connections polling - interval is doubled after every poll
+         * without change up to maximal interval
+         *
+         * @param secs    interval after change in seconds
+         * @param maxSecs maximal interval in seconds
+         *
+         * @return Current object
+         */
+        @NonNull
+        public TGConfiguration setPendingConnectionsPollInterval(int secs, int maxSecs) {
+            mPendingPollIntervalInMs = secs > 0 ? secs * 1000 : DEFAULT_PENDING_POLL_INTERVAL;
+            mPendingPollMaxIntervalInMs = Math.max(mPendingPollIntervalInMs, maxSecs * 1000);
+            return this;
+        }
+
+        /**
+         * Get maximal amount of cached read responses
+         *
+         * @return amount of responses
+         */
+        public int getResponseCacheSize() {
+            return mResponseCacheSize;
+        }
+
+        /**
+         * Set maximal amount of cached read responses
+         *
+         * @param size amount of responses, 0 disables response cache
+         *
+         * @return Current object
+         */
+        @NonNull
+        public TGConfiguration setResponseCacheSize(int size) {
+            mResponseCacheSize = Math.max(0, size);
+            return this;
+        }
+
+        /**
+         * Get time to live of cached responses overridden by configuration
+         *
+         * @return time to live in milliseconds for each overridden route
+         */
+        @NonNull
+        public Map<TGResponseCache.Route, Long> getResponseCacheTtl() {
+            return mResponseCacheTtl;
+        }
+
+        /**
+         * Set time after which cached response of route should be revalidated
+         *
+         * @param route cached route
+         * @param secs  time to live in seconds
+         *
+         * @return Current object
+         */
+        @NonNull
+        public TGConfiguration setResponseCacheTtl(@NonNull TGResponseCache.Route route, int secs) {
+            mResponseCacheTtl.put(route, Math.max(0, secs) * 1000L);
+            return this;
+        }
+
+        /**
+         * Get time without typing after which search session sends request
+         *
+         * @return time in milliseconds
+         */
+        public long getSearchDebounce() {
+            return mSearchDebounceInMs;
+        }
+
+        /**
+         * Set time without typing after which search session sends request
+         *
+         * @param millis time in milliseconds
+         *
+         * @return Current object
+         */
+        @NonNull
+        public TGConfiguration setSearchDebounce(int millis) {
+            mSearchDebounceInMs = Math.max(0, millis);
+            return this;
+        }
+
+        /**
+         * Get maximal amount of social connection IDs sent in one request
+         *
+         * @return amount of IDs
+         */
+        public int getSocialUploadChunkSize() {
+            return mSocialUploadChunkSize;
+        }
+
+        /**
+         * Set maximal amount of social connection IDs sent in one request
+         *
+         * @param size amount of IDs
+         *
+         * @return Current object
+         */
+        @NonNull
+        public TGConfiguration setSocialUploadChunkSize(int size) {
+            mSocialUploadChunkSize = size > 0 ? size : DEFAULT_SOCIAL_UPLOAD_CHUNK_SIZE;
+            return this;
+        }
+
+        /**
+         * Get interval after which locally tracked unread count is reconciled with server
+         *
+         * @return interval in milliseconds
+         */
+        public long getUnreadReconcileInterval() {
+            return mUnreadReconcileIntervalInMs;
+        }
+
+        /**
+         * Set interval after which locally tracked unread count is reconciled with server
+         *
+         * @param secs interval in seconds, 0 asks server every time
+         *
+         * @return Current object
+         */
+        @NonNull
+        public TGConfiguration setUnreadReconcileInterval(int secs) {
+            mUnreadReconcileIntervalInMs = Math.max(0, secs) * 1000;
+            return this;
+        }
+
+        /**
+         * Get warm-up sets run on trigger
+         *
+         * @param trigger trigger of sets
+         *
+         * @return Warm-up sets
+         */
+        @NonNull
+        public List<TGWarmUpSet> getWarmUpSets(@NonNull TGPrefetchScheduler.Trigger trigger) {
+            List<TGWarmUpSet> sets = mWarmUpSets.get(trigger);
+            return sets != null ? sets : new ArrayList<TGWarmUpSet>();
+        }
+
+        /**
+         * Add warm-up set fetched in background on trigger
+         *
+         * @param trigger trigger of set
+         * @param set     warm-up set
+         *
+         * @return Current object
+         */
+        @NonNull
+        public TGConfiguration addWarmUpSet(@NonNull TGPrefetchScheduler.Trigger trigger, @NonNull TGWarmUpSet set) {
+            if (!mWarmUpSets.containsKey(trigger)) { mWarmUpSets.put(trigger, new ArrayList<TGWarmUpSet>()); }
+            mWarmUpSets.get(trigger).add(set);
+            return this;
+        }
+
         /**
          * Get library app token
          *
@@ -328,6 +1014,30 @@ public class Tapglue {
             return this;
         }
 
+        /**
+         * Get transport used for API requests
+         *
+         * @return transport or null if default one should be used
+         */
+        @Nullable
+        public TGTransport getTransport() {
+            return mTransport;
+        }
+
+        /**
+         * Set transport used for API requests - by default requests are done with Retrofit
+         * against API url
+         *
+         * @param transport transport to use, null for default one
+         *
+         * @return Current object
+         */
+        @NonNull
+        public TGConfiguration setTransport(@Nullable TGTransport transport) {
+            mTransport = transport;
+            return this;
+        }
+
         /**
          * Is analytics enabled?
          *
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.tapglue.model.TGConnectionUser;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of cached connection lists of current and other users with set operations between them.
+ * Results are cached per user pair and invalidated when either of lists is refreshed
+ */
+public class TGConnectionIndex {
+    /**
+     * Maximal amount of cached lists of other users
+     */
+    static final int MAX_LISTS = 32;
+    /**
+     * Maximal amount of cached results
+     */
+    static final int MAX_RESULTS = 64;
+
+    /**
+     * Local graph holding lists of current user
+     */
+    @NonNull
+    private final TGSocialGraph mGraph;
+    /**
+     * Sorted lists of current user taken from graph
+     */
+    @NonNull
+    private final Map<TGSocialGraph.Relation, IdList> mGraphLists = new EnumMap<>(TGSocialGraph.Relation.class);
+    /**
+     * Sorted lists of other users, least recently used first
+     */
+    @NonNull
+    private final Map<String, IdList> mLists = new LinkedHashMap<String, IdList>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, IdList> eldest) {
+            return size() > MAX_LISTS;
+        }
+    };
+    /**
+     * Cached results of operations, least recently used first
+     */
+    @NonNull
+    private final Map<String, Result> mResults = new LinkedHashMap<String, Result>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Result> eldest) {
+            return size() > MAX_RESULTS;
+        }
+    };
+    /**
+     * Version given to next stored list
+     */
+    private long mNextVersion = 1;
+
+    public TGConnectionIndex(@NonNull TGSocialGraph graph) {
+        mGraph = graph;
+    }
+
+    /**
+     * Remove all lists and results
+     */
+    public synchronized void clear() {
+        mGraphLists.clear();
+        mLists.clear();
+        mResults.clear();
+    }
+
+    /**
+     * Get values of first user list missing in second user list
+     *
+     * @param relation relation of compared lists
+     * @param first    ID of first user, null for current user
+     * @param second   ID of second user, null for current user
+     *
+     * @return Sorted IDs or null if any of lists is not cached
+     */
+    @Nullable
+    public synchronized long[] difference(@NonNull TGSocialGraph.Relation relation, @Nullable Long first, @Nullable Long second) {
+        return compute(false, relation, first, second);
+    }
+
+    /**
+     * Get cached list
+     *
+     * @param userId   ID of user, null for current user
+     * @param relation relation of list
+     *
+     * @return Sorted IDs or null if list is not cached
+     */
+    @Nullable
+    public synchronized long[] get(@Nullable Long userId, @NonNull TGSocialGraph.Relation relation) {
+        IdList list = list(userId, relation);
+        return list == null ? null : list.mIds.clone();
+    }
+
+    /**
+     * Get values present in lists of both users
+     *
+     * @param relation relation of compared lists
+     * @param first    ID of first user, null for current user
+     * @param second   ID of second user, null for current user
+     *
+     * @return Sorted IDs or null if any of lists is not cached
+     */
+    @Nullable
+    public synchronized long[] intersect(@NonNull TGSocialGraph.Relation relation, @Nullable Long first, @Nullable Long second) {
+        if (first != null && (second == null || second < first)) { return compute(true, relation, second, first); }
+        return compute(true, relation, first, second);
+    }
+
+    /**
+     * Store refreshed list of other user
+     *
+     * @param userId   ID of user
+     * @param relation relation of list
+     * @param users    complete list of users
+     */
+    public synchronized void put(long userId, @NonNull TGSocialGraph.Relation relation, @Nullable List<TGConnectionUser> users) {
+        int count = users == null ? 0 : users.size();
+        TGLongSet ids = new TGLongSet(count);
+        for (int i = 0; i < count; i++) {
+            TGConnectionUser user = users.get(i);
+            if (user != null && user.getID() != null) { ids.add(user.getID()); }
+        }
+        mLists.put(listKey(userId, relation), new IdList(ids.toSortedArray(), mNextVersion++));
+    }
+
+    /**
+     * Compute or reuse result of operation
+     *
+     * @param intersect true for intersection, false for difference
+     * @param relation  relation of compared lists
+     * @param first     ID of first user, null for current user
+     * @param second    ID of second user, null for current user
+     *
+     * @return Sorted IDs or null if any of lists is not cached
+     */
+    @Nullable
+    private long[] compute(boolean intersect, @NonNull TGSocialGraph.Relation relation, @Nullable Long first, @Nullable Long second) {
+        IdList firstList = list(first, relation);
+        IdList secondList = list(second, relation);
+        if (firstList == null || secondList == null) { return null; }
+        String key = (intersect ? "and:" : "not:") + relation + ":" + first + ":" + second;
+        Result result = mResults.get(key);
+        if (result == null || result.mFirstVersion != firstList.mVersion || result.mSecondVersion != secondList.mVersion) {
+            long[] ids = intersect ? TGLongArrays.intersect(firstList.mIds, secondList.mIds) : TGLongArrays.difference(firstList.mIds, secondList.mIds);
+            result = new Result(ids, firstList.mVersion, secondList.mVersion);
+            mResults.put(key, result);
+        }
+        return result.mIds.clone();
+    }
+
+    /**
+     * Find cached list
+     *
+     * @param userId   ID of user, null for current user
+     * @param relation relation of list
+     *
+     * @return List or null if not cached
+     */
+    @Nullable
+    private IdList list(@Nullable Long userId, @NonNull TGSocialGraph.Relation relation) {
+        if (userId != null) { return mLists.get(listKey(userId, relation)); }
+        if (!mGraph.isComplete(relation)) { return null; }
+        long version = mGraph.getVersion();
+        IdList list = mGraphLists.get(relation);
+        if (list == null || list.mVersion != version) {
+            list = new IdList(mGraph.get(relation), version);
+            mGraphLists.put(relation, list);
+        }
+        return list;
+    }
+
+    /**
+     * Create key of list
+     *
+     * @param userId   ID of user
+     * @param relation relation of list
+     *
+     * @return List key
+     */
+    @NonNull
+    private static String listKey(long userId, @NonNull TGSocialGraph.Relation relation) {
+        return relation + ":" + userId;
+    }
+
+    /**
+     * Sorted list of IDs with its version
+     */
+    private static class IdList {
+        /**
+         * Sorted IDs
+         */
+        @NonNull
+        final long[] mIds;
+        /**
+         * Version of list
+         */
+        final long mVersion;
+
+        IdList(@NonNull long[] ids, long version) {
+            mIds = ids;
+            mVersion = version;
+        }
+    }
+
+    /**
+     * Result of operation with versions of lists it was computed from
+     */
+    private static class Result {
+        /**
+         * Version of first list
+         */
+        final long mFirstVersion;
+        /**
+         * Sorted IDs
+         */
+        @NonNull
+        final long[] mIds;
+        /**
+         * Version of second list
+         */
+        final long mSecondVersion;
+
+        Result(@NonNull long[] ids, long firstVersion, long secondVersion) {
+            mIds = ids;
+            mFirstVersion = firstVersion;
+            mSecondVersion = secondVersion;
+        }
+    }
+}
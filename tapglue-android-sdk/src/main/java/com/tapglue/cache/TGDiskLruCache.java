@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size bounded cache of byte arrays stored as files in directory. When size limit is exceeded, least
+ * recently used entries are removed
+ */
+public class TGDiskLruCache {
+    /**
+     * Suffix of files which are being written
+     */
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Directory with cached files
+     */
+    @NonNull
+    private final File mDirectory;
+    /**
+     * Size of cached entries by file name, in access order
+     */
+    @NonNull
+    private final LinkedHashMap<String, Long> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * Maximal size of all entries in bytes
+     */
+    private final long mMaxBytes;
+    /**
+     * Were entries read from directory?
+     */
+    private boolean mLoaded = false;
+    /**
+     * Current size of all entries in bytes
+     */
+    private long mSize = 0;
+
+    public TGDiskLruCache(@NonNull File directory, long maxBytes) {
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Create file name for key
+     *
+     * @param key cache key
+     *
+     * @return Hex encoded hash of key
+     */
+    @NonNull
+    static String fileName(@NonNull String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("MD5").digest(key.getBytes("UTF-8"));
+            char[] name = new char[hash.length * 2];
+            for (int i = 0; i < hash.length; i++) {
+                name[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+                name[i * 2 + 1] = HEX[hash[i] & 0xF];
+            }
+            return new String(name);
+        }
+        catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Remove all entries
+     */
+    public synchronized void clear() {
+        load();
+        for (String name : mEntries.keySet()) {
+            new File(mDirectory, name).delete();
+        }
+        mEntries.clear();
+        mSize = 0;
+    }
+
+    /**
+     * Get cached data
+     *
+     * @param key cache key
+     *
+     * @return Cached data or null if it's not cached
+     */
+    @Nullable
+    public synchronized byte[] get(@NonNull String key) {
+        load();
+        String name = fileName(key);
+        Long size = mEntries.get(name);
+        if (size == null) { return null; }
+        File file = new File(mDirectory, name);
+        byte[] data = new byte[size.intValue()];
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            int read = 0;
+            while (read < data.length) {
+                int count = in.read(data, read, data.length - read);
+                if (count < 0) { throw new IOException("Cached file truncated"); }
+                read += count;
+            }
+            file.setLastModified(System.currentTimeMillis());
+            return data;
+        }
+        catch (IOException e) {
+            removeEntry(name);
+            return null;
+        }
+        finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Get current size of all entries
+     *
+     * @return size in bytes
+     */
+    public synchronized long getSize() {
+        load();
+        return mSize;
+    }
+
+    /**
+     * Store data, removing least recently used entries when size limit is exceeded. Data bigger than
+     * limit is not stored
+     *
+     * @param key  cache key
+     * @param data data to store
+     */
+    public synchronized void put(@NonNull String key, @NonNull byte[] data) {
+        if (data.length > mMaxBytes) { return; }
+        load();
+        String name = fileName(key);
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) { return; }
+        File temp = new File(mDirectory, name + TEMP_SUFFIX);
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(temp);
+            out.write(data);
+            out.close();
+            out = null;
+            removeEntry(name);
+            if (!temp.renameTo(new File(mDirectory, name))) {
+                temp.delete();
+                return;
+            }
+            mEntries.put(name, (long) data.length);
+            mSize += data.length;
+            trim();
+        }
+        catch (IOException e) {
+            temp.delete();
+        }
+        finally {
+            closeQuietly(out);
+        }
+    }
+
+    /**
+     * Remove cached data
+     *
+     * @param key cache key
+     */
+    public synchronized void remove(@NonNull String key) {
+        load();
+        removeEntry(fileName(key));
+    }
+
+    /**
+     * Close stream ignoring errors
+     *
+     * @param closeable stream to close
+     */
+    private static void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable == null) { return; }
+        try {
+            closeable.close();
+        }
+        catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Read entries from directory on first use, oldest first
+     */
+    private void load() {
+        if (mLoaded) { return; }
+        mLoaded = true;
+        File[] files = mDirectory.listFiles();
+        if (files == null) { return; }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long left = lhs.lastModified();
+                long right = rhs.lastModified();
+                return left < right ? -1 : (left == right ? 0 : 1);
+            }
+        });
+        for (File file : files) {
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                file.delete();
+                continue;
+            }
+            mEntries.put(file.getName(), file.length());
+            mSize += file.length();
+        }
+        trim();
+    }
+
+    /**
+     * Remove entry and its file
+     *
+     * @param name file name of entry
+     */
+    private void removeEntry(@NonNull String name) {
+        Long size = mEntries.remove(name);
+        if (size != null) { mSize -= size; }
+        new File(mDirectory, name).delete();
+    }
+
+    /**
+     * Remove least recently used entries until size fits limit
+     */
+    private void trim() {
+        Iterator<Map.Entry<String, Long>> iterator = mEntries.entrySet().iterator();
+        while (mSize > mMaxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            iterator.remove();
+            mSize -= entry.getValue();
+            new File(mDirectory, entry.getKey()).delete();
+        }
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+import com.tapglue.model.TGBaseObject;
+import com.tapglue.model.TGBaseObjectWithId;
+import com.tapglue.model.TGConnection;
+import com.tapglue.model.TGConnectionUser;
+import com.tapglue.model.TGConnectionUsersList;
+import com.tapglue.model.TGEvent;
+import com.tapglue.model.TGFeed;
+import com.tapglue.model.TGLoginUser;
+import com.tapglue.model.TGPendingConnections;
+import com.tapglue.model.TGUser;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+
+/**
+ * Identity map of all objects received from API, keyed by ID.
+ * <p/>
+ * Every response is merged into the store: first instance of object becomes canonical one, newer
+ * copies update it in place and are replaced by it in lists. Objects describing the same entity
+ * with different classes (like TGUser and TGConnectionUser) share values of fields with the same
+ * name. Objects are held weakly, so store never keeps alive objects not referenced elsewhere.
+ */
+public class TGEntityStore {
+    /**
+     * Exposed fields of each class, by serialized name
+     */
+    @NonNull
+    private static final Map<Class<?>, Map<String, Field>> sFields = new HashMap<>();
+
+    /**
+     * Identities of each entity type, by ID
+     */
+    @NonNull
+    private final Map<Class<?>, Map<Long, Identity>> mIdentities = new HashMap<>();
+    /**
+     * Amount of identities after which dead references are purged
+     */
+    private int mPurgeThreshold = 64;
+    /**
+     * Amount of stored identities
+     */
+    private int mSize = 0;
+
+    /**
+     * Copy values of exposed fields
+     *
+     * @param from source object
+     * @param to   target object
+     */
+    private static void copyFields(@NonNull Object from, @NonNull Object to) {
+        Map<String, Field> targetFields = getFields(to.getClass());
+        for (Map.Entry<String, Field> entry : getFields(from.getClass()).entrySet()) {
+            Field target = targetFields.get(entry.getKey());
+            if (target == null || target.getType() != entry.getValue().getType()) { continue; }
+            try {
+                Object value = entry.getValue().get(from);
+                if (value != null) {
+                    target.set(to, value);
+                }
+            } catch (IllegalAccessException e) {
+                // fields are made accessible in getFields
+            }
+        }
+    }
+
+    /**
+     * Get type under which entity is identified - all kinds of users share one
+     *
+     * @param type class of object
+     *
+     * @return Entity type
+     */
+    @NonNull
+    private static Class<?> getEntityType(@NonNull Class<?> type) {
+        if (TGLoginUser.class.isAssignableFrom(type) || type == TGConnectionUser.class) {
+            return TGUser.class;
+        }
+        return type;
+    }
+
+    /**
+     * Get exposed fields of class, including inherited ones
+     *
+     * @param type class
+     *
+     * @return Fields by serialized name
+     */
+    @NonNull
+    private static Map<String, Field> getFields(@NonNull Class<?> type) {
+        synchronized (sFields) {
+            Map<String, Field> fields = sFields.get(type);
+            if (fields != null) { return fields; }
+            fields = new HashMap<>();
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) ||
+                        field.getAnnotation(Expose.class) == null ||
+                        field.getAnnotation(SerializedName.class) == null) { continue; }
+                    String name = field.getAnnotation(SerializedName.class).value();
+                    if (fields.containsKey(name)) { continue; }
+                    field.setAccessible(true);
+                    fields.put(name, field);
+                }
+            }
+            sFields.put(type, fields);
+            return fields;
+        }
+    }
+
+    /**
+     * Check if incoming object is not older than stored one
+     *
+     * @param incoming incoming object
+     * @param stored   stored object
+     *
+     * @return true if stored object should be updated
+     */
+    private static boolean isNewer(@NonNull TGBaseObjectWithId<?> incoming, @NonNull TGBaseObjectWithId<?> stored) {
+        return incoming.getUpdatedAt() == null || stored.getUpdatedAt() == null ||
+            incoming.getUpdatedAt().compareTo(stored.getUpdatedAt()) >= 0;
+    }
+
+    /**
+     * Remove all objects
+     */
+    public synchronized void clear() {
+        mIdentities.clear();
+        mSize = 0;
+    }
+
+    /**
+     * Get canonical object
+     *
+     * @param type class of object
+     * @param id   ID of object
+     *
+     * @return Object or null if it's not in store
+     */
+    @Nullable
+    public synchronized <T extends TGBaseObjectWithId<?>> T get(@NonNull Class<T> type, long id) {
+        Map<Long, Identity> identities = mIdentities.get(getEntityType(type));
+        Identity identity = identities != null ? identities.get(id) : null;
+        return identity != null ? type.cast(identity.get(type)) : null;
+    }
+
+    /**
+     * Merge object into store
+     *
+     * @param object object to merge
+     *
+     * @return Canonical object with values of merged one, or merged object if it has no ID
+     */
+    @Nullable
+    public synchronized <T extends TGBaseObjectWithId<?>> T merge(@Nullable T object) {
+        if (object == null || object.getID() == null) { return object; }
+        Class<?> entityType = getEntityType(object.getClass());
+        Map<Long, Identity> identities = mIdentities.get(entityType);
+        if (identities == null) {
+            identities = new HashMap<>();
+            mIdentities.put(entityType, identities);
+        }
+        Identity identity = identities.get(object.getID());
+        if (identity == null) {
+            identity = new Identity();
+            identities.put(object.getID(), identity);
+            if (++mSize > mPurgeThreshold) { purge(); }
+        }
+        return identity.merge(object);
+    }
+
+    /**
+     * Merge all objects contained in response into store, replacing them with canonical ones
+     *
+     * @param response response from API
+     *
+     * @return Response with canonical objects
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public synchronized <T extends TGBaseObject> T mergeResponse(@Nullable T response) {
+        if (response instanceof TGBaseObjectWithId) {
+            return (T) merge((TGBaseObjectWithId<?>) response);
+        }
+        else if (response instanceof TGFeed) {
+            mergeList(((TGFeed) response).getEvents());
+        }
+        else if (response instanceof TGConnectionUsersList) {
+            mergeList(((TGConnectionUsersList) response).getUsers());
+        }
+        else if (response instanceof TGPendingConnections) {
+            TGPendingConnections connections = (TGPendingConnections) response;
+            mergeList(connections.getUsers());
+            mergeList(connections.getIncoming());
+            mergeList(connections.getOutgoing());
+        }
+        return response;
+    }
+
+    /**
+     * Merge all objects of list, replacing them with canonical ones
+     *
+     * @param list list to merge
+     */
+    private <T extends TGBaseObjectWithId<?>> void mergeList(@Nullable List<T> list) {
+        if (list == null) { return; }
+        ListIterator<T> iterator = list.listIterator();
+        while (iterator.hasNext()) {
+            T object = iterator.next();
+            T canonical = merge(object);
+            if (canonical != object) { iterator.set(canonical); }
+        }
+    }
+
+    /**
+     * Remove identities whose objects were garbage collected
+     */
+    private void purge() {
+        mSize = 0;
+        for (Map<Long, Identity> identities : mIdentities.values()) {
+            Iterator<Identity> iterator = identities.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().isEmpty()) { iterator.remove(); }
+                else { mSize++; }
+            }
+        }
+        mPurgeThreshold = Math.max(64, mSize * 2);
+    }
+
+    /**
+     * Remove entity of object from store, e.g. after it was deleted
+     *
+     * @param object object to remove
+     */
+    public synchronized void remove(@NonNull TGBaseObjectWithId<?> object) {
+        if (object.getID() != null) { remove(object.getClass(), object.getID()); }
+    }
+
+    /**
+     * Remove entity from store, e.g. after it was deleted
+     *
+     * @param type class of object
+     * @param id   ID of object
+     */
+    public synchronized void remove(@NonNull Class<?> type, long id) {
+        Map<Long, Identity> identities = mIdentities.get(getEntityType(type));
+        if (identities != null && identities.remove(id) != null) { mSize--; }
+    }
+
+    /**
+     * Replace temporary local ID of entity with ID assigned by server
+     *
+     * @param localID temporary ID of entity
+     * @param created object returned by server
+     *
+     * @return Canonical object, now with server values
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public synchronized <T extends TGBaseObjectWithId<?>> T resolveLocal(long localID, @Nullable T created) {
+        if (created == null || created.getID() == null) { return created; }
+        Map<Long, Identity> identities = mIdentities.get(getEntityType(created.getClass()));
+        Identity identity = identities != null ? identities.remove(localID) : null;
+        if (identity == null) { return merge(created); }
+        mSize--;
+        for (WeakReference<TGBaseObjectWithId<?>> reference : identity.mObjects.values()) {
+            TGBaseObjectWithId<?> object = reference.get();
+            if (object == null) { continue; }
+            copyFields(created, object);
+            merge(object);
+        }
+        return merge(created);
+    }
+
+    /**
+     * Get amount of stored entities
+     *
+     * @return amount of entities
+     */
+    public synchronized int size() {
+        return mSize;
+    }
+
+    /**
+     * All canonical objects of one entity, one for each class describing it
+     */
+    private static class Identity {
+        @NonNull
+        private final Map<Class<?>, WeakReference<TGBaseObjectWithId<?>>> mObjects = new HashMap<>();
+
+        @Nullable
+        TGBaseObjectWithId<?> get(@NonNull Class<?> type) {
+            WeakReference<TGBaseObjectWithId<?>> reference = mObjects.get(type);
+            return reference != null ? reference.get() : null;
+        }
+
+        boolean isEmpty() {
+            for (WeakReference<TGBaseObjectWithId<?>> reference : mObjects.values()) {
+                if (reference.get() != null) { return false; }
+            }
+            return true;
+        }
+
+        @NonNull
+        @SuppressWarnings("unchecked")
+        <T extends TGBaseObjectWithId<?>> T merge(@NonNull T object) {
+            T canonical = (T) get(object.getClass());
+            if (canonical == object) { return object; }
+            if (canonical != null && !isNewer(object, canonical)) { return canonical; }
+            if (canonical == null) {
+                mObjects.put(object.getClass(), new WeakReference<TGBaseObjectWithId<?>>(object));
+                canonical = object;
+            }
+            else {
+                copyFields(object, canonical);
+            }
+            for (Map.Entry<Class<?>, WeakReference<TGBaseObjectWithId<?>>> entry : mObjects.entrySet()) {
+                TGBaseObjectWithId<?> other = entry.getValue().get();
+                if (other != null && other != canonical && isNewer(object, other)) {
+                    copyFields(object, other);
+                }
+            }
+            return canonical;
+        }
+    }
+}
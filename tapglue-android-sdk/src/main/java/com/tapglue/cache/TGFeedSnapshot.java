@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.tapglue.model.TGEvent;
+import com.tapglue.model.TGFeed;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Memory-mapped snapshot of feed used for fast cold start, built from {@link TGFeedStore} which
+ * holds the synced feed.
+ * <p/>
+ * File starts with header and index of offsets of all events, followed by JSON of each event. Only
+ * header is read when snapshot is opened - events are decoded when they are accessed for the first
+ * time.
+ */
+public class TGFeedSnapshot {
+    private static final int MAGIC = 0x54474653;
+    private static final int VERSION = 1;
+    /**
+     * Size of header - magic, version, amount of events and unread count
+     */
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 8;
+    /**
+     * Size of index entry - offset and length of event
+     */
+    private static final int INDEX_ENTRY_SIZE = 4 + 4;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Mapped content of snapshot file
+     */
+    @NonNull
+    private final ByteBuffer mBuffer;
+    /**
+     * Amount of events
+     */
+    private final int mCount;
+    /**
+     * Gson used for events
+     */
+    @NonNull
+    private final Gson mGson = new Gson();
+    /**
+     * Amount of unread events
+     */
+    @Nullable
+    private final Long mUnreadCount;
+
+    private TGFeedSnapshot(@NonNull ByteBuffer buffer, int count, @Nullable Long unreadCount) {
+        mBuffer = buffer;
+        mCount = count;
+        mUnreadCount = unreadCount;
+    }
+
+    /**
+     * Open snapshot file
+     *
+     * @param file snapshot file
+     *
+     * @return Snapshot or null if file doesn't exist or is not valid
+     */
+    @Nullable
+    public static TGFeedSnapshot open(@NonNull File file) {
+        if (!file.exists() || file.length() < HEADER_SIZE) { return null; }
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(file, "r");
+            MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) { return null; }
+            int count = buffer.getInt(8);
+            long unread = buffer.getLong(12);
+            if (count < 0 || HEADER_SIZE + (long) count * INDEX_ENTRY_SIZE > buffer.capacity()) { return null; }
+            for (int i = 0; i < count; i++) {
+                if (!isValidEntry(buffer, count, i)) { return null; }
+            }
+            return new TGFeedSnapshot(buffer, count, unread >= 0 ? unread : null);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (randomAccessFile != null) {
+                try {
+                    randomAccessFile.close();
+                } catch (IOException e) {
+                    // mapping stays valid after file is closed
+                }
+            }
+        }
+    }
+
+    /**
+     * Check that index entry points to data within buffer
+     *
+     * @param buffer mapped snapshot
+     * @param count  amount of events
+     * @param index  index of event
+     *
+     * @return true if offset and length of event lie in data section of buffer
+     */
+    private static boolean isValidEntry(@NonNull ByteBuffer buffer, int count, int index) {
+        int entry = HEADER_SIZE + index * INDEX_ENTRY_SIZE;
+        long dataStart = HEADER_SIZE + (long) count * INDEX_ENTRY_SIZE;
+        int offset = buffer.getInt(entry);
+        int length = buffer.getInt(entry + 4);
+        return offset >= dataStart && length >= 0 && (long) offset + length <= buffer.capacity();
+    }
+
+    /**
+     * Write feed to snapshot file. Snapshot is written to temporary file first and replaces
+     * previous one at once, so readers never see partially written snapshot
+     *
+     * @param file target file
+     * @param feed feed to be written, null removes snapshot
+     *
+     * @return true if snapshot was written
+     */
+    public static boolean write(@NonNull File file, @Nullable TGFeed feed) {
+        if (feed == null) {
+            return !file.exists() || file.delete();
+        }
+        Gson gson = new Gson();
+        List<TGEvent> events = feed.getEvents() != null ? feed.getEvents() : new ArrayList<TGEvent>();
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        int[] offsets = new int[events.size()];
+        int[] lengths = new int[events.size()];
+        for (int i = 0; i < events.size(); i++) {
+            byte[] bytes = gson.toJson(events.get(i)).getBytes(UTF_8);
+            offsets[i] = data.size();
+            lengths[i] = bytes.length;
+            data.write(bytes, 0, bytes.length);
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(events.size());
+            out.writeLong(feed.getUnreadCount() != null ? feed.getUnreadCount() : -1);
+            int dataStart = HEADER_SIZE + events.size() * INDEX_ENTRY_SIZE;
+            for (int i = 0; i < events.size(); i++) {
+                out.writeInt(dataStart + offsets[i]);
+                out.writeInt(lengths[i]);
+            }
+            data.writeTo(out);
+            out.close();
+            out = null;
+            return temp.renameTo(file);
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // nothing more can be done
+                }
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Decode single event
+     *
+     * @param index index of event
+     *
+     * @return Decoded event
+     */
+    @NonNull
+    public TGEvent decode(int index) {
+        if (index < 0 || index >= mCount) { throw new IndexOutOfBoundsException("Index: " + index + ", size: " + mCount); }
+        if (!isValidEntry(mBuffer, mCount, index)) { throw new IllegalStateException("Corrupted snapshot entry: " + index); }
+        int entry = HEADER_SIZE + index * INDEX_ENTRY_SIZE;
+        int offset = mBuffer.getInt(entry);
+        int length = mBuffer.getInt(entry + 4);
+        byte[] bytes = new byte[length];
+        ByteBuffer view = mBuffer.duplicate();
+        view.position(offset);
+        view.get(bytes);
+        return mGson.fromJson(new String(bytes, UTF_8), TGEvent.class);
+    }
+
+    /**
+     * Get window of events, decoded lazily when accessed
+     *
+     * @param offset      index of first event
+     * @param limit       maximal amount of events
+     * @param entityStore store into which decoded events are merged, or null
+     *
+     * @return Lazy list of events
+     */
+    @NonNull
+    public List<TGEvent> getEvents(int offset, int limit, @Nullable TGEntityStore entityStore) {
+        int start = Math.min(Math.max(0, offset), mCount);
+        int end = (int) Math.min(mCount, (long) start + Math.max(0, limit));
+        return new LazyEvents(this, start, end - start, entityStore);
+    }
+
+    /**
+     * Get window of feed with lazily decoded events
+     *
+     * @param offset      index of first event
+     * @param limit       maximal amount of events
+     * @param entityStore store into which decoded events are merged, or null
+     *
+     * @return Feed
+     */
+    @NonNull
+    public TGFeed getFeed(int offset, int limit, @Nullable TGEntityStore entityStore) {
+        TGFeed feed = new TGFeed().setEvents(getEvents(offset, limit, entityStore));
+        feed.setUnreadCount(mUnreadCount);
+        return feed;
+    }
+
+    /**
+     * Get amount of unread events
+     *
+     * @return Amount of unread events or null if unknown
+     */
+    @Nullable
+    public Long getUnreadCount() {
+        return mUnreadCount;
+    }
+
+    /**
+     * Get amount of events
+     *
+     * @return amount of events
+     */
+    public int size() {
+        return mCount;
+    }
+
+    /**
+     * List decoding events of snapshot on first access
+     */
+    private static class LazyEvents extends AbstractList<TGEvent> {
+        @NonNull
+        private final TGEvent[] mDecoded;
+        @Nullable
+        private final TGEntityStore mEntityStore;
+        private final int mOffset;
+        @NonNull
+        private final TGFeedSnapshot mSnapshot;
+
+        LazyEvents(@NonNull TGFeedSnapshot snapshot, int offset, int size, @Nullable TGEntityStore entityStore) {
+            mSnapshot = snapshot;
+            mOffset = offset;
+            mDecoded = new TGEvent[size];
+            mEntityStore = entityStore;
+        }
+
+        @Override
+        public synchronized TGEvent get(int index) {
+            if (index < 0 || index >= mDecoded.length) { throw new IndexOutOfBoundsException("Index: " + index + ", size: " + mDecoded.length); }
+            if (mDecoded[index] == null) {
+                TGEvent event = mSnapshot.decode(mOffset + index);
+                mDecoded[index] = mEntityStore != null ? mEntityStore.merge(event) : event;
+            }
+            return mDecoded[index];
+        }
+
+        @Override
+        public synchronized TGEvent set(int index, TGEvent element) {
+            TGEvent previous = get(index);
+            mDecoded[index] = element;
+            return previous;
+        }
+
+        @Override
+        public int size() {
+            return mDecoded.length;
+        }
+    }
+}
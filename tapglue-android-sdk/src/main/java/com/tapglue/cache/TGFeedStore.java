@@ -0,0 +1,536 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+import com.tapglue.model.TGEvent;
+import com.tapglue.model.TGEventObject;
+import com.tapglue.model.TGFeed;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SQLite based store of feed events. Events and event objects are kept in separate tables, indexed
+ * by event ID, user ID, type and creation date, so windows of feed can be read without loading
+ * whole feed and feed syncs are written as incremental upserts.
+ */
+public class TGFeedStore {
+
+    private static final String DATABASE_NAME = "tapglue_feed.db";
+    private static final int DATABASE_VERSION = 1;
+
+    private static final String TABLE_EVENTS = "events";
+    private static final String TABLE_OBJECTS = "event_objects";
+    private static final String TABLE_INFO = "feed_info";
+    private static final String TABLE_READ = "read_markers";
+
+    private static final String COLUMN_ID = "id";
+    private static final String COLUMN_USER_ID = "user_id";
+    private static final String COLUMN_TYPE = "type";
+    private static final String COLUMN_CREATED_AT = "created_at";
+    private static final String COLUMN_POSITION = "position";
+    private static final String COLUMN_SYNC = "sync";
+    private static final String COLUMN_OBJECT_ID = "object_id";
+    private static final String COLUMN_TARGET_ID = "target_id";
+    private static final String COLUMN_DATA = "data";
+    private static final String COLUMN_KEY = "key";
+    private static final String COLUMN_VALUE = "value";
+
+    private static final String INFO_UNREAD = "unread";
+    private static final String INFO_SYNC = "sync";
+
+    private static final String[] EVENT_COLUMNS = {COLUMN_DATA, COLUMN_OBJECT_ID, COLUMN_TARGET_ID};
+    /**
+     * Maximal amount of arguments in single SQLite query
+     */
+    private static final int MAX_QUERY_ARGUMENTS = 500;
+
+    /**
+     * Gson used for rows data
+     */
+    @NonNull
+    private final Gson mGson = new Gson();
+    /**
+     * Database helper
+     */
+    @NonNull
+    private final SQLiteOpenHelper mHelper;
+
+    public TGFeedStore(@NonNull Context context) {
+        mHelper = new SQLiteOpenHelper(context.getApplicationContext(), DATABASE_NAME, null, DATABASE_VERSION) {
+            @Override
+            public void onCreate(@NonNull SQLiteDatabase db) {
+                db.execSQL("CREATE TABLE " + TABLE_EVENTS + " ("
+                    + COLUMN_ID + " INTEGER PRIMARY KEY, "
+                    + COLUMN_USER_ID + " INTEGER, "
+                    + COLUMN_TYPE + " TEXT, "
+                    + COLUMN_CREATED_AT + " TEXT, "
+                    + COLUMN_POSITION + " INTEGER NOT NULL, "
+                    + COLUMN_SYNC + " INTEGER NOT NULL, "
+                    + COLUMN_OBJECT_ID + " TEXT, "
+                    + COLUMN_TARGET_ID + " TEXT, "
+                    + COLUMN_DATA + " TEXT NOT NULL)");
+                db.execSQL("CREATE INDEX events_user_id ON " + TABLE_EVENTS + " (" + COLUMN_USER_ID + ")");
+                db.execSQL("CREATE INDEX events_type ON " + TABLE_EVENTS + " (" + COLUMN_TYPE + ")");
+                db.execSQL("CREATE INDEX events_created_at ON " + TABLE_EVENTS + " (" + COLUMN_CREATED_AT + ")");
+                db.execSQL("CREATE INDEX events_position ON " + TABLE_EVENTS + " (" + COLUMN_POSITION + ")");
+                db.execSQL("CREATE TABLE " + TABLE_OBJECTS + " ("
+                    + COLUMN_ID + " TEXT PRIMARY KEY, "
+                    + COLUMN_DATA + " TEXT NOT NULL)");
+                db.execSQL("CREATE TABLE " + TABLE_INFO + " ("
+                    + COLUMN_KEY + " TEXT PRIMARY KEY, "
+                    + COLUMN_VALUE + " INTEGER)");
+                db.execSQL("CREATE TABLE " + TABLE_READ + " ("
+                    + COLUMN_ID + " INTEGER PRIMARY KEY)");
+            }
+
+            @Override
+            public void onUpgrade(@NonNull SQLiteDatabase db, int oldVersion, int newVersion) {
+                db.execSQL("DROP TABLE IF EXISTS " + TABLE_EVENTS);
+                db.execSQL("DROP TABLE IF EXISTS " + TABLE_OBJECTS);
+                db.execSQL("DROP TABLE IF EXISTS " + TABLE_INFO);
+                db.execSQL("DROP TABLE IF EXISTS " + TABLE_READ);
+                onCreate(db);
+            }
+        };
+    }
+
+    /**
+     * Remove all stored events
+     */
+    public void clear() {
+        SQLiteDatabase db = mHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(TABLE_EVENTS, null, null);
+            db.delete(TABLE_OBJECTS, null, null);
+            db.delete(TABLE_INFO, null, null);
+            db.delete(TABLE_READ, null, null);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Get amount of stored feed events
+     *
+     * @return amount of events
+     */
+    public int getEventsCount() {
+        Cursor cursor = mHelper.getReadableDatabase().rawQuery("SELECT COUNT(*) FROM " + TABLE_EVENTS, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Check if feed was ever stored
+     *
+     * @return true if feed is available
+     */
+    public boolean hasFeed() {
+        return readInfo(mHelper.getReadableDatabase(), INFO_SYNC) != null;
+    }
+
+    /**
+     * Mark events as read
+     *
+     * @param eventIds IDs of read events
+     */
+    public void markAsRead(@NonNull Collection<Long> eventIds) {
+        SQLiteDatabase db = mHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (Long eventId : eventIds) {
+                values.put(COLUMN_ID, eventId);
+                db.insertWithOnConflict(TABLE_READ, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Read single event
+     *
+     * @param eventId ID of event
+     *
+     * @return Event or null if it is not stored
+     */
+    @Nullable
+    public TGEvent readEvent(long eventId) {
+        List<TGEvent> events = readEvents(COLUMN_ID + " = ?", new String[]{String.valueOf(eventId)}, 0, 1);
+        return events.isEmpty() ? null : events.get(0);
+    }
+
+    /**
+     * Read window of stored feed
+     *
+     * @param offset index of first event
+     * @param limit  maximal amount of events
+     *
+     * @return Feed with selected events or null if feed was never stored
+     */
+    @Nullable
+    public TGFeed readFeed(int offset, int limit) {
+        SQLiteDatabase db = mHelper.getReadableDatabase();
+        if (readInfo(db, INFO_SYNC) == null) { return null; }
+        TGFeed feed = new TGFeed();
+        feed.setEvents(readEvents(null, null, offset, limit));
+        feed.setUnreadCount(readInfo(db, INFO_UNREAD));
+        return feed;
+    }
+
+    /**
+     * Read window of stored events of selected type
+     *
+     * @param type   type of events
+     * @param offset index of first event
+     * @param limit  maximal amount of events
+     *
+     * @return Events
+     */
+    @NonNull
+    public List<TGEvent> readEventsOfType(@NonNull String type, int offset, int limit) {
+        return readEvents(COLUMN_TYPE + " = ?", new String[]{type}, offset, limit);
+    }
+
+    /**
+     * Read window of stored events of selected user
+     *
+     * @param userId ID of user
+     * @param offset index of first event
+     * @param limit  maximal amount of events
+     *
+     * @return Events
+     */
+    @NonNull
+    public List<TGEvent> readEventsOfUser(long userId, int offset, int limit) {
+        return readEvents(COLUMN_USER_ID + " = ?", new String[]{String.valueOf(userId)}, offset, limit);
+    }
+
+    /**
+     * Read events in feed order
+     *
+     * @param selection     where clause or null for all events
+     * @param selectionArgs arguments of where clause
+     * @param offset        index of first event
+     * @param limit         maximal amount of events
+     *
+     * @return Events
+     */
+    @NonNull
+    private List<TGEvent> readEvents(@Nullable String selection, @Nullable String[] selectionArgs, int offset, int limit) {
+        SQLiteDatabase db = mHelper.getReadableDatabase();
+        List<String> data = new ArrayList<>();
+        List<String> objectIds = new ArrayList<>();
+        List<String> targetIds = new ArrayList<>();
+        Cursor cursor = db.query(TABLE_EVENTS, EVENT_COLUMNS, selection, selectionArgs, null, null,
+            COLUMN_POSITION + " ASC", Math.max(0, offset) + "," + Math.max(0, limit));
+        try {
+            while (cursor.moveToNext()) {
+                data.add(cursor.getString(0));
+                objectIds.add(cursor.isNull(1) ? null : cursor.getString(1));
+                targetIds.add(cursor.isNull(2) ? null : cursor.getString(2));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        List<String> neededObjects = new ArrayList<>();
+        for (int i = 0; i < data.size(); i++) {
+            if (objectIds.get(i) != null) { neededObjects.add(objectIds.get(i)); }
+            if (targetIds.get(i) != null) { neededObjects.add(targetIds.get(i)); }
+        }
+        Map<String, TGEventObject> objects = readObjects(db, neededObjects);
+
+        List<TGEvent> events = new ArrayList<>(data.size());
+        for (int i = 0; i < data.size(); i++) {
+            TGEvent event = mGson.fromJson(data.get(i), TGEvent.class);
+            if (objectIds.get(i) != null) { event.setObject(objects.get(objectIds.get(i))); }
+            if (targetIds.get(i) != null) { event.setTarget(objects.get(targetIds.get(i))); }
+            events.add(event);
+        }
+        return events;
+    }
+
+    /**
+     * Read single value from info table
+     *
+     * @param db  database
+     * @param key key of value
+     *
+     * @return value or null if not stored
+     */
+    @Nullable
+    private Long readInfo(@NonNull SQLiteDatabase db, @NonNull String key) {
+        Cursor cursor = db.query(TABLE_INFO, new String[]{COLUMN_VALUE}, COLUMN_KEY + " = ?", new String[]{key}, null, null, null);
+        try {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Read IDs of events marked as read
+     *
+     * @return IDs of read events
+     */
+    @NonNull
+    public Set<Long> readReadMarkers() {
+        Set<Long> ids = new HashSet<>();
+        Cursor cursor = mHelper.getReadableDatabase().query(TABLE_READ, new String[]{COLUMN_ID}, null, null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+
+    /**
+     * Read event objects
+     *
+     * @param db  database
+     * @param ids IDs of objects
+     *
+     * @return Map of objects by their IDs
+     */
+    @NonNull
+    private Map<String, TGEventObject> readObjects(@NonNull SQLiteDatabase db, @NonNull List<String> ids) {
+        Map<String, TGEventObject> objects = new HashMap<>();
+        for (int start = 0; start < ids.size(); start += MAX_QUERY_ARGUMENTS) {
+            List<String> part = ids.subList(start, Math.min(ids.size(), start + MAX_QUERY_ARGUMENTS));
+            StringBuilder selection = new StringBuilder(COLUMN_ID).append(" IN (");
+            for (int i = 0; i < part.size(); i++) {
+                selection.append(i == 0 ? "?" : ",?");
+            }
+            selection.append(')');
+            Cursor cursor = db.query(TABLE_OBJECTS, new String[]{COLUMN_ID, COLUMN_DATA}, selection.toString(),
+                part.toArray(new String[part.size()]), null, null, null);
+            try {
+                while (cursor.moveToNext()) {
+                    objects.put(cursor.getString(0), mGson.fromJson(cursor.getString(1), TGEventObject.class));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return objects;
+    }
+
+    /**
+     * Read amount of unread events reported by server
+     *
+     * @return Amount or null if it was never stored
+     */
+    @Nullable
+    public Long readUnreadCount() {
+        return readInfo(mHelper.getReadableDatabase(), INFO_UNREAD);
+    }
+
+    /**
+     * Read IDs of stored feed events counted as unread by server - newest ones, up to stored unread
+     * count
+     *
+     * @return IDs of unread events, newest first
+     */
+    @NonNull
+    public List<Long> readUnreadEventIds() {
+        SQLiteDatabase db = mHelper.getReadableDatabase();
+        List<Long> ids = new ArrayList<>();
+        Long unread = readInfo(db, INFO_UNREAD);
+        if (unread == null || unread <= 0) { return ids; }
+        Cursor cursor = db.query(TABLE_EVENTS, new String[]{COLUMN_ID}, COLUMN_POSITION + " >= 0", null, null, null,
+            COLUMN_POSITION, String.valueOf(unread));
+        try {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+
+    /**
+     * Remove single event
+     *
+     * @param eventId ID of event
+     */
+    public void removeEvent(long eventId) {
+        mHelper.getWritableDatabase().delete(TABLE_EVENTS, COLUMN_ID + " = ?", new String[]{String.valueOf(eventId)});
+    }
+
+    /**
+     * Save feed - events are upserted, events missing in new feed are removed
+     *
+     * @param feed feed to be saved, null removes stored feed
+     */
+    public void saveFeed(@Nullable TGFeed feed) {
+        if (feed == null) {
+            clear();
+            return;
+        }
+        SQLiteDatabase db = mHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            Long lastSync = readInfo(db, INFO_SYNC);
+            long sync = lastSync == null ? 1 : lastSync + 1;
+            List<TGEvent> events = feed.getEvents();
+            if (events != null) {
+                for (int i = 0; i < events.size(); i++) {
+                    upsertEvent(db, events.get(i), i, sync);
+                }
+            }
+            db.delete(TABLE_EVENTS, COLUMN_SYNC + " < ?", new String[]{String.valueOf(sync)});
+            db.delete(TABLE_OBJECTS, COLUMN_ID + " NOT IN (SELECT " + COLUMN_OBJECT_ID + " FROM " + TABLE_EVENTS
+                + " WHERE " + COLUMN_OBJECT_ID + " IS NOT NULL UNION SELECT " + COLUMN_TARGET_ID + " FROM " + TABLE_EVENTS
+                + " WHERE " + COLUMN_TARGET_ID + " IS NOT NULL)", null);
+            db.delete(TABLE_READ, COLUMN_ID + " NOT IN (SELECT " + COLUMN_ID + " FROM " + TABLE_EVENTS + ")", null);
+            writeInfo(db, INFO_SYNC, sync);
+            writeInfo(db, INFO_UNREAD, feed.getUnreadCount());
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Save amount of unread events reported by server
+     *
+     * @param count amount of unread events
+     */
+    public void saveUnreadCount(long count) {
+        writeInfo(mHelper.getWritableDatabase(), INFO_UNREAD, count);
+    }
+
+    /**
+     * Save single event, keeping its position in feed if it is already stored
+     *
+     * @param event event to be saved
+     */
+    public void saveEvent(@NonNull TGEvent event) {
+        if (event.getID() == null) { return; }
+        SQLiteDatabase db = mHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            Long sync = readInfo(db, INFO_SYNC);
+            Cursor cursor = db.query(TABLE_EVENTS, new String[]{COLUMN_POSITION}, COLUMN_ID + " = ?",
+                new String[]{String.valueOf(event.getID())}, null, null, null);
+            long position;
+            try {
+                position = cursor.moveToFirst() ? cursor.getLong(0) : -1;
+            } finally {
+                cursor.close();
+            }
+            upsertEvent(db, event, position, sync != null ? sync : 0);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Insert or update event with its objects
+     *
+     * @param db       database
+     * @param event    event to be stored
+     * @param position position in feed
+     * @param sync     id of sync operation
+     */
+    private void upsertEvent(@NonNull SQLiteDatabase db, @NonNull TGEvent event, long position, long sync) {
+        if (event.getID() == null) { return; }
+        String objectId = upsertObject(db, event.getObject());
+        String targetId = upsertObject(db, event.getTarget());
+
+        JsonObject data = mGson.toJsonTree(event).getAsJsonObject();
+        if (objectId != null) { data.remove("object"); }
+        if (targetId != null) { data.remove("target"); }
+
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_ID, event.getID());
+        values.put(COLUMN_USER_ID, event.getUserId());
+        values.put(COLUMN_TYPE, event.getType());
+        values.put(COLUMN_CREATED_AT, event.getCreatedAt());
+        values.put(COLUMN_POSITION, position);
+        values.put(COLUMN_SYNC, sync);
+        values.put(COLUMN_OBJECT_ID, objectId);
+        values.put(COLUMN_TARGET_ID, targetId);
+        values.put(COLUMN_DATA, data.toString());
+        db.insertWithOnConflict(TABLE_EVENTS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * Insert or update event object
+     *
+     * @param db     database
+     * @param object object to be stored
+     *
+     * @return ID of object or null if object can't be stored separately
+     */
+    @Nullable
+    private String upsertObject(@NonNull SQLiteDatabase db, @Nullable TGEventObject object) {
+        if (object == null || TextUtils.isEmpty(object.getID())) { return null; }
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_ID, object.getID());
+        values.put(COLUMN_DATA, mGson.toJson(object, new TypeToken<TGEventObject>() {
+        }.getType()));
+        db.insertWithOnConflict(TABLE_OBJECTS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        return object.getID();
+    }
+
+    /**
+     * Write single value to info table
+     *
+     * @param db    database
+     * @param key   key of value
+     * @param value value to be written
+     */
+    private void writeInfo(@NonNull SQLiteDatabase db, @NonNull String key, @Nullable Long value) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_KEY, key);
+        values.put(COLUMN_VALUE, value);
+        db.insertWithOnConflict(TABLE_INFO, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.NonNull;
+
+import com.tapglue.utils.TGLog;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single thread doing all disk I/O of library. Writes are coalesced per key - when the same key is
+ * written again before previous write was done, only the latest write runs. Tasks always see writes
+ * scheduled before them.
+ */
+public class TGIOExecutor {
+    /**
+     * Default time for which writes are collected before running them, one frame
+     */
+    public static final long DEFAULT_COALESCE_DELAY = 16;
+    /**
+     * Default name of I/O thread
+     */
+    public static final String DEFAULT_THREAD_NAME = "TGIOExecutor";
+
+    /**
+     * Thread doing I/O
+     */
+    @NonNull
+    private final ScheduledExecutorService mExecutor;
+    /**
+     * Executor on which results of reads are delivered
+     */
+    @NonNull
+    private final Executor mCallbackExecutor;
+    /**
+     * Time for which writes are collected in milliseconds
+     */
+    private final long mCoalesceDelay;
+    /**
+     * Logger
+     */
+    @NonNull
+    private final TGLog mLogger;
+    /**
+     * Latest not yet done write for each key
+     */
+    @NonNull
+    private final Map<String, Runnable> mPendingWrites = new LinkedHashMap<>();
+
+    public TGIOExecutor(@NonNull TGLog logger) {
+        this(logger, mainThread(), DEFAULT_COALESCE_DELAY);
+    }
+
+    public TGIOExecutor(@NonNull TGLog logger, @NonNull Executor callbackExecutor, long coalesceDelay) {
+        this(logger, callbackExecutor, coalesceDelay, DEFAULT_THREAD_NAME);
+    }
+
+    public TGIOExecutor(@NonNull TGLog logger, @NonNull Executor callbackExecutor, long coalesceDelay, @NonNull final String threadName) {
+        mExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull final Runnable runnable) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, threadName);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        mLogger = logger;
+        mCallbackExecutor = callbackExecutor;
+        mCoalesceDelay = Math.max(0, coalesceDelay);
+    }
+
+    /**
+     * Create executor running tasks on main thread
+     *
+     * @return Main thread executor
+     */
+    @NonNull
+    public static Executor mainThread() {
+        final Handler handler = new Handler(Looper.getMainLooper());
+        return new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                handler.post(command);
+            }
+        };
+    }
+
+    /**
+     * Deliver result of I/O on callback executor
+     *
+     * @param delivery task calling callbacks
+     */
+    public void deliver(@NonNull Runnable delivery) {
+        mCallbackExecutor.execute(delivery);
+    }
+
+    /**
+     * Run task on I/O thread, after all writes scheduled until now
+     *
+     * @param task task to run
+     */
+    public void execute(@NonNull Runnable task) {
+        mExecutor.execute(afterPendingWrites(task));
+    }
+
+    /**
+     * Wrap task so it runs after all pending writes
+     *
+     * @param task task to wrap
+     *
+     * @return Wrapped task
+     */
+    @NonNull
+    private Runnable afterPendingWrites(@NonNull final Runnable task) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                runPendingWrites();
+                runSafely(task);
+            }
+        };
+    }
+
+    /**
+     * Wait until all scheduled tasks and writes are done
+     */
+    public void flush() {
+        try {
+            mExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    runPendingWrites();
+                }
+            }).get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            mLogger.logE(e);
+        }
+    }
+
+    /**
+     * Get amount of writes waiting to be done
+     *
+     * @return amount of pending writes
+     */
+    public int getPendingWriteCount() {
+        synchronized (mPendingWrites) {
+            return mPendingWrites.size();
+        }
+    }
+
+    /**
+     * Run pending write of key
+     *
+     * @param key key of write
+     */
+    private void runPendingWrite(@NonNull String key) {
+        Runnable write;
+        synchronized (mPendingWrites) {
+            write = mPendingWrites.remove(key);
+        }
+        if (write != null) { runSafely(write); }
+    }
+
+    /**
+     * Run all pending writes
+     */
+    private void runPendingWrites() {
+        List<Runnable> writes;
+        synchronized (mPendingWrites) {
+            writes = new ArrayList<>(mPendingWrites.values());
+            mPendingWrites.clear();
+        }
+        for (Runnable write : writes) {
+            runSafely(write);
+        }
+    }
+
+    /**
+     * Run task without stopping I/O thread on failure
+     *
+     * @param task task to run
+     */
+    private void runSafely(@NonNull Runnable task) {
+        try {
+            task.run();
+        }
+        catch (RuntimeException e) {
+            mLogger.logE(e);
+        }
+    }
+
+    /**
+     * Run task on I/O thread after delay, replacing need of separate timer threads
+     *
+     * @param task  task to run
+     * @param delay delay in milliseconds
+     */
+    public void schedule(@NonNull Runnable task, long delay) {
+        mExecutor.schedule(afterPendingWrites(task), Math.max(0, delay), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedule write, replacing write of same key which wasn't done yet
+     *
+     * @param key   key of written data
+     * @param write task writing data
+     */
+    public void write(@NonNull final String key, @NonNull Runnable write) {
+        synchronized (mPendingWrites) {
+            if (mPendingWrites.put(key, write) != null) { return; }
+        }
+        mExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                runPendingWrite(key);
+            }
+        }, mCoalesceDelay, TimeUnit.MILLISECONDS);
+    }
+}
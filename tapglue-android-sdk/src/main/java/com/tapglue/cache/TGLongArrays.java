@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Set operations on sorted arrays of primitive longs
+ */
+public final class TGLongArrays {
+    /**
+     * Size ratio above which elements of smaller array are searched in bigger one instead of merging
+     */
+    private static final int SEARCH_RATIO = 16;
+
+    private TGLongArrays() {
+    }
+
+    /**
+     * Get values of first array missing in second one
+     *
+     * @param first  sorted values without duplicates
+     * @param second sorted values without duplicates
+     *
+     * @return Sorted difference
+     */
+    @NonNull
+    public static long[] difference(@NonNull long[] first, @NonNull long[] second) {
+        long[] result = new long[first.length];
+        int count = 0;
+        if (first.length * SEARCH_RATIO < second.length) {
+            for (long value : first) {
+                if (Arrays.binarySearch(second, value) < 0) { result[count++] = value; }
+            }
+            return Arrays.copyOf(result, count);
+        }
+        int j = 0;
+        for (long value : first) {
+            while (j < second.length && second[j] < value) { j++; }
+            if (j == second.length || second[j] != value) { result[count++] = value; }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Get values present in both arrays
+     *
+     * @param first  sorted values without duplicates
+     * @param second sorted values without duplicates
+     *
+     * @return Sorted intersection
+     */
+    @NonNull
+    public static long[] intersect(@NonNull long[] first, @NonNull long[] second) {
+        if (first.length > second.length) { return intersect(second, first); }
+        long[] result = new long[first.length];
+        int count = 0;
+        if (first.length * SEARCH_RATIO < second.length) {
+            for (long value : first) {
+                if (Arrays.binarySearch(second, value) >= 0) { result[count++] = value; }
+            }
+            return Arrays.copyOf(result, count);
+        }
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) { i++; }
+            else if (first[i] > second[j]) { j++; }
+            else {
+                result[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
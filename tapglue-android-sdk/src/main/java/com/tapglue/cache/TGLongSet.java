@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Set of primitive longs using open addressing with linear probing - values are never boxed
+ */
+public class TGLongSet {
+    /**
+     * Marker of free slot - the value itself is tracked separately
+     */
+    private static final long FREE = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 8;
+
+    /**
+     * Does set contain value equal to free slot marker?
+     */
+    private boolean mHasFreeValue = false;
+    /**
+     * Slots with values, length is power of two
+     */
+    @NonNull
+    private long[] mSlots;
+    /**
+     * Amount of values in slots
+     */
+    private int mSize = 0;
+
+    public TGLongSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public TGLongSet(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 <= expectedSize) { capacity <<= 1; }
+        mSlots = newSlots(capacity);
+    }
+
+    /**
+     * Create set with values
+     *
+     * @param values values of set
+     *
+     * @return New set
+     */
+    @NonNull
+    public static TGLongSet of(@NonNull long... values) {
+        TGLongSet set = new TGLongSet(values.length);
+        for (long value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    /**
+     * Add value
+     *
+     * @param value value to add
+     *
+     * @return true if value was not in set
+     */
+    public boolean add(long value) {
+        if (value == FREE) {
+            if (mHasFreeValue) { return false; }
+            mHasFreeValue = true;
+            return true;
+        }
+        int slot = findSlot(mSlots, value);
+        if (mSlots[slot] == value) { return false; }
+        mSlots[slot] = value;
+        mSize++;
+        if (mSize * 4 >= mSlots.length * 3) { resize(mSlots.length << 1); }
+        return true;
+    }
+
+    /**
+     * Remove all values
+     */
+    public void clear() {
+        Arrays.fill(mSlots, FREE);
+        mSize = 0;
+        mHasFreeValue = false;
+    }
+
+    /**
+     * Check if value is in set
+     *
+     * @param value checked value
+     *
+     * @return true if set contains value
+     */
+    public boolean contains(long value) {
+        if (value == FREE) { return mHasFreeValue; }
+        return mSlots[findSlot(mSlots, value)] == value;
+    }
+
+    /**
+     * Find slot of value or free slot where it should be put
+     *
+     * @param slots slots to search
+     * @param value searched value
+     *
+     * @return Slot index
+     */
+    private static int findSlot(@NonNull long[] slots, long value) {
+        int mask = slots.length - 1;
+        int slot = hash(value) & mask;
+        while (slots[slot] != FREE && slots[slot] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Spread bits of value
+     *
+     * @param value hashed value
+     *
+     * @return Hash
+     */
+    private static int hash(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Is set empty?
+     *
+     * @return true if set has no values
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Create free slots
+     *
+     * @param capacity amount of slots
+     *
+     * @return Slots
+     */
+    @NonNull
+    private static long[] newSlots(int capacity) {
+        long[] slots = new long[capacity];
+        Arrays.fill(slots, FREE);
+        return slots;
+    }
+
+    /**
+     * Remove value, shifting following values of probe sequence back so no tombstones are needed
+     *
+     * @param value value to remove
+     *
+     * @return true if value was in set
+     */
+    public boolean remove(long value) {
+        if (value == FREE) {
+            boolean had = mHasFreeValue;
+            mHasFreeValue = false;
+            return had;
+        }
+        int mask = mSlots.length - 1;
+        int gap = findSlot(mSlots, value);
+        if (mSlots[gap] != value) { return false; }
+        int next = (gap + 1) & mask;
+        while (mSlots[next] != FREE) {
+            int ideal = hash(mSlots[next]) & mask;
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                mSlots[gap] = mSlots[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        mSlots[gap] = FREE;
+        mSize--;
+        return true;
+    }
+
+    /**
+     * Move values to new slots
+     *
+     * @param capacity new amount of slots
+     */
+    private void resize(int capacity) {
+        long[] slots = newSlots(capacity);
+        for (long value : mSlots) {
+            if (value != FREE) { slots[findSlot(slots, value)] = value; }
+        }
+        mSlots = slots;
+    }
+
+    /**
+     * Get amount of values
+     *
+     * @return Amount of values
+     */
+    public int size() {
+        return mSize + (mHasFreeValue ? 1 : 0);
+    }
+
+    /**
+     * Get values in ascending order
+     *
+     * @return Sorted values
+     */
+    @NonNull
+    public long[] toSortedArray() {
+        long[] values = new long[size()];
+        int i = 0;
+        if (mHasFreeValue) { values[i++] = FREE; }
+        for (long value : mSlots) {
+            if (value != FREE) { values[i++] = value; }
+        }
+        Arrays.sort(values);
+        return values;
+    }
+}
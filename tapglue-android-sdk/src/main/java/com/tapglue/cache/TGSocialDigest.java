@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Digest of social connection IDs already uploaded for one platform. IDs are kept as 64-bit hashes,
+ * so the digest stays small even for thousands of contacts
+ */
+public class TGSocialDigest {
+    /**
+     * Version of file format
+     */
+    private static final int VERSION = 1;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * File with digest
+     */
+    @NonNull
+    private final File mFile;
+    /**
+     * Hashes of uploaded IDs
+     */
+    @NonNull
+    private final TGLongSet mHashes;
+
+    private TGSocialDigest(@NonNull File file, @NonNull TGLongSet hashes) {
+        mFile = file;
+        mHashes = hashes;
+    }
+
+    /**
+     * Hash connection ID
+     *
+     * @param id connection ID
+     *
+     * @return 64-bit FNV-1a hash
+     */
+    public static long hash(@NonNull String id) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            hash = (hash ^ (c & 0xFF)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Get file of digest for user and social platform
+     *
+     * @param directory  directory with digests
+     * @param userId     ID of current user
+     * @param platform   social platform
+     * @param platformId ID of user on platform
+     *
+     * @return Digest file
+     */
+    @NonNull
+    public static File fileFor(@NonNull File directory, long userId, @Nullable String platform, @Nullable String platformId) {
+        long key = hash(userId + "/" + platform + "/" + platformId);
+        return new File(directory, "tapglue_social_" + Long.toHexString(key) + ".digest");
+    }
+
+    /**
+     * Open digest stored in file - missing or broken file gives empty digest
+     *
+     * @param file file with digest
+     *
+     * @return Digest
+     */
+    @NonNull
+    public static TGSocialDigest open(@NonNull File file) {
+        TGLongSet hashes = new TGLongSet();
+        if (!file.exists()) { return new TGSocialDigest(file, hashes); }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() == VERSION) {
+                int count = in.readInt();
+                hashes = new TGLongSet(count);
+                for (int i = 0; i < count; i++) {
+                    hashes.add(in.readLong());
+                }
+            }
+        }
+        catch (IOException e) {
+            hashes.clear();
+        }
+        finally {
+            closeQuietly(in);
+        }
+        return new TGSocialDigest(file, hashes);
+    }
+
+    /**
+     * Close stream ignoring errors
+     *
+     * @param stream stream to close
+     */
+    private static void closeQuietly(@Nullable Closeable stream) {
+        if (stream == null) { return; }
+        try {
+            stream.close();
+        }
+        catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Forget all uploaded IDs and remove file
+     */
+    public synchronized void clear() {
+        mHashes.clear();
+        mFile.delete();
+    }
+
+    /**
+     * Get IDs which were not uploaded yet, without duplicates
+     *
+     * @param ids all connection IDs
+     *
+     * @return New IDs in original order
+     */
+    @NonNull
+    public synchronized List<String> filterNew(@Nullable Collection<String> ids) {
+        List<String> added = new ArrayList<>();
+        if (ids == null) { return added; }
+        TGLongSet seen = new TGLongSet(ids.size());
+        for (String id : ids) {
+            if (id == null) { continue; }
+            long hash = hash(id);
+            if (!mHashes.contains(hash) && seen.add(hash)) { added.add(id); }
+        }
+        return added;
+    }
+
+    /**
+     * Mark IDs as uploaded and store digest
+     *
+     * @param ids uploaded IDs
+     */
+    public synchronized void markUploaded(@NonNull Collection<String> ids) {
+        for (String id : ids) {
+            if (id != null) { mHashes.add(hash(id)); }
+        }
+        save();
+    }
+
+    /**
+     * Store digest to file, replacing it atomically
+     */
+    private void save() {
+        File parent = mFile.getParentFile();
+        if (parent != null && !parent.exists()) { parent.mkdirs(); }
+        File temp = new File(mFile.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            long[] values = mHashes.toSortedArray();
+            out.writeInt(VERSION);
+            out.writeInt(values.length);
+            for (long value : values) {
+                out.writeLong(value);
+            }
+            out.close();
+            out = null;
+            if (!temp.renameTo(mFile)) { temp.delete(); }
+        }
+        catch (IOException e) {
+            temp.delete();
+        }
+        finally {
+            closeQuietly(out);
+        }
+    }
+
+    /**
+     * Get amount of uploaded IDs
+     *
+     * @return Amount of IDs
+     */
+    public synchronized int size() {
+        return mHashes.size();
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.tapglue.model.TGConnectionUser;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local index of connections of current user. Relations are kept in primitive sets, so checks are
+ * done in constant time without network
+ */
+public class TGSocialGraph {
+
+    /**
+     * Relation of current user to other user
+     */
+    public enum Relation {
+        /**
+         * Current user follows user
+         */
+        FOLLOWS,
+        /**
+         * User follows current user
+         */
+        FOLLOWER,
+        /**
+         * Users are friends
+         */
+        FRIEND,
+        /**
+         * Current user sent friend request to user
+         */
+        PENDING_FRIEND
+    }
+
+    /**
+     * Relations filled from complete lists
+     */
+    @NonNull
+    private final EnumSet<Relation> mComplete = EnumSet.noneOf(Relation.class);
+    /**
+     * Set of user IDs for each relation
+     */
+    @NonNull
+    private final Map<Relation, TGLongSet> mRelations = new EnumMap<>(Relation.class);
+    /**
+     * Incremented on every change
+     */
+    private long mVersion = 0;
+
+    public TGSocialGraph() {
+        for (Relation relation : Relation.values()) {
+            mRelations.put(relation, new TGLongSet());
+        }
+    }
+
+    /**
+     * Remove all relations
+     */
+    public synchronized void clear() {
+        for (TGLongSet set : mRelations.values()) {
+            set.clear();
+        }
+        mComplete.clear();
+        mVersion++;
+    }
+
+    /**
+     * Check if current user has relation with user
+     *
+     * @param relation checked relation
+     * @param userId   ID of user
+     *
+     * @return true if relation exists
+     */
+    public synchronized boolean contains(@NonNull Relation relation, long userId) {
+        return mRelations.get(relation).contains(userId);
+    }
+
+    /**
+     * Get IDs of users with relation
+     *
+     * @param relation relation of users
+     *
+     * @return Sorted user IDs
+     */
+    @NonNull
+    public synchronized long[] get(@NonNull Relation relation) {
+        return mRelations.get(relation).toSortedArray();
+    }
+
+    /**
+     * Check if relation was filled from complete list, so it's not only partially known
+     *
+     * @param relation checked relation
+     *
+     * @return true if relation is complete
+     */
+    public synchronized boolean isComplete(@NonNull Relation relation) {
+        return mComplete.contains(relation);
+    }
+
+    /**
+     * Get version of graph, changed on every modification
+     *
+     * @return Version
+     */
+    public synchronized long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Update relations with flags of users received from API
+     *
+     * @param users users with relation flags
+     */
+    public synchronized void merge(@Nullable List<TGConnectionUser> users) {
+        if (users == null) { return; }
+        for (TGConnectionUser user : users) {
+            if (user == null || user.getID() == null) { continue; }
+            long id = user.getID();
+            update(Relation.FOLLOWS, id, user.isFollowed());
+            update(Relation.FOLLOWER, id, user.isFollower());
+            update(Relation.FRIEND, id, user.isFriend());
+            if (user.isFriend()) { update(Relation.PENDING_FRIEND, id, false); }
+        }
+        mVersion++;
+    }
+
+    /**
+     * Replace all users with relation by complete list received from API
+     *
+     * @param relation relation of users
+     * @param users    all users with relation
+     */
+    public synchronized void replace(@NonNull Relation relation, @Nullable List<TGConnectionUser> users) {
+        if (users == null) { return; }
+        merge(users);
+        TGLongSet set = new TGLongSet(users.size());
+        for (TGConnectionUser user : users) {
+            if (user == null || user.getID() == null) { continue; }
+            set.add(user.getID());
+            if (relation == Relation.FRIEND) { update(Relation.PENDING_FRIEND, user.getID(), false); }
+        }
+        mRelations.put(relation, set);
+        mComplete.add(relation);
+    }
+
+    /**
+     * Set or remove relation with user
+     *
+     * @param relation changed relation
+     * @param userId   ID of user
+     * @param exists   should relation exist?
+     */
+    public synchronized void set(@NonNull Relation relation, long userId, boolean exists) {
+        update(relation, userId, exists);
+        if (relation == Relation.FRIEND && exists) { update(Relation.PENDING_FRIEND, userId, false); }
+        mVersion++;
+    }
+
+    /**
+     * Add or remove user from relation set
+     *
+     * @param relation changed relation
+     * @param userId   ID of user
+     * @param exists   should relation exist?
+     */
+    private void update(@NonNull Relation relation, long userId, boolean exists) {
+        if (exists) { mRelations.get(relation).add(userId); }
+        else { mRelations.get(relation).remove(userId); }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.tapglue.model.TGEvent;
+import com.tapglue.model.TGFeed;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Local tracker of unread feed events.
+ * <p/>
+ * Server reports only amount of unread events - newest events of cached feed are counted as unread
+ * ones. Events marked as read locally are subtracted from that amount, so unread count can be served
+ * from memory and server has to be asked only occasionally.
+ */
+public class TGUnreadTracker {
+    /**
+     * Store with cached feed and read markers
+     */
+    @NonNull
+    private final TGFeedStore mStore;
+    /**
+     * IDs of events marked as read
+     */
+    @NonNull
+    private final Set<Long> mReadIds = new HashSet<>();
+    /**
+     * IDs of cached events counted as unread by server
+     */
+    @NonNull
+    private final Set<Long> mUnreadIds = new HashSet<>();
+    /**
+     * Was state loaded from store?
+     */
+    private volatile boolean mLoaded = false;
+    /**
+     * Time of last reconciliation with server, in milliseconds
+     */
+    private long mReconciledAt = -1;
+    /**
+     * Amount of unread events reported by server, or null if unknown
+     */
+    @Nullable
+    private Long mServerCount;
+
+    public TGUnreadTracker(@NonNull TGFeedStore store) {
+        mStore = store;
+    }
+
+    /**
+     * Get current time used for reconciliation intervals
+     *
+     * @return time in milliseconds
+     */
+    private static long now() {
+        return System.nanoTime() / 1000000;
+    }
+
+    /**
+     * Remove all local state
+     */
+    public synchronized void clear() {
+        mReadIds.clear();
+        mUnreadIds.clear();
+        mServerCount = null;
+        mReconciledAt = -1;
+        mLoaded = true;
+    }
+
+    /**
+     * Get amount of unread events
+     *
+     * @return Amount of unread events or null if it's not known yet
+     */
+    @Nullable
+    public synchronized Long getUnreadCount() {
+        load();
+        if (mServerCount == null) { return null; }
+        long read = 0;
+        for (Long id : mUnreadIds) {
+            if (mReadIds.contains(id)) { read++; }
+        }
+        return Math.max(0, mServerCount - read);
+    }
+
+    /**
+     * Check if event was marked as read
+     *
+     * @param eventId ID of event
+     *
+     * @return true if event was marked as read
+     */
+    public synchronized boolean isRead(long eventId) {
+        load();
+        return mReadIds.contains(eventId) || (mServerCount != null && !mUnreadIds.contains(eventId));
+    }
+
+    /**
+     * Was state loaded from store? Loaded tracker answers without reading store
+     *
+     * @return true if state was loaded
+     */
+    public boolean isLoaded() {
+        return mLoaded;
+    }
+
+    /**
+     * Load state from store, unless it was loaded already
+     */
+    public synchronized void load() {
+        if (mLoaded) { return; }
+        mServerCount = mStore.readUnreadCount();
+        mUnreadIds.addAll(mStore.readUnreadEventIds());
+        mReadIds.addAll(mStore.readReadMarkers());
+        mLoaded = true;
+    }
+
+    /**
+     * Mark all unread events as read
+     */
+    public void markAllAsRead() {
+        List<Long> ids;
+        synchronized (this) {
+            load();
+            ids = new ArrayList<>(mUnreadIds);
+        }
+        markAsRead(ids);
+    }
+
+    /**
+     * Mark events as read. Store is written without holding lock, so reads of memory state don't
+     * wait for it
+     *
+     * @param eventIds IDs of read events
+     */
+    public void markAsRead(@NonNull Collection<Long> eventIds) {
+        List<Long> newIds = new ArrayList<>();
+        synchronized (this) {
+            load();
+            for (Long id : eventIds) {
+                if (id != null && mReadIds.add(id)) { newIds.add(id); }
+            }
+        }
+        if (!newIds.isEmpty()) { mStore.markAsRead(newIds); }
+    }
+
+    /**
+     * Check if count should be reconciled with server
+     *
+     * @param interval reconciliation interval in milliseconds
+     *
+     * @return true if server wasn't asked during interval
+     */
+    public synchronized boolean needsReconciliation(long interval) {
+        return mReconciledAt < 0 || now() - mReconciledAt >= interval;
+    }
+
+    /**
+     * Update state with synced feed
+     *
+     * @param feed feed received from server
+     */
+    public synchronized void onFeedSynced(@Nullable TGFeed feed) {
+        if (feed == null || feed.getUnreadCount() == null) { return; }
+        load();
+        mServerCount = feed.getUnreadCount();
+        mUnreadIds.clear();
+        List<TGEvent> events = feed.getEvents();
+        if (events != null) {
+            for (int i = 0; i < events.size() && i < mServerCount; i++) {
+                if (events.get(i).getID() != null) { mUnreadIds.add(events.get(i).getID()); }
+            }
+        }
+        mReadIds.retainAll(mUnreadIds);
+        mReconciledAt = now();
+    }
+
+    /**
+     * Update state with unread count received from server
+     *
+     * @param count amount of unread events
+     */
+    public void onServerCount(@Nullable Long count) {
+        if (count == null) { return; }
+        synchronized (this) {
+            load();
+            mServerCount = count;
+            mReconciledAt = now();
+        }
+        mStore.saveUnreadCount(count);
+    }
+}
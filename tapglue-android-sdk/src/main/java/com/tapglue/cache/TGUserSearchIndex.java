@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.tapglue.model.TGConnectionUser;
+import com.tapglue.model.TGConnectionUsersList;
+import com.tapglue.model.TGUser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * On-device search index over names, usernames and emails of users seen in responses. Every value
+ * is split to lower case tokens kept in sorted map, so each query word is looked up as token
+ * prefix
+ */
+public class TGUserSearchIndex {
+    /**
+     * Maximal amount of indexed users
+     */
+    static final int MAX_USERS = 2000;
+    /**
+     * Version of file format
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Users with IDs by token
+     */
+    @NonNull
+    private final TreeMap<String, TGLongSet> mTokens = new TreeMap<>();
+    /**
+     * Indexed users by ID, least recently used first
+     */
+    @NonNull
+    private final Map<Long, IndexedUser> mUsers = new LinkedHashMap<Long, IndexedUser>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, IndexedUser> eldest) {
+            if (size() <= MAX_USERS) { return false; }
+            unindex(eldest.getKey(), eldest.getValue());
+            return true;
+        }
+    };
+    /**
+     * Amount of clears - users read from file before clear are not added after it
+     */
+    private int mGeneration = 0;
+
+    /**
+     * Close stream ignoring errors
+     *
+     * @param stream stream to close
+     */
+    private static void closeQuietly(@Nullable Closeable stream) {
+        if (stream == null) { return; }
+        try {
+            stream.close();
+        }
+        catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Merge local hits with server results - local hits go first, users returned by server replace
+     * local copies
+     *
+     * @param local  local hits
+     * @param remote server results
+     *
+     * @return Merged results
+     */
+    @NonNull
+    public static TGConnectionUsersList merge(@NonNull List<TGConnectionUser> local, @Nullable TGConnectionUsersList remote) {
+        Map<Long, TGConnectionUser> remoteUsers = new LinkedHashMap<>();
+        if (remote != null && remote.getUsers() != null) {
+            for (TGConnectionUser user : remote.getUsers()) {
+                if (user != null) { remoteUsers.put(user.getID(), user); }
+            }
+        }
+        List<TGConnectionUser> merged = new ArrayList<>(local.size() + remoteUsers.size());
+        for (TGConnectionUser user : local) {
+            TGConnectionUser remoteUser = remoteUsers.remove(user.getID());
+            merged.add(remoteUser != null ? remoteUser : user);
+        }
+        merged.addAll(remoteUsers.values());
+        return new TGConnectionUsersList().setUsers(merged);
+    }
+
+    /**
+     * Split values to lower case tokens - whole values and their alphanumeric parts
+     *
+     * @param values indexed values
+     *
+     * @return Tokens
+     */
+    @NonNull
+    static Set<String> tokenize(@Nullable String... values) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String value : values) {
+            if (value == null) { continue; }
+            String lowerCase = value.trim().toLowerCase(Locale.US);
+            if (lowerCase.isEmpty()) { continue; }
+            tokens.add(lowerCase);
+            int start = -1;
+            for (int i = 0; i <= lowerCase.length(); i++) {
+                boolean letter = i < lowerCase.length() && Character.isLetterOrDigit(lowerCase.charAt(i));
+                if (letter && start < 0) { start = i; }
+                else if (!letter && start >= 0) {
+                    tokens.add(lowerCase.substring(start, i));
+                    start = -1;
+                }
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Index user
+     *
+     * @param user user from connection list or search results
+     */
+    public synchronized void add(@Nullable TGConnectionUser user) {
+        if (user != null && user.getID() != null) { add(user, null); }
+    }
+
+    /**
+     * Index user including email
+     *
+     * @param user user data
+     */
+    public synchronized void add(@Nullable TGUser user) {
+        if (user != null && user.getID() != null) { add(TGConnectionUser.fromUser(user), user.getEmail()); }
+    }
+
+    /**
+     * Index users
+     *
+     * @param users users from connection list or search results
+     */
+    public synchronized void addAll(@Nullable List<TGConnectionUser> users) {
+        if (users == null) { return; }
+        for (TGConnectionUser user : users) {
+            add(user);
+        }
+    }
+
+    /**
+     * Remove all users
+     */
+    public synchronized void clear() {
+        mUsers.clear();
+        mTokens.clear();
+        mGeneration++;
+    }
+
+    /**
+     * Get amount of clears, passed to {@link #readFrom(File, int)}
+     *
+     * @return generation of index
+     */
+    public synchronized int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Add users stored by {@link #writeTo(File)} - users indexed meanwhile are kept, nothing is added
+     * when index was cleared since generation was taken. Missing or broken file is ignored
+     *
+     * @param file       file with stored users
+     * @param generation generation of index when reading was requested
+     */
+    public void readFrom(@NonNull File file, int generation) {
+        if (!file.exists()) { return; }
+        Gson gson = new Gson();
+        List<TGConnectionUser> users = new ArrayList<>();
+        List<String> emails = new ArrayList<>();
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != VERSION) { return; }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                TGConnectionUser user = gson.fromJson(in.readUTF(), TGConnectionUser.class);
+                String email = in.readBoolean() ? in.readUTF() : null;
+                if (user != null && user.getID() != null) {
+                    users.add(user);
+                    emails.add(email);
+                }
+            }
+        }
+        catch (IOException | JsonParseException e) {
+            return;
+        }
+        finally {
+            closeQuietly(in);
+        }
+        synchronized (this) {
+            if (generation != mGeneration) { return; }
+            for (int i = 0; i < users.size(); i++) {
+                if (!mUsers.containsKey(users.get(i).getID())) { add(users.get(i), emails.get(i)); }
+            }
+        }
+    }
+
+    /**
+     * Store indexed users to file, replacing it atomically - least recently used first, so order is
+     * kept when they are read
+     *
+     * @param file target file
+     */
+    public void writeTo(@NonNull File file) {
+        List<IndexedUser> users;
+        synchronized (this) {
+            users = new ArrayList<>(mUsers.values());
+        }
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) { parent.mkdirs(); }
+        File temp = new File(file.getPath() + ".tmp");
+        Gson gson = new Gson();
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(VERSION);
+            out.writeInt(users.size());
+            for (IndexedUser entry : users) {
+                out.writeUTF(gson.toJson(entry.mUser));
+                out.writeBoolean(entry.mEmail != null);
+                if (entry.mEmail != null) { out.writeUTF(entry.mEmail); }
+            }
+            out.close();
+            out = null;
+            if (!temp.renameTo(file)) { temp.delete(); }
+        }
+        catch (IOException e) {
+            temp.delete();
+        }
+        finally {
+            closeQuietly(out);
+        }
+    }
+
+    /**
+     * Find users with token starting with every word of query. Users whose token equals more words
+     * go first
+     *
+     * @param query searched text
+     * @param limit maximal amount of results
+     *
+     * @return Found users
+     */
+    @NonNull
+    public synchronized List<TGConnectionUser> search(@Nullable String query, int limit) {
+        List<TGConnectionUser> result = new ArrayList<>();
+        if (query == null || query.trim().isEmpty()) { return result; }
+        final String[] words = query.trim().toLowerCase(Locale.US).split("\\s+");
+        TGLongSet found = null;
+        for (String word : words) {
+            TGLongSet ids = new TGLongSet();
+            for (TGLongSet tokenIds : mTokens.subMap(word, word + Character.MAX_VALUE).values()) {
+                for (long id : tokenIds.toSortedArray()) {
+                    if (found == null || found.contains(id)) { ids.add(id); }
+                }
+            }
+            found = ids;
+            if (found.isEmpty()) { return result; }
+        }
+        final Map<Long, Integer> scores = new LinkedHashMap<>();
+        for (long id : found.toSortedArray()) {
+            IndexedUser indexedUser = mUsers.get(id);
+            int score = 0;
+            for (String word : words) {
+                if (indexedUser.mTokens.contains(word)) { score++; }
+            }
+            scores.put(id, score);
+            result.add(indexedUser.mUser);
+        }
+        Collections.sort(result, new Comparator<TGConnectionUser>() {
+            @Override
+            public int compare(TGConnectionUser first, TGConnectionUser second) {
+                return scores.get(second.getID()) - scores.get(first.getID());
+            }
+        });
+        return result.size() > limit ? new ArrayList<>(result.subList(0, Math.max(0, limit))) : result;
+    }
+
+    /**
+     * Get amount of indexed users
+     *
+     * @return amount of users
+     */
+    public synchronized int size() {
+        return mUsers.size();
+    }
+
+    /**
+     * Index user, email known from earlier is kept
+     *
+     * @param user  user
+     * @param email email of user if known
+     */
+    private void add(@NonNull TGConnectionUser user, @Nullable String email) {
+        IndexedUser previous = mUsers.remove(user.getID());
+        if (previous != null) {
+            unindex(user.getID(), previous);
+            if (email == null) { email = previous.mEmail; }
+        }
+        IndexedUser entry = new IndexedUser(user, email, tokenize(user.getFirstName(), user.getLastName(), user.getUserName(), email));
+        for (String token : entry.mTokens) {
+            TGLongSet ids = mTokens.get(token);
+            if (ids == null) {
+                ids = new TGLongSet();
+                mTokens.put(token, ids);
+            }
+            ids.add(user.getID());
+        }
+        mUsers.put(user.getID(), entry);
+    }
+
+    /**
+     * Remove tokens of user
+     *
+     * @param id    ID of user
+     * @param entry indexed user
+     */
+    private void unindex(long id, @NonNull IndexedUser entry) {
+        for (String token : entry.mTokens) {
+            TGLongSet ids = mTokens.get(token);
+            if (ids == null) { continue; }
+            ids.remove(id);
+            if (ids.isEmpty()) { mTokens.remove(token); }
+        }
+    }
+
+    /**
+     * Indexed user with its tokens
+     */
+    private static class IndexedUser {
+        /**
+         * Email of user, null if unknown
+         */
+        @Nullable
+        final String mEmail;
+        /**
+         * Tokens of user
+         */
+        @NonNull
+        final Set<String> mTokens;
+        /**
+         * User returned in results
+         */
+        @NonNull
+        final TGConnectionUser mUser;
+
+        IndexedUser(@NonNull TGConnectionUser user, @Nullable String email, @NonNull Set<String> tokens) {
+            mUser = user;
+            mEmail = email;
+            mTokens = tokens;
+        }
+    }
+}
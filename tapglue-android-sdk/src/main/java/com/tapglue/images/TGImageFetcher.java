@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.images;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.squareup.okhttp.Callback;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.tapglue.cache.TGDiskLruCache;
+import com.tapglue.cache.TGIOExecutor;
+import com.tapglue.model.TGImage;
+import com.tapglue.model.TGUser;
+import com.tapglue.networking.requests.TGRequestCallback;
+import com.tapglue.networking.requests.TGRequestErrorType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fetches image data of {@link TGImage} variants, keeping downloaded bytes in disk cache. Concurrent
+ * requests of the same URL share one download
+ */
+public class TGImageFetcher {
+    /**
+     * Default size of disk cache, 20MB
+     */
+    public static final long DEFAULT_DISK_CACHE_SIZE = 20 * 1024 * 1024;
+
+    /**
+     * Http client used for downloads
+     */
+    @NonNull
+    private final OkHttpClient mClient;
+    /**
+     * Disk cache of image data
+     */
+    @NonNull
+    private final TGDiskLruCache mDiskCache;
+    /**
+     * Callbacks waiting for each URL being fetched
+     */
+    @NonNull
+    private final Map<String, List<TGRequestCallback<byte[]>>> mInFlight = new HashMap<>();
+    /**
+     * Executor used for disk cache access
+     */
+    @NonNull
+    private final TGIOExecutor mIOExecutor;
+
+    public TGImageFetcher(@NonNull OkHttpClient client, @NonNull TGDiskLruCache diskCache, @NonNull TGIOExecutor ioExecutor) {
+        mClient = client;
+        mDiskCache = diskCache;
+        mIOExecutor = ioExecutor;
+    }
+
+    /**
+     * Select smallest variant covering requested size. If no variant is big enough, the biggest one
+     * is selected
+     *
+     * @param images image variants
+     * @param width  requested width in pixels
+     * @param height requested height in pixels
+     *
+     * @return Selected variant or null if there is no variant with URL
+     */
+    @Nullable
+    public static TGImage selectVariant(@Nullable Map<String, TGImage> images, int width, int height) {
+        if (images == null) { return null; }
+        TGImage fitting = null;
+        TGImage biggest = null;
+        for (TGImage image : images.values()) {
+            if (image == null || image.getURL() == null) { continue; }
+            long area = (long) image.getWidth() * image.getHeight();
+            if (image.getWidth() >= width && image.getHeight() >= height &&
+                (fitting == null || area < (long) fitting.getWidth() * fitting.getHeight())) {
+                fitting = image;
+            }
+            if (biggest == null || area > (long) biggest.getWidth() * biggest.getHeight()) {
+                biggest = image;
+            }
+        }
+        return fitting != null ? fitting : biggest;
+    }
+
+    /**
+     * Fetch image of user fitting requested size
+     *
+     * @param user         user whose image should be fetched
+     * @param width        requested width in pixels
+     * @param height       requested height in pixels
+     * @param returnMethod callback receiving image data
+     */
+    public void fetch(@Nullable TGUser user, int width, int height, @NonNull TGRequestCallback<byte[]> returnMethod) {
+        fetch(user != null ? user.getImages() : null, width, height, returnMethod);
+    }
+
+    /**
+     * Fetch variant fitting requested size
+     *
+     * @param images       image variants
+     * @param width        requested width in pixels
+     * @param height       requested height in pixels
+     * @param returnMethod callback receiving image data
+     */
+    public void fetch(@Nullable Map<String, TGImage> images, int width, int height, @NonNull TGRequestCallback<byte[]> returnMethod) {
+        TGImage image = selectVariant(images, width, height);
+        fetch(image != null ? image.getURL() : null, returnMethod);
+    }
+
+    /**
+     * Fetch image data from disk cache or network. Callback gets changeDoneOnline set when data was
+     * downloaded
+     *
+     * @param url          image URL
+     * @param returnMethod callback receiving image data
+     */
+    public void fetch(@Nullable final String url, @NonNull TGRequestCallback<byte[]> returnMethod) {
+        if (url == null) {
+            returnMethod.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.NULL_INPUT));
+            return;
+        }
+        synchronized (mInFlight) {
+            List<TGRequestCallback<byte[]>> waiting = mInFlight.get(url);
+            if (waiting != null) {
+                waiting.add(returnMethod);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(returnMethod);
+            mInFlight.put(url, waiting);
+        }
+        mIOExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                byte[] data = mDiskCache.get(url);
+                if (data != null) { finish(url, data, false, null); }
+                else { download(url); }
+            }
+        });
+    }
+
+    /**
+     * Get amount of URLs being fetched
+     *
+     * @return amount of fetched URLs
+     */
+    public int getInFlightCount() {
+        synchronized (mInFlight) {
+            return mInFlight.size();
+        }
+    }
+
+    /**
+     * Remove all cached image data
+     */
+    public void clearCache() {
+        mIOExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mDiskCache.clear();
+            }
+        });
+    }
+
+    /**
+     * Download image data and store it in disk cache
+     *
+     * @param url image URL
+     */
+    private void download(@NonNull final String url) {
+        Request request = new Request.Builder().url(url).get().build();
+        mClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Request request, IOException e) {
+                finish(url, null, true, new TGRequestErrorType(TGRequestErrorType.ErrorType.NO_NETWORK));
+            }
+
+            @Override
+            public void onResponse(@NonNull Response response) {
+                final byte[] data;
+                try {
+                    if (!response.isSuccessful()) {
+                        finish(url, null, true, new TGRequestErrorType((long) response.code(), response.message()));
+                        return;
+                    }
+                    data = response.body().bytes();
+                } catch (IOException e) {
+                    // connection broke while body was read
+                    finish(url, null, true, new TGRequestErrorType(TGRequestErrorType.ErrorType.NO_NETWORK));
+                    return;
+                } finally {
+                    try {
+                        response.body().close();
+                    } catch (IOException e) {
+                        // nothing more can be done
+                    }
+                }
+                mIOExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        mDiskCache.put(url, data);
+                    }
+                });
+                finish(url, data, true, null);
+            }
+        });
+    }
+
+    /**
+     * Deliver result to all callbacks waiting for URL
+     *
+     * @param url        image URL
+     * @param data       image data or null on error
+     * @param downloaded was data downloaded?
+     * @param error      error or null on success
+     */
+    private void finish(@NonNull String url, @Nullable final byte[] data, final boolean downloaded, @Nullable final TGRequestErrorType error) {
+        final List<TGRequestCallback<byte[]>> waiting;
+        synchronized (mInFlight) {
+            waiting = mInFlight.remove(url);
+        }
+        if (waiting == null) { return; }
+        mIOExecutor.deliver(new Runnable() {
+            @Override
+            public void run() {
+                for (TGRequestCallback<byte[]> callback : waiting) {
+                    if (!callback.callbackIsEnabled()) { continue; }
+                    if (error != null) { callback.onRequestError(error); }
+                    else { callback.onRequestFinished(data, downloaded); }
+                }
+            }
+        });
+    }
+}
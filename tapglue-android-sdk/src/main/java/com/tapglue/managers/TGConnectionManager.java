@@ -21,19 +21,44 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import com.tapglue.Tapglue;
+import com.tapglue.cache.TGSocialGraph;
+import com.tapglue.model.TGBulkResult;
 import com.tapglue.model.TGConnection;
+import com.tapglue.model.TGConnectionUsersList;
 import com.tapglue.model.TGPendingConnections;
+import com.tapglue.networking.requests.TGCall;
 import com.tapglue.networking.requests.TGRequestCallback;
 import com.tapglue.networking.requests.TGRequestErrorType;
 
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import static com.tapglue.model.TGConnection.TGConnectionType;
 
 public class TGConnectionManager extends AbstractTGManager implements TGConnectionManagerInterface {
 
+    /**
+     * Shared poller of pending connections, created with first listener
+     */
+    @Nullable
+    private TGPendingConnectionsObserver mPendingConnectionsObserver;
+
     public TGConnectionManager(Tapglue tgInstance) {
         super(tgInstance);
     }
 
+    /**
+     * Start observing pending connections. All listeners share one poller, which calls them only
+     * when connections changed
+     *
+     * @param listener listener called on main thread with added and removed connections
+     */
+    @Override
+    public void addPendingConnectionsListener(@NonNull TGPendingConnectionsObserver.Listener listener) {
+        getPendingConnectionsObserver().addListener(listener);
+    }
+
     @Override
     public void confirmConnection(@Nullable Long userId, TGConnectionType TGConnectionType, @NonNull final TGRequestCallback<Boolean> returnCallback) {
         if (userId == null) {
@@ -44,6 +69,9 @@ public class TGConnectionManager extends AbstractTGManager implements TGConnecti
             returnCallback.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN));
             return;
         }
+        final long id = userId;
+        final TGSocialGraph.Relation relation = TGConnectionType == TGConnection.TGConnectionType.FRIEND ?
+                TGSocialGraph.Relation.FRIEND : TGSocialGraph.Relation.FOLLOWER;
         tapglue.createRequest().confirmConnection(userId, TGConnectionType, new TGRequestCallback<TGConnection>() {
             @Override
             public boolean callbackIsEnabled() {
@@ -57,11 +85,29 @@ public class TGConnectionManager extends AbstractTGManager implements TGConnecti
 
             @Override
             public void onRequestFinished(TGConnection output, boolean changeDoneOnline) {
+                getSocialGraph().set(relation, id, true);
                 returnCallback.onRequestFinished(true, true);
             }
         });
     }
 
+    /**
+     * Start observing pending connections. All listeners share one poller, which calls them only
+     * when connections changed
+     *
+     * @param userId
+     * @param TGConnectionType
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<Boolean> confirmConnection(@Nullable Long userId, TGConnectionType TGConnectionType) {
+        TGCall<Boolean> call = new TGCall<>();
+        confirmConnection(userId, TGConnectionType, call.callback());
+        return call;
+    }
+
     /**
      * Follow selected user
      *
@@ -78,6 +124,7 @@ public class TGConnectionManager extends AbstractTGManager implements TGConnecti
             returnCallback.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN));
             return;
         }
+        final long id = userId;
         tapglue.createRequest().createConnection(userId, TGConnectionType.FOLLOW, null, new TGRequestCallback<TGConnection>() {
             @Override
             public boolean callbackIsEnabled() {
@@ -91,11 +138,64 @@ public class TGConnectionManager extends AbstractTGManager implements TGConnecti
 
             @Override
             public void onRequestFinished(TGConnection output, boolean changeDoneOnline) {
+                getSocialGraph().set(TGSocialGraph.Relation.FOLLOWS, id, true);
                 returnCallback.onRequestFinished(true, true);
             }
         });
     }
 
+    /**
+     * Follow selected user
+     *
+     * @param userId
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<Boolean> followUser(@Nullable Long userId) {
+        TGCall<Boolean> call = new TGCall<>();
+        followUser(userId, call.callback());
+        return call;
+    }
+
+    /**
+     * Follow many users at once - requests run with limited concurrency and are queued as one entry
+     * while offline
+     *
+     * @param userIds        IDs of users
+     * @param returnCallback return method with result for each user
+     */
+    @Override
+    public void followUsers(@Nullable Collection<Long> userIds, @NonNull TGRequestCallback<TGBulkResult> returnCallback) {
+        if (userIds == null) {
+            returnCallback.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.NULL_INPUT));
+            return;
+        }
+        else if (tapglue.getUserManager().getCurrentUser() == null) {
+            returnCallback.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN));
+            return;
+        }
+        tapglue.createRequest().createConnections(userIds, TGConnectionType.FOLLOW, null,
+            new TGBulkGraphCallback(returnCallback, TGSocialGraph.Relation.FOLLOWS, true));
+    }
+
+    /**
+     * Follow many users at once - requests run with limited concurrency and are queued as one entry
+     * while offline
+     *
+     * @param userIds IDs of users
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGBulkResult> followUsers(@Nullable Collection<Long> userIds) {
+        TGCall<TGBulkResult> call = new TGCall<>();
+        followUsers(userIds, call.callback());
+        return call;
+    }
+
     /**
      * Add selected user to friends
      *
@@ -112,6 +212,7 @@ public class TGConnectionManager extends AbstractTGManager implements TGConnecti
             returnCallback.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN));
             return;
         }
+        final long id = userId;
         tapglue.createRequest().createConnection(userId, TGConnectionType.FRIEND, "pending", new TGRequestCallback<TGConnection>() {
             @Override
             public boolean callbackIsEnabled() {
@@ -125,11 +226,64 @@ public class TGConnectionManager extends AbstractTGManager implements TGConnecti
 
             @Override
             public void onRequestFinished(TGConnection output, boolean changeDoneOnline) {
+                getSocialGraph().set(TGSocialGraph.Relation.PENDING_FRIEND, id, true);
                 returnCallback.onRequestFinished(true, true);
             }
         });
     }
 
+    /**
+     * Add selected user to friends
+     *
+     * @param userId user ID
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<Boolean> friendUser(@Nullable Long userId) {
+        TGCall<Boolean> call = new TGCall<>();
+        friendUser(userId, call.callback());
+        return call;
+    }
+
+    /**
+     * Send friend requests to many users at once - requests run with limited concurrency and are
+     * queued as one entry while offline
+     *
+     * @param userIds        IDs of users
+     * @param returnCallback return method with result for each user
+     */
+    @Override
+    public void friendUsers(@Nullable Collection<Long> userIds, @NonNull TGRequestCallback<TGBulkResult> returnCallback) {
+        if (userIds == null) {
+            returnCallback.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.NULL_INPUT));
+            return;
+        }
+        else if (tapglue.getUserManager().getCurrentUser() == null) {
+            returnCallback.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN));
+            return;
+        }
+        tapglue.createRequest().createConnections(userIds, TGConnectionType.FRIEND, "pending",
+            new TGBulkGraphCallback(returnCallback, TGSocialGraph.Relation.PENDING_FRIEND, true));
+    }
+
+    /**
+     * Send friend requests to many users at once - requests run with limited concurrency and are
+     * queued as one entry while offline
+     *
+     * @param userIds IDs of users
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGBulkResult> friendUsers(@Nullable Collection<Long> userIds) {
+        TGCall<TGBulkResult> call = new TGCall<>();
+        friendUsers(userIds, call.callback());
+        return call;
+    }
+
     /**
      * Get pending Connections
      */
@@ -142,6 +296,223 @@ public class TGConnectionManager extends AbstractTGManager implements TGConnecti
         tapglue.createRequest().createPendingConnectionsRequest(returnCallback);
     }
 
+    /**
+     * Get pending Connections
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGPendingConnections> getPendingConnections() {
+        TGCall<TGPendingConnections> call = new TGCall<>();
+        getPendingConnections(call.callback());
+        return call;
+    }
+
+    /**
+     * Get IDs from cached list of current user missing in cached list of user
+     *
+     * @param relation relation of compared lists
+     * @param userId   ID of user
+     *
+     * @return Sorted IDs or null when any of lists wasn't loaded yet
+     */
+    @Nullable
+    @Override
+    public long[] getConnectionDifference(@NonNull TGSocialGraph.Relation relation, long userId) {
+        return tapglue.getConnectionIndex().difference(relation, null, userId);
+    }
+
+    /**
+     * Get IDs present in cached lists of both current user and user, e.g. mutual friends
+     *
+     * @param relation relation of compared lists
+     * @param userId   ID of user
+     *
+     * @return Sorted IDs or null when any of lists wasn't loaded yet
+     */
+    @Nullable
+    @Override
+    public long[] getMutualConnections(@NonNull TGSocialGraph.Relation relation, long userId) {
+        return tapglue.getConnectionIndex().intersect(relation, null, userId);
+    }
+
+    /**
+     * Get shared poller of pending connections
+     *
+     * @return Pending connections observer
+     */
+    @NonNull
+    private synchronized TGPendingConnectionsObserver getPendingConnectionsObserver() {
+        if (mPendingConnectionsObserver == null) {
+            mPendingConnectionsObserver = new TGPendingConnectionsObserver(tapglue.createRequest(), new Executor() {
+                @Override
+                public void execute(@NonNull Runnable command) {
+                    tapglue.getIOExecutor().deliver(command);
+                }
+            }, tapglue.getConfiguration().getPendingConnectionsPollInterval(), tapglue.getConfiguration().getPendingConnectionsPollMaxInterval());
+        }
+        return mPendingConnectionsObserver;
+    }
+
+    /**
+     * Get local index of current user connections
+     *
+     * @return Social graph
+     */
+    @NonNull
+    private TGSocialGraph getSocialGraph() {
+        return tapglue.getSocialGraph();
+    }
+
+    /**
+     * Check locally if current user sent friend request to user
+     *
+     * @param userId ID of user
+     *
+     * @return true if friend request is pending
+     */
+    @Override
+    public boolean hasPendingFriendRequest(long userId) {
+        return getSocialGraph().contains(TGSocialGraph.Relation.PENDING_FRIEND, userId);
+    }
+
+    /**
+     * Check locally if user follows current user
+     *
+     * @param userId ID of user
+     *
+     * @return true if user is follower
+     */
+    @Override
+    public boolean isFollowedBy(long userId) {
+        return getSocialGraph().contains(TGSocialGraph.Relation.FOLLOWER, userId);
+    }
+
+    /**
+     * Check locally if current user follows user
+     *
+     * @param userId ID of user
+     *
+     * @return true if user is followed
+     */
+    @Override
+    public boolean isFollowing(long userId) {
+        return getSocialGraph().contains(TGSocialGraph.Relation.FOLLOWS, userId);
+    }
+
+    /**
+     * Check locally if user is friend of current user
+     *
+     * @param userId ID of user
+     *
+     * @return true if users are friends
+     */
+    @Override
+    public boolean isFriend(long userId) {
+        return getSocialGraph().contains(TGSocialGraph.Relation.FRIEND, userId);
+    }
+
+    /**
+     * Poll pending connections immediately if they are observed
+     */
+    @Override
+    public void refreshPendingConnections() {
+        getPendingConnectionsObserver().refresh();
+    }
+
+    /**
+     * Stop observing pending connections, polling stops with last listener
+     *
+     * @param listener registered listener
+     */
+    @Override
+    public void removePendingConnectionsListener(@NonNull TGPendingConnectionsObserver.Listener listener) {
+        getPendingConnectionsObserver().removeListener(listener);
+    }
+
+    /**
+     * Load lists of current user and user and get IDs present in both of them. Callback is called
+     * once, as soon as both lists are available
+     *
+     * @param relation       relation of compared lists
+     * @param userId         ID of user
+     * @param returnCallback return callback
+     */
+    @Override
+    public void retrieveMutualConnections(@NonNull final TGSocialGraph.Relation relation, @Nullable final Long userId, @NonNull final TGRequestCallback<long[]> returnCallback) {
+        if (userId == null) {
+            returnCallback.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.NULL_INPUT));
+            return;
+        }
+        else if (relation == TGSocialGraph.Relation.PENDING_FRIEND) {
+            returnCallback.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.UNSUPPORTED_INPUT));
+            return;
+        }
+        else if (tapglue.getUserManager().getCurrentUser() == null) {
+            returnCallback.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN));
+            return;
+        }
+        final AtomicBoolean done = new AtomicBoolean(false);
+        TGRequestCallback<TGConnectionUsersList> listCallback = new TGRequestCallback<TGConnectionUsersList>() {
+            @Override
+            public boolean callbackIsEnabled() {
+                return !done.get() && returnCallback.callbackIsEnabled();
+            }
+
+            @Override
+            public void onRequestError(TGRequestErrorType cause) {
+                if (done.compareAndSet(false, true)) { returnCallback.onRequestError(cause); }
+            }
+
+            @Override
+            public void onRequestFinished(TGConnectionUsersList output, boolean changeDoneOnline) {
+                long[] mutual = tapglue.getConnectionIndex().intersect(relation, null, userId);
+                if (mutual != null && done.compareAndSet(false, true)) { returnCallback.onRequestFinished(mutual, changeDoneOnline); }
+            }
+        };
+        retrieveList(relation, null, listCallback);
+        retrieveList(relation, userId, listCallback);
+    }
+
+    /**
+     * Load lists of current user and user and get IDs present in both of them. Callback is called
+     * once, as soon as both lists are available
+     *
+     * @param relation relation of compared lists
+     * @param userId   ID of user
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<long[]> retrieveMutualConnections(@NonNull TGSocialGraph.Relation relation, @Nullable Long userId) {
+        TGCall<long[]> call = new TGCall<>();
+        retrieveMutualConnections(relation, userId, call.callback());
+        return call;
+    }
+
+    /**
+     * Load connection list of user
+     *
+     * @param relation relation of list
+     * @param userId   ID of user, null for current user
+     * @param output   return callback
+     */
+    private void retrieveList(@NonNull TGSocialGraph.Relation relation, @Nullable Long userId, @NonNull TGRequestCallback<TGConnectionUsersList> output) {
+        switch (relation) {
+            case FOLLOWS:
+                tapglue.createRequest().getUserFollowed(userId, output);
+                break;
+            case FOLLOWER:
+                tapglue.createRequest().getUserFollowers(userId, output);
+                break;
+            default:
+                tapglue.createRequest().getUserFriends(userId, output);
+                break;
+        }
+    }
+
     /**
      * Stop following selected user
      *
@@ -158,6 +529,7 @@ public class TGConnectionManager extends AbstractTGManager implements TGConnecti
             returnCallback.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN));
             return;
         }
+        final long id = userId;
         tapglue.createRequest().removeConnection(userId, TGConnectionType.FOLLOW, new TGRequestCallback<Object>() {
             @Override
             public boolean callbackIsEnabled() {
@@ -171,11 +543,64 @@ public class TGConnectionManager extends AbstractTGManager implements TGConnecti
 
             @Override
             public void onRequestFinished(Object output, boolean changeDoneOnline) {
+                getSocialGraph().set(TGSocialGraph.Relation.FOLLOWS, id, false);
                 returnCallback.onRequestFinished(true, true);
             }
         });
     }
 
+    /**
+     * Stop following selected user
+     *
+     * @param userId user ID
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<Boolean> unFollowUser(@Nullable Long userId) {
+        TGCall<Boolean> call = new TGCall<>();
+        unFollowUser(userId, call.callback());
+        return call;
+    }
+
+    /**
+     * Stop following many users at once - requests run with limited concurrency and are queued as one
+     * entry while offline
+     *
+     * @param userIds        IDs of users
+     * @param returnCallback return method with result for each user
+     */
+    @Override
+    public void unFollowUsers(@Nullable Collection<Long> userIds, @NonNull TGRequestCallback<TGBulkResult> returnCallback) {
+        if (userIds == null) {
+            returnCallback.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.NULL_INPUT));
+            return;
+        }
+        else if (tapglue.getUserManager().getCurrentUser() == null) {
+            returnCallback.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN));
+            return;
+        }
+        tapglue.createRequest().removeConnections(userIds, TGConnectionType.FOLLOW,
+            new TGBulkGraphCallback(returnCallback, TGSocialGraph.Relation.FOLLOWS, false));
+    }
+
+    /**
+     * Stop following many users at once - requests run with limited concurrency and are queued as one
+     * entry while offline
+     *
+     * @param userIds IDs of users
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGBulkResult> unFollowUsers(@Nullable Collection<Long> userIds) {
+        TGCall<TGBulkResult> call = new TGCall<>();
+        unFollowUsers(userIds, call.callback());
+        return call;
+    }
+
     /**
      * Remove user from friends
      *
@@ -192,6 +617,7 @@ public class TGConnectionManager extends AbstractTGManager implements TGConnecti
             returnCallback.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN));
             return;
         }
+        final long id = userId;
         tapglue.createRequest().removeConnection(userId, TGConnectionType.FRIEND, new TGRequestCallback<Object>() {
             @Override
             public boolean callbackIsEnabled() {
@@ -205,8 +631,69 @@ public class TGConnectionManager extends AbstractTGManager implements TGConnecti
 
             @Override
             public void onRequestFinished(Object output, boolean changeDoneOnline) {
+                getSocialGraph().set(TGSocialGraph.Relation.FRIEND, id, false);
+                getSocialGraph().set(TGSocialGraph.Relation.PENDING_FRIEND, id, false);
                 returnCallback.onRequestFinished(true, true);
             }
         });
     }
+
+    /**
+     * Remove user from friends
+     *
+     * @param userId ID of user
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<Boolean> unFriendUser(@Nullable Long userId) {
+        TGCall<Boolean> call = new TGCall<>();
+        unFriendUser(userId, call.callback());
+        return call;
+    }
+
+    /**
+     * Callback updating social graph with users for which bulk operation succeeded
+     */
+    private class TGBulkGraphCallback implements TGRequestCallback<TGBulkResult> {
+        /**
+         * Exists relation after operation?
+         */
+        private final boolean mExists;
+        /**
+         * Changed relation
+         */
+        @NonNull
+        private final TGSocialGraph.Relation mRelation;
+        /**
+         * Callback of caller
+         */
+        @NonNull
+        private final TGRequestCallback<TGBulkResult> mReturnCallback;
+
+        TGBulkGraphCallback(@NonNull TGRequestCallback<TGBulkResult> returnCallback, @NonNull TGSocialGraph.Relation relation, boolean exists) {
+            mReturnCallback = returnCallback;
+            mRelation = relation;
+            mExists = exists;
+        }
+
+        @Override
+        public boolean callbackIsEnabled() {
+            return mReturnCallback.callbackIsEnabled();
+        }
+
+        @Override
+        public void onRequestError(TGRequestErrorType cause) {
+            mReturnCallback.onRequestError(cause);
+        }
+
+        @Override
+        public void onRequestFinished(TGBulkResult output, boolean changeDoneOnline) {
+            for (Long userId : output.getSucceeded()) {
+                getSocialGraph().set(mRelation, userId, mExists);
+            }
+            mReturnCallback.onRequestFinished(output, changeDoneOnline);
+        }
+    }
 }
@@ -17,20 +17,71 @@
 
 package com.tapglue.managers;
 
+import com.tapglue.cache.TGSocialGraph;
+import com.tapglue.model.TGBulkResult;
 import com.tapglue.model.TGConnection;
 import com.tapglue.model.TGPendingConnections;
+import com.tapglue.networking.requests.TGCall;
 import com.tapglue.networking.requests.TGRequestCallback;
 
+import java.util.Collection;
+
 public interface TGConnectionManagerInterface {
+    void addPendingConnectionsListener(TGPendingConnectionsObserver.Listener listener);
+
     void confirmConnection(Long userId, TGConnection.TGConnectionType TGConnectionType, TGRequestCallback<Boolean> returnCallback);
 
+    TGCall<Boolean> confirmConnection(Long userId, TGConnection.TGConnectionType TGConnectionType);
+
     void followUser(Long userId, TGRequestCallback<Boolean> returnCallback);
 
+    TGCall<Boolean> followUser(Long userId);
+
+    void followUsers(Collection<Long> userIds, TGRequestCallback<TGBulkResult> returnCallback);
+
+    TGCall<TGBulkResult> followUsers(Collection<Long> userIds);
+
     void friendUser(Long userId, TGRequestCallback<Boolean> returnCallback);
 
+    TGCall<Boolean> friendUser(Long userId);
+
+    void friendUsers(Collection<Long> userIds, TGRequestCallback<TGBulkResult> returnCallback);
+
+    TGCall<TGBulkResult> friendUsers(Collection<Long> userIds);
+
+    long[] getConnectionDifference(TGSocialGraph.Relation relation, long userId);
+
+    long[] getMutualConnections(TGSocialGraph.Relation relation, long userId);
+
     void getPendingConnections(TGRequestCallback<TGPendingConnections> returnCallback);
 
+    TGCall<TGPendingConnections> getPendingConnections();
+
+    boolean hasPendingFriendRequest(long userId);
+
+    boolean isFollowedBy(long userId);
+
+    boolean isFollowing(long userId);
+
+    boolean isFriend(long userId);
+
+    void refreshPendingConnections();
+
+    void removePendingConnectionsListener(TGPendingConnectionsObserver.Listener listener);
+
+    void retrieveMutualConnections(TGSocialGraph.Relation relation, Long userId, TGRequestCallback<long[]> returnCallback);
+
+    TGCall<long[]> retrieveMutualConnections(TGSocialGraph.Relation relation, Long userId);
+
     void unFollowUser(Long userId, TGRequestCallback<Boolean> returnCallback);
 
+    TGCall<Boolean> unFollowUser(Long userId);
+
+    void unFollowUsers(Collection<Long> userIds, TGRequestCallback<TGBulkResult> returnCallback);
+
+    TGCall<TGBulkResult> unFollowUsers(Collection<Long> userIds);
+
     void unFriendUser(Long userId, TGRequestCallback<Boolean> returnCallback);
+
+    TGCall<Boolean> unFriendUser(Long userId);
 }
@@ -24,6 +24,7 @@ import android.text.TextUtils;
 import com.tapglue.Tapglue;
 import com.tapglue.model.TGEvent;
 import com.tapglue.model.TGEventObject;
+import com.tapglue.networking.requests.TGCall;
 import com.tapglue.networking.requests.TGRequestCallback;
 import com.tapglue.networking.requests.TGRequestErrorType;
 
@@ -53,6 +54,21 @@ public class TGEventManager extends AbstractTGManager implements TGEventManagerI
         tapglue.createRequest().createEvent(event, returnMethod);
     }
 
+    /**
+     * Create event with selected type
+     *
+     * @param type
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGEvent> createEvent(String type) {
+        TGCall<TGEvent> call = new TGCall<>();
+        createEvent(type, call.callback());
+        return call;
+    }
+
     /**
      * Create event with selected type and object
      *
@@ -74,6 +90,22 @@ public class TGEventManager extends AbstractTGManager implements TGEventManagerI
         tapglue.createRequest().createEvent(event, returnMethod);
     }
 
+    /**
+     * Create event with selected type and object
+     *
+     * @param type
+     * @param object
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGEvent> createEvent(String type, TGEventObject object) {
+        TGCall<TGEvent> call = new TGCall<>();
+        createEvent(type, object, call.callback());
+        return call;
+    }
+
     /**
      * Create event with selected type and object ID
      *
@@ -95,6 +127,22 @@ public class TGEventManager extends AbstractTGManager implements TGEventManagerI
         tapglue.createRequest().createEvent(event, returnMethod);
     }
 
+    /**
+     * Create event with selected type and object ID
+     *
+     * @param type
+     * @param objectId
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGEvent> createEvent(String type, String objectId) {
+        TGCall<TGEvent> call = new TGCall<>();
+        createEvent(type, objectId, call.callback());
+        return call;
+    }
+
     /**
      * Create event with custom params
      *
@@ -114,6 +162,21 @@ public class TGEventManager extends AbstractTGManager implements TGEventManagerI
         tapglue.createRequest().createEvent(new TGEvent(tapglue, event), returnMethod);
     }
 
+    /**
+     * Create event with custom params
+     *
+     * @param event
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGEvent> createEvent(@Nullable TGEvent event) {
+        TGCall<TGEvent> call = new TGCall<>();
+        createEvent(event, call.callback());
+        return call;
+    }
+
     @Override
     public void removeEvent(@Nullable Long id, @NonNull TGRequestCallback<Object> returnMethod) {
         if (id == null) {
@@ -126,4 +189,19 @@ public class TGEventManager extends AbstractTGManager implements TGEventManagerI
         }
         tapglue.createRequest().removeEvent(id, returnMethod);
     }
+
+    /**
+     * Create event with custom params
+     *
+     * @param id
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<Object> removeEvent(@Nullable Long id) {
+        TGCall<Object> call = new TGCall<>();
+        removeEvent(id, call.callback());
+        return call;
+    }
 }
@@ -19,16 +19,27 @@ package com.tapglue.managers;
 
 import com.tapglue.model.TGEvent;
 import com.tapglue.model.TGEventObject;
+import com.tapglue.networking.requests.TGCall;
 import com.tapglue.networking.requests.TGRequestCallback;
 
 public interface TGEventManagerInterface {
     void createEvent(String type, TGRequestCallback<TGEvent> returnMethod);
 
+    TGCall<TGEvent> createEvent(String type);
+
     void createEvent(String type, TGEventObject object, TGRequestCallback<TGEvent> returnMethod);
 
+    TGCall<TGEvent> createEvent(String type, TGEventObject object);
+
     void createEvent(String type, String objectId, TGRequestCallback<TGEvent> returnMethod);
 
+    TGCall<TGEvent> createEvent(String type, String objectId);
+
     void createEvent(TGEvent event, TGRequestCallback<TGEvent> returnMethod);
 
+    TGCall<TGEvent> createEvent(TGEvent event);
+
     void removeEvent(Long id, TGRequestCallback<Object> returnMethod);
+
+    TGCall<Object> removeEvent(Long id);
 }
@@ -25,15 +25,54 @@ import android.support.annotation.Nullable;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import com.tapglue.Tapglue;
+import com.tapglue.cache.TGFeedSnapshot;
+import com.tapglue.cache.TGFeedStore;
+import com.tapglue.cache.TGIOExecutor;
+import com.tapglue.cache.TGUnreadTracker;
 import com.tapglue.model.TGConnectionUsersList;
 import com.tapglue.model.TGFeed;
 import com.tapglue.model.TGFeedCount;
+import com.tapglue.networking.requests.TGCall;
 import com.tapglue.networking.requests.TGRequestCallback;
 import com.tapglue.networking.requests.TGRequestErrorType;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
 public class TGFeedManager extends AbstractTGManager implements TGFeedManagerInterface {
 
+    /**
+     * Key of feed cached by previous library versions
+     */
     private static final String CACHE_KEY = "FEED_CACHE";
+    /**
+     * Name of feed snapshot file in cache directory
+     */
+    private static final String SNAPSHOT_FILE = "tapglue_feed.snapshot";
+    /**
+     * Store of cached feed
+     */
+    @Nullable
+    private TGFeedStore mFeedStore;
+    /**
+     * Opened snapshot of cached feed
+     */
+    @Nullable
+    private TGFeedSnapshot mFeedSnapshot;
+    /**
+     * Local tracker of unread events
+     */
+    @Nullable
+    private volatile TGUnreadTracker mUnreadTracker;
+    /**
+     * Should stored data of previous user be removed before next write?
+     */
+    private boolean mClearPending = false;
+    /**
+     * Generation of user data, changed when user changes
+     */
+    private int mUserGeneration = 0;
 
     public TGFeedManager(Tapglue tgInstance) {
         super(tgInstance);
@@ -53,6 +92,19 @@ public class TGFeedManager extends AbstractTGManager implements TGFeedManagerInt
         getCachedFeedIfAvailable(returnMethod);
     }
 
+    /**
+     * Get feed from cache
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGFeed> cachedFeedForCurrentUser() {
+        TGCall<TGFeed> call = new TGCall<>();
+        cachedFeedForCurrentUser(call.callback());
+        return call;
+    }
+
     /**
      * Return cached feed
      *
@@ -60,15 +112,285 @@ public class TGFeedManager extends AbstractTGManager implements TGFeedManagerInt
      */
     @Override
     public void getCachedFeedIfAvailable(@NonNull TGRequestCallback<TGFeed> returnMethod) {
-        SharedPreferences cache = tapglue.getContext().getSharedPreferences(TGFeedManager.class.toString(), Context.MODE_PRIVATE);
-        if (cache.contains(CACHE_KEY)) {
-            TGFeed feed = new Gson().fromJson(cache.getString(CACHE_KEY, null), new TypeToken<TGFeed>() {
-            }.getType());
-            returnMethod.onRequestFinished(feed, false);
+        getCachedFeedIfAvailable(0, Integer.MAX_VALUE, returnMethod);
+    }
+
+    /**
+     * Return cached feed
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGFeed> getCachedFeedIfAvailable() {
+        TGCall<TGFeed> call = new TGCall<>();
+        getCachedFeedIfAvailable(call.callback());
+        return call;
+    }
+
+    /**
+     * Return window of cached feed, without loading remaining events. Cache is read on I/O thread and
+     * callback is called on main thread. Window is read from snapshot, or from feed store when
+     * snapshot wasn't rebuilt since last sync yet
+     *
+     * @param offset       index of first event
+     * @param limit        maximal amount of events
+     * @param returnMethod
+     */
+    @Override
+    public void getCachedFeedIfAvailable(final int offset, final int limit, @NonNull final TGRequestCallback<TGFeed> returnMethod) {
+        final TGIOExecutor io = tapglue.getIOExecutor();
+        io.execute(new Runnable() {
+            @Override
+            public void run() {
+                TGFeedSnapshot snapshot = getFeedSnapshot();
+                final TGFeed feed;
+                if (snapshot != null) { feed = snapshot.getFeed(offset, limit, tapglue.getEntityStore()); }
+                else {
+                    feed = tapglue.getEntityStore().mergeResponse(getFeedStore().readFeed(offset, limit));
+                    if (feed != null) { rebuildFeedSnapshot(); }
+                }
+                io.deliver(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (feed != null) {
+                            returnMethod.onRequestFinished(feed, false);
+                        }
+                        else {
+                            returnMethod.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.NO_CACHE_OBJECT));
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Return window of cached feed, without loading remaining events. Cache is read on I/O thread and
+     * callback is called on main thread
+     *
+     * @param offset index of first event
+     * @param limit  maximal amount of events
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGFeed> getCachedFeedIfAvailable(int offset, int limit) {
+        TGCall<TGFeed> call = new TGCall<>();
+        getCachedFeedIfAvailable(offset, limit, call.callback());
+        return call;
+    }
+
+    /**
+     * Get memory-mapped snapshot of cached feed
+     *
+     * @return Snapshot or null if it is not available
+     */
+    @Nullable
+    synchronized TGFeedSnapshot getFeedSnapshot() {
+        if (mFeedSnapshot == null) {
+            mFeedSnapshot = TGFeedSnapshot.open(getSnapshotFile());
+        }
+        return mFeedSnapshot;
+    }
+
+    /**
+     * Rebuild snapshot from feed store on I/O thread, so next cold start reads feed from snapshot.
+     * Store is the only copy written on sync, snapshot is derived from it only when feed is read
+     */
+    private void rebuildFeedSnapshot() {
+        tapglue.getIOExecutor().write(SNAPSHOT_FILE, new Runnable() {
+            @Override
+            public void run() {
+                TGFeed feed = getFeedStore().readFeed(0, Integer.MAX_VALUE);
+                synchronized (TGFeedManager.this) {
+                    TGFeedSnapshot.write(getSnapshotFile(), feed);
+                    mFeedSnapshot = null;
+                }
+            }
+        });
+    }
+
+    /**
+     * Get file of feed snapshot
+     *
+     * @return Snapshot file
+     */
+    @NonNull
+    private File getSnapshotFile() {
+        return new File(tapglue.getContext().getCacheDir(), SNAPSHOT_FILE);
+    }
+
+    /**
+     * Get store of cached feed, importing feed cached by previous library versions if needed
+     *
+     * @return Feed store
+     */
+    @NonNull
+    synchronized TGFeedStore getFeedStore() {
+        if (mFeedStore == null) {
+            mFeedStore = new TGFeedStore(tapglue.getContext());
+            SharedPreferences cache = tapglue.getContext().getSharedPreferences(TGFeedManager.class.toString(), Context.MODE_PRIVATE);
+            if (cache.contains(CACHE_KEY)) {
+                TGFeed feed = new Gson().fromJson(cache.getString(CACHE_KEY, null), new TypeToken<TGFeed>() {
+                }.getType());
+                mFeedStore.saveFeed(feed);
+                cache.edit().remove(CACHE_KEY).apply();
+            }
+        }
+        return mFeedStore;
+    }
+
+    /**
+     * Get local tracker of unread events
+     *
+     * @return Unread tracker
+     */
+    @NonNull
+    synchronized TGUnreadTracker getUnreadTracker() {
+        if (mUnreadTracker == null) {
+            mUnreadTracker = new TGUnreadTracker(getFeedStore());
+        }
+        return mUnreadTracker;
+    }
+
+    /**
+     * Remove cached feed, its snapshot and read markers, when user changes. Memory state is cleared
+     * immediately, stored state on I/O thread - pending feed write of previous user is dropped
+     */
+    public void clearUserData() {
+        synchronized (this) {
+            mFeedSnapshot = null;
+            mClearPending = true;
+            mUserGeneration++;
+            if (mUnreadTracker != null) { mUnreadTracker.clear(); }
         }
-        else {
-            returnMethod.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.NO_CACHE_OBJECT));
+        tapglue.getIOExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                clearStoredUserData();
+            }
+        });
+    }
+
+    /**
+     * Remove stored data of previous user, unless it was done already. Called on I/O thread before
+     * feed is written too, as I/O tasks run pending writes of new user first
+     */
+    private void clearStoredUserData() {
+        synchronized (this) {
+            if (!mClearPending) { return; }
+            mClearPending = false;
+            mFeedSnapshot = null;
+            if (getSnapshotFile().exists() && !getSnapshotFile().delete()) {
+                tapglue.getLogger().log("Feed snapshot could not be removed");
+            }
         }
+        getFeedStore().clear();
+        getUnreadTracker().clear();
+    }
+
+    /**
+     * Check if event was read - marked as read locally or not counted as unread by server. It is
+     * answered from memory, so events are reported as not read until local tracker is loaded
+     *
+     * @param eventId ID of event
+     *
+     * @return true if event was read
+     */
+    @Override
+    public boolean isEventRead(@Nullable Long eventId) {
+        TGUnreadTracker tracker = mUnreadTracker;
+        return eventId != null && tracker != null && tracker.isLoaded() && tracker.isRead(eventId);
+    }
+
+    /**
+     * Check if unread count is served from local tracker without asking server. Reads local state,
+     * so it should not be called on main thread
+     *
+     * @return true if local count is known and reconcile interval did not pass yet
+     */
+    @Override
+    public boolean isUnreadCountFresh() {
+        TGUnreadTracker tracker = getUnreadTracker();
+        return tracker.getUnreadCount() != null &&
+                !tracker.needsReconciliation(tapglue.getConfiguration().getUnreadReconcileInterval());
+    }
+
+    /**
+     * Load local tracker of unread events on I/O thread, so read state of events is known in memory
+     */
+    public void loadUnreadTracker() {
+        tapglue.getIOExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                getUnreadTracker().load();
+            }
+        });
+    }
+
+    /**
+     * Mark events as read locally - they won't be counted in unread count anymore
+     *
+     * @param eventIds IDs of read events
+     */
+    @Override
+    public void markEventsAsRead(@NonNull List<Long> eventIds) {
+        final List<Long> ids = new ArrayList<>(eventIds);
+        tapglue.getIOExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                getUnreadTracker().markAsRead(ids);
+            }
+        });
+    }
+
+    /**
+     * Mark all unread events of cached feed as read locally
+     */
+    @Override
+    public void markFeedAsRead() {
+        tapglue.getIOExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                getUnreadTracker().markAllAsRead();
+            }
+        });
+    }
+
+    /**
+     * Ask server for count of unread feed elements, even if local count is fresh, and update local
+     * tracker with it. Callback is called once, with reconciled count or error
+     *
+     * @param returnMethod
+     */
+    @Override
+    public void refreshUnreadCountForCurrentUser(@NonNull final TGRequestCallback<TGFeedCount> returnMethod) {
+        if (tapglue.getUserManager().getCurrentUser() == null) {
+            returnMethod.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN));
+            return;
+        }
+        tapglue.getIOExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                reconcileUnreadCount(getUnreadTracker(), null, returnMethod);
+            }
+        });
+    }
+
+    /**
+     * Ask server for count of unread feed elements, even if local count is fresh, and update local
+     * tracker with it. Callback is called once, with reconciled count or error
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGFeedCount> refreshUnreadCountForCurrentUser() {
+        TGCall<TGFeedCount> call = new TGCall<>();
+        refreshUnreadCountForCurrentUser(call.callback());
+        return call;
     }
 
     /**
@@ -85,6 +407,19 @@ public class TGFeedManager extends AbstractTGManager implements TGFeedManagerInt
         tapglue.createRequest().getEvents(returnMethod);
     }
 
+    /**
+     * Get all event associated with current user
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGFeed> retrieveEventsForCurrentUser() {
+        TGCall<TGFeed> call = new TGCall<>();
+        retrieveEventsForCurrentUser(call.callback());
+        return call;
+    }
+
     /**
      * Get all events associated with user
      *
@@ -104,6 +439,21 @@ public class TGFeedManager extends AbstractTGManager implements TGFeedManagerInt
         tapglue.createRequest().getEvents(userId, returnMethod);
     }
 
+    /**
+     * Get all events associated with user
+     *
+     * @param userId
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGFeed> retrieveEventsForUser(@Nullable Long userId) {
+        TGCall<TGFeed> call = new TGCall<>();
+        retrieveEventsForUser(userId, call.callback());
+        return call;
+    }
+
     /**
      * Get live feed for current user
      *
@@ -134,6 +484,19 @@ public class TGFeedManager extends AbstractTGManager implements TGFeedManagerInt
         });
     }
 
+    /**
+     * Get live feed for current user
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGFeed> retrieveFeedForCurrentUser() {
+        TGCall<TGFeed> call = new TGCall<>();
+        retrieveFeedForCurrentUser(call.callback());
+        return call;
+    }
+
     /**
      * Get list of users who follow current user
      *
@@ -148,6 +511,19 @@ public class TGFeedManager extends AbstractTGManager implements TGFeedManagerInt
         tapglue.createRequest().getCurrentUserFollowers(returnMethod);
     }
 
+    /**
+     * Get list of users who follow current user
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGConnectionUsersList> retrieveFollowersForCurrentUser() {
+        TGCall<TGConnectionUsersList> call = new TGCall<>();
+        retrieveFollowersForCurrentUser(call.callback());
+        return call;
+    }
+
     /**
      * Get followers of selected user
      *
@@ -167,6 +543,21 @@ public class TGFeedManager extends AbstractTGManager implements TGFeedManagerInt
         tapglue.createRequest().getUserFollowed(userId, returnMethod);
     }
 
+    /**
+     * Get followers of selected user
+     *
+     * @param userId
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGConnectionUsersList> retrieveFollowersForUser(@Nullable Long userId) {
+        TGCall<TGConnectionUsersList> call = new TGCall<>();
+        retrieveFollowersForUser(userId, call.callback());
+        return call;
+    }
+
     /**
      * Get list of users current user follows
      *
@@ -181,6 +572,19 @@ public class TGFeedManager extends AbstractTGManager implements TGFeedManagerInt
         tapglue.createRequest().getCurrentUserFollowed(returnMethod);
     }
 
+    /**
+     * Get list of users current user follows
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGConnectionUsersList> retrieveFollowsForCurrentUser() {
+        TGCall<TGConnectionUsersList> call = new TGCall<>();
+        retrieveFollowsForCurrentUser(call.callback());
+        return call;
+    }
+
     /**
      * Get list of who selected user follows
      *
@@ -200,6 +604,21 @@ public class TGFeedManager extends AbstractTGManager implements TGFeedManagerInt
         tapglue.createRequest().getUserFollowers(userId, returnMethod);
     }
 
+    /**
+     * Get list of who selected user follows
+     *
+     * @param userId
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGConnectionUsersList> retrieveFollowsForUser(@Nullable Long userId) {
+        TGCall<TGConnectionUsersList> call = new TGCall<>();
+        retrieveFollowsForUser(userId, call.callback());
+        return call;
+    }
+
     /**
      * Get friends of current user
      *
@@ -214,6 +633,19 @@ public class TGFeedManager extends AbstractTGManager implements TGFeedManagerInt
         tapglue.createRequest().getCurrentUserFriends(returnMethod);
     }
 
+    /**
+     * Get friends of current user
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGConnectionUsersList> retrieveFriendsForCurrentUser() {
+        TGCall<TGConnectionUsersList> call = new TGCall<>();
+        retrieveFriendsForCurrentUser(call.callback());
+        return call;
+    }
+
     /**
      * Get friends for selected user
      *
@@ -234,17 +666,108 @@ public class TGFeedManager extends AbstractTGManager implements TGFeedManagerInt
     }
 
     /**
-     * Get count of unread feed elements
+     * Get friends for selected user
+     *
+     * @param userId
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGConnectionUsersList> retrieveFriendsForUser(@Nullable Long userId) {
+        TGCall<TGConnectionUsersList> call = new TGCall<>();
+        retrieveFriendsForUser(userId, call.callback());
+        return call;
+    }
+
+    /**
+     * Get count of unread feed elements. Count is served from local tracker when it is known - server
+     * is asked only when reconcile interval passed, and callback is called again if its count differs.
+     * Local state is read on I/O thread and callback is called on main thread
      *
      * @param returnMethod
      */
     @Override
-    public void retrieveUnreadCountForCurrentUser(@NonNull TGRequestCallback<TGFeedCount> returnMethod) {
+    public void retrieveUnreadCountForCurrentUser(@NonNull final TGRequestCallback<TGFeedCount> returnMethod) {
         if (tapglue.getUserManager().getCurrentUser() == null) {
             returnMethod.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN));
             return;
         }
-        tapglue.createRequest().getFeedCount(returnMethod);
+        final TGIOExecutor io = tapglue.getIOExecutor();
+        io.execute(new Runnable() {
+            @Override
+            public void run() {
+                final TGUnreadTracker tracker = getUnreadTracker();
+                final Long localCount = tracker.getUnreadCount();
+                final boolean reconcile = localCount == null ||
+                        tracker.needsReconciliation(tapglue.getConfiguration().getUnreadReconcileInterval());
+                io.deliver(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (localCount != null) {
+                            returnMethod.onRequestFinished(new TGFeedCount().setUnreadCount(localCount), false);
+                        }
+                        if (reconcile) { reconcileUnreadCount(tracker, localCount, returnMethod); }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Get count of unread feed elements. Count is served from local tracker when it is known - server
+     * is asked only when reconcile interval passed, and callback is called again if its count differs.
+     * Local state is read on I/O thread and callback is called on main thread
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGFeedCount> retrieveUnreadCountForCurrentUser() {
+        TGCall<TGFeedCount> call = new TGCall<>();
+        retrieveUnreadCountForCurrentUser(call.callback());
+        return call;
+    }
+
+    /**
+     * Ask server for unread count and update local tracker with it
+     *
+     * @param tracker      local tracker of unread events
+     * @param localCount   count already returned to callback, or null
+     * @param returnMethod
+     */
+    private void reconcileUnreadCount(@NonNull final TGUnreadTracker tracker, @Nullable final Long localCount, @NonNull final TGRequestCallback<TGFeedCount> returnMethod) {
+        final TGIOExecutor io = tapglue.getIOExecutor();
+        tapglue.createRequest().getFeedCount(new TGRequestCallback<TGFeedCount>() {
+            @Override
+            public boolean callbackIsEnabled() {
+                return returnMethod.callbackIsEnabled();
+            }
+
+            @Override
+            public void onRequestError(TGRequestErrorType cause) {
+                if (localCount == null) { returnMethod.onRequestError(cause); }
+            }
+
+            @Override
+            public void onRequestFinished(final TGFeedCount output, final boolean changeDoneOnline) {
+                if (output == null) { return; }
+                io.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        tracker.onServerCount(output.getUnreadCount());
+                        final Long count = tracker.getUnreadCount();
+                        if (localCount != null && localCount.equals(count)) { return; }
+                        io.deliver(new Runnable() {
+                            @Override
+                            public void run() {
+                                returnMethod.onRequestFinished(new TGFeedCount().setUnreadCount(count), changeDoneOnline);
+                            }
+                        });
+                    }
+                });
+            }
+        });
     }
 
     /**
@@ -262,18 +785,43 @@ public class TGFeedManager extends AbstractTGManager implements TGFeedManagerInt
     }
 
     /**
-     * Save feed to cache
+     * Get all unread feed
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGFeed> retrieveUnreadFeedForCurrentUser() {
+        TGCall<TGFeed> call = new TGCall<>();
+        retrieveUnreadFeedForCurrentUser(call.callback());
+        return call;
+    }
+
+    /**
+     * Save feed to cache - write is done on I/O thread, repeated saves are coalesced into one. Feed
+     * is upserted into feed store only, outdated snapshot is removed and rebuilt when feed is read
      *
      * @param output
      */
-    private void saveFeedToCache(@Nullable TGFeed output) {
-        SharedPreferences cache = tapglue.getContext().getSharedPreferences(TGFeedManager.class.toString(), Context.MODE_PRIVATE);
-        if (output == null) {
-            if (cache.contains(CACHE_KEY)) { cache.edit().remove(CACHE_KEY).apply(); }
-        }
-        else {
-            cache.edit().putString(CACHE_KEY, new Gson().toJson(output, new TypeToken<TGFeed>() {
-            }.getType())).apply();
+    private void saveFeedToCache(@Nullable final TGFeed output) {
+        final int generation;
+        synchronized (this) {
+            generation = mUserGeneration;
         }
+        tapglue.getIOExecutor().write(CACHE_KEY, new Runnable() {
+            @Override
+            public void run() {
+                clearStoredUserData();
+                synchronized (TGFeedManager.this) {
+                    if (generation != mUserGeneration) { return; }
+                }
+                getFeedStore().saveFeed(output);
+                synchronized (TGFeedManager.this) {
+                    TGFeedSnapshot.write(getSnapshotFile(), null);
+                    mFeedSnapshot = null;
+                }
+                getUnreadTracker().onFeedSynced(output);
+            }
+        });
     }
 }
@@ -20,32 +20,77 @@ package com.tapglue.managers;
 import com.tapglue.model.TGConnectionUsersList;
 import com.tapglue.model.TGFeed;
 import com.tapglue.model.TGFeedCount;
+import com.tapglue.networking.requests.TGCall;
 import com.tapglue.networking.requests.TGRequestCallback;
 
+import java.util.List;
+
 public interface TGFeedManagerInterface {
     void cachedFeedForCurrentUser(TGRequestCallback<TGFeed> returnMethod);
 
+    TGCall<TGFeed> cachedFeedForCurrentUser();
+
     void getCachedFeedIfAvailable(TGRequestCallback<TGFeed> returnMethod);
 
+    TGCall<TGFeed> getCachedFeedIfAvailable();
+
+    void getCachedFeedIfAvailable(int offset, int limit, TGRequestCallback<TGFeed> returnMethod);
+
+    TGCall<TGFeed> getCachedFeedIfAvailable(int offset, int limit);
+
+    boolean isEventRead(Long eventId);
+
+    boolean isUnreadCountFresh();
+
+    void markEventsAsRead(List<Long> eventIds);
+
+    void markFeedAsRead();
+
+    void refreshUnreadCountForCurrentUser(TGRequestCallback<TGFeedCount> returnMethod);
+
+    TGCall<TGFeedCount> refreshUnreadCountForCurrentUser();
+
     void retrieveEventsForCurrentUser(TGRequestCallback<TGFeed> returnMethod);
 
+    TGCall<TGFeed> retrieveEventsForCurrentUser();
+
     void retrieveEventsForUser(Long userId, TGRequestCallback<TGFeed> returnMethod);
 
+    TGCall<TGFeed> retrieveEventsForUser(Long userId);
+
     void retrieveFeedForCurrentUser(TGRequestCallback<TGFeed> returnMethod);
 
+    TGCall<TGFeed> retrieveFeedForCurrentUser();
+
     void retrieveFollowersForCurrentUser(TGRequestCallback<TGConnectionUsersList> returnMethod);
 
+    TGCall<TGConnectionUsersList> retrieveFollowersForCurrentUser();
+
     void retrieveFollowersForUser(Long userId, TGRequestCallback<TGConnectionUsersList> returnMethod);
 
+    TGCall<TGConnectionUsersList> retrieveFollowersForUser(Long userId);
+
     void retrieveFollowsForCurrentUser(TGRequestCallback<TGConnectionUsersList> returnMethod);
 
+    TGCall<TGConnectionUsersList> retrieveFollowsForCurrentUser();
+
     void retrieveFollowsForUser(Long userId, TGRequestCallback<TGConnectionUsersList> returnMethod);
 
+    TGCall<TGConnectionUsersList> retrieveFollowsForUser(Long userId);
+
     void retrieveFriendsForCurrentUser(TGRequestCallback<TGConnectionUsersList> returnMethod);
 
+    TGCall<TGConnectionUsersList> retrieveFriendsForCurrentUser();
+
     void retrieveFriendsForUser(Long userId, TGRequestCallback<TGConnectionUsersList> returnMethod);
 
+    TGCall<TGConnectionUsersList> retrieveFriendsForUser(Long userId);
+
     void retrieveUnreadCountForCurrentUser(TGRequestCallback<TGFeedCount> returnMethod);
 
+    TGCall<TGFeedCount> retrieveUnreadCountForCurrentUser();
+
     void retrieveUnreadFeedForCurrentUser(TGRequestCallback<TGFeed> returnMethod);
+
+    TGCall<TGFeed> retrieveUnreadFeedForCurrentUser();
 }
@@ -0,0 +1,449 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.managers;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.tapglue.cache.TGSocialDigest;
+import com.tapglue.model.TGConnection;
+import com.tapglue.model.TGPendingConnections;
+import com.tapglue.networking.TGNetworkRequests;
+import com.tapglue.networking.requests.TGRequestCallback;
+import com.tapglue.networking.requests.TGRequestErrorType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared poller of pending connections. Responses are fingerprinted, so listeners are called only
+ * with added and removed connections, and polling interval is doubled while nothing changes
+ */
+public class TGPendingConnectionsObserver {
+
+    /**
+     * Listener of pending connection changes
+     */
+    public interface Listener {
+        /**
+         * Called on callback executor when pending connections changed
+         *
+         * @param change added and removed connections
+         */
+        void onPendingConnectionsChanged(@NonNull Change change);
+    }
+
+    /**
+     * Added and removed pending connections
+     */
+    public static class Change {
+        /**
+         * Incoming connections not known before
+         */
+        @NonNull
+        private final List<TGConnection> mAddedIncoming;
+        /**
+         * Outgoing connections not known before
+         */
+        @NonNull
+        private final List<TGConnection> mAddedOutgoing;
+        /**
+         * Current pending connections
+         */
+        @NonNull
+        private final TGPendingConnections mConnections;
+        /**
+         * Incoming connections no longer pending
+         */
+        @NonNull
+        private final List<TGConnection> mRemovedIncoming;
+        /**
+         * Outgoing connections no longer pending
+         */
+        @NonNull
+        private final List<TGConnection> mRemovedOutgoing;
+
+        Change(@NonNull TGPendingConnections connections, @NonNull List<TGConnection> addedIncoming, @NonNull List<TGConnection> removedIncoming,
+               @NonNull List<TGConnection> addedOutgoing, @NonNull List<TGConnection> removedOutgoing) {
+            mConnections = connections;
+            mAddedIncoming = Collections.unmodifiableList(addedIncoming);
+            mRemovedIncoming = Collections.unmodifiableList(removedIncoming);
+            mAddedOutgoing = Collections.unmodifiableList(addedOutgoing);
+            mRemovedOutgoing = Collections.unmodifiableList(removedOutgoing);
+        }
+
+        /**
+         * Get incoming connections not known before
+         *
+         * @return Added incoming connections
+         */
+        @NonNull
+        public List<TGConnection> getAddedIncoming() {
+            return mAddedIncoming;
+        }
+
+        /**
+         * Get outgoing connections not known before
+         *
+         * @return Added outgoing connections
+         */
+        @NonNull
+        public List<TGConnection> getAddedOutgoing() {
+            return mAddedOutgoing;
+        }
+
+        /**
+         * Get current pending connections
+         *
+         * @return Pending connections
+         */
+        @NonNull
+        public TGPendingConnections getConnections() {
+            return mConnections;
+        }
+
+        /**
+         * Get incoming connections no longer pending
+         *
+         * @return Removed incoming connections
+         */
+        @NonNull
+        public List<TGConnection> getRemovedIncoming() {
+            return mRemovedIncoming;
+        }
+
+        /**
+         * Get outgoing connections no longer pending
+         *
+         * @return Removed outgoing connections
+         */
+        @NonNull
+        public List<TGConnection> getRemovedOutgoing() {
+            return mRemovedOutgoing;
+        }
+    }
+
+    /**
+     * Executor on which listeners are called
+     */
+    @NonNull
+    private final Executor mCallbackExecutor;
+    /**
+     * Polling interval used after change in milliseconds
+     */
+    private final long mInterval;
+    /**
+     * Registered listeners
+     */
+    @NonNull
+    private final List<Listener> mListeners = new CopyOnWriteArrayList<>();
+    /**
+     * Maximal polling interval in milliseconds
+     */
+    private final long mMaxInterval;
+    /**
+     * Source of requests
+     */
+    @NonNull
+    private final TGNetworkRequests mRequests;
+    /**
+     * Current polling interval in milliseconds
+     */
+    private long mCurrentInterval;
+    /**
+     * Last received connections, null before first response
+     */
+    @Nullable
+    private TGPendingConnections mCurrent;
+    /**
+     * Fingerprint of last received connections
+     */
+    private long mFingerprint;
+    /**
+     * Incremented when polling stops, so responses of old polls are ignored
+     */
+    private int mGeneration = 0;
+    /**
+     * Last received incoming connections by their key
+     */
+    @NonNull
+    private Map<String, TGConnection> mIncoming = new LinkedHashMap<>();
+    /**
+     * Scheduled poll
+     */
+    @Nullable
+    private ScheduledFuture<?> mNextPoll;
+    /**
+     * Last received outgoing connections by their key
+     */
+    @NonNull
+    private Map<String, TGConnection> mOutgoing = new LinkedHashMap<>();
+    /**
+     * Thread running polls, exists only while there are listeners
+     */
+    @Nullable
+    private ScheduledExecutorService mScheduler;
+
+    /**
+     * Create observer
+     *
+     * @param requests         source of requests
+     * @param callbackExecutor executor on which listeners are called
+     * @param interval         polling interval used after change in milliseconds
+     * @param maxInterval      maximal polling interval in milliseconds
+     */
+    public TGPendingConnectionsObserver(@NonNull TGNetworkRequests requests, @NonNull Executor callbackExecutor, long interval, long maxInterval) {
+        mRequests = requests;
+        mCallbackExecutor = callbackExecutor;
+        mInterval = Math.max(1, interval);
+        mMaxInterval = Math.max(mInterval, maxInterval);
+        mCurrentInterval = mInterval;
+    }
+
+    /**
+     * Compute order independent fingerprint of connections
+     *
+     * @param incoming incoming connections
+     * @param outgoing outgoing connections
+     *
+     * @return Fingerprint
+     */
+    static long fingerprint(@Nullable List<TGConnection> incoming, @Nullable List<TGConnection> outgoing) {
+        long fingerprint = 0;
+        if (incoming != null) {
+            for (TGConnection connection : incoming) {
+                fingerprint += TGSocialDigest.hash("in:" + key(connection));
+            }
+        }
+        if (outgoing != null) {
+            for (TGConnection connection : outgoing) {
+                fingerprint += TGSocialDigest.hash("out:" + key(connection));
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Create key identifying connection
+     *
+     * @param connection connection
+     *
+     * @return Connection key
+     */
+    @NonNull
+    static String key(@Nullable TGConnection connection) {
+        if (connection == null) { return ""; }
+        return connection.getType() + ":" + connection.getUserFromId() + ":" + connection.getUserToId() + ":" + connection.getState();
+    }
+
+    /**
+     * Map connections by their key
+     *
+     * @param connections list of connections
+     *
+     * @return Connections by key
+     */
+    @NonNull
+    private static Map<String, TGConnection> map(@Nullable List<TGConnection> connections) {
+        Map<String, TGConnection> map = new LinkedHashMap<>();
+        if (connections == null) { return map; }
+        for (TGConnection connection : connections) {
+            if (connection != null) { map.put(key(connection), connection); }
+        }
+        return map;
+    }
+
+    /**
+     * Get connections of first map missing in second one
+     *
+     * @param first  connections by key
+     * @param second connections by key
+     *
+     * @return Missing connections
+     */
+    @NonNull
+    private static List<TGConnection> missing(@NonNull Map<String, TGConnection> first, @NonNull Map<String, TGConnection> second) {
+        List<TGConnection> missing = new ArrayList<>();
+        for (Map.Entry<String, TGConnection> entry : first.entrySet()) {
+            if (!second.containsKey(entry.getKey())) { missing.add(entry.getValue()); }
+        }
+        return missing;
+    }
+
+    /**
+     * Register listener, first listener starts polling. If connections are already known, listener
+     * receives all of them as added
+     *
+     * @param listener listener
+     */
+    public synchronized void addListener(@NonNull final Listener listener) {
+        if (mListeners.contains(listener)) { return; }
+        mListeners.add(listener);
+        if (mScheduler == null) {
+            mScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "TGPendingConnectionsObserver");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            mCurrentInterval = mInterval;
+            schedule(0);
+        }
+        else if (mCurrent != null) {
+            final Change change = new Change(mCurrent, new ArrayList<>(mIncoming.values()), new ArrayList<TGConnection>(),
+                new ArrayList<>(mOutgoing.values()), new ArrayList<TGConnection>());
+            mCallbackExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (mListeners.contains(listener)) { listener.onPendingConnectionsChanged(change); }
+                }
+            });
+        }
+    }
+
+    /**
+     * Get current polling interval
+     *
+     * @return interval in milliseconds
+     */
+    public synchronized long getCurrentInterval() {
+        return mCurrentInterval;
+    }
+
+    /**
+     * Check if observer is polling
+     *
+     * @return true if there are listeners
+     */
+    public synchronized boolean isPolling() {
+        return mScheduler != null;
+    }
+
+    /**
+     * Poll immediately and reset polling interval
+     */
+    public synchronized void refresh() {
+        if (mScheduler == null) { return; }
+        mCurrentInterval = mInterval;
+        schedule(0);
+    }
+
+    /**
+     * Unregister listener, removal of last listener stops polling and forgets known connections
+     *
+     * @param listener listener
+     */
+    public synchronized void removeListener(@NonNull Listener listener) {
+        if (!mListeners.remove(listener) || !mListeners.isEmpty() || mScheduler == null) { return; }
+        mScheduler.shutdownNow();
+        mScheduler = null;
+        mNextPoll = null;
+        mGeneration++;
+        mCurrent = null;
+        mFingerprint = 0;
+        mIncoming = new LinkedHashMap<>();
+        mOutgoing = new LinkedHashMap<>();
+    }
+
+    /**
+     * Handle result of poll, notify listeners and schedule next poll
+     *
+     * @param generation  generation of poll
+     * @param connections received connections, null on error
+     */
+    synchronized void onPollFinished(int generation, @Nullable TGPendingConnections connections) {
+        if (generation != mGeneration) { return; }
+        final Change change = connections != null ? update(connections) : null;
+        mCurrentInterval = change != null ? mInterval : Math.min(mCurrentInterval * 2, mMaxInterval);
+        if (mScheduler != null) { schedule(mCurrentInterval); }
+        if (change == null) { return; }
+        mCallbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Listener listener : mListeners) {
+                    listener.onPendingConnectionsChanged(change);
+                }
+            }
+        });
+    }
+
+    /**
+     * Compare received connections with known ones
+     *
+     * @param connections received connections
+     *
+     * @return Change or null if nothing changed
+     */
+    @Nullable
+    synchronized Change update(@NonNull TGPendingConnections connections) {
+        long fingerprint = fingerprint(connections.getIncoming(), connections.getOutgoing());
+        if (mCurrent != null && fingerprint == mFingerprint) { return null; }
+        Map<String, TGConnection> incoming = map(connections.getIncoming());
+        Map<String, TGConnection> outgoing = map(connections.getOutgoing());
+        Change change = new Change(connections, missing(incoming, mIncoming), missing(mIncoming, incoming),
+            missing(outgoing, mOutgoing), missing(mOutgoing, outgoing));
+        mCurrent = connections;
+        mFingerprint = fingerprint;
+        mIncoming = incoming;
+        mOutgoing = outgoing;
+        return change;
+    }
+
+    /**
+     * Schedule next poll, replacing already scheduled one
+     *
+     * @param delay delay in milliseconds
+     */
+    private void schedule(long delay) {
+        if (mNextPoll != null) { mNextPoll.cancel(false); }
+        final int generation = mGeneration;
+        mNextPoll = mScheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                mRequests.refreshPendingConnectionsRequest(new TGRequestCallback<TGPendingConnections>() {
+                    @Override
+                    public boolean callbackIsEnabled() {
+                        return true;
+                    }
+
+                    @Override
+                    public void onRequestError(TGRequestErrorType cause) {
+                        onPollFinished(generation, null);
+                    }
+
+                    @Override
+                    public void onRequestFinished(TGPendingConnections output, boolean changeDoneOnline) {
+                        onPollFinished(generation, output);
+                    }
+                });
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.managers;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.tapglue.model.TGConnectionUser;
+import com.tapglue.model.TGConnectionUsersList;
+import com.tapglue.networking.TGNetworkRequests;
+import com.tapglue.networking.TGRequest;
+import com.tapglue.networking.requests.TGRequestCallback;
+import com.tapglue.networking.requests.TGRequestErrorType;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search-as-you-type session. Queries are debounced, superseded requests are cancelled and their
+ * results are never delivered. Refinements of earlier queries are answered immediately by
+ * filtering cached results, then revalidated with server, so callback can be called twice for one
+ * query. Cached and server results are both delivered on callback executor
+ */
+public class TGSearchSession {
+    /**
+     * Time after which cached results are revalidated in milliseconds
+     */
+    static final long CACHE_TTL = 60 * 1000;
+    /**
+     * Maximal amount of cached queries
+     */
+    static final int MAX_CACHED_QUERIES = 32;
+
+    /**
+     * Callback receiving results of current query
+     */
+    @NonNull
+    private final TGRequestCallback<TGConnectionUsersList> mCallback;
+    /**
+     * Executor on which callback is called
+     */
+    @NonNull
+    private final Executor mCallbackExecutor;
+    /**
+     * Time without new query after which request is sent, in milliseconds
+     */
+    private final long mDebounce;
+    /**
+     * Source of requests
+     */
+    @NonNull
+    private final TGNetworkRequests mRequests;
+    /**
+     * Cached results by query, least recently used first
+     */
+    @NonNull
+    private final Map<String, CachedResult> mResults = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+            return size() > MAX_CACHED_QUERIES;
+        }
+    };
+    /**
+     * Scheduler of debounced requests
+     */
+    @NonNull
+    private final ScheduledExecutorService mScheduler;
+    /**
+     * Was session closed?
+     */
+    private boolean mClosed = false;
+    /**
+     * Incremented with every query, so results of superseded queries are dropped
+     */
+    private int mGeneration = 0;
+    /**
+     * Request sent for current query
+     */
+    @Nullable
+    private TGRequest<?, ?> mInFlight;
+    /**
+     * Debounced request of current query
+     */
+    @Nullable
+    private ScheduledFuture<?> mPending;
+    /**
+     * Current normalized query
+     */
+    @Nullable
+    private String mQuery;
+
+    /**
+     * Create session
+     *
+     * @param requests         source of requests
+     * @param scheduler        scheduler of debounced requests
+     * @param callbackExecutor executor on which callback is called
+     * @param debounce         time without new query after which request is sent, in milliseconds
+     * @param callback         callback receiving results of current query
+     */
+    TGSearchSession(@NonNull TGNetworkRequests requests, @NonNull ScheduledExecutorService scheduler, @NonNull Executor callbackExecutor,
+                    long debounce, @NonNull TGRequestCallback<TGConnectionUsersList> callback) {
+        mRequests = requests;
+        mScheduler = scheduler;
+        mCallbackExecutor = callbackExecutor;
+        mDebounce = Math.max(0, debounce);
+        mCallback = callback;
+    }
+
+    /**
+     * Keep only users matching all words of query
+     *
+     * @param users users to filter
+     * @param query normalized query
+     *
+     * @return Matching users
+     */
+    @NonNull
+    static TGConnectionUsersList filter(@NonNull TGConnectionUsersList users, @NonNull String query) {
+        String[] words = query.split(" ");
+        List<TGConnectionUser> result = new ArrayList<>();
+        if (users.getUsers() != null) {
+            for (TGConnectionUser user : users.getUsers()) {
+                if (user != null && matches(user, words)) { result.add(user); }
+            }
+        }
+        return new TGConnectionUsersList().setUsers(result);
+    }
+
+    /**
+     * Check if every word is part of any name of user
+     *
+     * @param user  checked user
+     * @param words lower case words
+     *
+     * @return true if user matches
+     */
+    private static boolean matches(@NonNull TGConnectionUser user, @NonNull String[] words) {
+        for (String word : words) {
+            if (!contains(user.getUserName(), word) && !contains(user.getFirstName(), word) && !contains(user.getLastName(), word)) { return false; }
+        }
+        return true;
+    }
+
+    /**
+     * Check case insensitively if value contains word
+     *
+     * @param value checked value
+     * @param word  lower case word
+     *
+     * @return true if word is part of value
+     */
+    private static boolean contains(@Nullable String value, @NonNull String word) {
+        return value != null && value.toLowerCase(Locale.US).contains(word);
+    }
+
+    /**
+     * Normalize query so equal queries share cached results
+     *
+     * @param query query
+     *
+     * @return Lower case query with single spaces
+     */
+    @NonNull
+    static String normalize(@Nullable String query) {
+        if (query == null) { return ""; }
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.US);
+    }
+
+    /**
+     * Get current time used for cached results age
+     *
+     * @return time in milliseconds
+     */
+    private static long now() {
+        return System.nanoTime() / 1000000;
+    }
+
+    /**
+     * Stop session - pending and running requests are cancelled and callback isn't called anymore
+     */
+    public synchronized void close() {
+        mClosed = true;
+        mGeneration++;
+        cancelRequests();
+    }
+
+    /**
+     * Get current query
+     *
+     * @return Normalized query or null if none was set
+     */
+    @Nullable
+    public synchronized String getQuery() {
+        return mQuery;
+    }
+
+    /**
+     * Set new query, typically on every change of search field. Cached results of query or of its
+     * shorter prefix are delivered immediately, request is sent when no other query is set for
+     * debounce time
+     *
+     * @param query searched text
+     */
+    public synchronized void setQuery(@Nullable String query) {
+        final String normalized = normalize(query);
+        if (mClosed || normalized.equals(mQuery)) { return; }
+        mQuery = normalized;
+        final int generation = ++mGeneration;
+        cancelRequests();
+        if (normalized.isEmpty()) { return; }
+
+        CachedResult cached = mResults.get(normalized);
+        if (cached != null) {
+            deliver(generation, cached.mUsers);
+            if (now() - cached.mTime < CACHE_TTL) { return; }
+        }
+        else {
+            TGConnectionUsersList prefixResult = findPrefixResult(normalized);
+            if (prefixResult != null) { deliver(generation, filter(prefixResult, normalized)); }
+        }
+        mPending = mScheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                send(generation, normalized);
+            }
+        }, mDebounce, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancel debounced and running requests
+     */
+    private void cancelRequests() {
+        if (mPending != null) {
+            mPending.cancel(false);
+            mPending = null;
+        }
+        if (mInFlight != null) {
+            mInFlight.cancel();
+            mInFlight = null;
+        }
+    }
+
+    /**
+     * Deliver cached results on callback executor if query is still current
+     *
+     * @param generation generation of query
+     * @param users      results
+     */
+    private void deliver(final int generation, @NonNull final TGConnectionUsersList users) {
+        mCallbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (isCurrent(generation)) { mCallback.onRequestFinished(users, false); }
+            }
+        });
+    }
+
+    /**
+     * Find cached results of longest prefix of query
+     *
+     * @param query normalized query
+     *
+     * @return Results or null if no prefix is cached
+     */
+    @Nullable
+    private TGConnectionUsersList findPrefixResult(@NonNull String query) {
+        String best = null;
+        for (String cachedQuery : mResults.keySet()) {
+            if (query.startsWith(cachedQuery) && (best == null || cachedQuery.length() > best.length())) { best = cachedQuery; }
+        }
+        return best != null ? mResults.get(best).mUsers : null;
+    }
+
+    /**
+     * Check if query of generation is still current
+     *
+     * @param generation generation of query
+     *
+     * @return true if results can be delivered
+     */
+    private synchronized boolean isCurrent(int generation) {
+        return !mClosed && generation == mGeneration;
+    }
+
+    /**
+     * Send request for query
+     *
+     * @param generation generation of query
+     * @param query      normalized query
+     */
+    private synchronized void send(final int generation, @NonNull final String query) {
+        if (!isCurrent(generation)) { return; }
+        mPending = null;
+        mInFlight = mRequests.search(query, new TGRequestCallback<TGConnectionUsersList>() {
+            @Override
+            public boolean callbackIsEnabled() {
+                return isCurrent(generation);
+            }
+
+            @Override
+            public void onRequestError(final TGRequestErrorType cause) {
+                mCallbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (isCurrent(generation)) { mCallback.onRequestError(cause); }
+                    }
+                });
+            }
+
+            @Override
+            public void onRequestFinished(final TGConnectionUsersList output, final boolean changeDoneOnline) {
+                synchronized (TGSearchSession.this) {
+                    if (output != null) { mResults.put(query, new CachedResult(output, now())); }
+                    if (!isCurrent(generation)) { return; }
+                    mInFlight = null;
+                }
+                mCallbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (isCurrent(generation)) { mCallback.onRequestFinished(output, changeDoneOnline); }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Results of query with time they were received
+     */
+    private static class CachedResult {
+        /**
+         * Time of receiving in milliseconds
+         */
+        final long mTime;
+        /**
+         * Received users
+         */
+        @NonNull
+        final TGConnectionUsersList mUsers;
+
+        CachedResult(@NonNull TGConnectionUsersList users, long time) {
+            mUsers = users;
+            mTime = time;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.managers;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.tapglue.Tapglue;
+import com.tapglue.cache.TGIOExecutor;
+import com.tapglue.cache.TGSocialDigest;
+import com.tapglue.model.TGConnectionUser;
+import com.tapglue.model.TGConnectionUsersList;
+import com.tapglue.model.TGSocialConnections;
+import com.tapglue.networking.requests.TGProgressCallback;
+import com.tapglue.networking.requests.TGRequestCallback;
+import com.tapglue.networking.requests.TGRequestErrorType;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Upload of social connections - only IDs missing in digest of previous uploads are sent, in chunks
+ * sent one after another. Digest is updated after every chunk, so interrupted upload continues
+ * where it stopped
+ */
+class TGSocialConnectionsUpload {
+    /**
+     * Digest of uploaded IDs, opened on I/O thread
+     */
+    private TGSocialDigest mDigest;
+    /**
+     * IDs which should be uploaded
+     */
+    private List<String> mPending;
+    /**
+     * Amount of uploaded IDs
+     */
+    private int mUploaded = 0;
+    /**
+     * Callback of caller
+     */
+    @NonNull
+    private final TGRequestCallback<TGConnectionUsersList> mOutput;
+    /**
+     * Progress callback of caller
+     */
+    @Nullable
+    private final TGProgressCallback mProgress;
+    /**
+     * Users from responses of all chunks, by ID
+     */
+    @NonNull
+    private final Map<Long, TGConnectionUser> mUsers = new LinkedHashMap<>();
+    /**
+     * Uploaded social data
+     */
+    @NonNull
+    private final TGSocialConnections mSocialData;
+    /**
+     * Tapglue instance
+     */
+    @NonNull
+    private final Tapglue tapglue;
+
+    TGSocialConnectionsUpload(@NonNull Tapglue tapglue, @NonNull TGSocialConnections socialData, @Nullable TGProgressCallback progress, @NonNull TGRequestCallback<TGConnectionUsersList> output) {
+        this.tapglue = tapglue;
+        mSocialData = socialData;
+        mProgress = progress;
+        mOutput = output;
+    }
+
+    /**
+     * Deliver merged result of all chunks
+     */
+    private void finish() {
+        List<TGConnectionUser> users = new ArrayList<>(mUsers.values());
+        if (mOutput.callbackIsEnabled()) {
+            mOutput.onRequestFinished(new TGConnectionUsersList().setUsers(users), true);
+        }
+    }
+
+    /**
+     * Upload next chunk, or finish when all are uploaded
+     */
+    private void sendNextChunk() {
+        if (mUploaded >= mPending.size()) {
+            finish();
+            return;
+        }
+        int chunkSize = Math.max(1, tapglue.getConfiguration().getSocialUploadChunkSize());
+        final List<String> chunk = new ArrayList<>(mPending.subList(mUploaded, Math.min(mPending.size(), mUploaded + chunkSize)));
+        TGSocialConnections chunkData = new TGSocialConnections()
+            .setPlatform(mSocialData.getPlatform())
+            .setPlatformId(mSocialData.getPlatformId())
+            .setConnectionsIds(chunk);
+        if (mSocialData.getType() != null) { chunkData.setType(mSocialData.getType()); }
+        tapglue.createRequest().socialConnections(chunkData, new TGRequestCallback<TGConnectionUsersList>() {
+            @Override
+            public boolean callbackIsEnabled() {
+                return true;
+            }
+
+            @Override
+            public void onRequestError(TGRequestErrorType cause) {
+                if (mOutput.callbackIsEnabled()) { mOutput.onRequestError(cause); }
+            }
+
+            @Override
+            public void onRequestFinished(TGConnectionUsersList output, boolean changeDoneOnline) {
+                if (output != null && output.getUsers() != null) {
+                    for (TGConnectionUser user : output.getUsers()) {
+                        if (user != null && user.getID() != null) { mUsers.put(user.getID(), user); }
+                    }
+                }
+                mUploaded += chunk.size();
+                tapglue.getIOExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        mDigest.markUploaded(chunk);
+                    }
+                });
+                if (mProgress != null && mOutput.callbackIsEnabled()) { mProgress.onProgress(mUploaded, mPending.size()); }
+                sendNextChunk();
+            }
+        });
+    }
+
+    /**
+     * Start upload - digest is read on I/O thread and chunks are sent from main thread
+     *
+     * @param userId ID of current user
+     */
+    void start(final long userId) {
+        final TGIOExecutor io = tapglue.getIOExecutor();
+        io.execute(new Runnable() {
+            @Override
+            public void run() {
+                mDigest = TGSocialDigest.open(TGSocialDigest.fileFor(tapglue.getContext().getFilesDir(), userId,
+                    mSocialData.getPlatform(), mSocialData.getPlatformId()));
+                mPending = mDigest.filterNew(mSocialData.getPlatformConnectionsId());
+                io.deliver(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mProgress != null && mOutput.callbackIsEnabled()) { mProgress.onProgress(0, mPending.size()); }
+                        sendNextChunk();
+                    }
+                });
+            }
+        });
+    }
+}
@@ -28,21 +28,43 @@ import com.tapglue.Tapglue;
 import com.tapglue.model.TGConnectionUsersList;
 import com.tapglue.model.TGSocialConnections;
 import com.tapglue.model.TGUser;
+import com.tapglue.networking.requests.TGCall;
+import com.tapglue.networking.requests.TGProgressCallback;
 import com.tapglue.networking.requests.TGRequestCallback;
 import com.tapglue.networking.requests.TGRequestErrorType;
+import com.tapglue.prefetch.TGPrefetchScheduler;
 import com.tapglue.utils.TGPasswordHasher;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
 public class TGUserManager extends AbstractTGManager implements TGUserManagerInterface {
     private static final String CACHE_KEY = "USER_CACHE";
     /**
      * Currently logged in user
      */
     @Nullable
-    private TGUser mCurrentUser;
+    private volatile TGUser mCurrentUser;
+    /**
+     * Was current user loaded from cache or set by login?
+     */
+    private volatile boolean mCurrentUserLoaded = false;
+    /**
+     * Executor hashing passwords, its thread keeps key factory between hashes
+     */
+    @Nullable
+    private ExecutorService mHashExecutor;
+    /**
+     * Scheduler of debounced search requests shared by search sessions
+     */
+    @Nullable
+    private ScheduledExecutorService mSearchScheduler;
 
     public TGUserManager(Tapglue tgInstance) {
         super(tgInstance);
-        tryToLoadUserFromCache();
     }
 
     /**
@@ -58,26 +80,48 @@ public class TGUserManager extends AbstractTGManager implements TGUserManagerInt
             return;
         }
 
-        tapglue.createRequest().createUser(user.setPassword(TGPasswordHasher.hashPassword(user.getPassword())), new TGRequestCallback<TGUser>() {
+        final TGUser newUser = user;
+        withHashedPassword(user.getPassword(), new HashedPasswordTask() {
             @Override
-            public boolean callbackIsEnabled() {
-                return callback.callbackIsEnabled();
-            }
+            public void run(String hashedPassword) {
+                tapglue.createRequest().createUser(newUser.setPassword(hashedPassword), new TGRequestCallback<TGUser>() {
+                    @Override
+                    public boolean callbackIsEnabled() {
+                        return callback.callbackIsEnabled();
+                    }
 
-            @Override
-            public void onRequestError(TGRequestErrorType cause) {
-                callback.onRequestError(cause);
-            }
+                    @Override
+                    public void onRequestError(TGRequestErrorType cause) {
+                        callback.onRequestError(cause);
+                    }
 
-            @Override
-            public void onRequestFinished(TGUser output, boolean changeDoneOnline) {
-                mCurrentUser = output;
-                saveCurrentUserToCache();
-                callback.onRequestFinished(true, true);
+                    @Override
+                    public void onRequestFinished(TGUser output, boolean changeDoneOnline) {
+                        setCurrentUser(output);
+                        saveCurrentUserToCache();
+                        tapglue.getPrefetchScheduler().onTrigger(TGPrefetchScheduler.Trigger.LOGIN);
+                        callback.onRequestFinished(true, true);
+                    }
+                });
             }
         });
     }
 
+    /**
+     * Create user and login into Tapglue library
+     *
+     * @param user Custom user data
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<Boolean> createAndLoginUser(@Nullable TGUser user) {
+        TGCall<Boolean> call = new TGCall<>();
+        createAndLoginUser(user, call.callback());
+        return call;
+    }
+
     /**
      * Create user with selected params and login into Tapglue library
      *
@@ -87,31 +131,55 @@ public class TGUserManager extends AbstractTGManager implements TGUserManagerInt
      * @param callback
      */
     @Override
-    public void createAndLoginUserWithUsernameAndMail(String userName, @NonNull String password, String email, @NonNull final TGRequestCallback<Boolean> callback) {
+    public void createAndLoginUserWithUsernameAndMail(final String userName, @NonNull String password, final String email, @NonNull final TGRequestCallback<Boolean> callback) {
         if (TextUtils.isEmpty(userName) || TextUtils.isEmpty(password) || TextUtils.isEmpty(email)) {
             callback.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.NULL_INPUT));
+            return;
         }
 
-        tapglue.createRequest().createUser(new TGUser().setUserName(userName).setPassword(TGPasswordHasher.hashPassword(password)).setEmail(email), new TGRequestCallback<TGUser>() {
+        withHashedPassword(password, new HashedPasswordTask() {
             @Override
-            public boolean callbackIsEnabled() {
-                return callback.callbackIsEnabled();
-            }
+            public void run(String hashedPassword) {
+                tapglue.createRequest().createUser(new TGUser().setUserName(userName).setPassword(hashedPassword).setEmail(email), new TGRequestCallback<TGUser>() {
+                    @Override
+                    public boolean callbackIsEnabled() {
+                        return callback.callbackIsEnabled();
+                    }
 
-            @Override
-            public void onRequestError(TGRequestErrorType cause) {
-                callback.onRequestError(cause);
-            }
+                    @Override
+                    public void onRequestError(TGRequestErrorType cause) {
+                        callback.onRequestError(cause);
+                    }
 
-            @Override
-            public void onRequestFinished(TGUser output, boolean changeDoneOnline) {
-                mCurrentUser = output;
-                saveCurrentUserToCache();
-                callback.onRequestFinished(true, true);
+                    @Override
+                    public void onRequestFinished(TGUser output, boolean changeDoneOnline) {
+                        setCurrentUser(output);
+                        saveCurrentUserToCache();
+                        tapglue.getPrefetchScheduler().onTrigger(TGPrefetchScheduler.Trigger.LOGIN);
+                        callback.onRequestFinished(true, true);
+                    }
+                });
             }
         });
     }
 
+    /**
+     * Create user with selected params and login into Tapglue library
+     *
+     * @param userName
+     * @param password
+     * @param email
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<Boolean> createAndLoginUserWithUsernameAndMail(String userName, @NonNull String password, String email) {
+        TGCall<Boolean> call = new TGCall<>();
+        createAndLoginUserWithUsernameAndMail(userName, password, email, call.callback());
+        return call;
+    }
+
     /**
      * Delete current user and logout
      *
@@ -119,7 +187,7 @@ public class TGUserManager extends AbstractTGManager implements TGUserManagerInt
      */
     @Override
     public void deleteCurrentUser(@NonNull final TGRequestCallback<Boolean> output) {
-        if (mCurrentUser == null) {
+        if (getCurrentUser() == null) {
             output.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN));
             return;
         }
@@ -136,7 +204,7 @@ public class TGUserManager extends AbstractTGManager implements TGUserManagerInt
 
             @Override
             public void onRequestFinished(Object out, boolean changeDoneOnline) {
-                mCurrentUser = null;
+                setCurrentUser(null);
                 saveCurrentUserToCache();
                 output.onRequestFinished(true, true);
             }
@@ -144,16 +212,42 @@ public class TGUserManager extends AbstractTGManager implements TGUserManagerInt
     }
 
     /**
-     * Get current Tapglue user
+     * Delete current user and logout
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<Boolean> deleteCurrentUser() {
+        TGCall<Boolean> call = new TGCall<>();
+        deleteCurrentUser(call.callback());
+        return call;
+    }
+
+    /**
+     * Get current Tapglue user - waits for deferred initialization, which loads cached user
      *
      * @return
      */
     @Nullable
     @Override
     public TGUser getCurrentUser() {
+        if (!mCurrentUserLoaded) { tapglue.awaitInitialization(); }
+        // called by initialization before user was loaded, or initialization failed
+        if (!mCurrentUserLoaded) { tryToLoadUserFromCache(); }
         return mCurrentUser;
     }
 
+    /**
+     * Set current user - it won't be overwritten by user loaded from cache anymore
+     *
+     * @param user new current user
+     */
+    private synchronized void setCurrentUser(@Nullable TGUser user) {
+        mCurrentUser = user;
+        mCurrentUserLoaded = true;
+    }
+
     /**
      * Try to login user into Tapglue
      *
@@ -162,31 +256,57 @@ public class TGUserManager extends AbstractTGManager implements TGUserManagerInt
      * @param output
      */
     @Override
-    public void login(String userName, @NonNull String password, @NonNull final TGRequestCallback<Boolean> output) {
+    public void login(final String userName, @NonNull String password, @NonNull final TGRequestCallback<Boolean> output) {
         if (!tapglue.isCorrectConfig()) {
             output.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.NO_TOKEN_FOUND));
             return;
         }
-        tapglue.createRequest().login(new TGUser().setUserName(userName).setPassword(TGPasswordHasher.hashPassword(password)), new TGRequestCallback<TGUser>() {
+        if (TextUtils.isEmpty(password)) {
+            output.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.NULL_INPUT));
+            return;
+        }
+        withHashedPassword(password, new HashedPasswordTask() {
             @Override
-            public boolean callbackIsEnabled() {
-                return output.callbackIsEnabled();
-            }
+            public void run(String hashedPassword) {
+                tapglue.createRequest().login(new TGUser().setUserName(userName).setPassword(hashedPassword), new TGRequestCallback<TGUser>() {
+                    @Override
+                    public boolean callbackIsEnabled() {
+                        return output.callbackIsEnabled();
+                    }
 
-            @Override
-            public void onRequestError(TGRequestErrorType cause) {
-                output.onRequestError(cause);
-            }
+                    @Override
+                    public void onRequestError(TGRequestErrorType cause) {
+                        output.onRequestError(cause);
+                    }
 
-            @Override
-            public void onRequestFinished(TGUser userData, boolean changeDoneOnline) {
-                mCurrentUser = userData;
-                saveCurrentUserToCache();
-                output.onRequestFinished(true, true);
+                    @Override
+                    public void onRequestFinished(TGUser userData, boolean changeDoneOnline) {
+                        setCurrentUser(userData);
+                        saveCurrentUserToCache();
+                        tapglue.getPrefetchScheduler().onTrigger(TGPrefetchScheduler.Trigger.LOGIN);
+                        output.onRequestFinished(true, true);
+                    }
+                });
             }
         });
     }
 
+    /**
+     * Try to login user into Tapglue
+     *
+     * @param userName
+     * @param password
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<Boolean> login(String userName, @NonNull String password) {
+        TGCall<Boolean> call = new TGCall<>();
+        login(userName, password, call.callback());
+        return call;
+    }
+
     /**
      * Logout from system
      *
@@ -194,7 +314,7 @@ public class TGUserManager extends AbstractTGManager implements TGUserManagerInt
      */
     @Override
     public void logout(@NonNull final TGRequestCallback<Boolean> output) {
-        if (mCurrentUser == null) {
+        if (getCurrentUser() == null) {
             output.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN));
             return;
         }
@@ -208,7 +328,7 @@ public class TGUserManager extends AbstractTGManager implements TGUserManagerInt
             public void onRequestError(TGRequestErrorType cause) {
                 if (cause.getCode().intValue() == 1001) {
                     // "user not found on server"
-                    mCurrentUser = null;
+                    setCurrentUser(null);
                     saveCurrentUserToCache();
                     output.onRequestFinished(true, true);
                 }
@@ -217,13 +337,26 @@ public class TGUserManager extends AbstractTGManager implements TGUserManagerInt
 
             @Override
             public void onRequestFinished(Object out, boolean changeDoneOnline) {
-                mCurrentUser = null;
+                setCurrentUser(null);
                 saveCurrentUserToCache();
                 output.onRequestFinished(true, true);
             }
         });
     }
 
+    /**
+     * Logout from system
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<Boolean> logout() {
+        TGCall<Boolean> call = new TGCall<>();
+        logout(call.callback());
+        return call;
+    }
+
     /**
      * Save changes to current user
      *
@@ -232,7 +365,7 @@ public class TGUserManager extends AbstractTGManager implements TGUserManagerInt
      */
     @Override
     public void saveChangesToCurrentUser(@Nullable final TGUser updated, @NonNull final TGRequestCallback<Boolean> output) {
-        if (mCurrentUser == null) {
+        if (getCurrentUser() == null) {
             output.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN));
             return;
         }
@@ -257,7 +390,7 @@ public class TGUserManager extends AbstractTGManager implements TGUserManagerInt
 
             @Override
             public void onRequestFinished(TGUser user, boolean changeDoneOnline) {
-                mCurrentUser = user;
+                setCurrentUser(user);
                 saveCurrentUserToCache();
                 output.onRequestFinished(true, true);
             }
@@ -265,16 +398,76 @@ public class TGUserManager extends AbstractTGManager implements TGUserManagerInt
     }
 
     /**
-     * Save current user to cache
+     * Save changes to current user
+     *
+     * @param updated
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<Boolean> saveChangesToCurrentUser(@Nullable TGUser updated) {
+        TGCall<Boolean> call = new TGCall<>();
+        saveChangesToCurrentUser(updated, call.callback());
+        return call;
+    }
+
+    /**
+     * Save current user to cache - write is done on I/O thread, repeated saves are coalesced into one
      */
     public void saveCurrentUserToCache() {
-        SharedPreferences cache = tapglue.getContext().getSharedPreferences(TGUserManager.class.toString(), Context.MODE_PRIVATE);
-        if (mCurrentUser == null) {
-            if (cache.contains(CACHE_KEY)) { cache.edit().remove(CACHE_KEY).apply(); }
-        }
-        else {
-            cache.edit().putString(CACHE_KEY, new Gson().toJson(mCurrentUser)).apply();
+        tapglue.getIOExecutor().write(CACHE_KEY, new Runnable() {
+            @Override
+            public void run() {
+                SharedPreferences cache = tapglue.getContext().getSharedPreferences(TGUserManager.class.toString(), Context.MODE_PRIVATE);
+                TGUser user = getCurrentUser();
+                if (user == null) {
+                    if (cache.contains(CACHE_KEY)) { cache.edit().remove(CACHE_KEY).apply(); }
+                }
+                else {
+                    cache.edit().putString(CACHE_KEY, new Gson().toJson(user)).apply();
+                }
+            }
+        });
+    }
+
+    /**
+     * Create search-as-you-type session. Results of cached queries and of requests are delivered
+     * on main thread
+     *
+     * @param callback callback receiving results of current query
+     *
+     * @return Search session
+     */
+    @NonNull
+    @Override
+    public TGSearchSession createSearchSession(@NonNull TGRequestCallback<TGConnectionUsersList> callback) {
+        return new TGSearchSession(tapglue.createRequest(), getSearchScheduler(), new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                tapglue.getIOExecutor().deliver(command);
+            }
+        }, tapglue.getConfiguration().getSearchDebounce(), callback);
+    }
+
+    /**
+     * Get scheduler of debounced search requests
+     *
+     * @return Search scheduler
+     */
+    @NonNull
+    private synchronized ScheduledExecutorService getSearchScheduler() {
+        if (mSearchScheduler == null) {
+            mSearchScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "TGSearchSession");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
         }
+        return mSearchScheduler;
     }
 
     /**
@@ -285,7 +478,7 @@ public class TGUserManager extends AbstractTGManager implements TGUserManagerInt
      */
     @Override
     public void search(String searchCriteria, @NonNull TGRequestCallback<TGConnectionUsersList> output) {
-        if (mCurrentUser == null) {
+        if (getCurrentUser() == null) {
             output.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN));
             return;
         }
@@ -296,6 +489,21 @@ public class TGUserManager extends AbstractTGManager implements TGUserManagerInt
         tapglue.createRequest().search(searchCriteria, output);
     }
 
+    /**
+     * Search request
+     *
+     * @param searchCriteria
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGConnectionUsersList> search(String searchCriteria) {
+        TGCall<TGConnectionUsersList> call = new TGCall<>();
+        search(searchCriteria, call.callback());
+        return call;
+    }
+
     /**
      * Update social connections
      *
@@ -304,7 +512,35 @@ public class TGUserManager extends AbstractTGManager implements TGUserManagerInt
      */
     @Override
     public void socialConnections(@Nullable TGSocialConnections socialData, @NonNull TGRequestCallback<TGConnectionUsersList> output) {
-        if (mCurrentUser == null) {
+        socialConnections(socialData, null, output);
+    }
+
+    /**
+     * Update social connections
+     *
+     * @param socialData
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGConnectionUsersList> socialConnections(@Nullable TGSocialConnections socialData) {
+        TGCall<TGConnectionUsersList> call = new TGCall<>();
+        socialConnections(socialData, call.callback());
+        return call;
+    }
+
+    /**
+     * Update social connections - only connections not uploaded before for the platform are sent, in
+     * chunks, and users returned for all chunks are merged into one list
+     *
+     * @param socialData
+     * @param progress   callback informed after each uploaded chunk
+     * @param output
+     */
+    @Override
+    public void socialConnections(@Nullable TGSocialConnections socialData, @Nullable TGProgressCallback progress, @NonNull TGRequestCallback<TGConnectionUsersList> output) {
+        if (getCurrentUser() == null) {
             output.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN));
             return;
         }
@@ -312,16 +548,90 @@ public class TGUserManager extends AbstractTGManager implements TGUserManagerInt
             output.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.NULL_INPUT));
             return;
         }
-        tapglue.createRequest().socialConnections(socialData, output);
+        new TGSocialConnectionsUpload(tapglue, socialData, progress, output).start(getCurrentUser().getID());
+    }
+
+    /**
+     * Update social connections - only connections not uploaded before for the platform are sent, in
+     * chunks, and users returned for all chunks are merged into one list
+     *
+     * @param socialData
+     * @param progress   callback informed after each uploaded chunk
+     *
+     * @return Call of request
+     */
+    @NonNull
+    @Override
+    public TGCall<TGConnectionUsersList> socialConnections(@Nullable TGSocialConnections socialData, @Nullable TGProgressCallback progress) {
+        TGCall<TGConnectionUsersList> call = new TGCall<>();
+        socialConnections(socialData, progress, call.callback());
+        return call;
     }
 
     /**
-     * Try to load user from cache
+     * Try to load user from cache - user is loaded only once, on initialization or first use
      */
-    public void tryToLoadUserFromCache() {
+    public synchronized void tryToLoadUserFromCache() {
+        if (mCurrentUserLoaded) { return; }
         SharedPreferences cache = tapglue.getContext().getSharedPreferences(TGUserManager.class.toString(), Context.MODE_PRIVATE);
         if (cache.contains(CACHE_KEY)) {
-            mCurrentUser = new Gson().fromJson(cache.getString(CACHE_KEY, null), TGUser.class);
+            mCurrentUser = tapglue.getEntityStore().merge(new Gson().fromJson(cache.getString(CACHE_KEY, null), TGUser.class));
         }
+        mCurrentUserLoaded = true;
+    }
+
+    /**
+     * Hash password on hashing thread while network stack is prepared in parallel, then run task
+     * with hashed password on main thread
+     *
+     * @param password plain password
+     * @param task     task sending hashed password
+     */
+    private void withHashedPassword(@NonNull final String password, @NonNull final HashedPasswordTask task) {
+        tapglue.prepareNetwork();
+        getHashExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final String hashedPassword = TGPasswordHasher.hashPassword(password);
+                tapglue.getIOExecutor().deliver(new Runnable() {
+                    @Override
+                    public void run() {
+                        task.run(hashedPassword);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Get executor hashing passwords
+     *
+     * @return Hash executor
+     */
+    @NonNull
+    private synchronized ExecutorService getHashExecutor() {
+        if (mHashExecutor == null) {
+            mHashExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "TGPasswordHasher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return mHashExecutor;
+    }
+
+    /**
+     * Task continued with hashed password
+     */
+    private interface HashedPasswordTask {
+        /**
+         * Continue with hashed password
+         *
+         * @param hashedPassword hashed password
+         */
+        void run(String hashedPassword);
     }
 }
@@ -22,25 +22,49 @@ import android.support.annotation.Nullable;
 import com.tapglue.model.TGConnectionUsersList;
 import com.tapglue.model.TGSocialConnections;
 import com.tapglue.model.TGUser;
+import com.tapglue.networking.requests.TGCall;
+import com.tapglue.networking.requests.TGProgressCallback;
 import com.tapglue.networking.requests.TGRequestCallback;
 
 public interface TGUserManagerInterface {
     void createAndLoginUser(TGUser user, TGRequestCallback<Boolean> callback);
 
+    TGCall<Boolean> createAndLoginUser(TGUser user);
+
     void createAndLoginUserWithUsernameAndMail(String userName, String password, String email, TGRequestCallback<Boolean> callback);
 
+    TGCall<Boolean> createAndLoginUserWithUsernameAndMail(String userName, String password, String email);
+
+    TGSearchSession createSearchSession(TGRequestCallback<TGConnectionUsersList> callback);
+
     void deleteCurrentUser(TGRequestCallback<Boolean> output);
 
+    TGCall<Boolean> deleteCurrentUser();
+
     @Nullable
     TGUser getCurrentUser();
 
     void login(String userName, String password, TGRequestCallback<Boolean> output);
 
+    TGCall<Boolean> login(String userName, String password);
+
     void logout(TGRequestCallback<Boolean> output);
 
+    TGCall<Boolean> logout();
+
     void saveChangesToCurrentUser(TGUser updated, TGRequestCallback<Boolean> output);
 
+    TGCall<Boolean> saveChangesToCurrentUser(TGUser updated);
+
     void search(String searchCriteria, TGRequestCallback<TGConnectionUsersList> output);
 
+    TGCall<TGConnectionUsersList> search(String searchCriteria);
+
     void socialConnections(TGSocialConnections socialData, TGRequestCallback<TGConnectionUsersList> output);
+
+    TGCall<TGConnectionUsersList> socialConnections(TGSocialConnections socialData);
+
+    void socialConnections(TGSocialConnections socialData, TGProgressCallback progress, TGRequestCallback<TGConnectionUsersList> output);
+
+    TGCall<TGConnectionUsersList> socialConnections(TGSocialConnections socialData, TGProgressCallback progress);
 }
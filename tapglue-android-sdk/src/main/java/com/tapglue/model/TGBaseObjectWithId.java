@@ -18,6 +18,7 @@
 package com.tapglue.model;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
@@ -28,11 +29,15 @@ import com.tapglue.networking.TGCustomCacheObject;
  */
 public abstract class TGBaseObjectWithId<T extends TGBaseObject<T>> extends TGBaseObject<T> {
 
+    @Expose(serialize = false)
     @SerializedName("created_at")
     private String mCreatedAt;
     @Expose
     @SerializedName("id")
     private Long mID;
+    @SerializedName("local_id")
+    private Long mLocalID;
+    @Expose(serialize = false)
     @SerializedName("updated_at")
     private String mUpdatedAt;
 
@@ -53,11 +58,58 @@ public abstract class TGBaseObjectWithId<T extends TGBaseObject<T>> extends TGBa
     /**
      * Get ID used for network connections
      *
-     * @return ID or null if no network ID is assigned
+     * @return ID, temporary local ID if object wasn't created on server yet or null if no ID is
+     * assigned
      */
-    @NonNull
+    @Nullable
     final public Long getID() {
-        return mID;
+        return mID != null ? mID : mLocalID;
+    }
+
+    /**
+     * Get temporary ID assigned to object created while offline
+     *
+     * @return Local ID (always negative) or null if object was created online
+     */
+    @Nullable
+    final public Long getLocalID() {
+        return mLocalID;
+    }
+
+    /**
+     * Set ID assigned by server
+     *
+     * @param id server ID
+     *
+     * @return Current object
+     */
+    @NonNull
+    final T setID(Long id) {
+        mID = id;
+        return getThis();
+    }
+
+    /**
+     * Set temporary ID - used by library when object is created while offline
+     *
+     * @param localID negative local ID
+     *
+     * @return Current object
+     */
+    @NonNull
+    final public T setLocalID(long localID) {
+        if (localID >= 0) { throw new IllegalArgumentException("Local ID has to be negative"); }
+        mLocalID = localID;
+        return getThis();
+    }
+
+    /**
+     * Check if object is waiting for creation on server
+     *
+     * @return true if object has only temporary local ID
+     */
+    final public boolean isLocal() {
+        return mID == null && mLocalID != null;
     }
 
     /**
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.model;
+
+import android.support.annotation.NonNull;
+
+import com.tapglue.networking.TGCustomCacheObject;
+import com.tapglue.networking.requests.TGRequestErrorType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregated result of bulk operation on users
+ */
+public class TGBulkResult extends TGBaseObject<TGBulkResult> {
+    /**
+     * Errors of failed items by user ID
+     */
+    private final Map<Long, TGRequestErrorType> mFailed = new LinkedHashMap<>();
+    /**
+     * IDs of users for which operation succeeded
+     */
+    private final List<Long> mSucceeded = new ArrayList<>();
+
+    public TGBulkResult() {
+        super(TGCustomCacheObject.TGCacheObjectType.BulkResult);
+    }
+
+    /**
+     * Add failed item
+     *
+     * @param userId ID of user
+     * @param cause  cause of failure
+     *
+     * @return Current object
+     */
+    @NonNull
+    public synchronized TGBulkResult addFailure(long userId, TGRequestErrorType cause) {
+        mFailed.put(userId, cause);
+        return this;
+    }
+
+    /**
+     * Add successful item
+     *
+     * @param userId ID of user
+     *
+     * @return Current object
+     */
+    @NonNull
+    public synchronized TGBulkResult addSuccess(long userId) {
+        mSucceeded.add(userId);
+        return this;
+    }
+
+    /**
+     * Get errors of failed items
+     *
+     * @return Error for each failed user ID
+     */
+    @NonNull
+    public synchronized Map<Long, TGRequestErrorType> getFailed() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(mFailed));
+    }
+
+    /**
+     * Get IDs of users for which operation succeeded
+     *
+     * @return List of user IDs
+     */
+    @NonNull
+    public synchronized List<Long> getSucceeded() {
+        return Collections.unmodifiableList(new ArrayList<>(mSucceeded));
+    }
+
+    @Override
+    protected TGBulkResult getThis() {
+        return this;
+    }
+
+    /**
+     * Did operation succeed for all items?
+     *
+     * @return true if no item failed
+     */
+    public synchronized boolean isSuccessful() {
+        return mFailed.isEmpty();
+    }
+}
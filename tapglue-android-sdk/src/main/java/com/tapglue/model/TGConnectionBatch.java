@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.model;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+import com.tapglue.networking.TGCustomCacheObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Connections created or removed together - queued as single request while offline
+ */
+public class TGConnectionBatch extends TGBaseObject<TGConnectionBatch> {
+    @Expose
+    @SerializedName("connections")
+    private List<TGConnection> mConnections = new ArrayList<>();
+
+    public TGConnectionBatch() {
+        super(TGCustomCacheObject.TGCacheObjectType.ConnectionBatch);
+    }
+
+    /**
+     * Add connection to batch
+     *
+     * @param connection connection to add
+     *
+     * @return Current object
+     */
+    @NonNull
+    public TGConnectionBatch add(@NonNull TGConnection connection) {
+        mConnections.add(connection);
+        return this;
+    }
+
+    /**
+     * Get connections of batch
+     *
+     * @return List of connections
+     */
+    @NonNull
+    public List<TGConnection> getConnections() {
+        return mConnections;
+    }
+
+    @Override
+    protected TGConnectionBatch getThis() {
+        return this;
+    }
+}
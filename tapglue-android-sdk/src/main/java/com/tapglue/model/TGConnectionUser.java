@@ -17,6 +17,8 @@
 
 package com.tapglue.model;
 
+import android.support.annotation.NonNull;
+
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 import com.tapglue.networking.TGCustomCacheObject;
@@ -47,6 +49,22 @@ public class TGConnectionUser extends TGBaseObjectWithId<TGConnectionUser> {
         super(TGCustomCacheObject.TGCacheObjectType.ConnectionUser);
     }
 
+    /**
+     * Create connection user with ID and names of user
+     *
+     * @param user user data
+     *
+     * @return Connection user
+     */
+    @NonNull
+    public static TGConnectionUser fromUser(@NonNull TGUser user) {
+        TGConnectionUser connectionUser = new TGConnectionUser().setID(user.getID());
+        connectionUser.mFirstName = user.getFirstName();
+        connectionUser.mLastName = user.getLastName();
+        connectionUser.mUserName = user.getUserName();
+        return connectionUser;
+    }
+
     /**
      * Get user first name
      *
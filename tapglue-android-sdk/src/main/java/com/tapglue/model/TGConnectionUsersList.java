@@ -46,4 +46,16 @@ public class TGConnectionUsersList extends TGBaseObject<TGConnectionUsersList> {
     public List<TGConnectionUser> getUsers() {
         return mUsers;
     }
+
+    /**
+     * Set list of connection users
+     *
+     * @param users List of connection users
+     *
+     * @return Current object
+     */
+    public TGConnectionUsersList setUsers(List<TGConnectionUser> users) {
+        mUsers = users;
+        return this;
+    }
 }
@@ -52,6 +52,19 @@ public class TGFeed extends TGBaseObject<TGFeed> {
         return mEvents;
     }
 
+    /**
+     * Set events assigned to feed
+     *
+     * @param events new events
+     *
+     * @return Current object
+     */
+    @NonNull
+    public TGFeed setEvents(List<TGEvent> events) {
+        mEvents = events;
+        return this;
+    }
+
     @Override
     protected TGFeed getThis() {
         return this;
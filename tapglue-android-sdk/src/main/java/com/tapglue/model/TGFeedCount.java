@@ -17,6 +17,8 @@
 
 package com.tapglue.model;
 
+import android.support.annotation.NonNull;
+
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 import com.tapglue.networking.TGCustomCacheObject;
@@ -43,4 +45,17 @@ public class TGFeedCount extends TGBaseObject<TGFeedCount> {
     public Long getUnreadCount() {
         return mUnreadCounter;
     }
+
+    /**
+     * Set amount of unread events from feed
+     *
+     * @param count amount of unread events
+     *
+     * @return Current object
+     */
+    @NonNull
+    public TGFeedCount setUnreadCount(Long count) {
+        mUnreadCounter = count;
+        return this;
+    }
 }
@@ -39,7 +39,7 @@ import retrofit.http.PUT;
 import retrofit.http.Path;
 import retrofit.http.Query;
 
-interface TGApi {
+public interface TGApi {
 
     @NonNull
     @PUT("me/connections")
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking;
+
+import android.support.annotation.NonNull;
+
+import com.tapglue.model.TGBulkResult;
+import com.tapglue.model.TGConnection;
+import com.tapglue.model.TGConnectionBatch;
+import com.tapglue.networking.requests.TGRequestCallback;
+import com.tapglue.networking.requests.TGRequestErrorType;
+import com.tapglue.networking.requests.TGRequestType;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends connections of batch as separate live requests, keeping limited amount of them in flight,
+ * and aggregates their results
+ */
+class TGConnectionBatchRunner {
+    /**
+     * Maximal amount of requests in flight
+     */
+    static final int MAX_CONCURRENT_REQUESTS = 4;
+
+    /**
+     * Connections to send
+     */
+    @NonNull
+    private final List<TGConnection> mConnections;
+    /**
+     * Network manager sending requests
+     */
+    @NonNull
+    private final TGNetworkManager mNetworkManager;
+    /**
+     * Batch request
+     */
+    @NonNull
+    private final TGRequest<TGConnectionBatch, TGBulkResult> mRequest;
+    /**
+     * Aggregated result
+     */
+    @NonNull
+    private final TGBulkResult mResult = new TGBulkResult();
+    /**
+     * Were all requests done online?
+     */
+    private boolean mDoneOnline = true;
+    /**
+     * Amount of finished requests
+     */
+    private int mFinished = 0;
+    /**
+     * Index of next connection to send
+     */
+    private int mNext = 0;
+
+    TGConnectionBatchRunner(@NonNull TGNetworkManager networkManager, @NonNull TGRequest<TGConnectionBatch, TGBulkResult> request) {
+        mNetworkManager = networkManager;
+        mRequest = request;
+        mConnections = request.getObject().getConnections();
+    }
+
+    /**
+     * Finish requests of one or more connections, sending next one or delivering result when all
+     * are done
+     *
+     * @param count      amount of finished connections
+     * @param doneOnline was request done online?
+     */
+    private void onFinished(int count, boolean doneOnline) {
+        boolean done;
+        synchronized (this) {
+            mDoneOnline &= doneOnline;
+            mFinished += count;
+            done = mFinished == mConnections.size();
+        }
+        if (!done) {
+            sendNext();
+            return;
+        }
+        deliver();
+    }
+
+    /**
+     * Call callbacks of batch with aggregated result, unless batch was cancelled
+     */
+    private void deliver() {
+        mRequest.finish();
+        if (mRequest.isCancelled()) { return; }
+        for (TGRequestCallback<TGBulkResult> callback : mRequest.getCallback()) {
+            if (callback.callbackIsEnabled()) { callback.onRequestFinished(mResult, mDoneOnline); }
+        }
+    }
+
+    /**
+     * Check if result of batch is still wanted, so requests of connections should be sent
+     *
+     * @return true if batch wasn't cancelled and has enabled callback
+     */
+    private boolean isActive() {
+        return !mRequest.isCancelled() && TGNetworkManager.hasOutdatedCallback(mRequest.getCallback());
+    }
+
+    /**
+     * Queue connections not sent yet as single batch, used when network is lost while batch is
+     * sent
+     */
+    @SuppressWarnings("unchecked")
+    private void queueRemaining() {
+        final TGConnectionBatch remaining = new TGConnectionBatch();
+        synchronized (this) {
+            for (; mNext < mConnections.size(); mNext++) {
+                remaining.add(mConnections.get(mNext));
+            }
+        }
+        if (remaining.getConnections().isEmpty()) { return; }
+        mNetworkManager.performRequest(new TGRequest(remaining, mRequest.getRequestType(), false, new TGRequestCallback<TGBulkResult>() {
+            @Override
+            public boolean callbackIsEnabled() {
+                return isActive();
+            }
+
+            @Override
+            public void onRequestError(TGRequestErrorType cause) {
+                for (TGConnection connection : remaining.getConnections()) {
+                    mResult.addFailure(connection.getUserToId(), cause);
+                }
+                onFinished(remaining.getConnections().size(), true);
+            }
+
+            @Override
+            public void onRequestFinished(TGBulkResult output, boolean changeDoneOnline) {
+                if (output != null) {
+                    for (Long userId : output.getSucceeded()) {
+                        mResult.addSuccess(userId);
+                    }
+                    for (Map.Entry<Long, TGRequestErrorType> failure : output.getFailed().entrySet()) {
+                        mResult.addFailure(failure.getKey(), failure.getValue());
+                    }
+                }
+                onFinished(remaining.getConnections().size(), changeDoneOnline);
+            }
+        }));
+    }
+
+    /**
+     * Send next connection of batch, if there is any left and batch is still active. Connections
+     * are sent only live, when network is lost remaining ones are queued together
+     */
+    @SuppressWarnings("unchecked")
+    private void sendNext() {
+        if (!isActive()) {
+            mRequest.finish();
+            return;
+        }
+        if (!mRequest.needToBeDoneLive() && mNetworkManager.isCacheEnabled() && !mNetworkManager.isNetworkAvailable()) {
+            queueRemaining();
+            return;
+        }
+        final TGConnection connection;
+        synchronized (this) {
+            if (mNext >= mConnections.size()) { return; }
+            connection = mConnections.get(mNext++);
+        }
+        final long userId = connection.getUserToId();
+        mNetworkManager.performRequest(new TGRequest(connection, mRequest.getRequestType(), true, new TGRequestCallback<Object>() {
+            @Override
+            public boolean callbackIsEnabled() {
+                return isActive();
+            }
+
+            @Override
+            public void onRequestError(TGRequestErrorType cause) {
+                mResult.addFailure(userId, cause);
+                onFinished(1, true);
+            }
+
+            @Override
+            public void onRequestFinished(Object output, boolean changeDoneOnline) {
+                mResult.addSuccess(userId);
+                onFinished(1, changeDoneOnline);
+            }
+        }));
+    }
+
+    /**
+     * Start sending connections
+     */
+    void start() {
+        if (mConnections.isEmpty()) {
+            deliver();
+            return;
+        }
+        for (int i = 0; i < MAX_CONCURRENT_REQUESTS; i++) {
+            sendNext();
+        }
+    }
+}
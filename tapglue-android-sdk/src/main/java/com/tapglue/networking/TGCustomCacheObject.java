@@ -23,6 +23,7 @@ import android.support.annotation.Nullable;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import com.tapglue.model.TGConnection;
+import com.tapglue.model.TGConnectionBatch;
 import com.tapglue.model.TGConnectionUser;
 import com.tapglue.model.TGConnectionUsersList;
 import com.tapglue.model.TGEvent;
@@ -47,7 +48,7 @@ public class TGCustomCacheObject {
     public enum TGCacheObjectType {
         Connection(1), ConnectionUser(2), ConnectionUserList(3), Event(4), EventObject(5), Feed(6),
         FeedCount(7), LoginUser(8), PendingConnections(9), SearchCriteria(10), SocialConnections(11),
-        User(12), Error(13), Image(14);
+        User(12), Error(13), Image(14), ConnectionBatch(15), BulkResult(16);
 
         /**
          * Id of type
@@ -93,6 +94,10 @@ public class TGCustomCacheObject {
                 token = new TypeToken<TGCacheRequest<TGConnectionUser>>() {
                 }.getType();
                 break;
+            case ConnectionBatch:
+                token = new TypeToken<TGCacheRequest<TGConnectionBatch>>() {
+                }.getType();
+                break;
             case ConnectionUserList:
                 token = new TypeToken<TGCacheRequest<TGConnectionUsersList>>() {
                 }.getType();
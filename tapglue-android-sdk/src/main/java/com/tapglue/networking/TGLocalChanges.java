@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.tapglue.cache.TGEntityStore;
+import com.tapglue.model.TGBaseObject;
+import com.tapglue.model.TGBulkResult;
+import com.tapglue.model.TGConnection;
+import com.tapglue.model.TGConnectionBatch;
+import com.tapglue.model.TGConnectionUser;
+import com.tapglue.model.TGEvent;
+import com.tapglue.networking.requests.TGRequestType;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Optimistic application of requests queued while offline.
+ * <p/>
+ * Events created offline receive temporary negative IDs, which can be used for updating and
+ * removing them before they reach the server. Those requests are rewritten to server IDs during
+ * replay. Responses of replayed requests reconcile local objects, rejected requests roll back local
+ * state.
+ */
+class TGLocalChanges {
+    private static final String KEY_NEXT_ID = "NEXT_LOCAL_ID";
+    private static final String KEY_RESOLVED = "RESOLVED";
+    /**
+     * Server ID stored for local IDs whose creation was rejected
+     */
+    private static final long REJECTED = 0;
+
+    /**
+     * State of request referencing local objects
+     */
+    enum State {
+        /**
+         * Request can be sent
+         */
+        READY,
+        /**
+         * Request references object which is still waiting for creation
+         */
+        WAITING,
+        /**
+         * Request references object which was rejected by server
+         */
+        REJECTED
+    }
+
+    /**
+     * Entity store with optimistic objects
+     */
+    @NonNull
+    private final TGEntityStore mEntityStore;
+    /**
+     * Follow state of users before optimistic changes, by user ID
+     */
+    @NonNull
+    private final Map<Long, Boolean> mFollowRollback = new HashMap<>();
+    /**
+     * Persistent storage of local IDs
+     */
+    @NonNull
+    private final SharedPreferences mPreferences;
+
+    TGLocalChanges(@NonNull Context context, @NonNull TGEntityStore entityStore) {
+        mPreferences = context.getSharedPreferences(TGLocalChanges.class.toString(), Context.MODE_PRIVATE);
+        mEntityStore = entityStore;
+    }
+
+    /**
+     * Get ID of event referenced by request
+     *
+     * @param request request
+     *
+     * @return Event ID or null if request doesn't reference event
+     */
+    @Nullable
+    private static Long getEventId(@NonNull TGRequest request) {
+        if (!(request.getObject() instanceof TGEvent)) { return null; }
+        TGEvent event = (TGEvent) request.getObject();
+        if (request.getRequestType() == TGRequestType.UPDATE) { return event.getID(); }
+        if (request.getRequestType() == TGRequestType.DELETE) { return event.getReadRequestObjectId(); }
+        return null;
+    }
+
+    /**
+     * Check if request changes follow state of user
+     *
+     * @param request request
+     *
+     * @return true if request creates or removes follow connection
+     */
+    private static boolean isFollowChange(@NonNull TGRequest request) {
+        return request.getObject() instanceof TGConnection &&
+            ((TGConnection) request.getObject()).getType() == TGConnection.TGConnectionType.FOLLOW &&
+            ((TGConnection) request.getObject()).getUserToId() != null &&
+            (request.getRequestType() == TGRequestType.CREATE || request.getRequestType() == TGRequestType.DELETE);
+    }
+
+    /**
+     * Apply request queued while offline to local state
+     *
+     * @param request queued request
+     *
+     * @return Object which should be returned to callbacks, or null if there is no local result
+     */
+    @Nullable
+    synchronized Object apply(@NonNull TGRequest request) {
+        TGBaseObject object = request.getObject();
+        if (object instanceof TGEvent &&
+            (request.getRequestType() == TGRequestType.CREATE || request.getRequestType() == TGRequestType.UPDATE)) {
+            TGEvent event = (TGEvent) object;
+            if (request.getRequestType() == TGRequestType.CREATE && event.getID() == null) {
+                event.setLocalID(nextLocalId());
+            }
+            return mEntityStore.merge(event);
+        }
+        else if (isFollowChange(request)) {
+            TGConnection connection = (TGConnection) object;
+            setFollowed(connection.getUserToId(), request.getRequestType() == TGRequestType.CREATE);
+        }
+        else if (object instanceof TGConnectionBatch) {
+            TGBulkResult result = new TGBulkResult();
+            for (TGConnection connection : ((TGConnectionBatch) object).getConnections()) {
+                if (connection.getType() == TGConnection.TGConnectionType.FOLLOW) {
+                    setFollowed(connection.getUserToId(), request.getRequestType() == TGRequestType.CREATE);
+                }
+                result.addSuccess(connection.getUserToId());
+            }
+            return result;
+        }
+        return null;
+    }
+
+    /**
+     * Get state of request
+     *
+     * @param request request to be sent
+     *
+     * @return State
+     */
+    @NonNull
+    synchronized State getState(@NonNull TGRequest request) {
+        Long id = getEventId(request);
+        if (id == null || id >= 0) { return State.READY; }
+        long serverId = mPreferences.getLong(KEY_RESOLVED + "_" + id, REJECTED);
+        if (serverId != REJECTED) { return State.READY; }
+        return mPreferences.contains(KEY_RESOLVED + "_" + id) ? State.REJECTED : State.WAITING;
+    }
+
+    /**
+     * Translate ID to the one assigned by server
+     *
+     * @param id ID, possibly local one
+     *
+     * @return Server ID, or unchanged ID if it's not a resolved local one
+     */
+    @Nullable
+    synchronized Long getServerId(@Nullable Long id) {
+        if (id == null || id >= 0) { return id; }
+        long serverId = mPreferences.getLong(KEY_RESOLVED + "_" + id, REJECTED);
+        return serverId != REJECTED ? serverId : id;
+    }
+
+    /**
+     * Get next temporary ID
+     *
+     * @return Negative ID, unique across application restarts
+     */
+    private long nextLocalId() {
+        long id = mPreferences.getLong(KEY_NEXT_ID, -1);
+        mPreferences.edit().putLong(KEY_NEXT_ID, id - 1).apply();
+        return id;
+    }
+
+    /**
+     * Remove server IDs of local IDs which are not referenced by any request any more
+     *
+     * @param requests queued and sent requests
+     */
+    synchronized void prune(@NonNull Collection<TGRequest> requests) {
+        Set<String> referenced = new HashSet<>();
+        for (TGRequest request : requests) {
+            Long id = getEventId(request);
+            if (id != null && id < 0) { referenced.add(KEY_RESOLVED + "_" + id); }
+        }
+        SharedPreferences.Editor editor = mPreferences.edit();
+        for (String key : mPreferences.getAll().keySet()) {
+            if (key.startsWith(KEY_RESOLVED + "_") && !referenced.contains(key)) { editor.remove(key); }
+        }
+        editor.apply();
+    }
+
+    /**
+     * Reconcile local state with successful response
+     *
+     * @param request request
+     * @param body    response from server
+     *
+     * @return Response which should be returned to callbacks
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    synchronized <T extends TGBaseObject> T reconcile(@NonNull TGRequest request, @Nullable T body) {
+        if (request.getRequestType() == TGRequestType.CREATE && request.getObject() instanceof TGEvent &&
+            body instanceof TGEvent) {
+            Long localId = ((TGEvent) request.getObject()).getLocalID();
+            TGEvent created = (TGEvent) body;
+            if (localId != null && created.getID() != null && created.getID() >= 0) {
+                mPreferences.edit().putLong(KEY_RESOLVED + "_" + localId, created.getID()).apply();
+                return (T) mEntityStore.resolveLocal(localId, created);
+            }
+        }
+        else if (isFollowChange(request)) {
+            mFollowRollback.remove(((TGConnection) request.getObject()).getUserToId());
+        }
+        return body;
+    }
+
+    /**
+     * Roll back local state after request was rejected by server
+     *
+     * @param request rejected request
+     */
+    synchronized void rollback(@NonNull TGRequest request) {
+        if (request.getRequestType() == TGRequestType.CREATE && request.getObject() instanceof TGEvent) {
+            TGEvent event = (TGEvent) request.getObject();
+            if (event.getLocalID() != null) {
+                mPreferences.edit().putLong(KEY_RESOLVED + "_" + event.getLocalID(), REJECTED).apply();
+                mEntityStore.remove(TGEvent.class, event.getLocalID());
+            }
+        }
+        else if (isFollowChange(request)) {
+            Long userId = ((TGConnection) request.getObject()).getUserToId();
+            Boolean followed = mFollowRollback.remove(userId);
+            TGConnectionUser user = mEntityStore.get(TGConnectionUser.class, userId);
+            if (followed != null && user != null) { user.setIsFollowed(followed); }
+        }
+    }
+
+    /**
+     * Optimistically change follow state of user
+     *
+     * @param userId   ID of user
+     * @param followed new state
+     */
+    private void setFollowed(long userId, boolean followed) {
+        TGConnectionUser user = mEntityStore.get(TGConnectionUser.class, userId);
+        if (user == null) { return; }
+        if (!mFollowRollback.containsKey(userId)) { mFollowRollback.put(userId, user.isFollowed()); }
+        user.setIsFollowed(followed);
+    }
+}
@@ -18,29 +18,20 @@
 package com.tapglue.networking;
 
 import android.content.Context;
-import android.content.SharedPreferences;
-import android.content.pm.PackageInfo;
-import android.content.pm.PackageManager;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
-import android.os.Build;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.telephony.TelephonyManager;
-import android.util.Base64;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
-import com.squareup.okhttp.Interceptor;
-import com.squareup.okhttp.OkHttpClient;
-import com.squareup.okhttp.Protocol;
-import com.squareup.okhttp.Request;
-import com.squareup.okhttp.internal.Util;
-import com.squareup.okhttp.logging.HttpLoggingInterceptor;
 import com.tapglue.Tapglue;
+import com.tapglue.cache.TGEntityStore;
+import com.tapglue.cache.TGConnectionIndex;
+import com.tapglue.cache.TGSocialGraph;
+import com.tapglue.cache.TGUserSearchIndex;
 import com.tapglue.model.TGBaseObject;
 import com.tapglue.model.TGConnection;
+import com.tapglue.model.TGConnectionBatch;
 import com.tapglue.model.TGConnectionUsersList;
 import com.tapglue.model.TGErrorList;
 import com.tapglue.model.TGEvent;
@@ -53,65 +44,123 @@ import com.tapglue.model.TGSocialConnections;
 import com.tapglue.model.TGUser;
 import com.tapglue.networking.requests.TGRequestCallback;
 import com.tapglue.networking.requests.TGRequestErrorType;
+import com.tapglue.networking.requests.TGRequestException;
 import com.tapglue.networking.requests.TGRequestType;
 import com.tapglue.utils.TGLog;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
-import java.io.UnsupportedEncodingException;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.Collections;
 import java.util.List;
-import java.util.TimeZone;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import retrofit.Call;
 import retrofit.Callback;
-import retrofit.GsonConverterFactory;
 import retrofit.Response;
 import retrofit.Retrofit;
 
 import static com.tapglue.utils.TGErrorUtil.sendErrorToCallbacks;
 
 public class TGNetworkManager {
+    /**
+     * Name of file with user search index in cache directory
+     */
+    private static final String USER_SEARCH_INDEX_FILE = "tapglue_users.index";
+    /**
+     * Delay after which changed user search index is stored, in milliseconds
+     */
+    private static final long USER_SEARCH_INDEX_SAVE_DELAY = 2000;
 
-    private static final String KEY_AMOUNT = "CACHE_AMOUNT";
-    private static final String KEY_QUEUE = "CACHE_QUEUE";
     /**
-     * Current library version - string used in requests
+     * Lock guarding lazy creation of API
      */
     @NonNull
-    private final String currentLibraryVersion = "1.0";
+    private final Object mApiLock = new Object();
     /**
-     * Api object
+     * Api object, created on first use
      */
-    private final TGApi mApi;
+    @Nullable
+    private volatile TGApi mApi;
     /**
      * Configuration object
      */
     @NonNull
     private final Tapglue.TGConfiguration mConfiguration;
+    /**
+     * Identity map of received objects
+     */
+    @NonNull
+    private final TGEntityStore mEntityStore = new TGEntityStore();
+    /**
+     * Optimistic changes of requests queued while offline
+     */
+    @NonNull
+    private final TGLocalChanges mLocalChanges;
+    /**
+     * Local index of current user connections
+     */
+    @NonNull
+    private final TGSocialGraph mSocialGraph = new TGSocialGraph();
+    /**
+     * Index of cached connection lists
+     */
+    @NonNull
+    private final TGConnectionIndex mConnectionIndex = new TGConnectionIndex(mSocialGraph);
+    /**
+     * On-device index of users seen in responses
+     */
+    @NonNull
+    private final TGUserSearchIndex mUserSearchIndex = new TGUserSearchIndex();
+    /**
+     * Is storing of user search index scheduled?
+     */
+    @NonNull
+    private final AtomicBoolean mUserSearchIndexSaveScheduled = new AtomicBoolean();
+    /**
+     * Stages through which responses pass to callbacks
+     */
+    @NonNull
+    private final TGRequestPipeline mPipeline;
     /**
      * Request factory
      */
     @NonNull
     private final TGRequestFactory mFactory;
+    /**
+     * Blocking request factory
+     */
+    @NonNull
+    private final TGSyncRequestFactory mSyncFactory;
     /**
      * Logging tool
      */
     @NonNull
     private final Tapglue tapglue;
     /**
-     * Was analytics request already sent?
+     * Transport used to create API
      */
-    private boolean analyticsSent = false;
+    @NonNull
+    private final TGTransport mTransport;
     /**
-     * Flush timer
+     * Requests sent and waiting for response
      */
-    @Nullable
-    private Timer flushTimer;
+    @NonNull
+    private final Set<TGRequest<?, ?>> mInFlight = Collections.newSetFromMap(new ConcurrentHashMap<TGRequest<?, ?>, Boolean>());
+    /**
+     * Requests made while offline
+     */
+    @NonNull
+    private final TGOfflineQueue mOfflineQueue;
+    /**
+     * Was analytics request already sent?
+     */
+    @NonNull
+    private final AtomicBoolean mAnalyticsSent = new AtomicBoolean();
 
     /**
      * Check if at least one callback is not outdated
@@ -120,7 +169,7 @@ public class TGNetworkManager {
      *
      * @return true if at least one callback is outdated
      */
-    static private <OUTOBJECT extends TGBaseObject> boolean hasOutdatedCallback(@Nullable List<TGRequestCallback<OUTOBJECT>> callback) {
+    static <OUTOBJECT extends TGBaseObject> boolean hasOutdatedCallback(@Nullable List<TGRequestCallback<OUTOBJECT>> callback) {
         if (callback == null || callback.size() == 0) return false;
 
         for (int i = 0; i < callback.size(); i++) {
@@ -134,190 +183,185 @@ public class TGNetworkManager {
     public TGNetworkManager(@NonNull Tapglue.TGConfiguration configuration, @NonNull final Tapglue tapglue) {
         mConfiguration = configuration;
         this.tapglue = tapglue;
-        mFactory = new TGRequestFactory(this);
-        final Context context = tapglue.getContext();
-        final String appVersion = getAppVersion(context);
-
-        final String appName = context.getString(context.getApplicationInfo().labelRes);
-        final String userAgent = appName + "/" + context.getApplicationInfo().packageName + "; " +
-            appVersion +
-            " (" + (Build.MODEL != null ? Build.MODEL : "Unknown_model") +
-            "; Android " + Build.VERSION.RELEASE + ") Tapglue-SDK/" + currentLibraryVersion;
-
-        OkHttpClient client = new OkHttpClient();
-        client.setProtocols(new ArrayList<>(Util.immutableList(Protocol.HTTP_1_1)));
-        final HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor();
-        interceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
-
-        // should we enable debugging to console?
-        if (mConfiguration.isDebugMode()) { client.interceptors().add(interceptor); }
-
-        // we add custom headers to each request
-        client.interceptors().add(new Interceptor() {
-            @Override
-            public com.squareup.okhttp.Response intercept(@NonNull Chain chain) throws IOException {
-                Request currentRequest = chain.request();
-                boolean analyticsRequest = currentRequest.httpUrl().toString().contains("analytics");
-                Request.Builder builder = currentRequest.newBuilder()
-                                                        .addHeader("Authorization", "Basic " + createAuthorizationString())
-                                                        .addHeader("User-Agent", userAgent)
-                                                        .addHeader("Content-Type", "application/json");
-
-                if (analyticsRequest) {
-                    TelephonyManager manager = (TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE);
-                    String carrierName = manager.getNetworkOperatorName();
-                    Calendar cal = Calendar.getInstance();
-                    TimeZone tz = cal.getTimeZone();
-
-                    builder.addHeader("X-Tapglue-App", appName)
-                           .addHeader("X-Tapglue-Appversion", appVersion)
-                           .addHeader("X-Tapglue-Carrier", carrierName != null ? carrierName : "Unknown_carrier")
-                           .addHeader("X-Tapglue-Manufacturer", Build.MANUFACTURER != null ? Build.MANUFACTURER : "Unknown_manufacturer")
-                           .addHeader("X-Tapglue-Model", Build.MODEL != null ? Build.MODEL : "Unknown_model")
-                           .addHeader("X-Tapglue-AndroidID", Build.SERIAL != null ? Build.SERIAL : "Unknown_serial")
-                           .addHeader("X-Tapglue-OS", Build.VERSION.RELEASE)
-                           .addHeader("X-Tapglue-OSVersion", String.valueOf(Build.VERSION.SDK_INT))
-                           .addHeader("X-Tapglue-SDKVersion", currentLibraryVersion)
-                           .addHeader("X-Tapglue-Timezone", tz.getDisplayName());
+        mLocalChanges = new TGLocalChanges(tapglue.getContext(), mEntityStore);
+        mFactory = new TGRequestFactory(this, new TGResponseCache(configuration.getResponseCacheSize(), configuration.getResponseCacheTtl()));
+        mSyncFactory = new TGSyncRequestFactory(this, mFactory);
+        mTransport = tapglue.getTransport();
+        mPipeline = new TGRequestPipeline(configuration.getCallbackDelivery(), configuration.getCallbackExecutor(),
+            TGRequestPipeline.getDefaultDecodeThreads(), TGRequestPipeline.DEFAULT_DECODE_QUEUE_SIZE);
+        mOfflineQueue = new TGOfflineQueue(
+            new TGOfflineQueue.PreferencesStorage(tapglue.getContext().getSharedPreferences(TGNetworkManager.class.toString(), Context.MODE_PRIVATE)),
+            new TGOfflineQueue.Target() {
+                @Override
+                public boolean canSend() {
+                    return isCacheEnabled() && isNetworkAvailable();
+                }
+
+                @Override
+                public void send(@NonNull TGRequest request) {
+                    performRequest(request, false);
                 }
 
-                Request req = builder.build();
-                return chain.proceed(req);
+                @Override
+                public void onFlushed(@NonNull List<TGRequest> queued) {
+                    // failed requests are queued before they stop being in flight, so every
+                    // request is in one of those lists
+                    List<TGRequest> requests = new ArrayList<>(queued);
+                    requests.addAll(mInFlight);
+                    requests.addAll(mOfflineQueue.getIncoming());
+                    mLocalChanges.prune(requests);
+                }
+            }, tapglue.getIOExecutor(), getLogger(), configuration.getFlushInterval());
+    }
+
+    /**
+     * Cancel sent requests of which no callback is enabled any more, so their network calls don't
+     * keep running for closed screens
+     */
+    void cancelOutdatedRequests() {
+        for (TGRequest<?, ?> request : mInFlight) {
+            if (!hasOutdatedCallback(request.getCallback())) {
+                mInFlight.remove(request);
+                request.cancel();
             }
-        });
-        Retrofit mRetrofit = new Retrofit.Builder()
-            .addConverterFactory(GsonConverterFactory.create(new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create()))
-            .baseUrl(configuration.getApiUrl())
-            .client(client)
-            .build();
-        mApi = mRetrofit.create(TGApi.class);
-        createPendingFlush();
+        }
     }
 
     /**
-     * Add request to cache
+     * Create network request
      *
-     * @param request Request to be added in cache
+     * @return Network request creation interface
      */
-    synchronized private void addToCache(@NonNull TGRequest request) {
-        getLogger().log("Adding request to cache " + request.toString());
-        // first check if object exists in cache - if yes, then if new version is different from cached one, overwrite old one
-        SharedPreferences cacheFile = tapglue.getContext().getSharedPreferences(TGNetworkManager.class.toString(), Context.MODE_PRIVATE);
+    @NonNull
+    public TGNetworkRequests createRequest() {
+        return mFactory;
+    }
 
-        Integer amount = cacheFile.getInt(KEY_AMOUNT, 0);
-        if (amount == 0) {
-            String requestString = TGCustomCacheObject.serialize(request);
-            cacheFile.edit().putString(KEY_QUEUE + "_0", requestString).putInt(KEY_AMOUNT, 1).apply();
-        }
-        else {
-            String requestString = TGCustomCacheObject.serialize(request);
-            cacheFile.edit().putString(KEY_QUEUE + "_" + amount, requestString).putInt(KEY_AMOUNT, amount + 1).apply();
-        }
-        createPendingFlush();
+    /**
+     * Create blocking network request, performed on calling thread
+     *
+     * @return Blocking network request creation interface
+     */
+    @NonNull
+    public TGSyncNetworkRequests createSyncRequest() {
+        return mSyncFactory;
     }
 
     /**
-     * Create authorization string
+     * Get API, creating network stack on first use
      *
-     * @return Authorization string
+     * @return API
      */
-    private String createAuthorizationString() {
-        try {
-            String auth = String.format("%s:%s",
-                mConfiguration.getToken(),
-                tapglue.getUserManager().getCurrentUser() != null ? tapglue.getUserManager().getCurrentUser().getSessionToken() : "");
-            byte[] data = auth.getBytes("UTF-8");
-            return Base64.encodeToString(data, Base64.NO_WRAP);
-        } catch (UnsupportedEncodingException e) {
-            e.printStackTrace();
-            return null;
+    @NonNull
+    private TGApi getApi() {
+        TGApi api = mApi;
+        if (api == null) {
+            synchronized (mApiLock) {
+                api = mApi;
+                if (api == null) {
+                    api = mTransport.createApi(tapglue);
+                    mApi = api;
+                }
+            }
         }
+        return api;
     }
 
     /**
-     * Create flush request
+     * Create network stack now instead of on first request
      */
-    synchronized private void createPendingFlush() {
-        // check if timer is already working
-        if (flushTimer != null) { return; }
-        flushTimer = new Timer();
-        flushTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                flushCache();
-                flushTimer = null;
-            }
-        }, tapglue.getConfiguration().getFlushInterval());
+    public void prepareApi() {
+        getApi();
     }
 
     /**
-     * Create network request
+     * Clear indexes and cached objects of current user and data kept by managers, when user changes
+     */
+    void clearUserData() {
+        mEntityStore.clear();
+        mSocialGraph.clear();
+        mConnectionIndex.clear();
+        mUserSearchIndex.clear();
+        saveUserSearchIndex();
+        tapglue.clearUserData();
+    }
+
+    /**
+     * Get file with stored user search index
      *
-     * @return Network request creation interface
+     * @return Index file
      */
     @NonNull
-    public TGNetworkRequests createRequest() {
-        return mFactory;
+    private File getUserSearchIndexFile() {
+        return new File(tapglue.getContext().getCacheDir(), USER_SEARCH_INDEX_FILE);
     }
 
     /**
-     * Flush all pending requests from cache
+     * Read user search index stored by previous sessions on I/O thread, so local search works
+     * offline right after start
      */
-    synchronized private void flushCache() {
-        if (!isCacheEnabled() || !isNetworkAvailable()) return;
-
-        getLogger().log("Trying to flush cache");
-        SharedPreferences cacheFile = tapglue.getContext().getSharedPreferences(TGNetworkManager.class.toString(), Context.MODE_PRIVATE);
-
-        Integer amount = cacheFile.getInt(KEY_AMOUNT, 0);
-        if (amount <= 0) {
-            if (flushTimer != null) {
-                flushTimer.cancel();
+    public void loadUserSearchIndex() {
+        final int generation = mUserSearchIndex.getGeneration();
+        tapglue.getIOExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                mUserSearchIndex.readFrom(getUserSearchIndexFile(), generation);
             }
-            flushTimer = null;
-            getLogger().log("Nothing to flush");
-        }
-        else {
-            TGRequest cachedRequest = TGCustomCacheObject.deserialize(cacheFile.getString(KEY_QUEUE + "_0", null));
+        });
+    }
 
-            // move cache by 1 backward
-            getLogger().log("Flushing cache");
-            for (int i = 1; i < amount; i++) {
-                cacheFile.edit().putString(KEY_QUEUE + "_" + (i - 1), cacheFile.getString(KEY_QUEUE + "_" + (i), null)).apply();
+    /**
+     * Store user search index on I/O thread - changes made until store is done are stored at once
+     */
+    private void saveUserSearchIndex() {
+        if (!mUserSearchIndexSaveScheduled.compareAndSet(false, true)) { return; }
+        tapglue.getIOExecutor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                mUserSearchIndexSaveScheduled.set(false);
+                mUserSearchIndex.writeTo(getUserSearchIndexFile());
             }
+        }, USER_SEARCH_INDEX_SAVE_DELAY);
+    }
 
-            cacheFile.edit().remove(KEY_QUEUE + "_" + (amount - 1)).putInt(KEY_AMOUNT, amount - 1).apply();
-            if (amount - 1 <= 0) {
-                if (flushTimer != null) {
-                    flushTimer.cancel();
-                }
-                flushTimer = null;
-            }
-            performRequest(cachedRequest, false);
-            if (amount - 1 > 0) {
-                flushCache();
-            }
-        }
+    /**
+     * Get identity map of received objects
+     *
+     * @return Entity store
+     */
+    @NonNull
+    public TGEntityStore getEntityStore() {
+        return mEntityStore;
     }
 
     /**
-     * Get current application version
+     * Get index of cached connection lists
      *
-     * @param context Context used to read this information
+     * @return Connection index
+     */
+    @NonNull
+    public TGConnectionIndex getConnectionIndex() {
+        return mConnectionIndex;
+    }
+
+    /**
+     * Get local index of current user connections
      *
-     * @return Application version
+     * @return Social graph
      */
-    private String getAppVersion(@NonNull Context context) {
-        String appVersion = "unknown-version";
-        try {
-            PackageManager manager = context.getPackageManager();
-            PackageInfo info = manager.getPackageInfo(
-                context.getPackageName(), 0);
-            appVersion = info.versionName;
-        } catch (PackageManager.NameNotFoundException e) {
-            e.printStackTrace();
-        }
-        return appVersion;
+    @NonNull
+    public TGSocialGraph getSocialGraph() {
+        return mSocialGraph;
+    }
+
+    /**
+     * Get on-device index of users seen in responses
+     *
+     * @return User search index
+     */
+    @NonNull
+    public TGUserSearchIndex getUserSearchIndex() {
+        return mUserSearchIndex;
     }
 
     /**
@@ -329,12 +373,42 @@ public class TGNetworkManager {
         return tapglue.getLogger();
     }
 
+    /**
+     * Get cache of read responses
+     *
+     * @return Response cache
+     */
+    @NonNull
+    public TGResponseCache getResponseCache() {
+        return mFactory.getResponseCache();
+    }
+
+    /**
+     * Get stages through which responses pass to callbacks
+     *
+     * @return Request pipeline
+     */
+    @NonNull
+    public TGRequestPipeline getRequestPipeline() {
+        return mPipeline;
+    }
+
+    /**
+     * Get transport used by this manager
+     *
+     * @return Transport
+     */
+    @NonNull
+    public TGTransport getTransport() {
+        return mTransport;
+    }
+
     /**
      * Internal info if library should cache requests
      *
      * @return is caching enabled or not
      */
-    private boolean isCacheEnabled() {
+    boolean isCacheEnabled() {
         return mConfiguration.isCacheEnabled();
     }
 
@@ -343,12 +417,22 @@ public class TGNetworkManager {
      *
      * @return is the network available
      */
-    private boolean isNetworkAvailable() {
-        ConnectivityManager cm =
-            (ConnectivityManager) tapglue.getContext().getSystemService(Context.CONNECTIVITY_SERVICE);
-        NetworkInfo netInfo = cm.getActiveNetworkInfo();
-        return netInfo != null && netInfo.isConnected();
+    boolean isNetworkAvailable() {
+        return mTransport.isNetworkAvailable(tapglue);
+    }
 
+    /**
+     * Send network call of request, its response goes through request pipeline
+     *
+     * @param call    network call
+     * @param request request of call
+     */
+    @SuppressWarnings("unchecked")
+    private void enqueue(@NonNull Call<?> call, @NonNull TGRequest request) {
+        mInFlight.add(request);
+        request.setCall(call);
+        mPipeline.onSent();
+        ((Call<TGBaseObject>) call).enqueue(new TGNetworkRequestWithErrorHandling<>(this, (TGRequest<TGBaseObject, TGBaseObject>) request));
     }
 
     /**
@@ -370,7 +454,7 @@ public class TGNetworkManager {
         tryToSendAnalytics();
         if (request.getObject() == null
             && request.getRequestType() != TGRequestType.LOGOUT) {
-            sendErrorToCallbacks(request.getCallback(), TGRequestErrorType.ErrorType.NULL_INPUT);
+            deliverError(request, TGRequestErrorType.ErrorType.NULL_INPUT);
             return;
         }
         // check if we got valid user or request is not a login/creation one
@@ -378,258 +462,378 @@ public class TGNetworkManager {
             !(request.getRequestType() == TGRequestType.LOGIN
                 || (request.getRequestType() == TGRequestType.CREATE && request.getObject() instanceof TGUser)
             )) {
-            sendErrorToCallbacks(request.getCallback(), TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN);
+            deliverError(request, TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN);
             return;
         }
         // check if request is not outdated
-        if (!hasOutdatedCallback(request.getCallback())) return;
+        if (request.isCancelled() || !hasOutdatedCallback(request.getCallback())) {
+            request.finish();
+            return;
+        }
+
+        // check if request references object created while offline
+        TGLocalChanges.State localState = mLocalChanges.getState(request);
+        if (localState == TGLocalChanges.State.REJECTED) {
+            deliverError(request, TGRequestErrorType.ErrorType.NOT_FOUND);
+            return;
+        }
 
-        if (!isNetworkAvailable()) {
+        if (!isNetworkAvailable() || localState == TGLocalChanges.State.WAITING) {
             // check if request required to be done only when internet is accessible
             if (request.needToBeDoneLive()) {
-                sendErrorToCallbacks(request.getCallback(), TGRequestErrorType.ErrorType.NO_NETWORK);
+                deliverError(request, TGRequestErrorType.ErrorType.NO_NETWORK);
                 return;
             }
             else {
                 if (isCacheEnabled()) {
-                    addToCache(request);
-                    for (int i = 0; i < request.getCallback().size(); i++) {
-                        ((TGRequestCallback<?>) request.getCallback().get(i)).onRequestFinished(null, false);
-                    }
+                    Object localResult = mLocalChanges.apply(request);
+                    mOfflineQueue.add(request);
+                    deliverResult(request, localResult);
                     return;
                 }
                 else {
                     // cache and network are not available
-                    sendErrorToCallbacks(request.getCallback(), TGRequestErrorType.ErrorType.NO_NETWORK);
+                    deliverError(request, TGRequestErrorType.ErrorType.NO_NETWORK);
                     return;
                 }
             }
         }
         else {
-            if (flushIfPossible) { flushCache(); }
+            if (flushIfPossible) { mOfflineQueue.flush(); }
+        }
+        if (isBatch(request)) {
+            new TGConnectionBatchRunner(this, request).start();
+            return;
         }
-        // different actions based on request parameters
+        Call<?> call = createCall(request);
+        if (call == null) {
+            deliverError(request, TGRequestErrorType.ErrorType.UNSUPPORTED_INPUT);
+            return;
+        }
+        enqueue(call, request);
+    }
+
+    /**
+     * Send error to callbacks of request on delivery stage of request pipeline, like responses
+     *
+     * @param request   failed request
+     * @param errorType type of error
+     */
+    private void deliverError(@NonNull final TGRequest request, @NonNull final TGRequestErrorType.ErrorType errorType) {
+        mPipeline.deliver(request.getCallerLooper(), new Runnable() {
+            @Override
+            public void run() {
+                request.finish();
+                if (!request.isCancelled()) { sendErrorToCallbacks(request.getCallback(), errorType); }
+            }
+        });
+    }
+
+    /**
+     * Send result which was not received from network (cached or local one) to enabled callbacks of
+     * request on delivery stage of request pipeline, like responses
+     *
+     * @param request request of result
+     * @param result  result to be delivered, reported as not done online
+     */
+    @SuppressWarnings("unchecked")
+    void deliverResult(@NonNull final TGRequest request, @Nullable final Object result) {
+        mPipeline.deliver(request.getCallerLooper(), new Runnable() {
+            @Override
+            public void run() {
+                request.finish();
+                if (request.isCancelled()) { return; }
+                for (int i = 0; i < request.getCallback().size(); i++) {
+                    TGRequestCallback callback = (TGRequestCallback) request.getCallback().get(i);
+                    if (callback.callbackIsEnabled()) { callback.onRequestFinished(result, false); }
+                }
+            }
+        });
+    }
+
+    /**
+     * Is request a batch of connections, performed by {@link TGConnectionBatchRunner}?
+     *
+     * @param request request to check
+     *
+     * @return true for batch requests
+     */
+    private static boolean isBatch(@NonNull TGRequest request) {
+        return request.getObject() instanceof TGConnectionBatch
+            && (request.getRequestType() == TGRequestType.CREATE || request.getRequestType() == TGRequestType.DELETE);
+    }
+
+    /**
+     * Create network call of request, different calls based on request parameters
+     *
+     * @param request request to be sent
+     *
+     * @return Call or null if request input is not supported
+     */
+    @Nullable
+    private Call<?> createCall(@NonNull TGRequest request) {
         switch (request.getRequestType()) {
             case SEARCH:
-                if (request.getObject() == null || (!(request.getObject() instanceof TGSearchCriteria))) {
-                    sendErrorToCallbacks(request.getCallback(), TGRequestErrorType.ErrorType.UNSUPPORTED_INPUT);
-                }
-                else {
-                    Call<TGConnectionUsersList> searchRequest = mApi.search(((TGSearchCriteria) request.getObject()).getSearchCriteria());
-                    searchRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
-                }
-                break;
+                if (!(request.getObject() instanceof TGSearchCriteria)) { return null; }
+                return getApi().search(((TGSearchCriteria) request.getObject()).getSearchCriteria());
             case LOGOUT:
-                Call<Object> userRequest = mApi.logout();
-                userRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
-                break;
+                return getApi().logout();
             case LOGIN:
                 if (request.getObject() instanceof TGLoginUser) {
-                    Call<TGUser> userRequestLogin = mApi.login((TGLoginUser) request.getObject());
-                    userRequestLogin.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
+                    return getApi().login((TGLoginUser) request.getObject());
                 }
-                else {
-                    sendErrorToCallbacks(request.getCallback(), TGRequestErrorType.ErrorType.UNSUPPORTED_INPUT);
-                }
-                break;
+                return null;
             case CREATE:
                 if (request.getObject() instanceof TGUser) {
                     // user request
-                    Call<TGUser> userRequestCreateUser = mApi.createUser((TGUser) request.getObject());
-                    userRequestCreateUser.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
+                    return getApi().createUser((TGUser) request.getObject());
                 }
                 else if (request.getObject() instanceof TGConnection) {
                     // connection request
                     TGConnection connectionCreateObject = (TGConnection) request.getObject();
-                    if (connectionCreateObject.getCacheObjectType() == null) {
-                        sendErrorToCallbacks(request.getCallback(), TGRequestErrorType.ErrorType.UNSUPPORTED_INPUT);
-                    }
-                    else {
-                        TGConnection connection = new TGConnection()
-                            .setUserToId(connectionCreateObject.getUserToId())
-                            .setUserFromId(connectionCreateObject.getUserFromId())
-                            .setType(connectionCreateObject.getType())
-                            .setState(connectionCreateObject.getState());
-                        Call<TGConnection> createConnectionRequest = mApi.createConnection(connection);
-                        createConnectionRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
-                    }
-
+                    if (connectionCreateObject.getCacheObjectType() == null) { return null; }
+                    TGConnection connection = new TGConnection()
+                        .setUserToId(connectionCreateObject.getUserToId())
+                        .setUserFromId(connectionCreateObject.getUserFromId())
+                        .setType(connectionCreateObject.getType())
+                        .setState(connectionCreateObject.getState());
+                    return getApi().createConnection(connection);
                 }
                 else if (request.getObject() instanceof TGEvent) {
                     // event request
-                    Call<TGEvent> createEventRequest = mApi.createEvent((TGEvent) request.getObject());
-                    createEventRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
+                    return getApi().createEvent((TGEvent) request.getObject());
                 }
-                else {
-                    sendErrorToCallbacks(request.getCallback(), TGRequestErrorType.ErrorType.UNSUPPORTED_INPUT);
-                    return;
-                }
-                break;
+                return null;
             case READ:
                 if (request.getObject() instanceof TGUser) {
                     // user request
-                    Call<TGUser> userRequestReadUser = mApi.getUser((request.getObject()).getReadRequestObjectId());
-                    userRequestReadUser.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
+                    return getApi().getUser((request.getObject()).getReadRequestObjectId());
                 }
                 else if (request.getObject() instanceof TGConnection) {
                     // connection request
                     TGConnection readConnectionObject = (TGConnection) request.getObject();
-                    if (readConnectionObject.getUserFromId() == null) {
-                        // read connections from current user
-                        if (readConnectionObject.getType() == null) {
-                            // read followers
-                            Call<TGConnectionUsersList> getFollowedForCurrentUserRequest = mApi.getFollowed();
-                            getFollowedForCurrentUserRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
-                        }
-                        else if (readConnectionObject.getType() == TGConnection.TGConnectionType.FOLLOW) {
-                            // get followed
-                            Call<TGConnectionUsersList> getFollowsForCurrentUserRequest = mApi.getFollows();
-                            getFollowsForCurrentUserRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
-                        }
-                        else if (readConnectionObject.getType() == TGConnection.TGConnectionType.FRIEND) {
-                            // get friends
-                            Call<TGConnectionUsersList> getFriendsForCurrentUserRequest = mApi.getFriends();
-                            getFriendsForCurrentUserRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
-                        }
-                        else {
-                            // option possible only if library would be extended without checking this
-                            sendErrorToCallbacks(request.getCallback(), TGRequestErrorType.ErrorType.UNSUPPORTED_INPUT);
-                        }
+                    Long userId = readConnectionObject.getUserFromId();
+                    if (readConnectionObject.getType() == null) {
+                        // read followers
+                        return userId == null ? getApi().getFollowed() : getApi().getFollowedForUser(userId);
                     }
-                    else {
-                        // create connection for other user
-                        if (readConnectionObject.getType() == null) {
-                            // read followers
-                            Call<TGConnectionUsersList> getFollowedForUserRequest = mApi.getFollowedForUser(readConnectionObject.getUserFromId());
-                            getFollowedForUserRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
-                        }
-                        else if (readConnectionObject.getType() == TGConnection.TGConnectionType.FOLLOW) {
-                            // get followed
-                            Call<TGConnectionUsersList> getFollowsForUserRequest = mApi.getFollowsForUser(readConnectionObject.getUserFromId());
-                            getFollowsForUserRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
-                        }
-                        else if (readConnectionObject.getType() == TGConnection.TGConnectionType.FRIEND) {
-                            // get friends
-                            Call<TGConnectionUsersList> getFriendsForUserRequest = mApi.getFriendsForUser(readConnectionObject.getUserFromId());
-                            getFriendsForUserRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
-                        }
-                        else {
-                            // option possible only if library would be extended without checking this
-                            sendErrorToCallbacks(request.getCallback(), TGRequestErrorType.ErrorType.UNSUPPORTED_INPUT);
-                        }
+                    else if (readConnectionObject.getType() == TGConnection.TGConnectionType.FOLLOW) {
+                        // get followed
+                        return userId == null ? getApi().getFollows() : getApi().getFollowsForUser(userId);
+                    }
+                    else if (readConnectionObject.getType() == TGConnection.TGConnectionType.FRIEND) {
+                        // get friends
+                        return userId == null ? getApi().getFriends() : getApi().getFriendsForUser(userId);
                     }
+                    // option possible only if library would be extended without checking this
+                    return null;
                 }
                 else if (request.getObject() instanceof TGEvent) {
                     // event request
                     if (request.getObject().getReadRequestUserId() == null) {
-                        Call<TGEvent> readEventRequest = mApi.getEvent((request.getObject()).getReadRequestObjectId());
-                        readEventRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
+                        return getApi().getEvent((request.getObject()).getReadRequestObjectId());
                     }
-                    else {
-                        // read event for selected user
-                        Call<TGEvent> readEventRequest = mApi.getEvent(request.getObject().getReadRequestUserId(), (request.getObject()).getReadRequestObjectId());
-                        readEventRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
-                    }
-                    return;
+                    // read event for selected user
+                    return getApi().getEvent(request.getObject().getReadRequestUserId(), (request.getObject()).getReadRequestObjectId());
                 }
                 else if (request.getObject() instanceof TGFeed) {
                     // feed request
                     if (!((TGFeed) request.getObject()).isFeed()) {
                         // for events list
                         if (request.getObject().getReadRequestUserId() == null) {
-                            Call<TGFeed> readEventsRequest = mApi.getEvents();
-                            readEventsRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
-                        }
-                        else {
-                            // read events from selected user
-                            Call<TGFeed> readEventsRequest = mApi.getEvents(request.getObject().getReadRequestUserId());
-                            readEventsRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
+                            return getApi().getEvents();
                         }
+                        // read events from selected user
+                        return getApi().getEvents(request.getObject().getReadRequestUserId());
                     }
-                    else {
-                        // for feed
-                        if ((((TGFeed) request.getObject()).getUnreadCount() == null) || (((TGFeed) request.getObject()).getUnreadCount() != 1)) {
-                            // get feed
-                            Call<TGFeed> feedRequest = mApi.getFeed();
-                            feedRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
-                        }
-                        else {
-                            // get unread feed
-                            Call<TGFeed> unreadFeedRequest = mApi.getUnreadFeed();
-                            unreadFeedRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
-                        }
+                    // for feed
+                    if ((((TGFeed) request.getObject()).getUnreadCount() == null) || (((TGFeed) request.getObject()).getUnreadCount() != 1)) {
+                        return getApi().getFeed();
                     }
-                    return;
+                    // get unread feed
+                    return getApi().getUnreadFeed();
                 }
                 else if (request.getObject() instanceof TGFeedCount) {
                     // feed count request
-                    Call<TGFeedCount> countRequest = mApi.getUnreadFeedCount();
-                    countRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
+                    return getApi().getUnreadFeedCount();
                 }
                 else if (request.getObject() instanceof TGPendingConnections) {
-                    Call<TGPendingConnections> connectionsRequest = mApi.getPendingConnections();
-                    connectionsRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
+                    return getApi().getPendingConnections();
                 }
-                else {
-                    sendErrorToCallbacks(request.getCallback(), TGRequestErrorType.ErrorType.UNSUPPORTED_INPUT);
-                    return;
-
-                }
-                break;
+                return null;
             case UPDATE:
                 if (request.getObject() instanceof TGSocialConnections) {
-                    Call<TGConnectionUsersList> socialRequest = mApi.socialConnections((TGSocialConnections) request.getObject());
-                    socialRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
+                    return getApi().socialConnections((TGSocialConnections) request.getObject());
                 }
                 else if (request.getObject() instanceof TGUser) {
                     // user request
-                    Call<TGUser> userRequestUpdate = mApi.updateUser((TGUser) request.getObject());
-                    userRequestUpdate.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
-                    return;
+                    return getApi().updateUser((TGUser) request.getObject());
                 }
                 else if (request.getObject() instanceof TGEvent) {
                     // event request
-                    Call<TGEvent> eventUpdateRequest = mApi.updateEvent(((TGEvent) request.getObject()).getID(), (TGEvent) request.getObject());
-                    eventUpdateRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
-                    return;
-                }
-                else if (request.getObject() instanceof TGConnection) {
-                    // connection request
-                    sendErrorToCallbacks(request.getCallback(), TGRequestErrorType.ErrorType.UNSUPPORTED_INPUT);
-                    return;
-                }
-                else {
-                    sendErrorToCallbacks(request.getCallback(), TGRequestErrorType.ErrorType.UNSUPPORTED_INPUT);
-                    return;
+                    return getApi().updateEvent(mLocalChanges.getServerId(((TGEvent) request.getObject()).getID()), (TGEvent) request.getObject());
                 }
+                // updating connections is not supported
+                return null;
             case DELETE:
                 if (request.getObject() instanceof TGUser) {
                     // user request
-                    Call<Object> userRequestDelete = mApi.deleteUser();
-                    userRequestDelete.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
+                    return getApi().deleteUser();
                 }
                 else if (request.getObject() instanceof TGConnection) {
                     // connection request
                     TGConnection connectionCreateObject = (TGConnection) request.getObject();
-                    if (connectionCreateObject.getCacheObjectType() == null) {
-                        sendErrorToCallbacks(request.getCallback(), TGRequestErrorType.ErrorType.UNSUPPORTED_INPUT);
-                    }
-                    else {
-                        Call<Object> removeConnectionRequest = mApi.removeConnection(connectionCreateObject.getUserToId(), connectionCreateObject.getType().toString());
-                        removeConnectionRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
-                    }
+                    if (connectionCreateObject.getCacheObjectType() == null) { return null; }
+                    return getApi().removeConnection(connectionCreateObject.getUserToId(), connectionCreateObject.getType().toString());
                 }
                 else if (request.getObject() instanceof TGEvent) {
                     // event request
-                    Call<Object> removeEventRequest = mApi.removeEvent(((TGEvent) request.getObject()).getID());
-                    removeEventRequest.enqueue(new TGNetworkRequestWithErrorHandling<>(this, request));
+                    return getApi().removeEvent(mLocalChanges.getServerId(request.getObject().getReadRequestObjectId()));
                 }
-                else {
-                    sendErrorToCallbacks(request.getCallback(), TGRequestErrorType.ErrorType.UNSUPPORTED_INPUT);
-                    return;
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Perform request on calling thread and return its result. Unlike {@link
+     * #performRequest(TGRequest)}, requests are never queued while offline and callbacks of request
+     * are not called - errors are thrown instead. Must not be called on main thread
+     *
+     * @param request request to be performed
+     *
+     * @return Result of request
+     *
+     * @throws TGRequestException when request can't be performed or server returns error
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    <OUTOBJECT extends TGBaseObject> OUTOBJECT execute(@NonNull TGRequest<?, OUTOBJECT> request) throws TGRequestException {
+        tryToSendAnalytics();
+        if (request.getObject() == null
+            && request.getRequestType() != TGRequestType.LOGOUT) {
+            throw new TGRequestException(new TGRequestErrorType(TGRequestErrorType.ErrorType.NULL_INPUT));
+        }
+        // check if we got valid user or request is not a login/creation one
+        if (tapglue.getUserManager().getCurrentUser() == null &&
+            !(request.getRequestType() == TGRequestType.LOGIN
+                || (request.getRequestType() == TGRequestType.CREATE && request.getObject() instanceof TGUser)
+            )) {
+            throw new TGRequestException(new TGRequestErrorType(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN));
+        }
+        // check if request references object created while offline
+        TGLocalChanges.State localState = mLocalChanges.getState(request);
+        if (localState == TGLocalChanges.State.REJECTED) {
+            throw new TGRequestException(new TGRequestErrorType(TGRequestErrorType.ErrorType.NOT_FOUND));
+        }
+        if (!isNetworkAvailable() || localState == TGLocalChanges.State.WAITING) {
+            throw new TGRequestException(new TGRequestErrorType(TGRequestErrorType.ErrorType.NO_NETWORK));
+        }
+        mOfflineQueue.flush();
+        Call<?> call = isBatch(request) ? null : createCall(request);
+        if (call == null) {
+            throw new TGRequestException(new TGRequestErrorType(TGRequestErrorType.ErrorType.UNSUPPORTED_INPUT));
+        }
+        request.setCall(call);
+        Response<OUTOBJECT> response;
+        try {
+            response = ((Call<OUTOBJECT>) call).execute();
+        } catch (IOException e) {
+            getLogger().logE(e);
+            throw new TGRequestException(new TGRequestErrorType(TGRequestErrorType.ErrorType.SERVER_ERROR), e);
+        }
+        OUTOBJECT body;
+        try {
+            body = readResponse(request, response);
+        } catch (TGRequestException e) {
+            mLocalChanges.rollback(request);
+            throw e;
+        }
+        return applyResponse(request, body);
+    }
+
+    /**
+     * Read response of request - error bodies are turned into exception. Body of successful
+     * response isn't merged into caches yet, see {@link #applyResponse(TGRequest, TGBaseObject)}
+     *
+     * @param request  request of response
+     * @param response received response
+     *
+     * @return Body of response, null for responses without API object (logout, removal)
+     *
+     * @throws TGRequestException when server returned error
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private <OUTOBJECT extends TGBaseObject> OUTOBJECT readResponse(@NonNull TGRequest<?, OUTOBJECT> request, @NonNull Response<OUTOBJECT> response) throws TGRequestException {
+        // interpret error code
+        if (response.errorBody() != null) {
+            List<TGRequestErrorType> errors = new ArrayList<>();
+            int intCh;
+            try {
+                Reader stream = response.errorBody().charStream();
+                StringBuilder builder = new StringBuilder();
+                while ((intCh = stream.read()) != -1) {
+                    builder.append((char) intCh);
+                }
+
+                String stringResponse = builder.toString();
+                TGErrorList error = new Gson().fromJson(stringResponse, new TypeToken<TGErrorList>() {}.getType());
+                if (error != null && error.getErrors() != null) {
+                    for (int i = 0; i < error.getErrors().size(); i++) {
+                        errors.add(new TGRequestErrorType(error.getErrors().get(i).getErrorCode(), error.getErrors().get(i).getMessage()));
+                    }
                 }
-                break;
+            } catch (IOException | JsonParseException e) {
+                getLogger().logE(e);
+            }
+            if (errors.isEmpty()) {
+                TGRequestErrorType.ErrorType errorType = TGRequestErrorType.ErrorType.get(response.code());
+                if (errorType == null) {
+                    errorType = TGRequestErrorType.ErrorType.UNKNOWN_ERROR;
+                }
+                errors.add(new TGRequestErrorType(errorType));
+            }
+            throw new TGRequestException(errors);
+        }
+        Object body = ((Response<?>) response).body();
+        return body instanceof TGBaseObject ? (OUTOBJECT) body : null;
+    }
+
+    /**
+     * Reconcile body of successful response with local changes and merge it into entity store and
+     * indexes, invalidate cached responses changed by request and data of previous user after login
+     * or logout - must run where callbacks are called, as canonical objects are changed in place
+     *
+     * @param request request of response
+     * @param body    read body of response
+     *
+     * @return Canonical body of response
+     */
+    @Nullable
+    private <OUTOBJECT extends TGBaseObject> OUTOBJECT applyResponse(@NonNull TGRequest<?, OUTOBJECT> request, @Nullable OUTOBJECT body) {
+        if (request.getRequestType() == TGRequestType.LOGIN || request.getRequestType() == TGRequestType.LOGOUT) {
+            // user changed, only after request succeeded so failed login keeps data of current user
+            mFactory.clearUserData();
+        }
+        if (request.getRequestType() == TGRequestType.CREATE || request.getRequestType() == TGRequestType.UPDATE
+            || request.getRequestType() == TGRequestType.DELETE) {
+            // reads finished while change was sent could cache state from before it
+            mFactory.invalidateCacheFor(request.getObject());
+        }
+        body = mLocalChanges.reconcile(request, body);
+        body = getEntityStore().mergeResponse(body);
+        if (body instanceof TGConnectionUsersList) {
+            getSocialGraph().merge(((TGConnectionUsersList) body).getUsers());
+            getUserSearchIndex().addAll(((TGConnectionUsersList) body).getUsers());
+            saveUserSearchIndex();
+        }
+        else if (body instanceof TGUser) {
+            getUserSearchIndex().add((TGUser) body);
+            saveUserSearchIndex();
         }
+        return body;
     }
 
     /**
@@ -637,14 +841,14 @@ public class TGNetworkManager {
      * possibility
      */
     private void tryToSendAnalytics() {
-        if (analyticsSent || !mConfiguration.isAnalyticsEnabled()) { return; }
+        if (mAnalyticsSent.get() || !mConfiguration.isAnalyticsEnabled()) { return; }
         if (!isNetworkAvailable()) { return; }
+        if (!mAnalyticsSent.compareAndSet(false, true)) { return; }
         getLogger().log("Trying to send analytics");
-        analyticsSent = true;
-        mApi.sendAnalytics().enqueue(new Callback<Object>() {
+        getApi().sendAnalytics().enqueue(new Callback<Object>() {
             @Override
             public void onFailure(Throwable t) {
-                analyticsSent = false;
+                mAnalyticsSent.set(false);
                 getLogger().log("Analytics sending fail, will retry in future");
             }
 
@@ -657,7 +861,8 @@ public class TGNetworkManager {
     }
 
     /**
-     * Extended network request handling - only for use with TGNetworkManager
+     * Extended network request handling - only for use with TGNetworkManager. Response is decoded
+     * on decode stage of request pipeline and callbacks are called on its delivery stage.
      *
      * @param <OBJECT>
      */
@@ -674,55 +879,109 @@ public class TGNetworkManager {
 
         @Override
         public void onFailure(@NonNull Throwable t) {
+            final TGNetworkManager netManager = mNetManager.get();
+            if (netManager == null) { return; }
+            netManager.mPipeline.onReceived();
             // check if request is not outdated
-            if (!hasOutdatedCallback(mRequest.getCallback())) { return; }
-            mNetManager.get().getLogger().logE(t);
-            if (mRequest.needToBeDoneLive() || !mNetManager.get().isCacheEnabled()) {
-                for (int i = 0; i < mRequest.getCallback().size(); i++) {
-                    (mRequest.getCallback().get(i)).onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.SERVER_ERROR));
-                }
+            if (mRequest.isCancelled() || !hasOutdatedCallback(mRequest.getCallback())) {
+                netManager.mInFlight.remove(mRequest);
+                mRequest.finish();
+                return;
+            }
+            netManager.getLogger().logE(t);
+            if (mRequest.needToBeDoneLive() || !netManager.isCacheEnabled()) {
+                netManager.mInFlight.remove(mRequest);
+                deliver(netManager, new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < mRequest.getCallback().size(); i++) {
+                            (mRequest.getCallback().get(i)).onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.SERVER_ERROR));
+                        }
+                    }
+                });
             }
             else {
-                mNetManager.get().addToCache(mRequest);
-                mNetManager.get().getLogger().log("Request added to cache");
+                mRequest.finish();
+                netManager.mOfflineQueue.add(mRequest);
+                // removed only after queuing, so local IDs it references are not pruned
+                netManager.mInFlight.remove(mRequest);
+                netManager.getLogger().log("Request added to cache");
             }
         }
 
         @Override
-        public void onResponse(@NonNull Response<OUTOBJECT> response, Retrofit retrofit) {
+        public void onResponse(@NonNull final Response<OUTOBJECT> response, Retrofit retrofit) {
+            final TGNetworkManager netManager = mNetManager.get();
+            if (netManager == null) { return; }
+            netManager.mInFlight.remove(mRequest);
+            netManager.mPipeline.onReceived();
             // check if request is not outdated
-            if (!hasOutdatedCallback(mRequest.getCallback())) { return; }
-            // interpret error code
-            if (response.errorBody() != null) {
-                int intCh;
-                try {
-                    Reader stream = response.errorBody().charStream();
-                    StringBuilder builder = new StringBuilder();
-                    while ((intCh = stream.read()) != -1) {
-                        builder.append((char) intCh);
-                    }
-
-                    String stringResponse = builder.toString();
-                    TGErrorList error = new Gson().fromJson(stringResponse, new TypeToken<TGErrorList>() {}.getType());
+            if (mRequest.isCancelled() || !hasOutdatedCallback(mRequest.getCallback())) {
+                mRequest.finish();
+                return;
+            }
+            netManager.mPipeline.decode(new Runnable() {
+                @Override
+                public void run() {
+                    decode(netManager, response);
+                }
+            });
+        }
 
-                    for (int i = 0; i < error.getErrors().size(); i++) {
-                        sendErrorToCallbacks(mRequest.getCallback(), error.getErrors().get(i).getErrorCode(), error.getErrors().get(i).getMessage());
+        /**
+         * Decode response on decode stage, then merge it into caches and call callbacks on delivery
+         * stage
+         *
+         * @param netManager network manager
+         * @param response   response to decode
+         */
+        private void decode(@NonNull final TGNetworkManager netManager, @NonNull Response<OUTOBJECT> response) {
+            final OUTOBJECT body;
+            try {
+                body = netManager.readResponse(mRequest, response);
+            } catch (final TGRequestException e) {
+                netManager.mPipeline.deliver(mRequest.getCallerLooper(), new Runnable() {
+                    @Override
+                    public void run() {
+                        mRequest.finish();
+                        netManager.mLocalChanges.rollback(mRequest);
+                        if (mRequest.isCancelled()) { return; }
+                        for (TGRequestErrorType error : e.getErrors()) {
+                            for (int i = 0; i < mRequest.getCallback().size(); i++) {
+                                mRequest.getCallback().get(i).onRequestError(error);
+                            }
+                        }
                     }
-
-                    return;
-                } catch (IOException e) {
-                    TGRequestErrorType.ErrorType errorType = TGRequestErrorType.ErrorType.get(response.code());
-                    if (errorType == null) {
-                        errorType = TGRequestErrorType.ErrorType.UNKNOWN_ERROR;
+                });
+                return;
+            }
+            netManager.mPipeline.deliver(mRequest.getCallerLooper(), new Runnable() {
+                @Override
+                public void run() {
+                    mRequest.finish();
+                    OUTOBJECT output = netManager.applyResponse(mRequest, body);
+                    if (mRequest.isCancelled()) { return; }
+                    for (int i = 0; i < mRequest.getCallback().size(); i++) {
+                        mRequest.getCallback().get(i).onRequestFinished(output, true);
                     }
-                    sendErrorToCallbacks(mRequest.getCallback(), errorType);
-                    return;
                 }
-            }
+            });
+        }
 
-            for (int i = 0; i < mRequest.getCallback().size(); i++) {
-                mRequest.getCallback().get(i).onRequestFinished(response.body(), true);
-            }
+        /**
+         * Call callbacks on delivery stage, unless request was cancelled meanwhile
+         *
+         * @param netManager network manager
+         * @param delivery   task calling callbacks
+         */
+        private void deliver(@NonNull TGNetworkManager netManager, @NonNull final Runnable delivery) {
+            netManager.mPipeline.deliver(mRequest.getCallerLooper(), new Runnable() {
+                @Override
+                public void run() {
+                    mRequest.finish();
+                    if (!mRequest.isCancelled()) { delivery.run(); }
+                }
+            });
         }
     }
 }
@@ -17,6 +17,7 @@
 
 package com.tapglue.networking;
 
+import com.tapglue.model.TGBulkResult;
 import com.tapglue.model.TGConnection;
 import com.tapglue.model.TGConnectionUsersList;
 import com.tapglue.model.TGEvent;
@@ -24,10 +25,13 @@ import com.tapglue.model.TGFeed;
 import com.tapglue.model.TGFeedCount;
 import com.tapglue.model.TGLoginUser;
 import com.tapglue.model.TGPendingConnections;
+import com.tapglue.model.TGSearchCriteria;
 import com.tapglue.model.TGSocialConnections;
 import com.tapglue.model.TGUser;
 import com.tapglue.networking.requests.TGRequestCallback;
 
+import java.util.Collection;
+
 public interface TGNetworkRequests {
 
     /**
@@ -49,6 +53,16 @@ public interface TGNetworkRequests {
      */
     void createConnection(Long userId, TGConnection.TGConnectionType type, String state, TGRequestCallback<TGConnection> output);
 
+    /**
+     * Create connections to many users
+     *
+     * @param userIds users to which connections should be made
+     * @param type    type of connections
+     * @param state   state of connections
+     * @param output  return callback with aggregated result
+     */
+    void createConnections(Collection<Long> userIds, TGConnection.TGConnectionType type, String state, TGRequestCallback<TGBulkResult> output);
+
     /**
      * Create event for current user
      *
@@ -193,6 +207,13 @@ public interface TGNetworkRequests {
      */
     void logout(TGRequestCallback<Object> output);
 
+    /**
+     * Load pending connections from server, skipping cached response
+     *
+     * @param returnCallback return callback
+     */
+    void refreshPendingConnectionsRequest(TGRequestCallback<TGPendingConnections> returnCallback);
+
     /**
      * Reject connection
      *
@@ -211,6 +232,15 @@ public interface TGNetworkRequests {
      */
     void removeConnection(Long userId, TGConnection.TGConnectionType type, TGRequestCallback<Object> output);
 
+    /**
+     * Remove connections to many users
+     *
+     * @param userIds users the connections are made with
+     * @param type    type of connections
+     * @param output  return callback with aggregated result
+     */
+    void removeConnections(Collection<Long> userIds, TGConnection.TGConnectionType type, TGRequestCallback<TGBulkResult> output);
+
     /**
      * Remove event of current user
      *
@@ -232,8 +262,10 @@ public interface TGNetworkRequests {
      *
      * @param searchCriteria Search phrase
      * @param output         return callback
+     *
+     * @return Request which can be cancelled
      */
-    void search(String searchCriteria, TGRequestCallback<TGConnectionUsersList> output);
+    TGRequest<TGSearchCriteria, TGConnectionUsersList> search(String searchCriteria, TGRequestCallback<TGConnectionUsersList> output);
 
     /**
      * Update social connections
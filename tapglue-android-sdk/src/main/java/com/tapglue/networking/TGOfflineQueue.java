@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking;
+
+import android.content.SharedPreferences;
+import android.support.annotation.NonNull;
+
+import com.tapglue.cache.TGIOExecutor;
+import com.tapglue.utils.TGLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Persistent queue of requests made while offline. Only I/O thread touches stored queue - other
+ * threads hand requests over through lock-free queue, so adding request never waits for flush or
+ * disk write in progress.
+ */
+public class TGOfflineQueue {
+    /**
+     * Storage of queued requests, used only from I/O thread
+     */
+    public interface Storage {
+        /**
+         * Add requests at the end of stored queue
+         *
+         * @param requests requests to be added
+         */
+        void append(@NonNull List<TGRequest> requests);
+
+        /**
+         * Get amount of stored requests
+         *
+         * @return amount of requests
+         */
+        int size();
+
+        /**
+         * Remove and return all stored requests
+         *
+         * @return stored requests in order of adding
+         */
+        @NonNull
+        List<TGRequest> takeAll();
+    }
+
+    /**
+     * Receiver of flushed requests
+     */
+    public interface Target {
+        /**
+         * Can queued requests be sent right now?
+         *
+         * @return true if requests can be sent
+         */
+        boolean canSend();
+
+        /**
+         * Send flushed request - if it can't be sent, it is added to queue again
+         *
+         * @param request request to be sent
+         */
+        void send(@NonNull TGRequest request);
+
+        /**
+         * Called on I/O thread after all flushed requests were sent
+         *
+         * @param queued requests queued again while flushing
+         */
+        void onFlushed(@NonNull List<TGRequest> queued);
+    }
+
+    /**
+     * Requests added since last drain, waiting for I/O thread
+     */
+    @NonNull
+    private final ConcurrentLinkedQueue<TGRequest> mIncoming = new ConcurrentLinkedQueue<>();
+    /**
+     * Is drain of incoming requests already posted to I/O thread?
+     */
+    @NonNull
+    private final AtomicBoolean mDrainPosted = new AtomicBoolean();
+    /**
+     * Is flush already posted to I/O thread?
+     */
+    @NonNull
+    private final AtomicBoolean mFlushPosted = new AtomicBoolean();
+    /**
+     * Is flush after flush interval already scheduled?
+     */
+    @NonNull
+    private final AtomicBoolean mFlushScheduled = new AtomicBoolean();
+    /**
+     * Delay after which queued requests are flushed, in milliseconds
+     */
+    private final long mFlushInterval;
+    /**
+     * I/O thread, the only writer of stored queue
+     */
+    @NonNull
+    private final TGIOExecutor mIOExecutor;
+    /**
+     * Logger
+     */
+    @NonNull
+    private final TGLog mLogger;
+    /**
+     * Storage of queued requests
+     */
+    @NonNull
+    private final Storage mStorage;
+    /**
+     * Receiver of flushed requests
+     */
+    @NonNull
+    private final Target mTarget;
+    /**
+     * Amount of stored requests, written only from I/O thread
+     */
+    private volatile int mSize;
+    /**
+     * Task moving incoming requests to storage
+     */
+    @NonNull
+    private final Runnable mDrainTask = new Runnable() {
+        @Override
+        public void run() {
+            mDrainPosted.set(false);
+            drain();
+            if (mSize > 0) { scheduleFlush(); }
+        }
+    };
+    /**
+     * Task sending all stored requests
+     */
+    @NonNull
+    private final Runnable mFlushTask = new Runnable() {
+        @Override
+        public void run() {
+            mFlushPosted.set(false);
+            flushStored();
+        }
+    };
+    /**
+     * Task sending all stored requests after flush interval
+     */
+    @NonNull
+    private final Runnable mScheduledFlushTask = new Runnable() {
+        @Override
+        public void run() {
+            mFlushScheduled.set(false);
+            flushStored();
+        }
+    };
+
+    public TGOfflineQueue(@NonNull Storage storage, @NonNull Target target, @NonNull TGIOExecutor ioExecutor, @NonNull TGLog logger, long flushInterval) {
+        mStorage = storage;
+        mTarget = target;
+        mIOExecutor = ioExecutor;
+        mLogger = logger;
+        mFlushInterval = flushInterval;
+        mIOExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mSize = mStorage.size();
+                if (mSize > 0) { scheduleFlush(); }
+            }
+        });
+    }
+
+    /**
+     * Add request to queue. Never blocks - request is stored on I/O thread and flushed after flush
+     * interval
+     *
+     * @param request request to be queued
+     */
+    public void add(@NonNull TGRequest request) {
+        mIncoming.offer(request);
+        if (mDrainPosted.compareAndSet(false, true)) {
+            mIOExecutor.execute(mDrainTask);
+        }
+    }
+
+    /**
+     * Move incoming requests to storage, called only on I/O thread
+     *
+     * @return Moved requests
+     */
+    @NonNull
+    private List<TGRequest> drain() {
+        List<TGRequest> requests = new ArrayList<>();
+        TGRequest request;
+        while ((request = mIncoming.poll()) != null) {
+            requests.add(request);
+        }
+        if (requests.isEmpty()) { return requests; }
+        mLogger.log("Adding " + requests.size() + " requests to cache");
+        mStorage.append(requests);
+        mSize += requests.size();
+        return requests;
+    }
+
+    /**
+     * Get requests added since last drain
+     *
+     * @return Requests waiting for I/O thread
+     */
+    @NonNull
+    List<TGRequest> getIncoming() {
+        return new ArrayList<>(mIncoming);
+    }
+
+    /**
+     * Send queued requests now, if there are any. Returns immediately when queue is empty, so it
+     * can be called before every request
+     */
+    public void flush() {
+        if (mSize == 0 && mIncoming.isEmpty()) { return; }
+        if (mFlushPosted.compareAndSet(false, true)) {
+            mIOExecutor.execute(mFlushTask);
+        }
+    }
+
+    /**
+     * Send all stored requests, called only on I/O thread. Requests which can't be sent yet are
+     * added at the end of queue - only those queued until now are flushed
+     */
+    private void flushStored() {
+        drain();
+        if (mSize == 0) {
+            mLogger.log("Nothing to flush");
+            return;
+        }
+        if (!mTarget.canSend()) {
+            scheduleFlush();
+            return;
+        }
+        mLogger.log("Flushing cache");
+        List<TGRequest> requests = mStorage.takeAll();
+        mSize = 0;
+        for (TGRequest request : requests) {
+            try {
+                mTarget.send(request);
+            }
+            catch (RuntimeException e) {
+                mLogger.logE(e);
+            }
+        }
+        mTarget.onFlushed(drain());
+    }
+
+    /**
+     * Schedule flush after flush interval, unless flush is already pending
+     */
+    private void scheduleFlush() {
+        if (mFlushScheduled.compareAndSet(false, true)) {
+            mIOExecutor.schedule(mScheduledFlushTask, mFlushInterval);
+        }
+    }
+
+    /**
+     * Get amount of stored requests
+     *
+     * @return amount of requests
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Storage keeping queue in shared preferences, one entry per request
+     */
+    public static class PreferencesStorage implements Storage {
+        private static final String KEY_AMOUNT = "CACHE_AMOUNT";
+        private static final String KEY_QUEUE = "CACHE_QUEUE";
+
+        /**
+         * Preferences holding queue
+         */
+        @NonNull
+        private final SharedPreferences mPreferences;
+
+        public PreferencesStorage(@NonNull SharedPreferences preferences) {
+            mPreferences = preferences;
+        }
+
+        /**
+         * Add requests after last stored one, in single preferences edit
+         *
+         * @param requests requests to be added
+         */
+        @Override
+        public void append(@NonNull List<TGRequest> requests) {
+            int amount = mPreferences.getInt(KEY_AMOUNT, 0);
+            SharedPreferences.Editor editor = mPreferences.edit();
+            for (TGRequest request : requests) {
+                editor.putString(KEY_QUEUE + "_" + amount, TGCustomCacheObject.serialize(request));
+                amount++;
+            }
+            editor.putInt(KEY_AMOUNT, amount).apply();
+        }
+
+        /**
+         * Get amount of stored requests
+         *
+         * @return amount of requests
+         */
+        @Override
+        public int size() {
+            return mPreferences.getInt(KEY_AMOUNT, 0);
+        }
+
+        /**
+         * Read all stored requests and clear queue in single preferences edit
+         *
+         * @return stored requests in order of adding
+         */
+        @NonNull
+        @Override
+        public List<TGRequest> takeAll() {
+            int amount = mPreferences.getInt(KEY_AMOUNT, 0);
+            List<TGRequest> requests = new ArrayList<>(amount);
+            SharedPreferences.Editor editor = mPreferences.edit();
+            for (int i = 0; i < amount; i++) {
+                String serialized = mPreferences.getString(KEY_QUEUE + "_" + i, null);
+                TGRequest request = serialized != null ? TGCustomCacheObject.deserialize(serialized) : null;
+                if (request != null) { requests.add(request); }
+                editor.remove(KEY_QUEUE + "_" + i);
+            }
+            editor.putInt(KEY_AMOUNT, 0).apply();
+            return requests;
+        }
+    }
+}
@@ -17,7 +17,9 @@
 
 package com.tapglue.networking;
 
+import android.os.Looper;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.tapglue.model.TGBaseObject;
 import com.tapglue.networking.requests.TGRequestCallback;
@@ -26,6 +28,8 @@ import com.tapglue.networking.requests.TGRequestType;
 import java.util.ArrayList;
 import java.util.List;
 
+import retrofit.Call;
+
 public class TGRequest<OBJECT extends TGBaseObject, OUTOBJECT extends TGBaseObject> {
     /**
      * Is internet required for this request?
@@ -39,6 +43,24 @@ public class TGRequest<OBJECT extends TGBaseObject, OUTOBJECT extends TGBaseObje
      * Request type
      */
     private final TGRequestType mType;
+    /**
+     * Looper of thread which created request, used when callbacks are delivered to caller
+     */
+    @Nullable
+    private final transient Looper mCallerLooper = Looper.myLooper();
+    /**
+     * Network call of request, set when request is sent
+     */
+    @Nullable
+    private volatile Call<?> mCall;
+    /**
+     * Was request cancelled?
+     */
+    private volatile boolean mCancelled = false;
+    /**
+     * Were callbacks of request called for last time?
+     */
+    private volatile boolean mFinished = false;
     /**
      * Object on which request will be performed
      */
@@ -54,10 +76,23 @@ public class TGRequest<OBJECT extends TGBaseObject, OUTOBJECT extends TGBaseObje
      * @param returnMethod      Return callback
      */
     TGRequest(OBJECT object, TGRequestType type, boolean supportedOnlyLive, TGRequestCallback<OUTOBJECT> returnMethod) {
+        this(object, type, supportedOnlyLive);
+        mReturnCallback.add(returnMethod);
+    }
+
+    /**
+     * Create new request without callbacks, result of which is returned by {@link
+     * TGNetworkManager#execute(TGRequest)}
+     *
+     * @param object            Request object, can't be null
+     * @param type              Type of request
+     * @param supportedOnlyLive Should request be done only when internet is accessible, or can be
+     *                          cached?
+     */
+    TGRequest(OBJECT object, TGRequestType type, boolean supportedOnlyLive) {
         mObject = object;
         mType = type;
         mInternetRequired = supportedOnlyLive;
-        mReturnCallback.add(returnMethod);
     }
 
     /**
@@ -69,6 +104,23 @@ public class TGRequest<OBJECT extends TGBaseObject, OUTOBJECT extends TGBaseObje
         mReturnCallback.add(newCallback);
     }
 
+    /**
+     * Cancel request - it won't be sent, or its network call is cancelled and callbacks are not
+     * called
+     */
+    public void cancel() {
+        mCancelled = true;
+        Call<?> call = mCall;
+        if (call != null) { call.cancel(); }
+    }
+
+    /**
+     * Mark request as finished - its callbacks won't be called any more
+     */
+    void finish() {
+        mFinished = true;
+    }
+
     /**
      * Get request callbacks
      *
@@ -79,6 +131,16 @@ public class TGRequest<OBJECT extends TGBaseObject, OUTOBJECT extends TGBaseObje
         return mReturnCallback;
     }
 
+    /**
+     * Get looper of thread which created request
+     *
+     * @return Looper or null if request was created on thread without looper
+     */
+    @Nullable
+    Looper getCallerLooper() {
+        return mCallerLooper;
+    }
+
     /**
      * Get object of request
      *
@@ -88,6 +150,34 @@ public class TGRequest<OBJECT extends TGBaseObject, OUTOBJECT extends TGBaseObje
         return mObject;
     }
 
+    /**
+     * Was request cancelled?
+     *
+     * @return true if request was cancelled
+     */
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Was request finished?
+     *
+     * @return true if callbacks of request won't be called any more
+     */
+    public boolean isFinished() {
+        return mFinished;
+    }
+
+    /**
+     * Set network call of request, call is cancelled immediately if request was already cancelled
+     *
+     * @param call network call
+     */
+    void setCall(@NonNull Call<?> call) {
+        mCall = call;
+        if (mCancelled) { call.cancel(); }
+    }
+
     /**
      * Set object used by request
      *
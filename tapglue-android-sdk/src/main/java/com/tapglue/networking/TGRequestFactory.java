@@ -17,9 +17,17 @@
 
 package com.tapglue.networking;
 
+import android.support.annotation.NonNull;
+
 import com.tapglue.Tapglue;
+import com.tapglue.cache.TGSocialGraph;
+import com.tapglue.cache.TGUserSearchIndex;
 import com.tapglue.model.TGBaseObject;
+import com.tapglue.model.TGBaseObjectWithId;
+import com.tapglue.model.TGBulkResult;
 import com.tapglue.model.TGConnection;
+import com.tapglue.model.TGConnectionBatch;
+import com.tapglue.model.TGConnectionUser;
 import com.tapglue.model.TGConnectionUsersList;
 import com.tapglue.model.TGEvent;
 import com.tapglue.model.TGFeed;
@@ -33,15 +41,37 @@ import com.tapglue.networking.requests.TGRequestCallback;
 import com.tapglue.networking.requests.TGRequestErrorType;
 import com.tapglue.networking.requests.TGRequestType;
 
+import java.util.Collection;
+import java.util.List;
+
 public class TGRequestFactory implements TGNetworkRequests {
+    /**
+     * Maximal amount of users found in on-device index returned with search results
+     */
+    static final int MAX_LOCAL_SEARCH_RESULTS = 20;
 
+    /**
+     * Cache of read responses
+     */
+    @NonNull
+    private final TGResponseCache mCache;
     /**
      * Network manager
      */
     private final TGNetworkManager mNetworkManager;
 
-    public TGRequestFactory(TGNetworkManager networkManager) {
+    public TGRequestFactory(TGNetworkManager networkManager, @NonNull TGResponseCache cache) {
         mNetworkManager = networkManager;
+        mCache = cache;
+    }
+
+    /**
+     * Clear cached responses and indexes of current user, when user changes - called after login or
+     * logout succeeded
+     */
+    void clearUserData() {
+        mCache.clear();
+        mNetworkManager.clearUserData();
     }
 
     /**
@@ -87,6 +117,34 @@ public class TGRequestFactory implements TGNetworkRequests {
         createCreateObjectRequest(connection, false, output);
     }
 
+    /**
+     * Create connections to many users - they are sent with limited concurrency, or queued as single
+     * request while offline
+     *
+     * @param userIds users to which connections should be made
+     * @param type    type of connections
+     * @param state   state of connections
+     * @param output  return callback with aggregated result
+     */
+    @Override
+    public void createConnections(Collection<Long> userIds, TGConnection.TGConnectionType type, String state, TGRequestCallback<TGBulkResult> output) {
+        if (Tapglue.user().getCurrentUser() == null) {
+            output.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN));
+            return;
+        }
+        TGConnectionBatch batch = new TGConnectionBatch();
+        for (Long userId : userIds) {
+            if (userId == null) { continue; }
+            batch.add(new TGConnection()
+                .setUserFromId(Tapglue.user().getCurrentUser().getID())
+                .setState(TGConnection.TGConnectionState.fromString(state))
+                .setUserToId(userId)
+                .setType(type));
+        }
+        invalidateCacheFor(batch);
+        mNetworkManager.performRequest(new TGRequest<>(batch, TGRequestType.CREATE, false, output));
+    }
+
     /**
      * Create request for create method
      *
@@ -96,6 +154,7 @@ public class TGRequestFactory implements TGNetworkRequests {
      * @param <T>               Type of object of request
      */
     private <T extends TGBaseObject> void createCreateObjectRequest(T object, boolean canBeDoneOnlyLive, TGRequestCallback<T> output) {
+        invalidateCacheFor(object);
         mNetworkManager.performRequest(new TGRequest<>(object, TGRequestType.CREATE, canBeDoneOnlyLive, output));
     }
 
@@ -117,7 +176,8 @@ public class TGRequestFactory implements TGNetworkRequests {
      */
     @Override
     public void createPendingConnectionsRequest(TGRequestCallback<TGPendingConnections> returnCallback) {
-        mNetworkManager.performRequest(new TGRequest<>(new TGPendingConnections(), TGRequestType.READ, true, returnCallback));
+        createCachedReadObjectRequest(TGResponseCache.Route.PENDING_CONNECTIONS, TGResponseCache.key(TGResponseCache.Route.PENDING_CONNECTIONS),
+            new TGPendingConnections(), returnCallback);
     }
 
     /**
@@ -131,6 +191,74 @@ public class TGRequestFactory implements TGNetworkRequests {
         mNetworkManager.performRequest(new TGRequest<>(object, TGRequestType.READ, true, output));
     }
 
+    /**
+     * Create request for read method, served from response cache when possible. Fresh entries are
+     * returned without network request, stale ones are returned at once and then revalidated, so
+     * callback receives second result (or error) when revalidation is finished. Cached entries are
+     * delivered on delivery stage of request pipeline, like responses
+     *
+     * @param route  Cached route
+     * @param key    Key of cache entry
+     * @param object Object of request
+     * @param output Output callback
+     * @param <T>    Type of object of request
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends TGBaseObject, TO extends TGBaseObject> void createCachedReadObjectRequest(@NonNull final TGResponseCache.Route route, @NonNull final String key, final T object, @NonNull TGRequestCallback<TO> output) {
+        if (!mCache.isEnabled()) {
+            final TGRequestCallback<TO> uncachedOutput = output;
+            final int generation = mCache.getGeneration();
+            mNetworkManager.performRequest(new TGRequest<>(object, TGRequestType.READ, true, new TGRequestCallback<TO>() {
+                @Override
+                public boolean callbackIsEnabled() {
+                    return uncachedOutput.callbackIsEnabled();
+                }
+
+                @Override
+                public void onRequestError(TGRequestErrorType cause) {
+                    uncachedOutput.onRequestError(cause);
+                }
+
+                @Override
+                public void onRequestFinished(TO output, boolean changeDoneOnline) {
+                    putResponse(route, key, object, output, generation);
+                    uncachedOutput.onRequestFinished(output, changeDoneOnline);
+                }
+            }));
+            return;
+        }
+        TGResponseCache.CachedResponse entry = mCache.get(key);
+        if (entry != null) {
+            updateSocialGraph(route, key, object, entry.mValue);
+            mNetworkManager.deliverResult(new TGRequest<>(object, TGRequestType.READ, true, output), entry.mValue);
+            if (mCache.isFresh(entry)) { return; }
+        }
+        final List<TGRequestCallback<?>> waiting = mCache.joinRequest(key, output);
+        if (waiting == null) { return; }
+        final int generation = mCache.getGeneration();
+        mNetworkManager.performRequest(new TGRequest<>(object, TGRequestType.READ, true, new TGRequestCallback<TO>() {
+            @Override
+            public boolean callbackIsEnabled() {
+                return mCache.hasEnabledCallback(waiting);
+            }
+
+            @Override
+            public void onRequestError(TGRequestErrorType cause) {
+                for (TGRequestCallback<?> callback : mCache.finishRequest(key, waiting)) {
+                    callback.onRequestError(cause);
+                }
+            }
+
+            @Override
+            public void onRequestFinished(TO output, boolean changeDoneOnline) {
+                putResponse(route, key, object, output, generation);
+                for (TGRequestCallback<?> callback : mCache.finishRequest(key, waiting)) {
+                    ((TGRequestCallback<TO>) callback).onRequestFinished(output, changeDoneOnline);
+                }
+            }
+        }));
+    }
+
     /**
      * Create request for remove method
      *
@@ -139,6 +267,7 @@ public class TGRequestFactory implements TGNetworkRequests {
      * @param output            Output callback
      */
     private void createRemoveObjectRequest(TGBaseObject object, boolean canBeDoneOnlyLive, TGRequestCallback<Object> output) {
+        forgetRemoved(object);
         mNetworkManager.performRequest(new TGRequest(object, TGRequestType.DELETE, canBeDoneOnlyLive, output));
     }
 
@@ -150,6 +279,7 @@ public class TGRequestFactory implements TGNetworkRequests {
      * @param <T>    Type of object of request
      */
     private <T extends TGBaseObject> void createUpdateObjectRequest(T object, TGRequestCallback<T> output) {
+        invalidateCacheFor(object);
         mNetworkManager.performRequest(new TGRequest<>(object, TGRequestType.UPDATE, false, output));
     }
 
@@ -164,6 +294,21 @@ public class TGRequestFactory implements TGNetworkRequests {
         createCreateObjectRequest(user, true, output);
     }
 
+    /**
+     * Remove object being deleted from response cache and entity store
+     *
+     * @param object removed object
+     */
+    void forgetRemoved(TGBaseObject object) {
+        invalidateCacheFor(object);
+        if (object instanceof TGEvent && object.getReadRequestObjectId() != null) {
+            mNetworkManager.getEntityStore().remove(TGEvent.class, object.getReadRequestObjectId());
+        }
+        else if (object instanceof TGBaseObjectWithId) {
+            mNetworkManager.getEntityStore().remove((TGBaseObjectWithId<?>) object);
+        }
+    }
+
     /**
      * Get users followed by current user
      *
@@ -171,7 +316,8 @@ public class TGRequestFactory implements TGNetworkRequests {
      */
     @Override
     public void getCurrentUserFollowed(TGRequestCallback<TGConnectionUsersList> output) {
-        createReadObjectRequest(new TGConnection().setType(TGConnection.TGConnectionType.FOLLOW).setUserFromId(null), output);
+        createCachedReadObjectRequest(TGResponseCache.Route.USER_FOLLOWS, TGResponseCache.key(TGResponseCache.Route.USER_FOLLOWS, (Object) null),
+            new TGConnection().setType(TGConnection.TGConnectionType.FOLLOW).setUserFromId(null), output);
     }
 
     /**
@@ -181,7 +327,8 @@ public class TGRequestFactory implements TGNetworkRequests {
      */
     @Override
     public void getCurrentUserFollowers(TGRequestCallback<TGConnectionUsersList> output) {
-        createReadObjectRequest(new TGConnection().setType(null).setUserFromId(null), output);
+        createCachedReadObjectRequest(TGResponseCache.Route.USER_FOLLOWERS, TGResponseCache.key(TGResponseCache.Route.USER_FOLLOWERS, (Object) null),
+            new TGConnection().setType(null).setUserFromId(null), output);
     }
 
     /**
@@ -191,7 +338,8 @@ public class TGRequestFactory implements TGNetworkRequests {
      */
     @Override
     public void getCurrentUserFriends(TGRequestCallback<TGConnectionUsersList> output) {
-        createReadObjectRequest(new TGConnection().setType(TGConnection.TGConnectionType.FRIEND).setUserFromId(null), output);
+        createCachedReadObjectRequest(TGResponseCache.Route.USER_FRIENDS, TGResponseCache.key(TGResponseCache.Route.USER_FRIENDS, (Object) null),
+            new TGConnection().setType(TGConnection.TGConnectionType.FRIEND).setUserFromId(null), output);
     }
 
     /**
@@ -202,7 +350,8 @@ public class TGRequestFactory implements TGNetworkRequests {
      */
     @Override
     public void getEvent(Long eventID, TGRequestCallback<TGEvent> output) {
-        createReadObjectRequest(new TGEvent(null).setReadRequestObjectId(eventID), output);
+        createCachedReadObjectRequest(TGResponseCache.Route.EVENT, TGResponseCache.key(TGResponseCache.Route.EVENT, null, eventID),
+            new TGEvent(null).setReadRequestObjectId(eventID), output);
     }
 
     /**
@@ -214,7 +363,8 @@ public class TGRequestFactory implements TGNetworkRequests {
      */
     @Override
     public void getEvent(Long userId, Long eventId, TGRequestCallback<TGEvent> output) {
-        createReadObjectRequest(new TGEvent(null).setReadRequestUserId(userId).setReadRequestObjectId(eventId), output);
+        createCachedReadObjectRequest(TGResponseCache.Route.EVENT, TGResponseCache.key(TGResponseCache.Route.EVENT, userId, eventId),
+            new TGEvent(null).setReadRequestUserId(userId).setReadRequestObjectId(eventId), output);
     }
 
     /**
@@ -224,7 +374,8 @@ public class TGRequestFactory implements TGNetworkRequests {
      */
     @Override
     public void getEvents(TGRequestCallback<TGFeed> output) {
-        createReadObjectRequest(new TGFeed().setIsFeed(false), output);
+        createCachedReadObjectRequest(TGResponseCache.Route.USER_EVENTS, TGResponseCache.key(TGResponseCache.Route.USER_EVENTS, (Object) null),
+            new TGFeed().setIsFeed(false), output);
     }
 
     /**
@@ -235,7 +386,8 @@ public class TGRequestFactory implements TGNetworkRequests {
      */
     @Override
     public void getEvents(Long userId, TGRequestCallback<TGFeed> output) {
-        createReadObjectRequest(new TGFeed().setIsFeed(false).setReadRequestUserId(userId), output);
+        createCachedReadObjectRequest(TGResponseCache.Route.USER_EVENTS, TGResponseCache.key(TGResponseCache.Route.USER_EVENTS, userId),
+            new TGFeed().setIsFeed(false).setReadRequestUserId(userId), output);
     }
 
     /**
@@ -276,7 +428,8 @@ public class TGRequestFactory implements TGNetworkRequests {
      */
     @Override
     public void getUserByID(Long id, TGRequestCallback<TGUser> output) {
-        createReadObjectRequest(new TGUser().setReadRequestObjectId(id), output);
+        createCachedReadObjectRequest(TGResponseCache.Route.USER, TGResponseCache.key(TGResponseCache.Route.USER, id),
+            new TGUser().setReadRequestObjectId(id), output);
     }
 
     /**
@@ -287,7 +440,8 @@ public class TGRequestFactory implements TGNetworkRequests {
      */
     @Override
     public void getUserFollowed(Long userId, TGRequestCallback<TGConnectionUsersList> output) {
-        createReadObjectRequest(new TGConnection().setType(TGConnection.TGConnectionType.FOLLOW).setUserFromId(userId), output);
+        createCachedReadObjectRequest(TGResponseCache.Route.USER_FOLLOWS, TGResponseCache.key(TGResponseCache.Route.USER_FOLLOWS, userId),
+            new TGConnection().setType(TGConnection.TGConnectionType.FOLLOW).setUserFromId(userId), output);
     }
 
     /**
@@ -298,7 +452,8 @@ public class TGRequestFactory implements TGNetworkRequests {
      */
     @Override
     public void getUserFollowers(Long userId, TGRequestCallback<TGConnectionUsersList> output) {
-        createReadObjectRequest(new TGConnection().setType(null).setUserFromId(userId), output);
+        createCachedReadObjectRequest(TGResponseCache.Route.USER_FOLLOWERS, TGResponseCache.key(TGResponseCache.Route.USER_FOLLOWERS, userId),
+            new TGConnection().setType(null).setUserFromId(userId), output);
     }
 
     /**
@@ -309,7 +464,29 @@ public class TGRequestFactory implements TGNetworkRequests {
      */
     @Override
     public void getUserFriends(Long userId, TGRequestCallback<TGConnectionUsersList> output) {
-        createReadObjectRequest(new TGConnection().setType(TGConnection.TGConnectionType.FRIEND).setUserFromId(userId), output);
+        createCachedReadObjectRequest(TGResponseCache.Route.USER_FRIENDS, TGResponseCache.key(TGResponseCache.Route.USER_FRIENDS, userId),
+            new TGConnection().setType(TGConnection.TGConnectionType.FRIEND).setUserFromId(userId), output);
+    }
+
+    /**
+     * Invalidate cached responses that could be changed by modification of object
+     *
+     * @param object modified object
+     */
+    void invalidateCacheFor(TGBaseObject object) {
+        if (object instanceof TGUser) {
+            mCache.invalidate(TGResponseCache.Route.USER);
+        }
+        else if (object instanceof TGConnection || object instanceof TGConnectionBatch) {
+            mCache.invalidate(TGResponseCache.Route.USER_FRIENDS);
+            mCache.invalidate(TGResponseCache.Route.USER_FOLLOWS);
+            mCache.invalidate(TGResponseCache.Route.USER_FOLLOWERS);
+            mCache.invalidate(TGResponseCache.Route.PENDING_CONNECTIONS);
+        }
+        else if (object instanceof TGEvent) {
+            mCache.invalidate(TGResponseCache.Route.EVENT);
+            mCache.invalidate(TGResponseCache.Route.USER_EVENTS);
+        }
     }
 
     /**
@@ -333,6 +510,50 @@ public class TGRequestFactory implements TGNetworkRequests {
         mNetworkManager.performRequest(new TGRequest(null, TGRequestType.LOGOUT, true, output));
     }
 
+    /**
+     * Store response of read request in response cache and social graph, unless user data were
+     * cleared since request was started
+     *
+     * @param route      cached route
+     * @param key        key of cache entry
+     * @param object     object of request
+     * @param output     received response
+     * @param generation generation of response cache when request was started
+     */
+    void putResponse(@NonNull TGResponseCache.Route route, @NonNull String key, Object object, Object output, int generation) {
+        if (mCache.put(route, key, output, generation)) { updateSocialGraph(route, key, object, output); }
+    }
+
+    /**
+     * Get generation of response cache, changed when user data are cleared
+     *
+     * @return Cache generation
+     */
+    int getCacheGeneration() {
+        return mCache.getGeneration();
+    }
+
+    /**
+     * Get cache of read responses
+     *
+     * @return Response cache
+     */
+    @NonNull
+    TGResponseCache getResponseCache() {
+        return mCache;
+    }
+
+    /**
+     * Load pending connections from server, skipping cached response
+     *
+     * @param returnCallback return callback
+     */
+    @Override
+    public void refreshPendingConnectionsRequest(TGRequestCallback<TGPendingConnections> returnCallback) {
+        mCache.invalidate(TGResponseCache.Route.PENDING_CONNECTIONS);
+        createPendingConnectionsRequest(returnCallback);
+    }
+
     /**
      * Reject connection
      *
@@ -348,6 +569,7 @@ public class TGRequestFactory implements TGNetworkRequests {
         }
         TGConnection connection = new TGConnection()
             .setUserFromId(Tapglue.user().getCurrentUser().getID())
+            .setUserToId(userId)
             .setType(type)
             .setState(TGConnection.TGConnectionState.REJECTED);
         createCreateObjectRequest(connection, false, output);
@@ -373,6 +595,32 @@ public class TGRequestFactory implements TGNetworkRequests {
         createRemoveObjectRequest(connection, false, output);
     }
 
+    /**
+     * Remove connections to many users - they are sent with limited concurrency, or queued as single
+     * request while offline
+     *
+     * @param userIds users the connections are made with
+     * @param type    type of connections
+     * @param output  return callback with aggregated result
+     */
+    @Override
+    public void removeConnections(Collection<Long> userIds, TGConnection.TGConnectionType type, TGRequestCallback<TGBulkResult> output) {
+        if (Tapglue.user().getCurrentUser() == null) {
+            output.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN));
+            return;
+        }
+        TGConnectionBatch batch = new TGConnectionBatch();
+        for (Long userId : userIds) {
+            if (userId == null) { continue; }
+            batch.add(new TGConnection()
+                .setUserToId(userId)
+                .setType(type)
+                .setUserFromId(Tapglue.user().getCurrentUser().getID()));
+        }
+        invalidateCacheFor(batch);
+        mNetworkManager.performRequest(new TGRequest<>(batch, TGRequestType.DELETE, false, output));
+    }
+
     /**
      * Remove event of current user
      *
@@ -396,14 +644,44 @@ public class TGRequestFactory implements TGNetworkRequests {
     }
 
     /**
-     * Do a search query for users
+     * Do a search query for users. Users found in on-device index are returned first - while
+     * offline only they are returned, with changeDoneOnline set to false. Results are always
+     * delivered on delivery stage of request pipeline
      *
      * @param searchCriteria Search phrase
      * @param output         return callback
+     *
+     * @return Request which can be cancelled
      */
     @Override
-    public void search(String searchCriteria, TGRequestCallback<TGConnectionUsersList> output) {
-        mNetworkManager.performRequest(new TGRequest<>(new TGSearchCriteria().setSearchCriteria(searchCriteria), TGRequestType.SEARCH, true, output));
+    @NonNull
+    public TGRequest<TGSearchCriteria, TGConnectionUsersList> search(String searchCriteria, @NonNull final TGRequestCallback<TGConnectionUsersList> output) {
+        TGUserSearchIndex index = mNetworkManager.getUserSearchIndex();
+        final List<TGConnectionUser> localHits = index.search(searchCriteria, MAX_LOCAL_SEARCH_RESULTS);
+        TGRequest<TGSearchCriteria, TGConnectionUsersList> request = new TGRequest<>(new TGSearchCriteria().setSearchCriteria(searchCriteria), TGRequestType.SEARCH, true,
+            new TGRequestCallback<TGConnectionUsersList>() {
+                @Override
+                public boolean callbackIsEnabled() {
+                    return output.callbackIsEnabled();
+                }
+
+                @Override
+                public void onRequestError(TGRequestErrorType cause) {
+                    output.onRequestError(cause);
+                }
+
+                @Override
+                public void onRequestFinished(TGConnectionUsersList remote, boolean changeDoneOnline) {
+                    output.onRequestFinished(TGUserSearchIndex.merge(localHits, remote), changeDoneOnline);
+                }
+            });
+        if (!mNetworkManager.isNetworkAvailable() && index.size() > 0) {
+            // local hits only, delivered like responses so cancelling request drops them
+            mNetworkManager.deliverResult(request, null);
+            return request;
+        }
+        mNetworkManager.performRequest(request);
+        return request;
     }
 
     /**
@@ -428,6 +706,39 @@ public class TGRequestFactory implements TGNetworkRequests {
         createUpdateObjectRequest(input, output);
     }
 
+    /**
+     * Replace relations of local social graph with complete connection list of current user or
+     * store connection list of other user in connection index
+     *
+     * @param route  route of received list
+     * @param key    key of cache entry
+     * @param object object of request
+     * @param output received list
+     */
+    void updateSocialGraph(@NonNull TGResponseCache.Route route, @NonNull String key, Object object, Object output) {
+        if (!(output instanceof TGConnectionUsersList)) { return; }
+        TGSocialGraph.Relation relation;
+        switch (route) {
+            case USER_FOLLOWS:
+                relation = TGSocialGraph.Relation.FOLLOWS;
+                break;
+            case USER_FOLLOWERS:
+                relation = TGSocialGraph.Relation.FOLLOWER;
+                break;
+            case USER_FRIENDS:
+                relation = TGSocialGraph.Relation.FRIEND;
+                break;
+            default:
+                return;
+        }
+        if (key.equals(TGResponseCache.key(route, (Object) null))) {
+            mNetworkManager.getSocialGraph().replace(relation, ((TGConnectionUsersList) output).getUsers());
+        }
+        else if (object instanceof TGConnection && ((TGConnection) object).getUserFromId() != null) {
+            mNetworkManager.getConnectionIndex().put(((TGConnection) object).getUserFromId(), relation, ((TGConnectionUsersList) output).getUsers());
+        }
+    }
+
     /**
      * Update user data on server
      *
@@ -0,0 +1,388 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.tapglue.cache.TGIOExecutor;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stages through which network responses pass: network I/O done by transport, decoding (error
+ * bodies, reconciliation with local changes and merging into caches) on bounded compute pool and
+ * delivery to callbacks on configured executor. When decode queue is full, decoding runs on thread
+ * which received the response, so slow decoding holds back network instead of growing the queue.
+ */
+public class TGRequestPipeline {
+
+    /**
+     * Where callbacks of network requests are called
+     */
+    public enum Delivery {
+        /**
+         * Main thread
+         */
+        MAIN,
+        /**
+         * Single background thread, callbacks are called in order of delivery
+         */
+        BACKGROUND,
+        /**
+         * Looper thread which created the request, or decode thread if it has no looper
+         */
+        CALLER
+    }
+
+    /**
+     * Default amount of decoded responses waiting for decode thread
+     */
+    public static final int DEFAULT_DECODE_QUEUE_SIZE = 64;
+    /**
+     * Time after which idle decode thread is stopped
+     */
+    private static final long KEEP_ALIVE = 30 * 1000; // 30s
+
+    /**
+     * Queue depth of single pipeline stage
+     */
+    public static class Stage {
+        /**
+         * Name of stage
+         */
+        @NonNull
+        private final String mName;
+        /**
+         * Amount of tasks in stage
+         */
+        @NonNull
+        private final AtomicInteger mQueueDepth = new AtomicInteger();
+        /**
+         * Highest amount of tasks in stage at once
+         */
+        @NonNull
+        private final AtomicInteger mMaxQueueDepth = new AtomicInteger();
+        /**
+         * Amount of tasks which left stage
+         */
+        @NonNull
+        private final AtomicLong mCompleted = new AtomicLong();
+
+        Stage(@NonNull String name) {
+            mName = name;
+        }
+
+        /**
+         * Task entered stage
+         */
+        void enter() {
+            int depth = mQueueDepth.incrementAndGet();
+            int max = mMaxQueueDepth.get();
+            while (depth > max && !mMaxQueueDepth.compareAndSet(max, depth)) {
+                max = mMaxQueueDepth.get();
+            }
+        }
+
+        /**
+         * Task left stage
+         */
+        void leave() {
+            mQueueDepth.decrementAndGet();
+            mCompleted.incrementAndGet();
+        }
+
+        /**
+         * Get amount of tasks which left stage
+         *
+         * @return amount of tasks
+         */
+        public long getCompletedCount() {
+            return mCompleted.get();
+        }
+
+        /**
+         * Get highest amount of tasks in stage at once
+         *
+         * @return amount of tasks
+         */
+        public int getMaxQueueDepth() {
+            return mMaxQueueDepth.get();
+        }
+
+        /**
+         * Get name of stage
+         *
+         * @return name
+         */
+        @NonNull
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * Get amount of tasks waiting in or processed by stage
+         *
+         * @return amount of tasks
+         */
+        public int getQueueDepth() {
+            return mQueueDepth.get();
+        }
+
+        /**
+         * Start measuring highest queue depth again from current depth
+         */
+        public void resetMaxQueueDepth() {
+            mMaxQueueDepth.set(mQueueDepth.get());
+        }
+
+        @Override
+        public String toString() {
+            return mName + "[depth=" + getQueueDepth() + ", max=" + getMaxQueueDepth() + ", completed=" + getCompletedCount() + "]";
+        }
+    }
+
+    /**
+     * Network I/O stage, from sending request until transport returns response
+     */
+    @NonNull
+    private final Stage mNetworkStage = new Stage("network");
+    /**
+     * Decode stage
+     */
+    @NonNull
+    private final Stage mDecodeStage = new Stage("decode");
+    /**
+     * Delivery stage, until callbacks returned
+     */
+    @NonNull
+    private final Stage mDeliveryStage = new Stage("delivery");
+    /**
+     * Configured delivery
+     */
+    @NonNull
+    private final Delivery mDelivery;
+    /**
+     * Custom delivery executor, overrides delivery mode
+     */
+    @Nullable
+    private final Executor mCallbackExecutor;
+    /**
+     * Bounded decode pool
+     */
+    @NonNull
+    private final ThreadPoolExecutor mDecodeExecutor;
+    /**
+     * Main thread executor, created on first use
+     */
+    @Nullable
+    private Executor mMainExecutor;
+    /**
+     * Background delivery executor, created on first use
+     */
+    @Nullable
+    private Executor mBackgroundExecutor;
+
+    /**
+     * Create pipeline
+     *
+     * @param delivery         where callbacks are called
+     * @param callbackExecutor custom executor calling callbacks, overrides delivery
+     * @param decodeThreads    amount of decode threads
+     * @param decodeQueueSize  amount of responses waiting for decode thread
+     */
+    public TGRequestPipeline(@NonNull Delivery delivery, @Nullable Executor callbackExecutor, int decodeThreads, int decodeQueueSize) {
+        mDelivery = delivery;
+        mCallbackExecutor = callbackExecutor;
+        int threads = Math.max(1, decodeThreads);
+        mDecodeExecutor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(Math.max(1, decodeQueueSize)), new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull final Runnable runnable) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, "TGRequestPipeline-decode");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        mDecodeExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Get default amount of decode threads - all cores except one left for main thread
+     *
+     * @return amount of threads
+     */
+    public static int getDefaultDecodeThreads() {
+        return Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    /**
+     * Get decode stage metrics
+     *
+     * @return Decode stage
+     */
+    @NonNull
+    public Stage getDecodeStage() {
+        return mDecodeStage;
+    }
+
+    /**
+     * Get configured delivery
+     *
+     * @return Delivery mode
+     */
+    @NonNull
+    public Delivery getDelivery() {
+        return mDelivery;
+    }
+
+    /**
+     * Get delivery stage metrics
+     *
+     * @return Delivery stage
+     */
+    @NonNull
+    public Stage getDeliveryStage() {
+        return mDeliveryStage;
+    }
+
+    /**
+     * Get network stage metrics
+     *
+     * @return Network stage
+     */
+    @NonNull
+    public Stage getNetworkStage() {
+        return mNetworkStage;
+    }
+
+    /**
+     * Request was sent to transport
+     */
+    void onSent() {
+        mNetworkStage.enter();
+    }
+
+    /**
+     * Transport returned response or failure of sent request
+     */
+    void onReceived() {
+        mNetworkStage.leave();
+    }
+
+    /**
+     * Run decoding of response on decode pool
+     *
+     * @param task decoding task
+     */
+    void decode(@NonNull final Runnable task) {
+        mDecodeStage.enter();
+        mDecodeExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } finally {
+                    mDecodeStage.leave();
+                }
+            }
+        });
+    }
+
+    /**
+     * Call callbacks on delivery executor
+     *
+     * @param callerLooper looper of thread which created request
+     * @param task         task calling callbacks
+     */
+    void deliver(@Nullable Looper callerLooper, @NonNull final Runnable task) {
+        mDeliveryStage.enter();
+        Runnable delivery = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } finally {
+                    mDeliveryStage.leave();
+                }
+            }
+        };
+        Executor executor = getDeliveryExecutor(callerLooper);
+        if (executor == null) { delivery.run(); }
+        else { executor.execute(delivery); }
+    }
+
+    /**
+     * Get executor calling callbacks
+     *
+     * @param callerLooper looper of thread which created request
+     *
+     * @return Executor or null when callbacks should be called on current thread
+     */
+    @Nullable
+    private synchronized Executor getDeliveryExecutor(@Nullable Looper callerLooper) {
+        if (mCallbackExecutor != null) { return mCallbackExecutor; }
+        switch (mDelivery) {
+            case BACKGROUND:
+                if (mBackgroundExecutor == null) {
+                    mBackgroundExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                        @Override
+                        public Thread newThread(@NonNull Runnable runnable) {
+                            Thread thread = new Thread(runnable, "TGRequestPipeline-delivery");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                }
+                return mBackgroundExecutor;
+            case CALLER:
+                if (callerLooper == null) { return null; }
+                final Handler handler = new Handler(callerLooper);
+                return new Executor() {
+                    @Override
+                    public void execute(@NonNull Runnable command) {
+                        handler.post(command);
+                    }
+                };
+            default:
+                if (mMainExecutor == null) { mMainExecutor = TGIOExecutor.mainThread(); }
+                return mMainExecutor;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TGRequestPipeline{" + mNetworkStage + ", " + mDecodeStage + ", " + mDeliveryStage + "}";
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.tapglue.networking.requests.TGCall;
+import com.tapglue.networking.requests.TGRequestCallback;
+import com.tapglue.networking.requests.TGRequestErrorType;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Group of requests tied to lifetime of screen. Callbacks wrapped by scope are held only by
+ * requests delivering to them, and closing scope releases and disables them, cancels tracked calls
+ * and cancels network calls which have no enabled callback left. Scope can be bound to activity, or
+ * closed manually (e.g. in onDestroyView of fragment).
+ */
+public class TGRequestScope {
+    /**
+     * Lock guarding tracked objects
+     */
+    @NonNull
+    private final Object mLock = new Object();
+    /**
+     * Wrappers of callbacks, released when scope is closed - scope holds them weakly, so callbacks
+     * can be collected once no request can deliver to them
+     */
+    @NonNull
+    private final List<WeakReference<ScopedCallback<?>>> mCallbacks = new ArrayList<>();
+    /**
+     * Tracked calls
+     */
+    @NonNull
+    private final List<TGCall<?>> mCalls = new ArrayList<>();
+    /**
+     * Tracked requests
+     */
+    @NonNull
+    private final List<TGRequest<?, ?>> mRequests = new ArrayList<>();
+    /**
+     * Network manager of which outdated requests are cancelled on close
+     */
+    @Nullable
+    private final TGNetworkManager mNetworkManager;
+    /**
+     * Application with registered lifecycle callbacks of bound activity
+     */
+    @Nullable
+    private Application mApplication;
+    /**
+     * Lifecycle callbacks of bound activity
+     */
+    @Nullable
+    private Application.ActivityLifecycleCallbacks mLifecycleCallbacks;
+    /**
+     * Was scope closed?
+     */
+    private volatile boolean mClosed = false;
+
+    public TGRequestScope(@Nullable TGNetworkManager networkManager) {
+        mNetworkManager = networkManager;
+    }
+
+    /**
+     * Close scope when activity is destroyed
+     *
+     * @param activity activity to bind to
+     *
+     * @return Current object
+     */
+    @NonNull
+    public TGRequestScope bindTo(@NonNull Activity activity) {
+        final WeakReference<Activity> bound = new WeakReference<>(activity);
+        Application.ActivityLifecycleCallbacks callbacks = new Application.ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+            }
+
+            @Override
+            public void onActivityDestroyed(Activity activity) {
+                if (activity == bound.get()) { close(); }
+            }
+
+            @Override
+            public void onActivityPaused(Activity activity) {
+            }
+
+            @Override
+            public void onActivityResumed(Activity activity) {
+            }
+
+            @Override
+            public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+            }
+
+            @Override
+            public void onActivityStarted(Activity activity) {
+            }
+
+            @Override
+            public void onActivityStopped(Activity activity) {
+            }
+        };
+        Application application = activity.getApplication();
+        synchronized (mLock) {
+            if (mClosed || application == null) { return this; }
+            unbind();
+            mApplication = application;
+            mLifecycleCallbacks = callbacks;
+        }
+        application.registerActivityLifecycleCallbacks(callbacks);
+        return this;
+    }
+
+    /**
+     * Close scope - wrapped callbacks are not called any more, tracked calls and requests are
+     * cancelled, together with network calls of which all callbacks are now disabled
+     */
+    public void close() {
+        List<TGCall<?>> calls;
+        List<TGRequest<?, ?>> requests;
+        synchronized (mLock) {
+            if (mClosed) { return; }
+            mClosed = true;
+            calls = new ArrayList<>(mCalls);
+            requests = new ArrayList<>(mRequests);
+            mCalls.clear();
+            mRequests.clear();
+            for (WeakReference<ScopedCallback<?>> reference : mCallbacks) {
+                ScopedCallback<?> callback = reference.get();
+                if (callback != null) { callback.release(); }
+            }
+            mCallbacks.clear();
+            unbind();
+        }
+        for (TGCall<?> call : calls) {
+            call.cancel();
+        }
+        for (TGRequest<?, ?> request : requests) {
+            request.cancel();
+        }
+        if (mNetworkManager != null) { mNetworkManager.cancelOutdatedRequests(); }
+    }
+
+    /**
+     * Enqueue callback to call, both tracked by scope
+     *
+     * @param call     call to enqueue to
+     * @param callback callback of result
+     * @param <T>      type of result
+     *
+     * @return Call
+     */
+    @NonNull
+    public <T> TGCall<T> enqueue(@NonNull TGCall<T> call, @NonNull TGRequestCallback<T> callback) {
+        return track(call).enqueue(wrap(callback));
+    }
+
+    /**
+     * Was scope closed?
+     *
+     * @return true if scope was closed
+     */
+    public boolean isClosed() {
+        return mClosed;
+    }
+
+    /**
+     * Track call, so it is cancelled when scope is closed. Call is cancelled immediately if scope is
+     * already closed
+     *
+     * @param call call to track
+     * @param <T>  type of result
+     *
+     * @return Tracked call
+     */
+    @NonNull
+    public <T> TGCall<T> track(@NonNull TGCall<T> call) {
+        synchronized (mLock) {
+            if (!mClosed) {
+                // forget calls which are already done
+                Iterator<TGCall<?>> iterator = mCalls.iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().isDone()) { iterator.remove(); }
+                }
+                mCalls.add(call);
+                return call;
+            }
+        }
+        call.cancel();
+        return call;
+    }
+
+    /**
+     * Track request, so it is cancelled when scope is closed. Request is cancelled immediately if
+     * scope is already closed
+     *
+     * @param request request to track
+     * @param <R>     type of request
+     *
+     * @return Tracked request
+     */
+    @NonNull
+    public <R extends TGRequest<?, ?>> R track(@NonNull R request) {
+        synchronized (mLock) {
+            if (!mClosed) {
+                // forget requests which are already finished
+                Iterator<TGRequest<?, ?>> iterator = mRequests.iterator();
+                while (iterator.hasNext()) {
+                    TGRequest<?, ?> tracked = iterator.next();
+                    if (tracked.isFinished() || tracked.isCancelled()) { iterator.remove(); }
+                }
+                mRequests.add(request);
+                return request;
+            }
+        }
+        request.cancel();
+        return request;
+    }
+
+    /**
+     * Unregister lifecycle callbacks of bound activity, called with lock held
+     */
+    private void unbind() {
+        if (mApplication != null && mLifecycleCallbacks != null) {
+            mApplication.unregisterActivityLifecycleCallbacks(mLifecycleCallbacks);
+        }
+        mApplication = null;
+        mLifecycleCallbacks = null;
+    }
+
+    /**
+     * Wrap callback so it is released and disabled when scope is closed. Until then callback is held
+     * by requests delivering to it, so it can be collected as soon as they are finished
+     *
+     * @param callback callback to wrap
+     * @param <T>      type of result
+     *
+     * @return Wrapped callback, to be passed to request
+     */
+    @NonNull
+    public <T> TGRequestCallback<T> wrap(@NonNull TGRequestCallback<T> callback) {
+        ScopedCallback<T> scoped = new ScopedCallback<>(this, callback);
+        synchronized (mLock) {
+            if (!mClosed) {
+                // forget wrappers which are not referenced by any request
+                Iterator<WeakReference<ScopedCallback<?>>> iterator = mCallbacks.iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().get() == null) { iterator.remove(); }
+                }
+                mCallbacks.add(new WeakReference<ScopedCallback<?>>(scoped));
+                return scoped;
+            }
+        }
+        scoped.release();
+        return scoped;
+    }
+
+    /**
+     * Callback enabled only until scope is closed, releasing wrapped callback on close
+     *
+     * @param <T> type of result
+     */
+    private static class ScopedCallback<T> implements TGRequestCallback<T> {
+        /**
+         * Wrapped callback, null when scope was closed
+         */
+        @Nullable
+        private volatile TGRequestCallback<T> mCallback;
+        /**
+         * Scope of callback
+         */
+        @NonNull
+        private final TGRequestScope mScope;
+
+        ScopedCallback(@NonNull TGRequestScope scope, @NonNull TGRequestCallback<T> callback) {
+            mScope = scope;
+            mCallback = callback;
+        }
+
+        @Override
+        public boolean callbackIsEnabled() {
+            TGRequestCallback<T> callback = get();
+            return callback != null && callback.callbackIsEnabled();
+        }
+
+        /**
+         * Get wrapped callback, if scope is still open
+         *
+         * @return Callback or null
+         */
+        @Nullable
+        private TGRequestCallback<T> get() {
+            return mScope.isClosed() ? null : mCallback;
+        }
+
+        @Override
+        public void onRequestError(TGRequestErrorType cause) {
+            TGRequestCallback<T> callback = get();
+            if (callback != null) { callback.onRequestError(cause); }
+        }
+
+        @Override
+        public void onRequestFinished(T output, boolean changeDoneOnline) {
+            TGRequestCallback<T> callback = get();
+            if (callback != null) { callback.onRequestFinished(output, changeDoneOnline); }
+        }
+
+        /**
+         * Release wrapped callback, so closed screen can be collected while requests are running
+         */
+        void release() {
+            mCallback = null;
+        }
+    }
+}
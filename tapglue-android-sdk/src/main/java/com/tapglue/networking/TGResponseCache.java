@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.tapglue.networking.requests.TGRequestCallback;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU cache of read responses, keyed by route and request parameters. Entries older
+ * than TTL of their route are still returned, but should be revalidated by caller.
+ */
+public class TGResponseCache {
+
+    /**
+     * Cached routes with their default time to live
+     */
+    public enum Route {
+        USER(5 * 60 * 1000), USER_FRIENDS(60 * 1000), USER_FOLLOWS(60 * 1000), USER_FOLLOWERS(60 * 1000),
+        USER_EVENTS(60 * 1000), EVENT(5 * 60 * 1000), PENDING_CONNECTIONS(30 * 1000);
+
+        /**
+         * Default time to live in milliseconds
+         */
+        private final long mDefaultTtl;
+
+        Route(long defaultTtl) {
+            mDefaultTtl = defaultTtl;
+        }
+
+        /**
+         * Get default time to live
+         *
+         * @return time to live in milliseconds
+         */
+        public long getDefaultTtl() {
+            return mDefaultTtl;
+        }
+    }
+
+    /**
+     * Cached entries in access order
+     */
+    @NonNull
+    private final LinkedHashMap<String, CachedResponse> mEntries;
+    /**
+     * Callbacks waiting for revalidation of each key
+     */
+    @NonNull
+    private final Map<String, List<TGRequestCallback<?>>> mPending = new HashMap<>();
+    /**
+     * Incremented when cache is cleared - responses of requests started before are not stored
+     */
+    private int mGeneration = 0;
+    /**
+     * Maximal amount of entries
+     */
+    private final int mMaxEntries;
+    /**
+     * Time to live of each route in milliseconds
+     */
+    @NonNull
+    private final Map<Route, Long> mTtl = new EnumMap<>(Route.class);
+
+    /**
+     * Create cache
+     *
+     * @param maxEntries maximal amount of entries, 0 disables cache
+     * @param ttl        time to live overrides for routes, in milliseconds
+     */
+    TGResponseCache(final int maxEntries, @NonNull Map<Route, Long> ttl) {
+        mMaxEntries = Math.max(0, maxEntries);
+        for (Route route : Route.values()) {
+            mTtl.put(route, ttl.containsKey(route) ? ttl.get(route) : route.getDefaultTtl());
+        }
+        mEntries = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > mMaxEntries;
+            }
+        };
+    }
+
+    /**
+     * Create key of cache entry
+     *
+     * @param route  route of request
+     * @param params parameters of request
+     *
+     * @return Key
+     */
+    @NonNull
+    static String key(@NonNull Route route, @Nullable Object... params) {
+        StringBuilder builder = new StringBuilder(route.name());
+        if (params != null) {
+            for (Object param : params) {
+                builder.append('/').append(param);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Get current time used for entries age
+     *
+     * @return time in milliseconds
+     */
+    static long now() {
+        return System.nanoTime() / 1000000;
+    }
+
+    /**
+     * Remove all entries and forget running requests, so new requests don't join them
+     */
+    public synchronized void clear() {
+        mEntries.clear();
+        mPending.clear();
+        mGeneration++;
+    }
+
+    /**
+     * Finish request for key - return callbacks that waited for it
+     *
+     * @param key     key of request
+     * @param waiting callbacks returned by {@link #joinRequest(String, TGRequestCallback)} for request
+     *
+     * @return Callbacks waiting for response
+     */
+    @NonNull
+    synchronized List<TGRequestCallback<?>> finishRequest(@NonNull String key, @NonNull List<TGRequestCallback<?>> waiting) {
+        if (mPending.get(key) == waiting) { mPending.remove(key); }
+        return new ArrayList<>(waiting);
+    }
+
+    /**
+     * Get entry
+     *
+     * @param key key of entry
+     *
+     * @return Cached response or null if nothing is cached
+     */
+    @Nullable
+    synchronized CachedResponse get(@NonNull String key) {
+        return mEntries.get(key);
+    }
+
+    /**
+     * Get generation of cache, passed to {@link #put(Route, String, Object, int)}
+     *
+     * @return amount of clears
+     */
+    synchronized int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Check if any callback waiting for request is still enabled
+     *
+     * @param waiting callbacks returned by {@link #joinRequest(String, TGRequestCallback)} for request
+     *
+     * @return true if at least one callback is enabled
+     */
+    synchronized boolean hasEnabledCallback(@NonNull List<TGRequestCallback<?>> waiting) {
+        for (TGRequestCallback<?> callback : waiting) {
+            if (callback.callbackIsEnabled()) { return true; }
+        }
+        return false;
+    }
+
+    /**
+     * Invalidate all entries of route
+     *
+     * @param route route to invalidate
+     */
+    public synchronized void invalidate(@NonNull Route route) {
+        Iterator<CachedResponse> iterator = mEntries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().mRoute == route) { iterator.remove(); }
+        }
+    }
+
+    /**
+     * Check if request would be answered from cache without network request
+     *
+     * @param route  route of request
+     * @param params parameters of request
+     *
+     * @return true if cache holds fresh entry for request
+     */
+    public synchronized boolean hasFreshEntry(@NonNull Route route, @Nullable Object... params) {
+        CachedResponse entry = mEntries.get(key(route, params));
+        return entry != null && isFresh(entry);
+    }
+
+    /**
+     * Is cache enabled?
+     *
+     * @return true if cache can hold entries
+     */
+    boolean isEnabled() {
+        return mMaxEntries > 0;
+    }
+
+    /**
+     * Is entry still fresh?
+     *
+     * @param entry entry to check
+     *
+     * @return true if entry is younger than TTL of its route
+     */
+    boolean isFresh(@NonNull CachedResponse entry) {
+        return now() - entry.mStoredAt < mTtl.get(entry.mRoute);
+    }
+
+    /**
+     * Join request for key. If request for same key is already running, callback will be informed
+     * when it finishes
+     *
+     * @param key      key of request
+     * @param callback callback waiting for response
+     *
+     * @return Callbacks waiting for new request which should be started, null if request is running
+     */
+    @Nullable
+    synchronized List<TGRequestCallback<?>> joinRequest(@NonNull String key, @NonNull TGRequestCallback<?> callback) {
+        List<TGRequestCallback<?>> waiting = mPending.get(key);
+        if (waiting != null && hasEnabledCallback(waiting)) {
+            waiting.add(callback);
+            return null;
+        }
+        waiting = new ArrayList<>();
+        waiting.add(callback);
+        mPending.put(key, waiting);
+        return waiting;
+    }
+
+    /**
+     * Put entry
+     *
+     * @param route route of request
+     * @param key   key of entry
+     * @param value response value
+     */
+    synchronized void put(@NonNull Route route, @NonNull String key, @Nullable Object value) {
+        put(route, key, value, mGeneration);
+    }
+
+    /**
+     * Put entry received by request started in generation - ignored when cache was cleared since
+     *
+     * @param route      route of request
+     * @param key        key of entry
+     * @param value      response value
+     * @param generation generation of cache when request was started
+     *
+     * @return true if generation is still current
+     */
+    synchronized boolean put(@NonNull Route route, @NonNull String key, @Nullable Object value, int generation) {
+        if (generation != mGeneration) { return false; }
+        if (value != null && isEnabled()) { mEntries.put(key, new CachedResponse(route, value, now())); }
+        return true;
+    }
+
+    /**
+     * Get amount of cached entries
+     *
+     * @return amount of entries
+     */
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * Single cached response
+     */
+    static class CachedResponse {
+        @NonNull
+        final Route mRoute;
+        final long mStoredAt;
+        @NonNull
+        final Object mValue;
+
+        CachedResponse(@NonNull Route route, @NonNull Object value, long storedAt) {
+            mRoute = route;
+            mValue = value;
+            mStoredAt = storedAt;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.telephony.TelephonyManager;
+import android.util.Base64;
+
+import com.google.gson.GsonBuilder;
+import com.squareup.okhttp.ConnectionPool;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Protocol;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.ResponseBody;
+import com.squareup.okhttp.internal.Util;
+import com.squareup.okhttp.logging.HttpLoggingInterceptor;
+import com.tapglue.Tapglue;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import retrofit.GsonConverterFactory;
+import retrofit.Retrofit;
+
+/**
+ * Default transport - performs requests against {@link Tapglue.TGConfiguration#getApiUrl()} with
+ * Retrofit and OkHttp
+ */
+public class TGRetrofitTransport implements TGTransport {
+
+    /**
+     * Current library version - string used in requests
+     */
+    @NonNull
+    static final String LIBRARY_VERSION = "1.0";
+    /**
+     * Connection pool of API requests, available before API is created
+     */
+    @NonNull
+    private final ConnectionPool mConnectionPool = ConnectionPool.getDefault();
+    /**
+     * Amount of response bytes read from network
+     */
+    @NonNull
+    private final AtomicLong mReceivedBytes = new AtomicLong();
+
+    @NonNull
+    @Override
+    public TGApi createApi(@NonNull final Tapglue tapglue) {
+        final Tapglue.TGConfiguration configuration = tapglue.getConfiguration();
+        final Context context = tapglue.getContext();
+        final String appVersion = getAppVersion(context);
+
+        final String appName = context.getString(context.getApplicationInfo().labelRes);
+        final String userAgent = appName + "/" + context.getApplicationInfo().packageName + "; " +
+            appVersion +
+            " (" + (Build.MODEL != null ? Build.MODEL : "Unknown_model") +
+            "; Android " + Build.VERSION.RELEASE + ") Tapglue-SDK/" + LIBRARY_VERSION;
+
+        OkHttpClient client = new OkHttpClient();
+        client.setConnectionPool(mConnectionPool);
+        client.setProtocols(new ArrayList<>(Util.immutableList(Protocol.HTTP_1_1)));
+        final HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor();
+        interceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
+
+        // should we enable debugging to console?
+        if (configuration.isDebugMode()) { client.interceptors().add(interceptor); }
+
+        // we add custom headers to each request
+        client.interceptors().add(new Interceptor() {
+            @Override
+            public com.squareup.okhttp.Response intercept(@NonNull Chain chain) throws IOException {
+                Request currentRequest = chain.request();
+                boolean analyticsRequest = currentRequest.httpUrl().toString().contains("analytics");
+                Request.Builder builder = currentRequest.newBuilder()
+                                                        .addHeader("Authorization", "Basic " + createAuthorizationString(tapglue))
+                                                        .addHeader("User-Agent", userAgent)
+                                                        .addHeader("Content-Type", "application/json");
+
+                if (analyticsRequest) {
+                    TelephonyManager manager = (TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE);
+                    String carrierName = manager.getNetworkOperatorName();
+                    Calendar cal = Calendar.getInstance();
+                    TimeZone tz = cal.getTimeZone();
+
+                    builder.addHeader("X-Tapglue-App", appName)
+                           .addHeader("X-Tapglue-Appversion", appVersion)
+                           .addHeader("X-Tapglue-Carrier", carrierName != null ? carrierName : "Unknown_carrier")
+                           .addHeader("X-Tapglue-Manufacturer", Build.MANUFACTURER != null ? Build.MANUFACTURER : "Unknown_manufacturer")
+                           .addHeader("X-Tapglue-Model", Build.MODEL != null ? Build.MODEL : "Unknown_model")
+                           .addHeader("X-Tapglue-AndroidID", Build.SERIAL != null ? Build.SERIAL : "Unknown_serial")
+                           .addHeader("X-Tapglue-OS", Build.VERSION.RELEASE)
+                           .addHeader("X-Tapglue-OSVersion", String.valueOf(Build.VERSION.SDK_INT))
+                           .addHeader("X-Tapglue-SDKVersion", LIBRARY_VERSION)
+                           .addHeader("X-Tapglue-Timezone", tz.getDisplayName());
+                }
+
+                Request req = builder.build();
+                return chain.proceed(req);
+            }
+        });
+        // count bytes as they are read from network, before decompression - also for chunked responses
+        client.networkInterceptors().add(new Interceptor() {
+            @Override
+            public com.squareup.okhttp.Response intercept(@NonNull Chain chain) throws IOException {
+                com.squareup.okhttp.Response response = chain.proceed(chain.request());
+                ResponseBody body = response.body();
+                if (body == null) { return response; }
+                BufferedSource source = Okio.buffer(new ForwardingSource(body.source()) {
+                    @Override
+                    public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+                        long read = super.read(sink, byteCount);
+                        if (read > 0) { mReceivedBytes.addAndGet(read); }
+                        return read;
+                    }
+                });
+                return response.newBuilder().body(ResponseBody.create(body.contentType(), body.contentLength(), source)).build();
+            }
+        });
+        Retrofit retrofit = new Retrofit.Builder()
+            .addConverterFactory(GsonConverterFactory.create(new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create()))
+            .baseUrl(configuration.getApiUrl())
+            .client(client)
+            .callbackExecutor(new Executor() {
+                @Override
+                public void execute(@NonNull Runnable command) {
+                    // network manager moves responses to its decode and delivery stages itself
+                    command.run();
+                }
+            })
+            .build();
+        return retrofit.create(TGApi.class);
+    }
+
+    /**
+     * Create authorization string
+     *
+     * @param tapglue Tapglue instance with token and current user
+     *
+     * @return Authorization string
+     */
+    private String createAuthorizationString(@NonNull Tapglue tapglue) {
+        try {
+            String auth = String.format("%s:%s",
+                tapglue.getConfiguration().getToken(),
+                tapglue.getUserManager().getCurrentUser() != null ? tapglue.getUserManager().getCurrentUser().getSessionToken() : "");
+            byte[] data = auth.getBytes("UTF-8");
+            return Base64.encodeToString(data, Base64.NO_WRAP);
+        } catch (UnsupportedEncodingException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Get current application version
+     *
+     * @param context Context used to read this information
+     *
+     * @return Application version
+     */
+    private String getAppVersion(@NonNull Context context) {
+        String appVersion = "unknown-version";
+        try {
+            PackageManager manager = context.getPackageManager();
+            PackageInfo info = manager.getPackageInfo(
+                context.getPackageName(), 0);
+            appVersion = info.versionName;
+        } catch (PackageManager.NameNotFoundException e) {
+            e.printStackTrace();
+        }
+        return appVersion;
+    }
+
+    /**
+     * Get connection pool used by API requests - it doesn't require API to be created
+     *
+     * @return Connection pool
+     */
+    @NonNull
+    public ConnectionPool getConnectionPool() {
+        return mConnectionPool;
+    }
+
+    @Override
+    public long getReceivedBytes() {
+        return mReceivedBytes.get();
+    }
+
+    @Override
+    public boolean isNetworkAvailable(@NonNull Tapglue tapglue) {
+        ConnectivityManager cm =
+            (ConnectivityManager) tapglue.getContext().getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo netInfo = cm.getActiveNetworkInfo();
+        return netInfo != null && netInfo.isConnected();
+    }
+
+    @Override
+    public boolean isNetworkUnmetered(@NonNull Tapglue tapglue) {
+        ConnectivityManager cm =
+            (ConnectivityManager) tapglue.getContext().getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo netInfo = cm.getActiveNetworkInfo();
+        if (netInfo == null || !netInfo.isConnected()) { return false; }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) { return !cm.isActiveNetworkMetered(); }
+        return netInfo.getType() == ConnectivityManager.TYPE_WIFI || netInfo.getType() == ConnectivityManager.TYPE_ETHERNET;
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.tapglue.model.TGConnection;
+import com.tapglue.model.TGConnectionUsersList;
+import com.tapglue.model.TGEvent;
+import com.tapglue.model.TGFeed;
+import com.tapglue.model.TGFeedCount;
+import com.tapglue.model.TGLoginUser;
+import com.tapglue.model.TGPendingConnections;
+import com.tapglue.model.TGSocialConnections;
+import com.tapglue.model.TGUser;
+import com.tapglue.networking.requests.TGRequestException;
+
+/**
+ * Blocking variants of {@link TGNetworkRequests}, for use on worker threads (sync adapters, job
+ * services). Requests are performed on calling thread, never queued while offline, and errors are
+ * thrown as {@link TGRequestException} carrying the same error types as callbacks receive
+ */
+public interface TGSyncNetworkRequests {
+
+    /**
+     * Confirm connection
+     *
+     * @param userId id of the user the connection is confirmed for
+     * @param type   the type of connection being confirmed
+     *
+     * @return Confirmed connection
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGConnection confirmConnection(Long userId, TGConnection.TGConnectionType type) throws TGRequestException;
+
+    /**
+     * Create connection
+     *
+     * @param userId user to which connection should be made
+     * @param type   type of connection
+     * @param state  state of connection
+     *
+     * @return Created connection
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGConnection createConnection(Long userId, TGConnection.TGConnectionType type, String state) throws TGRequestException;
+
+    /**
+     * Create event for current user
+     *
+     * @param input event to be created
+     *
+     * @return Created event
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGEvent createEvent(@NonNull TGEvent input) throws TGRequestException;
+
+    /**
+     * Create user using all user data
+     *
+     * @param user User data
+     *
+     * @return Created user
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGUser createUser(@NonNull TGUser user) throws TGRequestException;
+
+    /**
+     * Get users followed by current user
+     *
+     * @return Followed users
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGConnectionUsersList getCurrentUserFollowed() throws TGRequestException;
+
+    /**
+     * Get followers of current user
+     *
+     * @return Followers
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGConnectionUsersList getCurrentUserFollowers() throws TGRequestException;
+
+    /**
+     * Get friends of current user
+     *
+     * @return Friends
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGConnectionUsersList getCurrentUserFriends() throws TGRequestException;
+
+    /**
+     * Get event by ID
+     *
+     * @param eventID event ID
+     *
+     * @return Event
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGEvent getEvent(Long eventID) throws TGRequestException;
+
+    /**
+     * Get event from selected user
+     *
+     * @param userId  user ID
+     * @param eventId event ID
+     *
+     * @return Event
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGEvent getEvent(Long userId, Long eventId) throws TGRequestException;
+
+    /**
+     * Get all events from current user
+     *
+     * @return Events
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGFeed getEvents() throws TGRequestException;
+
+    /**
+     * Get all events from selected user
+     *
+     * @param userId user ID
+     *
+     * @return Events
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGFeed getEvents(Long userId) throws TGRequestException;
+
+    /**
+     * Get feed of current user
+     *
+     * @return Feed
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGFeed getFeed() throws TGRequestException;
+
+    /**
+     * Get count on current user feed
+     *
+     * @return Feed count
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGFeedCount getFeedCount() throws TGRequestException;
+
+    /**
+     * Get pending connections of current user
+     *
+     * @return Pending connections
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGPendingConnections getPendingConnections() throws TGRequestException;
+
+    /**
+     * Get unread feed of current user
+     *
+     * @return Unread feed
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGFeed getUnreadFeed() throws TGRequestException;
+
+    /**
+     * Get user by user ID
+     *
+     * @param id user ID
+     *
+     * @return User
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGUser getUserByID(Long id) throws TGRequestException;
+
+    /**
+     * Get users followed by selected user
+     *
+     * @param userId id of user
+     *
+     * @return Followed users
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGConnectionUsersList getUserFollowed(Long userId) throws TGRequestException;
+
+    /**
+     * Get followers of selected user
+     *
+     * @param userId id of user
+     *
+     * @return Followers
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGConnectionUsersList getUserFollowers(Long userId) throws TGRequestException;
+
+    /**
+     * Get friends of selected user
+     *
+     * @param userId id of user
+     *
+     * @return Friends
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGConnectionUsersList getUserFriends(Long userId) throws TGRequestException;
+
+    /**
+     * Try to perform login
+     *
+     * @param user User basic data
+     *
+     * @return Logged in user
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGUser login(@NonNull TGLoginUser user) throws TGRequestException;
+
+    /**
+     * Try to perform logout
+     *
+     * @throws TGRequestException when request fails
+     */
+    void logout() throws TGRequestException;
+
+    /**
+     * Reject connection
+     *
+     * @param userId id of user the connection is rejected for
+     * @param type   the type of connection being rejected
+     *
+     * @return Rejected connection
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGConnection rejectConnection(Long userId, TGConnection.TGConnectionType type) throws TGRequestException;
+
+    /**
+     * Remove(cancel) connection
+     *
+     * @param userId id of user the connection is made with
+     * @param type   type of connection
+     *
+     * @throws TGRequestException when request fails
+     */
+    void removeConnection(Long userId, TGConnection.TGConnectionType type) throws TGRequestException;
+
+    /**
+     * Remove event of current user
+     *
+     * @param eventID ID of event to be removed
+     *
+     * @throws TGRequestException when request fails
+     */
+    void removeEvent(Long eventID) throws TGRequestException;
+
+    /**
+     * Remove user from server
+     *
+     * @param user User data
+     *
+     * @throws TGRequestException when request fails
+     */
+    void removeUser(@NonNull TGUser user) throws TGRequestException;
+
+    /**
+     * Do a search query for users, merged with users found in on-device index
+     *
+     * @param searchCriteria Search phrase
+     *
+     * @return Found users
+     *
+     * @throws TGRequestException when request fails
+     */
+    @NonNull
+    TGConnectionUsersList search(String searchCriteria) throws TGRequestException;
+
+    /**
+     * Update social connections
+     *
+     * @param socialData social connections information
+     *
+     * @return Connected users
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGConnectionUsersList socialConnections(@NonNull TGSocialConnections socialData) throws TGRequestException;
+
+    /**
+     * Update event of current user
+     *
+     * @param input event to be updated
+     *
+     * @return Updated event
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGEvent updateEvent(@NonNull TGEvent input) throws TGRequestException;
+
+    /**
+     * Update user data on server
+     *
+     * @param user User data
+     *
+     * @return Updated user
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    TGUser updateUser(@NonNull TGUser user) throws TGRequestException;
+}
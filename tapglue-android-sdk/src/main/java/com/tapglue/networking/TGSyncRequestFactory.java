@@ -0,0 +1,611 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.tapglue.Tapglue;
+import com.tapglue.cache.TGUserSearchIndex;
+import com.tapglue.model.TGBaseObject;
+import com.tapglue.model.TGConnection;
+import com.tapglue.model.TGConnectionUser;
+import com.tapglue.model.TGConnectionUsersList;
+import com.tapglue.model.TGEvent;
+import com.tapglue.model.TGFeed;
+import com.tapglue.model.TGFeedCount;
+import com.tapglue.model.TGLoginUser;
+import com.tapglue.model.TGPendingConnections;
+import com.tapglue.model.TGSearchCriteria;
+import com.tapglue.model.TGSocialConnections;
+import com.tapglue.model.TGUser;
+import com.tapglue.networking.requests.TGRequestErrorType;
+import com.tapglue.networking.requests.TGRequestException;
+import com.tapglue.networking.requests.TGRequestType;
+
+import java.util.List;
+
+/**
+ * Blocking requests built the same way as in {@link TGRequestFactory} - reads always go to
+ * server and refresh response cache, writes invalidate it
+ */
+public class TGSyncRequestFactory implements TGSyncNetworkRequests {
+    /**
+     * Factory of asynchronous requests, sharing response cache
+     */
+    @NonNull
+    private final TGRequestFactory mFactory;
+    /**
+     * Network manager
+     */
+    @NonNull
+    private final TGNetworkManager mNetworkManager;
+
+    TGSyncRequestFactory(@NonNull TGNetworkManager networkManager, @NonNull TGRequestFactory factory) {
+        mNetworkManager = networkManager;
+        mFactory = factory;
+    }
+
+    /**
+     * Confirm connection
+     *
+     * @param userId id of the user the connection is confirmed for
+     * @param type   the type of connection being confirmed
+     *
+     * @return Confirmed connection
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGConnection confirmConnection(Long userId, TGConnection.TGConnectionType type) throws TGRequestException {
+        TGConnection connection = new TGConnection()
+            .setUserFromId(getCurrentUserId())
+            .setState(TGConnection.TGConnectionState.CONFIRMED)
+            .setUserToId(userId)
+            .setType(type);
+        return executeCreate(connection, false);
+    }
+
+    /**
+     * Create connection
+     *
+     * @param userId user to which connection should be made
+     * @param type   type of connection
+     * @param state  state of connection
+     *
+     * @return Created connection
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGConnection createConnection(Long userId, TGConnection.TGConnectionType type, String state) throws TGRequestException {
+        TGConnection connection = new TGConnection()
+            .setUserFromId(getCurrentUserId())
+            .setState(TGConnection.TGConnectionState.fromString(state))
+            .setUserToId(userId)
+            .setType(type);
+        return executeCreate(connection, false);
+    }
+
+    /**
+     * Create event for current user
+     *
+     * @param input event to be created
+     *
+     * @return Created event
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGEvent createEvent(@NonNull TGEvent input) throws TGRequestException {
+        return executeCreate(input, false);
+    }
+
+    /**
+     * Create user using all user data
+     *
+     * @param user User data
+     *
+     * @return Created user
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGUser createUser(@NonNull TGUser user) throws TGRequestException {
+        return executeCreate(user, true);
+    }
+
+    /**
+     * Perform create request
+     *
+     * @param object            Object of request
+     * @param canBeDoneOnlyLive Request should be done only if network is available?
+     * @param <T>               Type of object of request
+     *
+     * @return Created object
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    private <T extends TGBaseObject> T executeCreate(@NonNull T object, boolean canBeDoneOnlyLive) throws TGRequestException {
+        mFactory.invalidateCacheFor(object);
+        return mNetworkManager.execute(new TGRequest<T, T>(object, TGRequestType.CREATE, canBeDoneOnlyLive));
+    }
+
+    /**
+     * Perform read request and store its result in response cache
+     *
+     * @param route  cached route
+     * @param key    key of cache entry
+     * @param object Object of request
+     * @param <T>    Type of object of request
+     * @param <TO>   Type of result
+     *
+     * @return Read object
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    private <T extends TGBaseObject, TO extends TGBaseObject> TO executeRead(@NonNull TGResponseCache.Route route, @NonNull String key, @NonNull T object) throws TGRequestException {
+        int generation = mFactory.getCacheGeneration();
+        TO output = mNetworkManager.execute(new TGRequest<T, TO>(object, TGRequestType.READ, true));
+        mFactory.putResponse(route, key, object, output, generation);
+        return output;
+    }
+
+    /**
+     * Perform read request which is not cached
+     *
+     * @param object Object of request
+     * @param <T>    Type of object of request
+     * @param <TO>   Type of result
+     *
+     * @return Read object
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    private <T extends TGBaseObject, TO extends TGBaseObject> TO executeRead(@NonNull T object) throws TGRequestException {
+        return mNetworkManager.execute(new TGRequest<T, TO>(object, TGRequestType.READ, true));
+    }
+
+    /**
+     * Perform remove request
+     *
+     * @param object            Object of request
+     * @param canBeDoneOnlyLive Request should be done only if network is available?
+     *
+     * @throws TGRequestException when request fails
+     */
+    private void executeRemove(@NonNull TGBaseObject object, boolean canBeDoneOnlyLive) throws TGRequestException {
+        mFactory.forgetRemoved(object);
+        mNetworkManager.execute(new TGRequest<TGBaseObject, TGBaseObject>(object, TGRequestType.DELETE, canBeDoneOnlyLive));
+    }
+
+    /**
+     * Perform update request
+     *
+     * @param object Object of request
+     * @param <T>    Type of object of request
+     *
+     * @return Updated object
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    private <T extends TGBaseObject> T executeUpdate(@NonNull T object) throws TGRequestException {
+        mFactory.invalidateCacheFor(object);
+        return mNetworkManager.execute(new TGRequest<T, T>(object, TGRequestType.UPDATE, false));
+    }
+
+    /**
+     * Get ID of current user
+     *
+     * @return ID of current user
+     *
+     * @throws TGRequestException when no user is logged in
+     */
+    private Long getCurrentUserId() throws TGRequestException {
+        TGUser user = Tapglue.user().getCurrentUser();
+        if (user == null) {
+            throw new TGRequestException(new TGRequestErrorType(TGRequestErrorType.ErrorType.USER_NOT_LOGGED_IN));
+        }
+        return user.getID();
+    }
+
+    /**
+     * Get users followed by current user
+     *
+     * @return Followed users
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGConnectionUsersList getCurrentUserFollowed() throws TGRequestException {
+        return executeRead(TGResponseCache.Route.USER_FOLLOWS, TGResponseCache.key(TGResponseCache.Route.USER_FOLLOWS, (Object) null),
+            new TGConnection().setType(TGConnection.TGConnectionType.FOLLOW).setUserFromId(null));
+    }
+
+    /**
+     * Get followers of current user
+     *
+     * @return Followers
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGConnectionUsersList getCurrentUserFollowers() throws TGRequestException {
+        return executeRead(TGResponseCache.Route.USER_FOLLOWERS, TGResponseCache.key(TGResponseCache.Route.USER_FOLLOWERS, (Object) null),
+            new TGConnection().setType(null).setUserFromId(null));
+    }
+
+    /**
+     * Get friends of current user
+     *
+     * @return Friends
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGConnectionUsersList getCurrentUserFriends() throws TGRequestException {
+        return executeRead(TGResponseCache.Route.USER_FRIENDS, TGResponseCache.key(TGResponseCache.Route.USER_FRIENDS, (Object) null),
+            new TGConnection().setType(TGConnection.TGConnectionType.FRIEND).setUserFromId(null));
+    }
+
+    /**
+     * Get event by ID
+     *
+     * @param eventID event ID
+     *
+     * @return Event
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGEvent getEvent(Long eventID) throws TGRequestException {
+        return executeRead(TGResponseCache.Route.EVENT, TGResponseCache.key(TGResponseCache.Route.EVENT, null, eventID),
+            new TGEvent(null).setReadRequestObjectId(eventID));
+    }
+
+    /**
+     * Get event from selected user
+     *
+     * @param userId  user ID
+     * @param eventId event ID
+     *
+     * @return Event
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGEvent getEvent(Long userId, Long eventId) throws TGRequestException {
+        return executeRead(TGResponseCache.Route.EVENT, TGResponseCache.key(TGResponseCache.Route.EVENT, userId, eventId),
+            new TGEvent(null).setReadRequestUserId(userId).setReadRequestObjectId(eventId));
+    }
+
+    /**
+     * Get all events from current user
+     *
+     * @return Events
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGFeed getEvents() throws TGRequestException {
+        return executeRead(TGResponseCache.Route.USER_EVENTS, TGResponseCache.key(TGResponseCache.Route.USER_EVENTS, (Object) null),
+            new TGFeed().setIsFeed(false));
+    }
+
+    /**
+     * Get all events from selected user
+     *
+     * @param userId user ID
+     *
+     * @return Events
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGFeed getEvents(Long userId) throws TGRequestException {
+        return executeRead(TGResponseCache.Route.USER_EVENTS, TGResponseCache.key(TGResponseCache.Route.USER_EVENTS, userId),
+            new TGFeed().setIsFeed(false).setReadRequestUserId(userId));
+    }
+
+    /**
+     * Get feed of current user
+     *
+     * @return Feed
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGFeed getFeed() throws TGRequestException {
+        return executeRead(new TGFeed().setIsFeed(true));
+    }
+
+    /**
+     * Get count on current user feed
+     *
+     * @return Feed count
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGFeedCount getFeedCount() throws TGRequestException {
+        return executeRead(new TGFeedCount());
+    }
+
+    /**
+     * Get pending connections of current user
+     *
+     * @return Pending connections
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGPendingConnections getPendingConnections() throws TGRequestException {
+        return executeRead(TGResponseCache.Route.PENDING_CONNECTIONS, TGResponseCache.key(TGResponseCache.Route.PENDING_CONNECTIONS),
+            new TGPendingConnections());
+    }
+
+    /**
+     * Get unread feed of current user
+     *
+     * @return Unread feed
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGFeed getUnreadFeed() throws TGRequestException {
+        return executeRead(new TGFeed().setIsFeed(true).setUnreadCount((long) 1));
+    }
+
+    /**
+     * Get user by user ID
+     *
+     * @param id user ID
+     *
+     * @return User
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGUser getUserByID(Long id) throws TGRequestException {
+        return executeRead(TGResponseCache.Route.USER, TGResponseCache.key(TGResponseCache.Route.USER, id),
+            new TGUser().setReadRequestObjectId(id));
+    }
+
+    /**
+     * Get users followed by selected user
+     *
+     * @param userId id of user
+     *
+     * @return Followed users
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGConnectionUsersList getUserFollowed(Long userId) throws TGRequestException {
+        return executeRead(TGResponseCache.Route.USER_FOLLOWS, TGResponseCache.key(TGResponseCache.Route.USER_FOLLOWS, userId),
+            new TGConnection().setType(TGConnection.TGConnectionType.FOLLOW).setUserFromId(userId));
+    }
+
+    /**
+     * Get followers of selected user
+     *
+     * @param userId id of user
+     *
+     * @return Followers
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGConnectionUsersList getUserFollowers(Long userId) throws TGRequestException {
+        return executeRead(TGResponseCache.Route.USER_FOLLOWERS, TGResponseCache.key(TGResponseCache.Route.USER_FOLLOWERS, userId),
+            new TGConnection().setType(null).setUserFromId(userId));
+    }
+
+    /**
+     * Get friends of selected user
+     *
+     * @param userId id of user
+     *
+     * @return Friends
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGConnectionUsersList getUserFriends(Long userId) throws TGRequestException {
+        return executeRead(TGResponseCache.Route.USER_FRIENDS, TGResponseCache.key(TGResponseCache.Route.USER_FRIENDS, userId),
+            new TGConnection().setType(TGConnection.TGConnectionType.FRIEND).setUserFromId(userId));
+    }
+
+    /**
+     * Try to perform login
+     *
+     * @param user User basic data
+     *
+     * @return Logged in user
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGUser login(@NonNull TGLoginUser user) throws TGRequestException {
+        return mNetworkManager.execute(new TGRequest<TGLoginUser, TGUser>(user, TGRequestType.LOGIN, true));
+    }
+
+    /**
+     * Try to perform logout
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Override
+    public void logout() throws TGRequestException {
+        mNetworkManager.execute(new TGRequest<TGBaseObject, TGBaseObject>(null, TGRequestType.LOGOUT, true));
+    }
+
+    /**
+     * Reject connection
+     *
+     * @param userId id of user the connection is rejected for
+     * @param type   the type of connection being rejected
+     *
+     * @return Rejected connection
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGConnection rejectConnection(Long userId, TGConnection.TGConnectionType type) throws TGRequestException {
+        TGConnection connection = new TGConnection()
+            .setUserFromId(getCurrentUserId())
+            .setUserToId(userId)
+            .setType(type)
+            .setState(TGConnection.TGConnectionState.REJECTED);
+        return executeCreate(connection, false);
+    }
+
+    /**
+     * Remove(cancel) connection
+     *
+     * @param userId id of user the connection is made with
+     * @param type   type of connection
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Override
+    public void removeConnection(Long userId, TGConnection.TGConnectionType type) throws TGRequestException {
+        TGConnection connection = new TGConnection()
+            .setUserToId(userId)
+            .setType(type)
+            .setUserFromId(getCurrentUserId());
+        executeRemove(connection, false);
+    }
+
+    /**
+     * Remove event of current user
+     *
+     * @param eventID ID of event to be removed
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Override
+    public void removeEvent(Long eventID) throws TGRequestException {
+        executeRemove(new TGEvent(null).setReadRequestObjectId(eventID), false);
+    }
+
+    /**
+     * Remove user from server
+     *
+     * @param user User data
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Override
+    public void removeUser(@NonNull TGUser user) throws TGRequestException {
+        executeRemove(user, true);
+    }
+
+    /**
+     * Do a search query for users, merged with users found in on-device index - while offline only
+     * they are returned
+     *
+     * @param searchCriteria Search phrase
+     *
+     * @return Found users
+     *
+     * @throws TGRequestException when request fails
+     */
+    @NonNull
+    @Override
+    public TGConnectionUsersList search(String searchCriteria) throws TGRequestException {
+        TGUserSearchIndex index = mNetworkManager.getUserSearchIndex();
+        List<TGConnectionUser> localHits = index.search(searchCriteria, TGRequestFactory.MAX_LOCAL_SEARCH_RESULTS);
+        if (!mNetworkManager.isNetworkAvailable() && index.size() > 0) {
+            return new TGConnectionUsersList().setUsers(localHits);
+        }
+        TGConnectionUsersList remote = mNetworkManager.execute(
+            new TGRequest<TGSearchCriteria, TGConnectionUsersList>(new TGSearchCriteria().setSearchCriteria(searchCriteria), TGRequestType.SEARCH, true));
+        return TGUserSearchIndex.merge(localHits, remote);
+    }
+
+    /**
+     * Update social connections
+     *
+     * @param socialData social connections information
+     *
+     * @return Connected users
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGConnectionUsersList socialConnections(@NonNull TGSocialConnections socialData) throws TGRequestException {
+        return mNetworkManager.execute(new TGRequest<TGSocialConnections, TGConnectionUsersList>(socialData, TGRequestType.UPDATE, true));
+    }
+
+    /**
+     * Update event of current user
+     *
+     * @param input event to be updated
+     *
+     * @return Updated event
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGEvent updateEvent(@NonNull TGEvent input) throws TGRequestException {
+        return executeUpdate(input);
+    }
+
+    /**
+     * Update user data on server
+     *
+     * @param user User data
+     *
+     * @return Updated user
+     *
+     * @throws TGRequestException when request fails
+     */
+    @Nullable
+    @Override
+    public TGUser updateUser(@NonNull TGUser user) throws TGRequestException {
+        return executeUpdate(user);
+    }
+}
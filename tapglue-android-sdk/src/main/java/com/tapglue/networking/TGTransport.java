@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking;
+
+import android.support.annotation.NonNull;
+
+import com.tapglue.Tapglue;
+
+/**
+ * Transport used by network manager to reach Tapglue API. By default requests go through
+ * Retrofit, but any implementation of {@link TGApi} can be plugged in with {@link
+ * Tapglue.TGConfiguration#setTransport(TGTransport)}
+ */
+public interface TGTransport {
+
+    /**
+     * Create API implementation used by network manager for all requests. Callbacks of its calls
+     * can be called on any thread, network manager moves responses to its own threads
+     *
+     * @param tapglue Tapglue instance requesting the API
+     *
+     * @return API implementation
+     */
+    @NonNull
+    TGApi createApi(@NonNull Tapglue tapglue);
+
+    /**
+     * Get amount of response bytes received by transport since it was created
+     *
+     * @return amount of bytes
+     */
+    long getReceivedBytes();
+
+    /**
+     * Can transport perform requests at this moment? If not, requests will be queued or rejected
+     * depending on their type
+     *
+     * @param tapglue Tapglue instance asking for network state
+     *
+     * @return is the network available
+     */
+    boolean isNetworkAvailable(@NonNull Tapglue tapglue);
+
+    /**
+     * Is available network unmetered, like Wi-Fi?
+     *
+     * @param tapglue Tapglue instance asking for network state
+     *
+     * @return true if network is available and unmetered
+     */
+    boolean isNetworkUnmetered(@NonNull Tapglue tapglue);
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking.fake;
+
+import android.support.annotation.NonNull;
+
+import java.util.Random;
+
+/**
+ * Distribution of values used by fake transport to simulate latency and payload sizes
+ */
+public abstract class TGDistribution {
+
+    /**
+     * Distribution always returning same value
+     *
+     * @param value returned value
+     *
+     * @return Distribution
+     */
+    @NonNull
+    public static TGDistribution constant(final long value) {
+        return new TGDistribution() {
+            @Override
+            long next(@NonNull Random random) {
+                return value;
+            }
+        };
+    }
+
+    /**
+     * Exponential distribution - most values close to zero with long tail
+     *
+     * @param mean mean value
+     *
+     * @return Distribution
+     */
+    @NonNull
+    public static TGDistribution exponential(final double mean) {
+        return new TGDistribution() {
+            @Override
+            long next(@NonNull Random random) {
+                return Math.round(-mean * Math.log(1 - random.nextDouble()));
+            }
+        };
+    }
+
+    /**
+     * Normal distribution
+     *
+     * @param mean              mean value
+     * @param standardDeviation standard deviation
+     *
+     * @return Distribution
+     */
+    @NonNull
+    public static TGDistribution normal(final double mean, final double standardDeviation) {
+        return new TGDistribution() {
+            @Override
+            long next(@NonNull Random random) {
+                return Math.round(mean + random.nextGaussian() * standardDeviation);
+            }
+        };
+    }
+
+    /**
+     * Uniform distribution
+     *
+     * @param min minimal value, inclusive
+     * @param max maximal value, inclusive
+     *
+     * @return Distribution
+     */
+    @NonNull
+    public static TGDistribution uniform(final long min, final long max) {
+        return new TGDistribution() {
+            @Override
+            long next(@NonNull Random random) {
+                return min + (long) (random.nextDouble() * (max - min + 1));
+            }
+        };
+    }
+
+    /**
+     * Take next value from distribution
+     *
+     * @param random source of randomness
+     *
+     * @return next value, can be negative
+     */
+    abstract long next(@NonNull Random random);
+
+    /**
+     * Take next value from distribution, never smaller than 0
+     *
+     * @param random source of randomness
+     *
+     * @return next value
+     */
+    long sample(@NonNull Random random) {
+        return Math.max(0, next(random));
+    }
+}
@@ -0,0 +1,453 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking.fake;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.tapglue.model.TGConnection;
+import com.tapglue.model.TGConnectionUsersList;
+import com.tapglue.model.TGEvent;
+import com.tapglue.model.TGFeed;
+import com.tapglue.model.TGFeedCount;
+import com.tapglue.model.TGLoginUser;
+import com.tapglue.model.TGPendingConnections;
+import com.tapglue.model.TGSocialConnections;
+import com.tapglue.model.TGUser;
+import com.tapglue.networking.TGApi;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.atomic.AtomicLong;
+
+import retrofit.Call;
+
+/**
+ * Tapglue API simulated in process. Responses are generated, with amount of list elements taken
+ * from transport payload size distribution
+ */
+class TGFakeApi implements TGApi {
+
+    /**
+     * ID of user logged in with fake API
+     */
+    private static final long CURRENT_USER_ID = 1;
+    /**
+     * Amount of different users generated by fake API
+     */
+    private static final int USERS_AMOUNT = 10000;
+    private static final String[] EVENT_TYPES = {"like", "comment", "share", "checkin"};
+    private static final String EMPTY_PAYLOAD = "{}";
+    /**
+     * Sequence for IDs of created objects
+     */
+    private final AtomicLong mIdSequence = new AtomicLong(1000000);
+    /**
+     * Transport simulating requests
+     */
+    @NonNull
+    private final TGFakeTransport mTransport;
+
+    TGFakeApi(@NonNull TGFakeTransport transport) {
+        mTransport = transport;
+    }
+
+    /**
+     * Create call returning payload
+     *
+     * @param type    type of response
+     * @param payload response JSON
+     * @param <T>     type of response
+     *
+     * @return Call
+     */
+    @NonNull
+    private <T> Call<T> call(@NonNull Type type, @NonNull JsonElement payload) {
+        return new TGFakeCall<>(mTransport, type, payload.toString());
+    }
+
+    /**
+     * Create call without meaningful response
+     *
+     * @return Call
+     */
+    @NonNull
+    private Call<Object> emptyCall() {
+        return new TGFakeCall<>(mTransport, Object.class, EMPTY_PAYLOAD);
+    }
+
+    /**
+     * Create JSON of connection
+     *
+     * @param from  user starting connection
+     * @param to    user connection is made for
+     * @param type  type of connection
+     * @param state state of connection
+     *
+     * @return JSON object
+     */
+    @NonNull
+    private JsonObject connection(long from, long to, @NonNull String type, @NonNull String state) {
+        JsonObject connection = new JsonObject();
+        connection.addProperty("id", mIdSequence.incrementAndGet());
+        connection.addProperty("user_from_id", from);
+        connection.addProperty("user_to_id", to);
+        connection.addProperty("type", type);
+        connection.addProperty("state", state);
+        return connection;
+    }
+
+    /**
+     * Create JSON of connection user
+     *
+     * @param id       user ID
+     * @param userName user name
+     *
+     * @return JSON object
+     */
+    @NonNull
+    private JsonObject connectionUser(long id, @NonNull String userName) {
+        JsonObject user = new JsonObject();
+        user.addProperty("id", id);
+        user.addProperty("user_name", userName);
+        user.addProperty("first_name", "First" + id);
+        user.addProperty("last_name", "Last" + id);
+        user.addProperty("is_followed", mTransport.random().nextBoolean());
+        user.addProperty("is_follower", mTransport.random().nextBoolean());
+        user.addProperty("is_friend", mTransport.random().nextBoolean());
+        return user;
+    }
+
+    /**
+     * Create JSON of list of connection users
+     *
+     * @param namePrefix prefix of generated user names
+     * @param limit      maximal amount of users, -1 for no limit
+     *
+     * @return JSON object
+     */
+    @NonNull
+    private JsonObject connectionUsers(@NonNull String namePrefix, int limit) {
+        int amount = mTransport.nextPayloadSize();
+        if (limit >= 0) { amount = Math.min(amount, limit); }
+        JsonArray users = new JsonArray();
+        for (int i = 0; i < amount; i++) {
+            long id = randomUserId();
+            users.add(connectionUser(id, namePrefix + id));
+        }
+        JsonObject list = new JsonObject();
+        list.add("users", users);
+        return list;
+    }
+
+    /**
+     * Create JSON echoing request object, with ID assigned
+     *
+     * @param object request object
+     * @param id     ID to assign
+     *
+     * @return JSON object
+     */
+    @NonNull
+    private JsonObject echo(@Nullable Object object, long id) {
+        JsonObject json = object == null ? new JsonObject() : mTransport.mGson.toJsonTree(object).getAsJsonObject();
+        json.addProperty("id", id);
+        return json;
+    }
+
+    /**
+     * Create JSON of event
+     *
+     * @param id     event ID
+     * @param userId owner ID
+     *
+     * @return JSON object
+     */
+    @NonNull
+    private JsonObject event(long id, long userId) {
+        JsonObject object = new JsonObject();
+        object.addProperty("id", "object" + id);
+        object.addProperty("type", "article");
+        object.addProperty("url", "https://example.com/objects/" + id);
+
+        JsonObject event = new JsonObject();
+        event.addProperty("id", id);
+        event.addProperty("user_id", userId);
+        event.addProperty("type", EVENT_TYPES[(int) (id % EVENT_TYPES.length)]);
+        event.addProperty("language", "en");
+        event.addProperty("visibility", TGEvent.TGEventVisibility.Connections.asValue());
+        event.add("object", object);
+        return event;
+    }
+
+    /**
+     * Create JSON of events list
+     *
+     * @param userId owner of all events, or null for events of random users
+     * @param unread amount of unread events, or null if not part of response
+     *
+     * @return JSON object
+     */
+    @NonNull
+    private JsonObject feed(@Nullable Long userId, @Nullable Integer unread) {
+        int amount = mTransport.nextPayloadSize();
+        JsonArray events = new JsonArray();
+        for (int i = 0; i < amount; i++) {
+            events.add(event(mIdSequence.incrementAndGet(), userId != null ? userId : randomUserId()));
+        }
+        JsonObject feed = new JsonObject();
+        feed.add("events", events);
+        if (unread != null) { feed.addProperty("unread_events_count", unread); }
+        return feed;
+    }
+
+    /**
+     * Get random ID of user different than current one
+     *
+     * @return user ID
+     */
+    private long randomUserId() {
+        return CURRENT_USER_ID + 1 + mTransport.random().nextInt(USERS_AMOUNT);
+    }
+
+    /**
+     * Create JSON of user
+     *
+     * @param id user ID
+     *
+     * @return JSON object
+     */
+    @NonNull
+    private JsonObject user(long id) {
+        JsonObject image = new JsonObject();
+        image.addProperty("url", "https://images.example.com/users/" + id + ".jpg");
+        image.addProperty("width", 256);
+        image.addProperty("height", 256);
+        JsonObject images = new JsonObject();
+        images.add("profile", image);
+
+        JsonObject user = new JsonObject();
+        user.addProperty("id", id);
+        user.addProperty("user_name", "user" + id);
+        user.addProperty("email", "user" + id + "@example.com");
+        user.addProperty("first_name", "First" + id);
+        user.addProperty("last_name", "Last" + id);
+        user.addProperty("activated", true);
+        user.addProperty("enabled", true);
+        user.add("images", images);
+        return user;
+    }
+
+    @NonNull
+    @Override
+    public Call<TGConnection> createConnection(TGConnection userAndType) {
+        return call(TGConnection.class, echo(userAndType, mIdSequence.incrementAndGet()));
+    }
+
+    @NonNull
+    @Override
+    public Call<TGEvent> createEvent(TGEvent event) {
+        return call(TGEvent.class, echo(event, mIdSequence.incrementAndGet()));
+    }
+
+    @NonNull
+    @Override
+    public Call<TGUser> createUser(TGUser user) {
+        JsonObject json = echo(user, CURRENT_USER_ID);
+        json.remove("password");
+        json.addProperty("session_token", "fake-session-" + mIdSequence.incrementAndGet());
+        return call(TGUser.class, json);
+    }
+
+    @NonNull
+    @Override
+    public Call<Object> deleteUser() {
+        return emptyCall();
+    }
+
+    @NonNull
+    @Override
+    public Call<TGEvent> getEvent(Long id) {
+        return call(TGEvent.class, event(id, CURRENT_USER_ID));
+    }
+
+    @NonNull
+    @Override
+    public Call<TGEvent> getEvent(Long userId, Long id) {
+        return call(TGEvent.class, event(id, userId));
+    }
+
+    @NonNull
+    @Override
+    public Call<TGFeed> getEvents() {
+        return call(TGFeed.class, feed(CURRENT_USER_ID, null));
+    }
+
+    @NonNull
+    @Override
+    public Call<TGFeed> getEvents(Long userId) {
+        return call(TGFeed.class, feed(userId, null));
+    }
+
+    @NonNull
+    @Override
+    public Call<TGFeed> getFeed() {
+        return call(TGFeed.class, feed(null, mTransport.nextPayloadSize()));
+    }
+
+    @NonNull
+    @Override
+    public Call<TGConnectionUsersList> getFollowed() {
+        return call(TGConnectionUsersList.class, connectionUsers("follower", -1));
+    }
+
+    @NonNull
+    @Override
+    public Call<TGConnectionUsersList> getFollowedForUser(Long userId) {
+        return call(TGConnectionUsersList.class, connectionUsers("follower", -1));
+    }
+
+    @NonNull
+    @Override
+    public Call<TGConnectionUsersList> getFollows() {
+        return call(TGConnectionUsersList.class, connectionUsers("followed", -1));
+    }
+
+    @NonNull
+    @Override
+    public Call<TGConnectionUsersList> getFollowsForUser(Long userId) {
+        return call(TGConnectionUsersList.class, connectionUsers("followed", -1));
+    }
+
+    @NonNull
+    @Override
+    public Call<TGConnectionUsersList> getFriends() {
+        return call(TGConnectionUsersList.class, connectionUsers("friend", -1));
+    }
+
+    @NonNull
+    @Override
+    public Call<TGConnectionUsersList> getFriendsForUser(Long userId) {
+        return call(TGConnectionUsersList.class, connectionUsers("friend", -1));
+    }
+
+    @NonNull
+    @Override
+    public Call<TGPendingConnections> getPendingConnections() {
+        int amount = mTransport.nextPayloadSize();
+        JsonArray incoming = new JsonArray();
+        JsonArray users = new JsonArray();
+        for (int i = 0; i < amount; i++) {
+            long id = randomUserId();
+            incoming.add(connection(id, CURRENT_USER_ID, "friend", "pending"));
+            users.add(user(id));
+        }
+        JsonObject pending = new JsonObject();
+        pending.add("incoming", incoming);
+        pending.addProperty("incoming_connections_count", amount);
+        pending.add("outgoing", new JsonArray());
+        pending.addProperty("outgoing_connections_count", 0);
+        pending.add("users", users);
+        pending.addProperty("users_count", amount);
+        return call(TGPendingConnections.class, pending);
+    }
+
+    @NonNull
+    @Override
+    public Call<TGFeed> getUnreadFeed() {
+        JsonObject feed = feed(null, null);
+        feed.addProperty("unread_events_count", feed.getAsJsonArray("events").size());
+        return call(TGFeed.class, feed);
+    }
+
+    @NonNull
+    @Override
+    public Call<TGFeedCount> getUnreadFeedCount() {
+        JsonObject count = new JsonObject();
+        count.addProperty("unread_events_count", mTransport.nextPayloadSize());
+        return call(TGFeedCount.class, count);
+    }
+
+    @NonNull
+    @Override
+    public Call<TGUser> getUser(Long id) {
+        return call(TGUser.class, user(id));
+    }
+
+    @NonNull
+    @Override
+    public Call<TGUser> login(TGLoginUser user) {
+        JsonObject json = user(CURRENT_USER_ID);
+        if (user.getUserName() != null) { json.addProperty("user_name", user.getUserName()); }
+        json.addProperty("session_token", "fake-session-" + mIdSequence.incrementAndGet());
+        return call(TGUser.class, json);
+    }
+
+    @NonNull
+    @Override
+    public Call<Object> logout() {
+        return emptyCall();
+    }
+
+    @NonNull
+    @Override
+    public Call<Object> removeConnection(Long userTo, String type) {
+        return emptyCall();
+    }
+
+    @NonNull
+    @Override
+    public Call<Object> removeEvent(Long id) {
+        return emptyCall();
+    }
+
+    @NonNull
+    @Override
+    public Call<TGConnectionUsersList> search(String criteria) {
+        return call(TGConnectionUsersList.class, connectionUsers(criteria != null ? criteria : "", -1));
+    }
+
+    @NonNull
+    @Override
+    public Call<Object> sendAnalytics() {
+        return emptyCall();
+    }
+
+    @NonNull
+    @Override
+    public Call<TGConnectionUsersList> socialConnections(TGSocialConnections connections) {
+        int limit = connections.getPlatformConnectionsId() != null ? connections.getPlatformConnectionsId().size() : 0;
+        return call(TGConnectionUsersList.class, connectionUsers("social", limit));
+    }
+
+    @NonNull
+    @Override
+    public Call<TGEvent> updateEvent(Long id, TGEvent event) {
+        return call(TGEvent.class, echo(event, id));
+    }
+
+    @NonNull
+    @Override
+    public Call<TGUser> updateUser(TGUser user) {
+        JsonObject json = echo(user, CURRENT_USER_ID);
+        json.remove("password");
+        return call(TGUser.class, json);
+    }
+}
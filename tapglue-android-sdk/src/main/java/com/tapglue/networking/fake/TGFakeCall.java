@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking.fake;
+
+import android.support.annotation.NonNull;
+
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.ResponseBody;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+import retrofit.Call;
+import retrofit.Callback;
+import retrofit.Response;
+
+/**
+ * Call simulated by {@link TGFakeTransport} - returns prepared JSON payload after configured time
+ *
+ * @param <T> Type of response
+ */
+class TGFakeCall<T> implements Call<T> {
+
+    private static final String ERROR_PAYLOAD = "{\"errors\":[{\"code\":500,\"message\":\"Simulated server error\"}]}";
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    /**
+     * Response JSON
+     */
+    @NonNull
+    private final String mPayload;
+    /**
+     * Transport simulating request
+     */
+    @NonNull
+    private final TGFakeTransport mTransport;
+    /**
+     * Type of response body
+     */
+    @NonNull
+    private final Type mType;
+    /**
+     * Was call canceled?
+     */
+    private volatile boolean mCanceled;
+    /**
+     * Was call already executed?
+     */
+    private boolean mExecuted;
+
+    TGFakeCall(@NonNull TGFakeTransport transport, @NonNull Type type, @NonNull String payload) {
+        mTransport = transport;
+        mType = type;
+        mPayload = payload;
+    }
+
+    @Override
+    public void cancel() {
+        mCanceled = true;
+    }
+
+    @Override
+    public Call<T> clone() {
+        return new TGFakeCall<>(mTransport, mType, mPayload);
+    }
+
+    /**
+     * Create response - parsing is done here, so its cost is included same as with real converter
+     *
+     * @return Response
+     */
+    @NonNull
+    private Response<T> createResponse() {
+        if (mTransport.shouldReturnError()) {
+            return Response.error(500, ResponseBody.create(JSON, ERROR_PAYLOAD));
+        }
+        T body = mTransport.mGson.fromJson(mPayload, mType);
+        return Response.success(body);
+    }
+
+    @Override
+    public void enqueue(@NonNull final Callback<T> callback) {
+        markExecuted();
+        long time = mTransport.nextRequestTime(mPayload.length());
+        mTransport.getWorkers().schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (mCanceled) {
+                    deliverFailure(callback, new IOException("Canceled"));
+                    return;
+                }
+                if (mTransport.shouldFail()) {
+                    deliverFailure(callback, new IOException("Simulated network failure"));
+                    return;
+                }
+                final Response<T> response;
+                try {
+                    response = createResponse();
+                } catch (RuntimeException e) {
+                    deliverFailure(callback, e);
+                    return;
+                }
+                mTransport.deliver(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onResponse(response, null);
+                    }
+                });
+            }
+        }, time, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Deliver failure to callback
+     *
+     * @param callback callback to inform
+     * @param t        cause of failure
+     */
+    private void deliverFailure(@NonNull final Callback<T> callback, @NonNull final Throwable t) {
+        mTransport.deliver(new Runnable() {
+            @Override
+            public void run() {
+                callback.onFailure(t);
+            }
+        });
+    }
+
+    @Override
+    public Response<T> execute() throws IOException {
+        markExecuted();
+        long time = mTransport.nextRequestTime(mPayload.length());
+        try {
+            Thread.sleep(time);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        if (mCanceled) { throw new IOException("Canceled"); }
+        if (mTransport.shouldFail()) { throw new IOException("Simulated network failure"); }
+        return createResponse();
+    }
+
+    /**
+     * Mark call as executed, each call can be executed only once
+     */
+    private synchronized void markExecuted() {
+        if (mExecuted) { throw new IllegalStateException("Already executed"); }
+        mExecuted = true;
+    }
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking.fake;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.tapglue.Tapglue;
+import com.tapglue.networking.TGApi;
+import com.tapglue.networking.TGTransport;
+
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process transport simulating Tapglue API. Can be used for benchmarking and load testing of
+ * whole library without network access:
+ * <pre>
+ * new Tapglue.TGConfiguration()
+ *     .setToken("token")
+ *     .setTransport(new TGFakeTransport()
+ *         .setLatency(TGDistribution.normal(120, 40))
+ *         .setBandwidth(256 * 1024)
+ *         .setErrorRate(0.01)
+ *         .setPayloadSize(TGDistribution.uniform(10, 200)));
+ * </pre>
+ */
+public class TGFakeTransport implements TGTransport {
+
+    /**
+     * Amount of worker threads used to simulate request handling
+     */
+    private static final int WORKER_THREADS = 2;
+    /**
+     * Gson configured the same way as one used by Retrofit converter
+     */
+    @NonNull
+    final Gson mGson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create();
+    /**
+     * Bandwidth in bytes per second, 0 for unlimited
+     */
+    private long mBandwidth = 0;
+    /**
+     * Executor delivering results, by default worker thread is used
+     */
+    @Nullable
+    private Executor mCallbackExecutor;
+    /**
+     * Chance that request will finish with server error
+     */
+    private double mErrorRate = 0;
+    /**
+     * Chance that request will fail on transport level
+     */
+    private double mFailureRate = 0;
+    /**
+     * Latency distribution in milliseconds
+     */
+    @NonNull
+    private TGDistribution mLatency = TGDistribution.constant(0);
+    /**
+     * Should transport report network as available?
+     */
+    private boolean mNetworkAvailable = true;
+    /**
+     * Should transport report network as unmetered?
+     */
+    private boolean mNetworkUnmetered = true;
+    /**
+     * Distribution of amount of elements in list responses
+     */
+    @NonNull
+    private TGDistribution mPayloadSize = TGDistribution.constant(20);
+    /**
+     * Source of randomness for all distributions
+     */
+    @NonNull
+    private Random mRandom = new Random();
+    /**
+     * Amount of bytes returned by transport
+     */
+    private final AtomicLong mReceivedBytes = new AtomicLong();
+    /**
+     * Amount of requests handled by transport
+     */
+    private final AtomicLong mRequestCount = new AtomicLong();
+    /**
+     * Worker threads simulating network
+     */
+    @Nullable
+    private ScheduledExecutorService mWorkers;
+
+    @NonNull
+    @Override
+    public TGApi createApi(@NonNull Tapglue tapglue) {
+        return new TGFakeApi(this);
+    }
+
+    /**
+     * Deliver result with configured executor
+     *
+     * @param delivery delivery to perform
+     */
+    void deliver(@NonNull Runnable delivery) {
+        if (mCallbackExecutor == null) { delivery.run(); }
+        else { mCallbackExecutor.execute(delivery); }
+    }
+
+    /**
+     * Get amount of requests handled by transport
+     *
+     * @return amount of requests
+     */
+    public long getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    @Override
+    public long getReceivedBytes() {
+        return mReceivedBytes.get();
+    }
+
+    /**
+     * Get workers used to simulate asynchronous requests
+     *
+     * @return Worker threads
+     */
+    @NonNull
+    synchronized ScheduledExecutorService getWorkers() {
+        if (mWorkers == null) {
+            mWorkers = Executors.newScheduledThreadPool(WORKER_THREADS, new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "TGFakeTransport");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return mWorkers;
+    }
+
+    @Override
+    public boolean isNetworkAvailable(@NonNull Tapglue tapglue) {
+        return mNetworkAvailable;
+    }
+
+    @Override
+    public boolean isNetworkUnmetered(@NonNull Tapglue tapglue) {
+        return mNetworkAvailable && mNetworkUnmetered;
+    }
+
+    /**
+     * Register handled request and compute time it should take
+     *
+     * @param payloadBytes size of response
+     *
+     * @return time of request in milliseconds
+     */
+    long nextRequestTime(long payloadBytes) {
+        mRequestCount.incrementAndGet();
+        mReceivedBytes.addAndGet(payloadBytes);
+        long time = mLatency.sample(mRandom);
+        if (mBandwidth > 0) { time += payloadBytes * 1000 / mBandwidth; }
+        return time;
+    }
+
+    /**
+     * Get random amount of elements for list response
+     *
+     * @return amount of elements
+     */
+    int nextPayloadSize() {
+        return (int) Math.min(Integer.MAX_VALUE, mPayloadSize.sample(mRandom));
+    }
+
+    /**
+     * Get source of randomness
+     *
+     * @return Random
+     */
+    @NonNull
+    Random random() {
+        return mRandom;
+    }
+
+    /**
+     * Set bandwidth of simulated network
+     *
+     * @param bytesPerSecond bandwidth in bytes per second, 0 for unlimited
+     *
+     * @return Current object
+     */
+    @NonNull
+    public TGFakeTransport setBandwidth(long bytesPerSecond) {
+        mBandwidth = Math.max(0, bytesPerSecond);
+        return this;
+    }
+
+    /**
+     * Set executor on which results are delivered - by default worker thread is used
+     *
+     * @param executor executor to use
+     *
+     * @return Current object
+     */
+    @NonNull
+    public TGFakeTransport setCallbackExecutor(@Nullable Executor executor) {
+        mCallbackExecutor = executor;
+        return this;
+    }
+
+    /**
+     * Set chance of server error response
+     *
+     * @param errorRate value from 0 to 1
+     *
+     * @return Current object
+     */
+    @NonNull
+    public TGFakeTransport setErrorRate(double errorRate) {
+        mErrorRate = Math.max(0, Math.min(1, errorRate));
+        return this;
+    }
+
+    /**
+     * Set chance of transport failure, like connection reset
+     *
+     * @param failureRate value from 0 to 1
+     *
+     * @return Current object
+     */
+    @NonNull
+    public TGFakeTransport setFailureRate(double failureRate) {
+        mFailureRate = Math.max(0, Math.min(1, failureRate));
+        return this;
+    }
+
+    /**
+     * Set latency of requests
+     *
+     * @param latency latency distribution in milliseconds
+     *
+     * @return Current object
+     */
+    @NonNull
+    public TGFakeTransport setLatency(@NonNull TGDistribution latency) {
+        mLatency = latency;
+        return this;
+    }
+
+    /**
+     * Set if network should be reported as available
+     *
+     * @param available is network available
+     *
+     * @return Current object
+     */
+    @NonNull
+    public TGFakeTransport setNetworkAvailable(boolean available) {
+        mNetworkAvailable = available;
+        return this;
+    }
+
+    /**
+     * Set if network should be reported as unmetered (e.g. Wi-Fi)
+     *
+     * @param unmetered is network unmetered
+     *
+     * @return Current object
+     */
+    @NonNull
+    public TGFakeTransport setNetworkUnmetered(boolean unmetered) {
+        mNetworkUnmetered = unmetered;
+        return this;
+    }
+
+    /**
+     * Set amount of elements returned in list responses, like feed events or users
+     *
+     * @param payloadSize payload size distribution
+     *
+     * @return Current object
+     */
+    @NonNull
+    public TGFakeTransport setPayloadSize(@NonNull TGDistribution payloadSize) {
+        mPayloadSize = payloadSize;
+        return this;
+    }
+
+    /**
+     * Set seed of randomness, to make runs repeatable
+     *
+     * @param seed seed value
+     *
+     * @return Current object
+     */
+    @NonNull
+    public TGFakeTransport setSeed(long seed) {
+        mRandom = new Random(seed);
+        return this;
+    }
+
+    /**
+     * Should next request finish with server error?
+     *
+     * @return true if error should be returned
+     */
+    boolean shouldReturnError() {
+        return mErrorRate > 0 && mRandom.nextDouble() < mErrorRate;
+    }
+
+    /**
+     * Should next request fail on transport level?
+     *
+     * @return true if request should fail
+     */
+    boolean shouldFail() {
+        return mFailureRate > 0 && mRandom.nextDouble() < mFailureRate;
+    }
+}
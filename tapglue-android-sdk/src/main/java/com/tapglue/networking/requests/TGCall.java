@@ -0,0 +1,465 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking.requests;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of asynchronous request which can be combined with other calls. Independent calls run
+ * concurrently and are joined with {@link #zip(TGCall, TGCall, Combiner)} or {@link #all(List)},
+ * dependent ones are chained with {@link #then(Continuation)}. Call completes only once - when
+ * request calls its callback again (for example with fresh data after cached ones), later results
+ * are ignored.
+ *
+ * @param <T> type of result
+ */
+public class TGCall<T> {
+
+    /**
+     * Transformation of call result
+     *
+     * @param <I> type of input
+     * @param <O> type of output
+     */
+    public interface Function<I, O> {
+        /**
+         * Transform result
+         *
+         * @param input result of call
+         *
+         * @return Transformed result
+         */
+        O apply(I input);
+    }
+
+    /**
+     * Request started after call finished
+     *
+     * @param <I> type of input
+     * @param <O> type of output
+     */
+    public interface Continuation<I, O> {
+        /**
+         * Start next request
+         *
+         * @param input result of previous call
+         *
+         * @return Call of next request
+         */
+        @NonNull
+        TGCall<O> then(I input);
+    }
+
+    /**
+     * Combination of results of two calls
+     *
+     * @param <A> type of first result
+     * @param <B> type of second result
+     * @param <R> type of combined result
+     */
+    public interface Combiner<A, B, R> {
+        /**
+         * Combine results
+         *
+         * @param first  result of first call
+         * @param second result of second call
+         *
+         * @return Combined result
+         */
+        R combine(A first, B second);
+    }
+
+    /**
+     * Lock guarding state of call
+     */
+    @NonNull
+    private final Object mLock = new Object();
+    /**
+     * Callbacks waiting for result
+     */
+    @NonNull
+    private final List<TGRequestCallback<T>> mCallbacks = new ArrayList<>();
+    /**
+     * Calls cancelled together with this one
+     */
+    @NonNull
+    private final List<TGCall<?>> mUpstream = new ArrayList<>();
+    /**
+     * Was call finished, with result or error?
+     */
+    private boolean mDone = false;
+    /**
+     * Was call cancelled?
+     */
+    private volatile boolean mCancelled = false;
+    /**
+     * Result of call
+     */
+    @Nullable
+    private T mResult;
+    /**
+     * Was result received from server?
+     */
+    private boolean mChangeDoneOnline;
+    /**
+     * Error of call
+     */
+    @Nullable
+    private TGRequestErrorType mError;
+
+    /**
+     * Create call finished with result
+     *
+     * @param result result of call
+     *
+     * @return Finished call
+     */
+    @NonNull
+    public static <T> TGCall<T> success(T result) {
+        TGCall<T> call = new TGCall<>();
+        call.finish(result, true);
+        return call;
+    }
+
+    /**
+     * Create call finished with error
+     *
+     * @param cause cause of error
+     *
+     * @return Finished call
+     */
+    @NonNull
+    public static <T> TGCall<T> failure(@NonNull TGRequestErrorType cause) {
+        TGCall<T> call = new TGCall<>();
+        call.fail(cause);
+        return call;
+    }
+
+    /**
+     * Join results of two calls running concurrently. Fails with first error, other call is then
+     * cancelled
+     *
+     * @param first    first call
+     * @param second   second call
+     * @param combiner combination of results
+     *
+     * @return Call with combined result
+     */
+    @NonNull
+    public static <A, B, R> TGCall<R> zip(@NonNull final TGCall<A> first, @NonNull final TGCall<B> second, @NonNull final Combiner<? super A, ? super B, ? extends R> combiner) {
+        List<TGCall<?>> calls = Arrays.<TGCall<?>>asList(first, second);
+        return join(calls).map(new Function<List<Object>, R>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public R apply(List<Object> results) {
+                return combiner.combine((A) results.get(0), (B) results.get(1));
+            }
+        });
+    }
+
+    /**
+     * Join results of calls running concurrently. Fails with first error, other calls are then
+     * cancelled
+     *
+     * @param calls calls to join
+     *
+     * @return Call with results in order of calls
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public static <T> TGCall<List<T>> all(@NonNull List<TGCall<T>> calls) {
+        TGCall<List<Object>> joined = join(new ArrayList<TGCall<?>>(calls));
+        return (TGCall<List<T>>) (TGCall<?>) joined;
+    }
+
+    /**
+     * Join results of calls of any types
+     *
+     * @param calls calls to join
+     *
+     * @return Call with results in order of calls
+     */
+    @NonNull
+    private static TGCall<List<Object>> join(@NonNull final List<TGCall<?>> calls) {
+        final TGCall<List<Object>> joined = new TGCall<>();
+        joined.addUpstream(calls);
+        if (calls.isEmpty()) {
+            joined.finish(Collections.emptyList(), true);
+            return joined;
+        }
+        final Object[] results = new Object[calls.size()];
+        final boolean[] online = {true};
+        final int[] remaining = {calls.size()};
+        for (int i = 0; i < calls.size(); i++) {
+            final int index = i;
+            @SuppressWarnings("unchecked")
+            TGCall<Object> call = (TGCall<Object>) calls.get(i);
+            call.enqueue(new TGRequestCallback<Object>() {
+                @Override
+                public boolean callbackIsEnabled() {
+                    return !joined.isCancelled();
+                }
+
+                @Override
+                public void onRequestError(TGRequestErrorType cause) {
+                    if (joined.fail(cause)) { joined.cancelUpstream(); }
+                }
+
+                @Override
+                public void onRequestFinished(Object output, boolean changeDoneOnline) {
+                    boolean last;
+                    synchronized (results) {
+                        results[index] = output;
+                        online[0] &= changeDoneOnline;
+                        last = --remaining[0] == 0;
+                    }
+                    if (last) { joined.finish(Arrays.asList(results), online[0]); }
+                }
+            });
+        }
+        return joined;
+    }
+
+    /**
+     * Get callback finishing this call, to be passed to callback based API
+     *
+     * @return Callback
+     */
+    @NonNull
+    public TGRequestCallback<T> callback() {
+        return new TGRequestCallback<T>() {
+            @Override
+            public boolean callbackIsEnabled() {
+                return !mCancelled;
+            }
+
+            @Override
+            public void onRequestError(TGRequestErrorType cause) {
+                fail(cause);
+            }
+
+            @Override
+            public void onRequestFinished(T output, boolean changeDoneOnline) {
+                finish(output, changeDoneOnline);
+            }
+        };
+    }
+
+    /**
+     * Cancel call - callbacks won't be called and requests of joined or chained calls are dropped
+     */
+    public void cancel() {
+        mCancelled = true;
+        synchronized (mLock) {
+            mCallbacks.clear();
+        }
+        cancelUpstream();
+    }
+
+    /**
+     * Add callback called when call finishes, immediately when it is already finished
+     *
+     * @param callback callback to call
+     *
+     * @return Current object
+     */
+    @NonNull
+    public TGCall<T> enqueue(@NonNull TGRequestCallback<T> callback) {
+        synchronized (mLock) {
+            if (mCancelled) { return this; }
+            if (!mDone) {
+                mCallbacks.add(callback);
+                return this;
+            }
+        }
+        dispatch(callback);
+        return this;
+    }
+
+    /**
+     * Was call cancelled?
+     *
+     * @return true if call was cancelled
+     */
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Was call finished, with result or error?
+     *
+     * @return true if call is finished
+     */
+    public boolean isDone() {
+        synchronized (mLock) {
+            return mDone;
+        }
+    }
+
+    /**
+     * Transform result of call
+     *
+     * @param function transformation
+     *
+     * @return Call with transformed result
+     */
+    @NonNull
+    public <R> TGCall<R> map(@NonNull final Function<? super T, ? extends R> function) {
+        final TGCall<R> mapped = new TGCall<>();
+        mapped.addUpstream(Collections.<TGCall<?>>singletonList(this));
+        enqueue(new TGRequestCallback<T>() {
+            @Override
+            public boolean callbackIsEnabled() {
+                return !mapped.isCancelled();
+            }
+
+            @Override
+            public void onRequestError(TGRequestErrorType cause) {
+                mapped.fail(cause);
+            }
+
+            @Override
+            public void onRequestFinished(T output, boolean changeDoneOnline) {
+                mapped.finish(function.apply(output), changeDoneOnline);
+            }
+        });
+        return mapped;
+    }
+
+    /**
+     * Start next request after this call finished with result
+     *
+     * @param continuation next request
+     *
+     * @return Call of next request
+     */
+    @NonNull
+    public <R> TGCall<R> then(@NonNull final Continuation<? super T, R> continuation) {
+        final TGCall<R> chained = new TGCall<>();
+        chained.addUpstream(Collections.<TGCall<?>>singletonList(this));
+        enqueue(new TGRequestCallback<T>() {
+            @Override
+            public boolean callbackIsEnabled() {
+                return !chained.isCancelled();
+            }
+
+            @Override
+            public void onRequestError(TGRequestErrorType cause) {
+                chained.fail(cause);
+            }
+
+            @Override
+            public void onRequestFinished(T output, boolean changeDoneOnline) {
+                if (chained.isCancelled()) { return; }
+                TGCall<R> next = continuation.then(output);
+                chained.addUpstream(Collections.<TGCall<?>>singletonList(next));
+                next.enqueue(chained.callback());
+            }
+        });
+        return chained;
+    }
+
+    /**
+     * Add calls cancelled together with this one
+     *
+     * @param calls calls to cancel
+     */
+    private void addUpstream(@NonNull List<TGCall<?>> calls) {
+        synchronized (mLock) {
+            mUpstream.addAll(calls);
+        }
+        if (mCancelled) { cancelUpstream(); }
+    }
+
+    /**
+     * Cancel calls this one depends on
+     */
+    private void cancelUpstream() {
+        List<TGCall<?>> upstream;
+        synchronized (mLock) {
+            upstream = new ArrayList<>(mUpstream);
+            mUpstream.clear();
+        }
+        for (TGCall<?> call : upstream) {
+            call.cancel();
+        }
+    }
+
+    /**
+     * Finish call with error
+     *
+     * @param cause cause of error
+     *
+     * @return true if call was finished by this error
+     */
+    boolean fail(@NonNull TGRequestErrorType cause) {
+        List<TGRequestCallback<T>> callbacks;
+        synchronized (mLock) {
+            if (mDone || mCancelled) { return false; }
+            mDone = true;
+            mError = cause;
+            callbacks = new ArrayList<>(mCallbacks);
+            mCallbacks.clear();
+        }
+        for (TGRequestCallback<T> callback : callbacks) {
+            dispatch(callback);
+        }
+        return true;
+    }
+
+    /**
+     * Finish call with result
+     *
+     * @param result           result of call
+     * @param changeDoneOnline was result received from server?
+     *
+     * @return true if call was finished by this result
+     */
+    boolean finish(T result, boolean changeDoneOnline) {
+        List<TGRequestCallback<T>> callbacks;
+        synchronized (mLock) {
+            if (mDone || mCancelled) { return false; }
+            mDone = true;
+            mResult = result;
+            mChangeDoneOnline = changeDoneOnline;
+            callbacks = new ArrayList<>(mCallbacks);
+            mCallbacks.clear();
+        }
+        for (TGRequestCallback<T> callback : callbacks) {
+            dispatch(callback);
+        }
+        return true;
+    }
+
+    /**
+     * Call callback with outcome of finished call
+     *
+     * @param callback callback to call
+     */
+    private void dispatch(@NonNull TGRequestCallback<T> callback) {
+        if (!callback.callbackIsEnabled()) { return; }
+        if (mError != null) { callback.onRequestError(mError); }
+        else { callback.onRequestFinished(mResult, mChangeDoneOnline); }
+    }
+}
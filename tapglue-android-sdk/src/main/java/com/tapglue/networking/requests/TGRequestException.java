@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.networking.requests;
+
+import android.support.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Exception carrying error of request, for APIs which report errors by throwing instead of through
+ * {@link TGRequestCallback#onRequestError(TGRequestErrorType)}
+ */
+public class TGRequestException extends Exception {
+
+    /**
+     * Errors of request, server can return more of them at once
+     */
+    @NonNull
+    private final List<TGRequestErrorType> mErrors;
+
+    public TGRequestException(@NonNull TGRequestErrorType error) {
+        super(describe(error));
+        mErrors = Collections.singletonList(error);
+    }
+
+    public TGRequestException(@NonNull TGRequestErrorType error, @NonNull Throwable cause) {
+        super(describe(error), cause);
+        mErrors = Collections.singletonList(error);
+    }
+
+    /**
+     * Create exception of all errors returned by server
+     *
+     * @param errors errors of request, at least one
+     */
+    public TGRequestException(@NonNull List<TGRequestErrorType> errors) {
+        super(describe(errors.get(0)));
+        mErrors = Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Create exception message of error
+     *
+     * @param error error of request
+     *
+     * @return Message
+     */
+    @NonNull
+    private static String describe(@NonNull TGRequestErrorType error) {
+        if (error.getMessage().isEmpty()) { return String.valueOf(error.getType()); }
+        return error.getType() + " (" + error.getCode() + "): " + error.getMessage();
+    }
+
+    /**
+     * Get first error of request
+     *
+     * @return Error
+     */
+    @NonNull
+    public TGRequestErrorType getError() {
+        return mErrors.get(0);
+    }
+
+    /**
+     * Get all errors of request
+     *
+     * @return Errors
+     */
+    @NonNull
+    public List<TGRequestErrorType> getErrors() {
+        return mErrors;
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.prefetch;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.tapglue.Tapglue;
+import com.tapglue.model.TGConnectionUsersList;
+import com.tapglue.model.TGFeed;
+import com.tapglue.model.TGFeedCount;
+import com.tapglue.model.TGPendingConnections;
+import com.tapglue.networking.TGResponseCache;
+import com.tapglue.networking.TGTransport;
+import com.tapglue.networking.requests.TGRequestCallback;
+import com.tapglue.networking.requests.TGRequestErrorType;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs warm-up sets declared in configuration in background, one request at a time on a low
+ * priority thread, so caches are filled before user navigates to screens needing them
+ */
+public class TGPrefetchScheduler {
+
+    /**
+     * Events on which warm-up sets are run
+     */
+    public enum Trigger {
+        /**
+         * User logged in or was created
+         */
+        LOGIN,
+        /**
+         * Application came to foreground
+         */
+        FOREGROUND
+    }
+
+    /**
+     * Maximal time of waiting for single item in milliseconds
+     */
+    private static final long ITEM_TIMEOUT = 30 * 1000;
+
+    /**
+     * Single low priority thread running warm-up sets
+     */
+    @NonNull
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "TGPrefetchScheduler");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    /**
+     * Tapglue instance
+     */
+    @NonNull
+    private final Tapglue tapglue;
+    /**
+     * Transport used for network state and received bytes
+     */
+    @NonNull
+    private final TGTransport mTransport;
+    /**
+     * Amount of started activities
+     */
+    private int mStartedActivities = 0;
+
+    public TGPrefetchScheduler(@NonNull Tapglue tapglue, @NonNull TGTransport transport) {
+        this.tapglue = tapglue;
+        mTransport = transport;
+    }
+
+    /**
+     * Check if set can be fetched on current network
+     *
+     * @param set warm-up set
+     *
+     * @return true if network matches policy of set
+     */
+    private boolean isNetworkAllowed(@NonNull TGWarmUpSet set) {
+        if (!mTransport.isNetworkAvailable(tapglue)) { return false; }
+        return set.getNetworkPolicy() == TGWarmUpSet.NetworkPolicy.ANY || mTransport.isNetworkUnmetered(tapglue);
+    }
+
+    /**
+     * Check if item is already answered by caches without network request
+     *
+     * @param item item to be fetched
+     *
+     * @return true if item doesn't need to be fetched
+     */
+    private boolean isFresh(@NonNull TGWarmUpSet.Item item) {
+        TGResponseCache cache = tapglue.getResponseCache();
+        switch (item) {
+            case UNREAD_COUNT:
+                return Tapglue.feed().isUnreadCountFresh();
+            case FRIENDS:
+                return cache.hasFreshEntry(TGResponseCache.Route.USER_FRIENDS, (Object) null);
+            case FOLLOWS:
+                return cache.hasFreshEntry(TGResponseCache.Route.USER_FOLLOWS, (Object) null);
+            case FOLLOWERS:
+                return cache.hasFreshEntry(TGResponseCache.Route.USER_FOLLOWERS, (Object) null);
+            case PENDING_CONNECTIONS:
+                return cache.hasFreshEntry(TGResponseCache.Route.PENDING_CONNECTIONS);
+            case USER_EVENTS:
+                return cache.hasFreshEntry(TGResponseCache.Route.USER_EVENTS, (Object) null);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Fetch single item and wait until its response comes from network - stale cached value
+     * returned before it is not waited for
+     *
+     * @param item item to be fetched
+     */
+    private void fetch(@NonNull TGWarmUpSet.Item item) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        switch (item) {
+            case FEED:
+                Tapglue.feed().retrieveFeedForCurrentUser(new PrefetchCallback<TGFeed>(latch));
+                break;
+            case UNREAD_COUNT:
+                Tapglue.feed().refreshUnreadCountForCurrentUser(new PrefetchCallback<TGFeedCount>(latch));
+                break;
+            case FRIENDS:
+                Tapglue.feed().retrieveFriendsForCurrentUser(new PrefetchCallback<TGConnectionUsersList>(latch));
+                break;
+            case FOLLOWS:
+                Tapglue.feed().retrieveFollowsForCurrentUser(new PrefetchCallback<TGConnectionUsersList>(latch));
+                break;
+            case FOLLOWERS:
+                Tapglue.feed().retrieveFollowersForCurrentUser(new PrefetchCallback<TGConnectionUsersList>(latch));
+                break;
+            case PENDING_CONNECTIONS:
+                Tapglue.connections().getPendingConnections(new PrefetchCallback<TGPendingConnections>(latch));
+                break;
+            case USER_EVENTS:
+                Tapglue.feed().retrieveEventsForCurrentUser(new PrefetchCallback<TGFeed>(latch));
+                break;
+        }
+        latch.await(ITEM_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run warm-up sets of trigger
+     *
+     * @param trigger trigger which occurred
+     */
+    public void onTrigger(@NonNull Trigger trigger) {
+        for (TGWarmUpSet set : tapglue.getConfiguration().getWarmUpSets(trigger)) {
+            run(set);
+        }
+    }
+
+    /**
+     * Register for foreground trigger - it is fired when first activity of application is started
+     *
+     * @param application application to observe
+     */
+    public void registerForeground(@NonNull Application application) {
+        application.registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+            }
+
+            @Override
+            public void onActivityDestroyed(Activity activity) {
+            }
+
+            @Override
+            public void onActivityPaused(Activity activity) {
+            }
+
+            @Override
+            public void onActivityResumed(Activity activity) {
+            }
+
+            @Override
+            public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+            }
+
+            @Override
+            public void onActivityStarted(Activity activity) {
+                if (mStartedActivities++ == 0) { onTrigger(Trigger.FOREGROUND); }
+            }
+
+            @Override
+            public void onActivityStopped(Activity activity) {
+                mStartedActivities = Math.max(0, mStartedActivities - 1);
+            }
+        });
+    }
+
+    /**
+     * Schedule warm-up set to be fetched in background
+     *
+     * @param set warm-up set
+     */
+    public void run(@NonNull final TGWarmUpSet set) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                runNow(set);
+            }
+        });
+    }
+
+    /**
+     * Fetch warm-up set on current thread, stopping when any budget is used up
+     *
+     * @param set warm-up set
+     */
+    void runNow(@NonNull TGWarmUpSet set) {
+        if (tapglue.getUserManager().getCurrentUser() == null) { return; }
+        long startBytes = mTransport.getReceivedBytes();
+        int requests = 0;
+        for (TGWarmUpSet.Item item : set.getItems()) {
+            if (isFresh(item)) { continue; }
+            if (requests >= set.getMaxRequests()) {
+                tapglue.getLogger().log("Prefetch stopped - request budget used");
+                return;
+            }
+            if (mTransport.getReceivedBytes() - startBytes >= set.getMaxBytes()) {
+                tapglue.getLogger().log("Prefetch stopped - byte budget used");
+                return;
+            }
+            if (!isNetworkAllowed(set)) {
+                tapglue.getLogger().log("Prefetch stopped - network not allowed");
+                return;
+            }
+            try {
+                fetch(item);
+            } catch (InterruptedException e) {
+                return;
+            }
+            requests++;
+        }
+        tapglue.getLogger().log("Prefetch finished - " + requests + " requests, " + (mTransport.getReceivedBytes() - startBytes) + " bytes");
+    }
+
+    /**
+     * Callback releasing scheduler thread when item is fetched from network or request failed
+     */
+    private static class PrefetchCallback<T> implements TGRequestCallback<T> {
+        @NonNull
+        private final CountDownLatch mLatch;
+
+        PrefetchCallback(@NonNull CountDownLatch latch) {
+            mLatch = latch;
+        }
+
+        @Override
+        public boolean callbackIsEnabled() {
+            return true;
+        }
+
+        @Override
+        public void onRequestError(@Nullable TGRequestErrorType cause) {
+            mLatch.countDown();
+        }
+
+        @Override
+        public void onRequestFinished(@Nullable T output, boolean changeDoneOnline) {
+            if (changeDoneOnline) { mLatch.countDown(); }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.prefetch;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Set of data fetched in background to warm up caches, with limits on how much it can cost
+ */
+public class TGWarmUpSet {
+
+    /**
+     * Data which can be prefetched
+     */
+    public enum Item {
+        FEED, UNREAD_COUNT, FRIENDS, FOLLOWS, FOLLOWERS, PENDING_CONNECTIONS, USER_EVENTS
+    }
+
+    /**
+     * Networks on which set can be fetched
+     */
+    public enum NetworkPolicy {
+        /**
+         * Any available network
+         */
+        ANY,
+        /**
+         * Only unmetered networks, like Wi-Fi
+         */
+        UNMETERED
+    }
+
+    /**
+     * Items in order of fetching
+     */
+    @NonNull
+    private final Set<Item> mItems = new LinkedHashSet<>();
+    /**
+     * Maximal amount of received bytes
+     */
+    private long mMaxBytes = Long.MAX_VALUE;
+    /**
+     * Maximal amount of requests
+     */
+    private int mMaxRequests = Integer.MAX_VALUE;
+    /**
+     * Networks allowed for fetching
+     */
+    @NonNull
+    private NetworkPolicy mNetworkPolicy = NetworkPolicy.ANY;
+
+    /**
+     * Add items - they are fetched in order of adding
+     *
+     * @param items items to be fetched
+     *
+     * @return Current object
+     */
+    @NonNull
+    public TGWarmUpSet add(@NonNull Item... items) {
+        Collections.addAll(mItems, items);
+        return this;
+    }
+
+    /**
+     * Get items in order of fetching
+     *
+     * @return items
+     */
+    @NonNull
+    public List<Item> getItems() {
+        return new ArrayList<>(mItems);
+    }
+
+    /**
+     * Get maximal amount of received bytes
+     *
+     * @return amount of bytes
+     */
+    public long getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    /**
+     * Set maximal amount of received bytes - no more items are fetched after budget is used
+     *
+     * @param maxBytes amount of bytes
+     *
+     * @return Current object
+     */
+    @NonNull
+    public TGWarmUpSet setMaxBytes(long maxBytes) {
+        mMaxBytes = Math.max(0, maxBytes);
+        return this;
+    }
+
+    /**
+     * Get maximal amount of requests
+     *
+     * @return amount of requests
+     */
+    public int getMaxRequests() {
+        return mMaxRequests;
+    }
+
+    /**
+     * Set maximal amount of requests
+     *
+     * @param maxRequests amount of requests
+     *
+     * @return Current object
+     */
+    @NonNull
+    public TGWarmUpSet setMaxRequests(int maxRequests) {
+        mMaxRequests = Math.max(0, maxRequests);
+        return this;
+    }
+
+    /**
+     * Get networks allowed for fetching
+     *
+     * @return network policy
+     */
+    @NonNull
+    public NetworkPolicy getNetworkPolicy() {
+        return mNetworkPolicy;
+    }
+
+    /**
+     * Set networks allowed for fetching
+     *
+     * @param networkPolicy network policy
+     *
+     * @return Current object
+     */
+    @NonNull
+    public TGWarmUpSet setNetworkPolicy(@NonNull NetworkPolicy networkPolicy) {
+        mNetworkPolicy = networkPolicy;
+        return this;
+    }
+}
@@ -43,7 +43,7 @@ public class TGErrorUtil {
             if (!(callback instanceof TGRequestCallback<?>)) {
                 continue;
             }
-            ((TGRequestCallback<?>) callbacks).onRequestError(error);
+            ((TGRequestCallback<?>) callback).onRequestError(error);
         }
     }
 
@@ -33,6 +33,18 @@ import javax.crypto.spec.PBEKeySpec;
 
 public class TGPasswordHasher {
 
+    /**
+     * Hasher used for passwords sent to API
+     */
+    private static final TGPasswordHasher DEFAULT = new TGPasswordHasher(1000, 160, EncoderType.HEX);
+    /**
+     * Key factory algorithm
+     */
+    private static final String KEY_FACTORY_ALGORITHM = "PBKDF2WithHmacSHA1";
+    /**
+     * Key factory of each thread - creating it is expensive, so it's reused
+     */
+    private static final ThreadLocal<SecretKeyFactory> KEY_FACTORY = new ThreadLocal<>();
     /**  */
     private final int mDerivedKeyLength;
     /**  */
@@ -46,7 +58,7 @@ public class TGPasswordHasher {
     @Nullable
     public static String hashPassword(@NonNull String password) {
         try {
-            return new TGPasswordHasher(1000, 160, TGPasswordHasher.EncoderType.HEX).hashPasswordNonStatic(password);
+            return DEFAULT.hashPasswordNonStatic(password);
         } catch (@NonNull NoSuchAlgorithmException | InvalidKeySpecException | NoSuchProviderException e) {
             e.printStackTrace();
         }
@@ -83,7 +95,7 @@ public class TGPasswordHasher {
      * @param encoderType Pick one of the values from {@link EncoderType} default is {@link
      *                    EncoderType#WEB_SAFE_BASE64}
      */
-    private TGPasswordHasher(int iterations, int keyLength, int encoderType) {
+    public TGPasswordHasher(int iterations, int keyLength, int encoderType) {
         // Set the number of rounds preformed during the hashing
         /*  */
         int mMinIterations = 0x3E8;
@@ -138,10 +150,45 @@ public class TGPasswordHasher {
     private byte[] encryptedPassword(@NonNull String password, byte[] salt)
         throws NoSuchAlgorithmException, InvalidKeySpecException, NoSuchProviderException {
         KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, mIterations, mDerivedKeyLength);
-        /*  */
-        String mKeyFactoryAlgorithm = "PBKDF2WithHmacSHA1";
-        SecretKeyFactory f = SecretKeyFactory.getInstance(mKeyFactoryAlgorithm, "BC");
-        return f.generateSecret(spec).getEncoded();
+        return getKeyFactory().generateSecret(spec).getEncoded();
+    }
+
+    /**
+     * Get key factory of current thread. Bouncy Castle provider is used as on Android, default
+     * provider only where it's missing (e.g. benchmarks on JVM)
+     *
+     * @return Key factory
+     *
+     * @throws NoSuchAlgorithmException
+     */
+    @NonNull
+    private static SecretKeyFactory getKeyFactory() throws NoSuchAlgorithmException {
+        SecretKeyFactory factory = KEY_FACTORY.get();
+        if (factory == null) {
+            try {
+                factory = SecretKeyFactory.getInstance(KEY_FACTORY_ALGORITHM, "BC");
+            } catch (NoSuchProviderException e) {
+                factory = SecretKeyFactory.getInstance(KEY_FACTORY_ALGORITHM);
+            }
+            KEY_FACTORY.set(factory);
+        }
+        return factory;
+    }
+
+    /**
+     * Hash password with settings of this hasher
+     *
+     * @param password password
+     *
+     * @return Hashed password
+     *
+     * @throws NoSuchAlgorithmException
+     * @throws InvalidKeySpecException
+     * @throws NoSuchProviderException
+     */
+    @Nullable
+    public String hash(@NonNull String password) throws NoSuchAlgorithmException, InvalidKeySpecException, NoSuchProviderException {
+        return hashPasswordNonStatic(password);
     }
 
     /**
@@ -161,7 +208,7 @@ public class TGPasswordHasher {
 
         switch (mEncoderType) {
             case EncoderType.HEX:
-                return ((includeSalt ? HexCoder.toHex(salt.getBytes(Charset.forName("UTF8"))) + ":" : "") + HexCoder.toHex(data)).toLowerCase();
+                return includeSalt ? HexCoder.toLowerHex(salt.getBytes(Charset.forName("UTF8"))) + ":" + HexCoder.toLowerHex(data) : HexCoder.toLowerHex(data);
 
             case EncoderType.WEB_SAFE_BASE64:
                 return ((includeSalt ? Base64Coder.encodeWebSafe(salt.getBytes(Charset.forName("UTF8"))) + ":" : "") + Base64Coder.encodeWebSafe(data)).toLowerCase();
@@ -507,13 +554,29 @@ public class TGPasswordHasher {
         /**
          * HEX characters
          */
-        private final static String HEX = "0123456789ABCDEF";
+        private final static char[] HEX = "0123456789ABCDEF".toCharArray();
+        /**
+         * Lower case HEX characters
+         */
+        private final static char[] LOWER_HEX = "0123456789abcdef".toCharArray();
 
         /**
-         * Append the <code>byte</code> to the {@link StringBuffer}
+         * Encode bytes directly to characters of resulting String
+         *
+         * @param buf    bytes to encode
+         * @param digits HEX characters to use
+         *
+         * @return The HEX {@link String}
          */
-        private static void appendHex(@NonNull StringBuffer sb, byte b) {
-            sb.append(HEX.charAt((b >> 4) & 0x0f)).append(HEX.charAt(b & 0x0f));
+        @NonNull
+        private static String encode(@Nullable byte[] buf, @NonNull char[] digits) {
+            if (buf == null) { return ""; }
+            char[] result = new char[2 * buf.length];
+            for (int i = 0; i < buf.length; i++) {
+                result[2 * i] = digits[(buf[i] >> 4) & 0x0f];
+                result[2 * i + 1] = digits[buf[i] & 0x0f];
+            }
+            return new String(result);
         }
 
         /**
@@ -547,12 +610,17 @@ public class TGPasswordHasher {
          * @return The {@link String} of the <code>byte[]</code>
          */
         public static String toHex(@Nullable byte[] buf) {
-            if (buf == null) { return ""; }
-            StringBuffer result = new StringBuffer(2 * buf.length);
-            for (byte aBuf : buf) {
-                appendHex(result, aBuf);
-            }
-            return result.toString();
+            return encode(buf, HEX);
+        }
+
+        /**
+         * @param buf The <code>byte[]</code> to convert
+         *
+         * @return The lower case HEX {@link String} of the <code>byte[]</code>
+         */
+        @NonNull
+        public static String toLowerHex(@Nullable byte[] buf) {
+            return encode(buf, LOWER_HEX);
         }
 
         /**
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.benchmarks;
+
+import com.tapglue.utils.TGPasswordHasher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of password hashing for different amounts of PBKDF2 iterations - SDK uses 1000
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TGPasswordHasherBenchmark {
+
+    /**
+     * Amount of PBKDF2 iterations
+     */
+    @Param({"1000", "2000", "5000", "10000"})
+    public int iterations;
+
+    /**
+     * Hashed password
+     */
+    @Param({"password", "viJyFK%XuW=&K6mEh8mgA>eVjMAMFUzGcnn7yv"})
+    public String password;
+
+    /**
+     * Hasher with benchmarked iterations
+     */
+    private TGPasswordHasher mHasher;
+
+    @Setup
+    public void setUp() {
+        mHasher = new TGPasswordHasher(iterations, 160, TGPasswordHasher.EncoderType.HEX);
+    }
+
+    @Benchmark
+    public String hash() throws Exception {
+        return mHasher.hash(password);
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.reactive;
+
+import android.support.annotation.NonNull;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.tapglue.networking.requests.TGRequestCallback;
+import com.tapglue.networking.requests.TGRequestErrorType;
+import com.tapglue.networking.requests.TGRequestException;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+public class TGPagedPublisherTest extends TestCase {
+
+    @SmallTest
+    public void testPagesAreLoadedOnDemand() {
+        RecordingSource source = new RecordingSource(10);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher(source, 3).subscribe(subscriber);
+        assertTrue(source.mLoads.isEmpty());
+
+        subscriber.mSubscription.request(2);
+        assertEquals(Arrays.asList(0), source.mLoads);
+        source.finishPending();
+        assertEquals(Arrays.asList(0, 1), subscriber.mItems);
+
+        // third item of first page is already loaded
+        subscriber.mSubscription.request(1);
+        assertEquals(Arrays.asList(0), source.mLoads);
+        assertEquals(Arrays.asList(0, 1, 2), subscriber.mItems);
+
+        subscriber.mSubscription.request(4);
+        source.finishPending();
+        source.finishPending();
+        assertEquals(Arrays.asList(0, 3, 6), source.mLoads);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6), subscriber.mItems);
+        assertFalse(subscriber.mCompleted);
+    }
+
+    @SmallTest
+    public void testShortPageCompletesStream() {
+        RecordingSource source = new RecordingSource(4);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher(source, 3).subscribe(subscriber);
+
+        subscriber.mSubscription.request(Long.MAX_VALUE);
+        source.finishPending();
+        source.finishPending();
+        assertEquals(Arrays.asList(0, 1, 2, 3), subscriber.mItems);
+        assertTrue(subscriber.mCompleted);
+        assertNull(source.mPending);
+    }
+
+    @SmallTest
+    public void testCancelStopsLoading() {
+        RecordingSource source = new RecordingSource(10);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher(source, 3).subscribe(subscriber);
+
+        subscriber.mSubscription.request(5);
+        subscriber.mSubscription.cancel();
+        assertFalse(source.mPendingCallback.callbackIsEnabled());
+        source.finishPending();
+        assertTrue(subscriber.mItems.isEmpty());
+        assertEquals(1, source.mLoads.size());
+        assertFalse(subscriber.mCompleted);
+    }
+
+    @SmallTest
+    public void testErrorIsEmittedAsException() {
+        RecordingSource source = new RecordingSource(10);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher(source, 3).subscribe(subscriber);
+
+        subscriber.mSubscription.request(1);
+        source.mPendingCallback.onRequestError(new TGRequestErrorType(TGRequestErrorType.ErrorType.NO_NETWORK));
+        assertTrue(subscriber.mError instanceof TGRequestException);
+        assertEquals(TGRequestErrorType.ErrorType.NO_NETWORK, ((TGRequestException) subscriber.mError).getError().getType());
+    }
+
+    @SmallTest
+    public void testNonPositiveRequestIsError() {
+        RecordingSource source = new RecordingSource(10);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher(source, 3).subscribe(subscriber);
+
+        subscriber.mSubscription.request(0);
+        assertTrue(subscriber.mError instanceof IllegalArgumentException);
+        assertTrue(source.mLoads.isEmpty());
+    }
+
+    @SmallTest
+    public void testSynchronousSourceDoesNotRecurse() {
+        final List<Integer> loads = new ArrayList<>();
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher(new TGPagedPublisher.PageSource<Integer>() {
+            @Override
+            public void load(int offset, int limit, @NonNull TGRequestCallback<List<Integer>> callback) {
+                loads.add(offset);
+                List<Integer> page = new ArrayList<>();
+                for (int i = offset; i < Math.min(offset + limit, 1000); i++) {
+                    page.add(i);
+                }
+                callback.onRequestFinished(page, true);
+            }
+        }, 1).subscribe(subscriber);
+
+        subscriber.mSubscription.request(Long.MAX_VALUE);
+        assertEquals(1000, subscriber.mItems.size());
+        assertEquals(1001, loads.size());
+        assertTrue(subscriber.mCompleted);
+    }
+
+    /**
+     * Create publisher of source
+     *
+     * @param source   page source
+     * @param pageSize amount of items in page
+     *
+     * @return Publisher
+     */
+    @NonNull
+    private static TGPagedPublisher<Integer> publisher(@NonNull final TGPagedPublisher.PageSource<Integer> source, int pageSize) {
+        return new TGPagedPublisher<Integer>(pageSize) {
+            @NonNull
+            @Override
+            protected PageSource<Integer> openSource() {
+                return source;
+            }
+        };
+    }
+
+    /**
+     * Source of numbers finishing loads only when asked
+     */
+    private static class RecordingSource implements TGPagedPublisher.PageSource<Integer> {
+        final List<Integer> mLoads = new ArrayList<>();
+        final int mSize;
+        List<Integer> mPending;
+        TGRequestCallback<List<Integer>> mPendingCallback;
+
+        RecordingSource(int size) {
+            mSize = size;
+        }
+
+        @Override
+        public void load(int offset, int limit, @NonNull TGRequestCallback<List<Integer>> callback) {
+            mLoads.add(offset);
+            mPending = new ArrayList<>();
+            for (int i = offset; i < Math.min(offset + limit, mSize); i++) {
+                mPending.add(i);
+            }
+            mPendingCallback = callback;
+        }
+
+        void finishPending() {
+            List<Integer> page = mPending;
+            TGRequestCallback<List<Integer>> callback = mPendingCallback;
+            mPending = null;
+            mPendingCallback = null;
+            if (callback != null) { callback.onRequestFinished(page, true); }
+        }
+    }
+
+    /**
+     * Subscriber remembering signals
+     */
+    private static class RecordingSubscriber implements Subscriber<Integer> {
+        final List<Integer> mItems = new ArrayList<>();
+        boolean mCompleted;
+        Throwable mError;
+        Subscription mSubscription;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            mSubscription = subscription;
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            mItems.add(item);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            mError = t;
+        }
+
+        @Override
+        public void onComplete() {
+            mCompleted = true;
+        }
+    }
+}
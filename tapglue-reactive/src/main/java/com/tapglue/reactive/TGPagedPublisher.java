@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.reactive;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.tapglue.networking.requests.TGRequestCallback;
+import com.tapglue.networking.requests.TGRequestErrorType;
+import com.tapglue.networking.requests.TGRequestException;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Publisher loading items in pages as subscriber requests them. Next page is loaded only when all
+ * items of previous one were emitted and subscriber still has demand, so slow subscriber holds back
+ * loading instead of buffering. Errors of requests are emitted as {@link TGRequestException}.
+ *
+ * @param <T> type of items
+ */
+public abstract class TGPagedPublisher<T> implements Publisher<T> {
+
+    /**
+     * Source of pages of single subscription
+     *
+     * @param <T> type of items
+     */
+    public interface PageSource<T> {
+        /**
+         * Load page of items - page shorter than limit ends the stream
+         *
+         * @param offset   index of first item
+         * @param limit    maximal amount of items
+         * @param callback callback receiving items
+         */
+        void load(int offset, int limit, @NonNull TGRequestCallback<List<T>> callback);
+    }
+
+    /**
+     * Default amount of items loaded at once
+     */
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    /**
+     * Amount of items loaded at once
+     */
+    private final int mPageSize;
+
+    protected TGPagedPublisher(int pageSize) {
+        mPageSize = pageSize > 0 ? pageSize : DEFAULT_PAGE_SIZE;
+    }
+
+    /**
+     * Get amount of items loaded at once
+     *
+     * @return amount of items
+     */
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    /**
+     * Create source of pages for new subscription
+     *
+     * @return Page source
+     */
+    @NonNull
+    protected abstract PageSource<T> openSource();
+
+    @Override
+    public void subscribe(@Nullable Subscriber<? super T> subscriber) {
+        if (subscriber == null) { throw new NullPointerException("Subscriber can't be null"); }
+        subscriber.onSubscribe(new PagedSubscription<>(openSource(), mPageSize, subscriber));
+    }
+
+    /**
+     * Subscription emitting items of loaded pages. Signals to subscriber are serialized by drain
+     * loop - only thread which entered it first emits, others only record work for it.
+     *
+     * @param <T> type of items
+     */
+    private static class PagedSubscription<T> implements Subscription, TGRequestCallback<List<T>> {
+        /**
+         * Source of pages
+         */
+        @NonNull
+        private final PageSource<T> mSource;
+        /**
+         * Amount of items loaded at once
+         */
+        private final int mPageSize;
+        /**
+         * Subscriber receiving items
+         */
+        @NonNull
+        private final Subscriber<? super T> mSubscriber;
+        /**
+         * Loaded items not yet emitted
+         */
+        @NonNull
+        private final Queue<T> mBuffer = new ConcurrentLinkedQueue<>();
+        /**
+         * Requested items not yet emitted
+         */
+        @NonNull
+        private final AtomicLong mRequested = new AtomicLong();
+        /**
+         * Amount of drain requests not yet handled
+         */
+        @NonNull
+        private final AtomicInteger mWorkInProgress = new AtomicInteger();
+        /**
+         * Was subscription cancelled or terminated?
+         */
+        private volatile boolean mCancelled = false;
+        /**
+         * Is page being loaded?
+         */
+        private volatile boolean mLoading = false;
+        /**
+         * Was last page loaded?
+         */
+        private volatile boolean mExhausted = false;
+        /**
+         * Error to be emitted after loaded items
+         */
+        @Nullable
+        private volatile Throwable mError;
+        /**
+         * Offset of next page, used only by drain loop
+         */
+        private int mOffset = 0;
+
+        PagedSubscription(@NonNull PageSource<T> source, int pageSize, @NonNull Subscriber<? super T> subscriber) {
+            mSource = source;
+            mPageSize = pageSize;
+            mSubscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                mError = new IllegalArgumentException("Requested amount must be positive, was " + n);
+                mBuffer.clear();
+            }
+            else {
+                long current;
+                long next;
+                do {
+                    current = mRequested.get();
+                    next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                } while (!mRequested.compareAndSet(current, next));
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            mCancelled = true;
+            drain();
+        }
+
+        @Override
+        public boolean callbackIsEnabled() {
+            return !mCancelled;
+        }
+
+        @Override
+        public void onRequestError(TGRequestErrorType cause) {
+            if (!mLoading) { return; }
+            mError = new TGRequestException(cause);
+            mLoading = false;
+            drain();
+        }
+
+        @Override
+        public void onRequestFinished(List<T> page, boolean changeDoneOnline) {
+            if (!mLoading) { return; }
+            if (page != null) { mBuffer.addAll(page); }
+            if (page == null || page.size() < mPageSize) { mExhausted = true; }
+            mLoading = false;
+            drain();
+        }
+
+        /**
+         * Emit loaded items up to demand, terminate stream or load next page
+         */
+        private void drain() {
+            if (mWorkInProgress.getAndIncrement() != 0) { return; }
+            int missed = 1;
+            while (true) {
+                if (mCancelled) {
+                    mBuffer.clear();
+                }
+                else {
+                    emit();
+                }
+                missed = mWorkInProgress.addAndGet(-missed);
+                if (missed == 0) { break; }
+            }
+        }
+
+        /**
+         * Single pass of drain loop
+         */
+        private void emit() {
+            long requested = mRequested.get();
+            long emitted = 0;
+            while (emitted != requested && !mCancelled) {
+                T item = mBuffer.poll();
+                if (item == null) { break; }
+                mSubscriber.onNext(item);
+                emitted++;
+            }
+            if (emitted > 0 && requested != Long.MAX_VALUE) { mRequested.addAndGet(-emitted); }
+            if (mCancelled || !mBuffer.isEmpty()) { return; }
+
+            Throwable error = mError;
+            if (error != null) {
+                mCancelled = true;
+                mSubscriber.onError(error);
+            }
+            else if (mExhausted) {
+                mCancelled = true;
+                mSubscriber.onComplete();
+            }
+            else if (!mLoading && mRequested.get() > 0) {
+                mLoading = true;
+                int offset = mOffset;
+                mOffset += mPageSize;
+                mSource.load(offset, mPageSize, this);
+            }
+        }
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2015 Tapglue (https://www.tapglue.com/). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tapglue.reactive;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.tapglue.managers.TGFeedManagerInterface;
+import com.tapglue.managers.TGUserManagerInterface;
+import com.tapglue.model.TGConnectionUser;
+import com.tapglue.model.TGConnectionUsersList;
+import com.tapglue.model.TGEvent;
+import com.tapglue.model.TGFeed;
+import com.tapglue.networking.requests.TGRequestCallback;
+import com.tapglue.networking.requests.TGRequestErrorType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.reactivestreams.Publisher;
+
+/**
+ * Reactive Streams publishers of feeds, connection lists and search. Every subscription sends its
+ * own request when first item is requested. API returns whole lists, so network publishers keep
+ * response of subscription and emit it page by page as subscriber requests more; cached feed is
+ * read from disk page by page.
+ */
+public final class TGPublishers {
+
+    private TGPublishers() {
+    }
+
+    /**
+     * Publisher of events of cached feed, read from disk cache page by page. Stream is empty if
+     * feed was never cached
+     *
+     * @param feed     feed manager
+     * @param pageSize amount of events read at once
+     *
+     * @return Publisher of events
+     */
+    @NonNull
+    public static Publisher<TGEvent> cachedFeed(@NonNull final TGFeedManagerInterface feed, int pageSize) {
+        return new TGPagedPublisher<TGEvent>(pageSize) {
+            @NonNull
+            @Override
+            protected PageSource<TGEvent> openSource() {
+                return new PageSource<TGEvent>() {
+                    @Override
+                    public void load(int offset, int limit, @NonNull final TGRequestCallback<List<TGEvent>> callback) {
+                        feed.getCachedFeedIfAvailable(offset, limit, new TGRequestCallback<TGFeed>() {
+                            @Override
+                            public boolean callbackIsEnabled() {
+                                return callback.callbackIsEnabled();
+                            }
+
+                            @Override
+                            public void onRequestError(TGRequestErrorType cause) {
+                                if (cause.getType() == TGRequestErrorType.ErrorType.NO_CACHE_OBJECT) {
+                                    callback.onRequestFinished(Collections.<TGEvent>emptyList(), false);
+                                }
+                                else {
+                                    callback.onRequestError(cause);
+                                }
+                            }
+
+                            @Override
+                            public void onRequestFinished(TGFeed output, boolean changeDoneOnline) {
+                                callback.onRequestFinished(events(output), changeDoneOnline);
+                            }
+                        });
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Publisher of events of user
+     *
+     * @param feed     feed manager
+     * @param userId   ID of user or null for current user
+     * @param pageSize amount of events emitted at once
+     *
+     * @return Publisher of events
+     */
+    @NonNull
+    public static Publisher<TGEvent> events(@NonNull final TGFeedManagerInterface feed, @Nullable final Long userId, int pageSize) {
+        return new ListPublisher<TGFeed, TGEvent>(pageSize) {
+            @Override
+            void fetch(@NonNull TGRequestCallback<TGFeed> callback) {
+                if (userId == null) { feed.retrieveEventsForCurrentUser(callback); }
+                else { feed.retrieveEventsForUser(userId, callback); }
+            }
+
+            @NonNull
+            @Override
+            List<TGEvent> items(@Nullable TGFeed response) {
+                return events(response);
+            }
+        };
+    }
+
+    /**
+     * Publisher of events of current user feed
+     *
+     * @param feed     feed manager
+     * @param pageSize amount of events emitted at once
+     *
+     * @return Publisher of events
+     */
+    @NonNull
+    public static Publisher<TGEvent> feed(@NonNull final TGFeedManagerInterface feed, int pageSize) {
+        return new ListPublisher<TGFeed, TGEvent>(pageSize) {
+            @Override
+            void fetch(@NonNull TGRequestCallback<TGFeed> callback) {
+                feed.retrieveFeedForCurrentUser(callback);
+            }
+
+            @NonNull
+            @Override
+            List<TGEvent> items(@Nullable TGFeed response) {
+                return events(response);
+            }
+        };
+    }
+
+    /**
+     * Publisher of followers of user
+     *
+     * @param feed     feed manager
+     * @param userId   ID of user or null for current user
+     * @param pageSize amount of users emitted at once
+     *
+     * @return Publisher of users
+     */
+    @NonNull
+    public static Publisher<TGConnectionUser> followers(@NonNull final TGFeedManagerInterface feed, @Nullable final Long userId, int pageSize) {
+        return new UsersPublisher(pageSize) {
+            @Override
+            void fetch(@NonNull TGRequestCallback<TGConnectionUsersList> callback) {
+                if (userId == null) { feed.retrieveFollowersForCurrentUser(callback); }
+                else { feed.retrieveFollowersForUser(userId, callback); }
+            }
+        };
+    }
+
+    /**
+     * Publisher of users followed by user
+     *
+     * @param feed     feed manager
+     * @param userId   ID of user or null for current user
+     * @param pageSize amount of users emitted at once
+     *
+     * @return Publisher of users
+     */
+    @NonNull
+    public static Publisher<TGConnectionUser> follows(@NonNull final TGFeedManagerInterface feed, @Nullable final Long userId, int pageSize) {
+        return new UsersPublisher(pageSize) {
+            @Override
+            void fetch(@NonNull TGRequestCallback<TGConnectionUsersList> callback) {
+                if (userId == null) { feed.retrieveFollowsForCurrentUser(callback); }
+                else { feed.retrieveFollowsForUser(userId, callback); }
+            }
+        };
+    }
+
+    /**
+     * Publisher of friends of user
+     *
+     * @param feed     feed manager
+     * @param userId   ID of user or null for current user
+     * @param pageSize amount of users emitted at once
+     *
+     * @return Publisher of users
+     */
+    @NonNull
+    public static Publisher<TGConnectionUser> friends(@NonNull final TGFeedManagerInterface feed, @Nullable final Long userId, int pageSize) {
+        return new UsersPublisher(pageSize) {
+            @Override
+            void fetch(@NonNull TGRequestCallback<TGConnectionUsersList> callback) {
+                if (userId == null) { feed.retrieveFriendsForCurrentUser(callback); }
+                else { feed.retrieveFriendsForUser(userId, callback); }
+            }
+        };
+    }
+
+    /**
+     * Publisher of users found by search
+     *
+     * @param user     user manager
+     * @param query    searched text
+     * @param pageSize amount of users emitted at once
+     *
+     * @return Publisher of users
+     */
+    @NonNull
+    public static Publisher<TGConnectionUser> search(@NonNull final TGUserManagerInterface user, @NonNull final String query, int pageSize) {
+        return new UsersPublisher(pageSize) {
+            @Override
+            void fetch(@NonNull TGRequestCallback<TGConnectionUsersList> callback) {
+                user.search(query, callback);
+            }
+        };
+    }
+
+    /**
+     * Publisher of events of current user unread feed
+     *
+     * @param feed     feed manager
+     * @param pageSize amount of events emitted at once
+     *
+     * @return Publisher of events
+     */
+    @NonNull
+    public static Publisher<TGEvent> unreadFeed(@NonNull final TGFeedManagerInterface feed, int pageSize) {
+        return new ListPublisher<TGFeed, TGEvent>(pageSize) {
+            @Override
+            void fetch(@NonNull TGRequestCallback<TGFeed> callback) {
+                feed.retrieveUnreadFeedForCurrentUser(callback);
+            }
+
+            @NonNull
+            @Override
+            List<TGEvent> items(@Nullable TGFeed response) {
+                return events(response);
+            }
+        };
+    }
+
+    /**
+     * Get events of feed
+     *
+     * @param feed feed response
+     *
+     * @return Events, empty if there are none
+     */
+    @NonNull
+    private static List<TGEvent> events(@Nullable TGFeed feed) {
+        return feed != null && feed.getEvents() != null ? feed.getEvents() : Collections.<TGEvent>emptyList();
+    }
+
+    /**
+     * Publisher of list returned by single request
+     *
+     * @param <R> type of response
+     * @param <T> type of items
+     */
+    abstract static class ListPublisher<R, T> extends TGPagedPublisher<T> {
+
+        ListPublisher(int pageSize) {
+            super(pageSize);
+        }
+
+        /**
+         * Send request
+         *
+         * @param callback callback receiving response
+         */
+        abstract void fetch(@NonNull TGRequestCallback<R> callback);
+
+        /**
+         * Get items of response
+         *
+         * @param response response of request
+         *
+         * @return Items
+         */
+        @NonNull
+        abstract List<T> items(@Nullable R response);
+
+        @NonNull
+        @Override
+        protected PageSource<T> openSource() {
+            return new PageSource<T>() {
+                /**
+                 * Items of response, null until it arrives
+                 */
+                @Nullable
+                private List<T> mItems;
+
+                @Override
+                public void load(final int offset, final int limit, @NonNull final TGRequestCallback<List<T>> callback) {
+                    if (mItems != null) {
+                        callback.onRequestFinished(page(mItems, offset, limit), true);
+                        return;
+                    }
+                    fetch(new TGRequestCallback<R>() {
+                        @Override
+                        public boolean callbackIsEnabled() {
+                            return callback.callbackIsEnabled();
+                        }
+
+                        @Override
+                        public void onRequestError(TGRequestErrorType cause) {
+                            callback.onRequestError(cause);
+                        }
+
+                        @Override
+                        public void onRequestFinished(R output, boolean changeDoneOnline) {
+                            // pages already emitted came from first response, later ones would shift them
+                            if (mItems != null) { return; }
+                            mItems = items(output);
+                            callback.onRequestFinished(page(mItems, offset, limit), changeDoneOnline);
+                        }
+                    });
+                }
+            };
+        }
+
+        /**
+         * Copy page of items
+         *
+         * @param items  all items
+         * @param offset index of first item
+         * @param limit  maximal amount of items
+         *
+         * @return Page
+         */
+        @NonNull
+        private static <T> List<T> page(@NonNull List<T> items, int offset, int limit) {
+            int from = Math.min(offset, items.size());
+            int to = (int) Math.min((long) from + limit, items.size());
+            return new ArrayList<>(items.subList(from, to));
+        }
+    }
+
+    /**
+     * Publisher of users returned by single request
+     */
+    abstract static class UsersPublisher extends ListPublisher<TGConnectionUsersList, TGConnectionUser> {
+
+        UsersPublisher(int pageSize) {
+            super(pageSize);
+        }
+
+        @NonNull
+        @Override
+        List<TGConnectionUser> items(@Nullable TGConnectionUsersList response) {
+            return response != null && response.getUsers() != null ? response.getUsers() : Collections.<TGConnectionUser>emptyList();
+        }
+    }
+}